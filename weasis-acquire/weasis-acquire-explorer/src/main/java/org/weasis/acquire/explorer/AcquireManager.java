@@ -36,6 +36,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
 import java.util.stream.Collectors;
 
 import javax.swing.JOptionPane;
@@ -70,6 +71,7 @@ import org.weasis.core.api.util.ClosableURLConnection;
 import org.weasis.core.api.util.GzipManager;
 import org.weasis.core.api.util.NetworkUtil;
 import org.weasis.core.api.util.StringUtil;
+import org.weasis.core.api.util.ThreadUtil;
 import org.weasis.core.api.util.URLParameters;
 import org.weasis.core.ui.docking.UIManager;
 import org.weasis.core.ui.editor.image.ViewCanvas;
@@ -92,6 +94,12 @@ public class AcquireManager {
     public static final List<String> functions = Collections.unmodifiableList(Arrays.asList("patient")); //$NON-NLS-1$
     public static final Global GLOBAL = new Global();
 
+    // Bounded pool for loading, processing and encoding the images (the camera photos are large)
+    public static final int IMAGE_PROCESSING_THREADS =
+        Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+    public static final ExecutorService IMAGE_PROCESSING =
+        ThreadUtil.buildNewFixedThreadExecutor(IMAGE_PROCESSING_THREADS, "Acquire image processing"); //$NON-NLS-1$
+
     private static final int OPT_NONE = 0;
     private static final int OPT_B64 = 1;
     private static final int OPT_ZIP = 2;
@@ -10,9 +10,17 @@
 package org.weasis.acquire.explorer;
 
 import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.swing.SwingWorker;
 
@@ -27,6 +35,9 @@ import org.weasis.core.api.util.FileUtil;
  * Do the process of convert to JPEG and dicomize given image collection to a temporary folder. All the job is done
  * outside of the EDT instead of setting AcquireImageStatus change. But, full process progression can still be listened
  * with propertyChange notification of this workerTask.
+ * <p>
+ * The images are loaded, processed and encoded in parallel on a bounded pool, the results are collected in the order
+ * of the collection so that the instances of each series keep their order.
  *
  * @version $Rev$ $Date$
  */
@@ -36,6 +47,7 @@ public class DicomizeTask extends SwingWorker<File, AcquireImageInfo> {
     private static final Logger LOGGER = LoggerFactory.getLogger(DicomizeTask.class);
 
     private final Collection<AcquireImageInfo> toDicomize;
+    private volatile List<File> dicomFiles = Collections.emptyList();
 
     public DicomizeTask(Collection<AcquireImageInfo> toDicomize) {
         this.toDicomize = Objects.requireNonNull(toDicomize);
@@ -51,6 +63,11 @@ public class DicomizeTask extends SwingWorker<File, AcquireImageInfo> {
 
         final int nbImageToProcess = toDicomize.size();
         int nbImageProcessed = 0;
+        Deque<Future<Boolean>> pending = new ArrayDeque<>();
+        Deque<AcquireImageInfo> pendingInfos = new ArrayDeque<>();
+        List<File> files = new ArrayList<>(nbImageToProcess);
+        // Skips the images not started when cancelling
+        AtomicBoolean aborted = new AtomicBoolean(false);
 
         try {
             Transform2Dicom.buildStudySeriesDate(toDicomize, AcquireManager.GLOBAL);
@@ -58,24 +75,96 @@ public class DicomizeTask extends SwingWorker<File, AcquireImageInfo> {
             String seriesInstanceUID = UIDUtils.createUID(); // Global series for all PR
 
             for (AcquireImageInfo imageInfo : toDicomize) {
-                if (!Transform2Dicom.dicomize(imageInfo, exportDirDicom, exportDirImage, seriesInstanceUID)) {
-                    FileUtil.recursiveDelete(exportDirDicom);
-                    return null;
+                while (pending.size() >= AcquireManager.IMAGE_PROCESSING_THREADS * 2) {
+                    if (!completeNext(pending, pendingInfos, exportDirDicom, files)) {
+                        return cancel(pending, aborted, exportDirDicom);
+                    }
+                    setProgress(++nbImageProcessed * 100 / nbImageToProcess);
+                }
+                pending.add(AcquireManager.IMAGE_PROCESSING.submit(() -> !aborted.get()
+                    && Transform2Dicom.dicomize(imageInfo, exportDirDicom, exportDirImage, seriesInstanceUID)));
+                pendingInfos.add(imageInfo);
+            }
+            while (!pending.isEmpty()) {
+                if (!completeNext(pending, pendingInfos, exportDirDicom, files)) {
+                    return cancel(pending, aborted, exportDirDicom);
                 }
                 setProgress(++nbImageProcessed * 100 / nbImageToProcess);
-                publish(imageInfo);
             }
         } catch (Exception ex) {
-            LOGGER.error("Dicomize process", ex); //$NON-NLS-1$
-            FileUtil.recursiveDelete(exportDirDicom);
-            return null;
+            if (ex instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            } else {
+                LOGGER.error("Dicomize process", ex); //$NON-NLS-1$
+            }
+            return cancel(pending, aborted, exportDirDicom);
         } finally {
             FileUtil.recursiveDelete(exportDirImage);
         }
 
+        // The presentation states are sent after the images
+        Set<File> imageFiles = new HashSet<>(files);
+        File[] allFiles = exportDirDicom.listFiles();
+        if (allFiles != null) {
+            for (File f : allFiles) {
+                if (!imageFiles.contains(f)) {
+                    files.add(f);
+                }
+            }
+        }
+        this.dicomFiles = Collections.unmodifiableList(files);
+
         return exportDirDicom;
     }
 
+    private boolean completeNext(Deque<Future<Boolean>> pending, Deque<AcquireImageInfo> pendingInfos,
+        File exportDirDicom, List<File> files) throws Exception {
+        // Remove the task only when completed, so that cancel() still waits for it after an interruption
+        boolean done = pending.peek().get();
+        pending.poll();
+        AcquireImageInfo imageInfo = pendingInfos.poll();
+        if (!done || isCancelled()) {
+            return false;
+        }
+        files.add(new File(exportDirDicom, imageInfo.getUID()));
+        publish(imageInfo);
+        return true;
+    }
+
+    private static File cancel(Deque<Future<Boolean>> pending, AtomicBoolean aborted, File exportDirDicom) {
+        aborted.set(true);
+        // Wait for the running tasks before deleting their files. The thread can be interrupted by the cancellation of
+        // this task, so wait without interruption and restore the status at the end.
+        boolean interrupted = false;
+        for (Future<Boolean> f : pending) {
+            boolean completed = false;
+            while (!completed) {
+                try {
+                    f.get();
+                    completed = true;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (Exception e) {
+                    // Already logged or irrelevant when canceling
+                    completed = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        FileUtil.recursiveDelete(exportDirDicom);
+        return null;
+    }
+
+    /**
+     * @return the DICOM files in the order of the images (each series keeps the order of its instances), followed by
+     *         the presentation states. Empty until the task is done.
+     */
+    public List<File> getDicomFiles() {
+        return dicomFiles;
+    }
+
     @Override
     protected void process(List<AcquireImageInfo> chunks) {
         chunks.stream().forEach(AcquireImageInfo.changeStatus(AcquireImageStatus.SUBMITTED));
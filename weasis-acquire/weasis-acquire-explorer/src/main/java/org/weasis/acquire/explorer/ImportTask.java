@@ -9,11 +9,14 @@
  *******************************************************************************/
 package org.weasis.acquire.explorer;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import javax.swing.SwingWorker;
 
@@ -28,6 +31,8 @@ import org.weasis.core.api.media.data.ImageElement;
  * associated to a valid SeriesGroup depending of the searchedSeries type (NONE,DATE,NAME). This part is done within the
  * EDT to avoid concurrencies issues. Full process progression can still be listened with propertyChange notification of
  * this workerTask.
+ * <p>
+ * The images are loaded in parallel on a bounded pool and imported in the order of the collection.
  *
  * @version $Rev$ $Date$
  */
@@ -53,22 +58,39 @@ public class ImportTask extends SwingWorker<List<AcquireImageInfo>, AcquireImage
         int nbImageProcessed = 0;
 
         List<AcquireImageInfo> imagesToProcess = new ArrayList<>(imagesToImport.size());
+        Deque<Future<AcquireImageInfo>> pending = new ArrayDeque<>();
 
-        for (ImageElement imageElement : imagesToImport) {
-            try {
-                AcquireImageInfo imageInfo = AcquireManager.findByImage(imageElement);
-                if (imageInfo != null) {
-                    imagesToProcess.add(imageInfo);
+        try {
+            for (ImageElement imageElement : imagesToImport) {
+                while (pending.size() >= AcquireManager.IMAGE_PROCESSING_THREADS * 2) {
+                    addImageInfo(pending.poll(), imagesToProcess);
+                    setProgress(++nbImageProcessed * 100 / nbImageToProcess);
                 }
-            } catch (Exception ex) {
-                LOGGER.error("ImportTask process", ex); //$NON-NLS-1$
+                pending.add(AcquireManager.IMAGE_PROCESSING.submit(() -> AcquireManager.findByImage(imageElement)));
+            }
+            while (!pending.isEmpty()) {
+                addImageInfo(pending.poll(), imagesToProcess);
+                setProgress(++nbImageProcessed * 100 / nbImageToProcess);
             }
-            setProgress(++nbImageProcessed * 100 / nbImageToProcess);
+        } finally {
+            pending.forEach(f -> f.cancel(false));
         }
 
         return imagesToProcess;
     }
 
+    private static void addImageInfo(Future<AcquireImageInfo> future, List<AcquireImageInfo> imagesToProcess)
+        throws InterruptedException {
+        try {
+            AcquireImageInfo imageInfo = future.get();
+            if (imageInfo != null) {
+                imagesToProcess.add(imageInfo);
+            }
+        } catch (ExecutionException ex) {
+            LOGGER.error("ImportTask process", ex.getCause()); //$NON-NLS-1$
+        }
+    }
+
     @Override
     protected void done() {
 
@@ -11,6 +11,7 @@ package org.weasis.acquire.explorer;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
@@ -24,11 +25,10 @@ import org.weasis.core.api.media.data.TagW;
 import org.weasis.core.api.service.BundleTools;
 import org.weasis.core.api.util.FileUtil;
 import org.weasis.dicom.codec.TagD;
-import org.weasis.dicom.op.CStore;
+import org.weasis.dicom.explorer.DicomSendEngine;
 import org.weasis.dicom.param.AdvancedParams;
 import org.weasis.dicom.param.ConnectOptions;
 import org.weasis.dicom.param.DicomNode;
-import org.weasis.dicom.param.DicomProgress;
 import org.weasis.dicom.param.DicomState;
 
 /**
@@ -36,6 +36,10 @@ import org.weasis.dicom.param.DicomState;
  * destination. All the job is done outside of the EDT instead of setting AcquireImageStatus change and removing related
  * Acquired Images from the dataModel. But, full process progression can still be listened with propertyChange
  * notification of this workerTask.
+ * <p>
+ * When the list of files is given, the files are sent in this order instead of the order of the folder, so that the
+ * instances of each series are stored in their acquisition order. The files are sent over the parallel associations of
+ * {@link DicomSendEngine}.
  *
  * @version $Rev$ $Date$
  */
@@ -44,40 +48,51 @@ public class PublishDicomTask extends SwingWorker<DicomState, File> {
     private static final Logger LOGGER = LoggerFactory.getLogger(PublishDicomTask.class);
 
     private final File exportDirDicom;
+    private final List<File> dicomFiles;
     private final DicomNode callingNode;
     private final DicomNode destinationNode;
 
-    private final DicomProgress dicomProgress = new DicomProgress();
+    private final DicomSendEngine sendEngine;
 
     public PublishDicomTask(File exportDirDicom, DicomNode destinationNode) {
+        this(exportDirDicom, null, destinationNode);
+    }
+
+    /**
+     * @param exportDirDicom
+     *            the temporary folder containing the files, deleted when the task is done
+     * @param dicomFiles
+     *            the files to send in order, if null or empty all the files of the folder are sent
+     * @param destinationNode
+     *            the destination
+     */
+    public PublishDicomTask(File exportDirDicom, List<File> dicomFiles, DicomNode destinationNode) {
         this.exportDirDicom = Objects.requireNonNull(exportDirDicom);
+        this.dicomFiles = dicomFiles == null ? Collections.emptyList() : dicomFiles;
         this.destinationNode = Objects.requireNonNull(destinationNode);
         this.callingNode = new DicomNode(BundleTools.SYSTEM_PREFERENCES.getProperty("weasis.aet", "WEASIS_AE")); //$NON-NLS-1$ //$NON-NLS-2$
         LOGGER.debug("destinationNode is : {}", destinationNode); //$NON-NLS-1$
-        initDicomProgress();
-    }
-
-    private void initDicomProgress() {
-        dicomProgress.addProgressListener(progress -> {
-            int completed = progress.getNumberOfCompletedSuboperations() + progress.getNumberOfFailedSuboperations();
-            int remaining = progress.getNumberOfRemainingSuboperations();
-
-            setProgress((completed * 100) / (completed + remaining));
-            publish(progress.getProcessedFile());
+        this.sendEngine = new DicomSendEngine((file, failed, processed, total) -> {
+            setProgress((processed * 100) / total);
+            if (!failed) {
+                publish(file);
+            }
         });
     }
 
     @Override
     protected DicomState doInBackground() throws Exception {
-        List<String> exportFilesDicomPath = new ArrayList<>();
-        exportFilesDicomPath.add(exportDirDicom.getPath());
+        List<File> files = new ArrayList<>(dicomFiles);
+        if (files.isEmpty()) {
+            FileUtil.getAllFilesInDirectory(exportDirDicom, files);
+        }
         AdvancedParams params = new AdvancedParams();
         ConnectOptions connectOptions = new ConnectOptions();
         connectOptions.setConnectTimeout(3000);
         connectOptions.setAcceptTimeout(5000);
         params.setConnectOptions(connectOptions);
         try {
-            return CStore.process(params, callingNode, destinationNode, exportFilesDicomPath, dicomProgress);
+            return sendEngine.cstore(params, callingNode, destinationNode, files);
         } finally {
             FileUtil.recursiveDelete(exportDirDicom);
         }
@@ -85,14 +100,13 @@ public class PublishDicomTask extends SwingWorker<DicomState, File> {
 
     @Override
     protected void process(List<File> chunks) {
-        if (!dicomProgress.isLastFailed()) {
-            chunks.stream().filter(Objects::nonNull).map(imageFile -> AcquireManager.findByUId(imageFile.getName()))
-                .filter(Objects::nonNull).forEach(imageInfo -> {
-                    imageInfo.setStatus(AcquireImageStatus.PUBLISHED);
-                    imageInfo.getImage().setTag(TagW.Checked, Boolean.TRUE);
-                    AcquireManager.getInstance().removeImage(imageInfo);
-                });
-        }
+        // Only the stored files are published
+        chunks.stream().filter(Objects::nonNull).map(imageFile -> AcquireManager.findByUId(imageFile.getName()))
+            .filter(Objects::nonNull).forEach(imageInfo -> {
+                imageInfo.setStatus(AcquireImageStatus.PUBLISHED);
+                imageInfo.getImage().setTag(TagW.Checked, Boolean.TRUE);
+                AcquireManager.getInstance().removeImage(imageInfo);
+            });
     }
 
     @Override
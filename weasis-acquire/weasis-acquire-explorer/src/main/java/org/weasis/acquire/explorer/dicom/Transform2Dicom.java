@@ -34,8 +34,10 @@ import org.weasis.core.api.image.util.Unit;
 import org.weasis.core.api.media.data.ImageElement;
 import org.weasis.core.api.media.data.TagW;
 import org.weasis.core.api.media.data.Tagable;
+import org.weasis.core.api.service.BundleTools;
 import org.weasis.core.api.util.FileUtil;
 import org.weasis.core.ui.model.GraphicModel;
+import org.weasis.core.ui.serialize.XmlSerializer;
 import org.weasis.dicom.codec.TagD;
 import org.weasis.dicom.codec.TagD.Level;
 import org.weasis.dicom.codec.utils.DicomMediaUtils;
@@ -48,6 +50,11 @@ public final class Transform2Dicom {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(Transform2Dicom.class);
 
+    /**
+     * Quality of the JPEG encoding (1-100) of the images which must be transformed before being dicomized
+     */
+    public static final String P_JPEG_QUALITY = "weasis.acquire.dicomize.jpeg.quality"; //$NON-NLS-1$
+
     private Transform2Dicom() {
     }
 
@@ -92,7 +99,8 @@ public final class Transform2Dicom {
             // (float) -area.getY(), null, null);
             // }
 
-            MatOfInt map = new MatOfInt(Imgcodecs.IMWRITE_JPEG_QUALITY, 80);
+            int quality = BundleTools.SYSTEM_PREFERENCES.getIntProperty(P_JPEG_QUALITY, 80);
+            MatOfInt map = new MatOfInt(Imgcodecs.IMWRITE_JPEG_QUALITY, Math.max(1, Math.min(100, quality)));
             if (!ImageProcessor.writeImage(transformedImage.toImageCV(), imgFile, map)) {
                 // out of memory ??
                 FileUtil.delete(imgFile);
@@ -123,7 +131,7 @@ public final class Transform2Dicom {
             }
 
             // Presentation State
-            GraphicModel grModel = (GraphicModel) imageElement.getTagValue(TagW.PresentationModel);
+            GraphicModel grModel = XmlSerializer.getPresentationModel(imageElement);
             if (grModel != null && grModel.hasSerializableGraphics()) {
                 Point2D offset = null;
                 Rectangle crop =
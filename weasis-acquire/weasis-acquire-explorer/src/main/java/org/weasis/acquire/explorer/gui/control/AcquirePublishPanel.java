@@ -12,6 +12,7 @@ package org.weasis.acquire.explorer.gui.control;
 import java.awt.Dimension;
 import java.beans.PropertyChangeEvent;
 import java.io.File;
+import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 
@@ -62,8 +63,13 @@ public class AcquirePublishPanel extends JPanel {
     }
 
     public void publishDirDicom(File exportDirDicom, DicomNode destinationNode) {
+        publishDirDicom(exportDirDicom, null, destinationNode);
+    }
+
+    public void publishDirDicom(File exportDirDicom, List<File> dicomFiles, DicomNode destinationNode) {
 
-        SwingWorker<DicomState, File> publishDicomTask = new PublishDicomTask(exportDirDicom, destinationNode);
+        SwingWorker<DicomState, File> publishDicomTask =
+            new PublishDicomTask(exportDirDicom, dicomFiles, destinationNode);
         publishDicomTask.addPropertyChangeListener(this::publishChanged);
 
         PUBLISH_DICOM.execute(publishDicomTask);
@@ -83,7 +89,8 @@ public class AcquirePublishPanel extends JPanel {
                 try {
                     SwingWorker<DicomState, File> publishDicomTask = (SwingWorker<DicomState, File>) evt.getSource();
                     final DicomState dicomState = publishDicomTask.get();
-                    if (dicomState.getStatus() != Status.Success && dicomState.getStatus() != Status.Cancel) {
+                    if (dicomState != null && dicomState.getStatus() != Status.Success
+                        && dicomState.getStatus() != Status.Cancel) {
                         LOGGER.error("Dicom send error: {}", dicomState.getMessage()); //$NON-NLS-1$
                         JOptionPane.showMessageDialog(WinUtil.getParentWindow(AcquirePublishPanel.this),
                             dicomState.getMessage(), null, // $NON-NLS-1$
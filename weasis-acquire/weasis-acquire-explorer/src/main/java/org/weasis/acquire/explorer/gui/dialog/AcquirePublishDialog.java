@@ -31,7 +31,6 @@ import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JProgressBar;
-import javax.swing.SwingWorker;
 import javax.swing.SwingWorker.StateValue;
 import javax.swing.WindowConstants;
 import javax.swing.border.EmptyBorder;
@@ -283,7 +282,7 @@ public class AcquirePublishDialog extends JDialog {
             }
         }
 
-        SwingWorker<File, AcquireImageInfo> dicomizeTask = new DicomizeTask(toPublish);
+        DicomizeTask dicomizeTask = new DicomizeTask(toPublish);
         ActionListener taskCancelActionListener = e -> dicomizeTask.cancel(true);
 
         dicomizeTask.addPropertyChangeListener(evt -> {
@@ -316,7 +315,8 @@ public class AcquirePublishDialog extends JDialog {
                         if (exportDirDicom != null) {
                             AbstractDicomNode node = (AbstractDicomNode) comboNode.getSelectedItem();
                             if (node instanceof DefaultDicomNode) {
-                                publishPanel.publishDirDicom(exportDirDicom, ((DefaultDicomNode) node).getDicomNode());
+                                publishPanel.publishDirDicom(exportDirDicom, dicomizeTask.getDicomFiles(),
+                                    ((DefaultDicomNode) node).getDicomNode());
                                 clearAndHide();
                             }
                         } else {
@@ -71,6 +71,14 @@ public abstract class SliderCineListener extends SliderChangeListener {
                 } else if (TIME.HOUR.equals(time)) {
                     buffer.append(Messages.getString("SliderCineListener.fph")); //$NON-NLS-1$
                 }
+                int dropped = getDroppedFrames();
+                if (dropped > 0) {
+                    buffer.append(" ("); //$NON-NLS-1$
+                    buffer.append(dropped);
+                    buffer.append(" "); //$NON-NLS-1$
+                    buffer.append(Messages.getString("SliderCineListener.dropped")); //$NON-NLS-1$
+                    buffer.append(")"); //$NON-NLS-1$
+                }
             }
             ((TitledBorder) panel.getBorder()).setTitleColor(
                 rate > 0 && rate < (getSpeed() - 1) ? Color.red : UIManager.getColor("TitledBorder.titleColor")); //$NON-NLS-1$
@@ -85,6 +93,17 @@ public abstract class SliderCineListener extends SliderChangeListener {
         return 0;
     }
 
+    /**
+     * @return the number of frames not displayed at their scheduled time since the cine has started
+     */
+    public int getDroppedFrames() {
+        return 0;
+    }
+
+    public TIME getTime() {
+        return time;
+    }
+
     public void setSpeed(int speed) {
         speedModel.setValue(speed);
     }
@@ -0,0 +1,315 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2020 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.weasis.core.api.image.cv;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import org.opencv.core.Core;
+import org.opencv.core.Core.MinMaxLocResult;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfDouble;
+import org.opencv.core.MatOfFloat;
+import org.opencv.core.MatOfInt;
+import org.opencv.core.Point;
+import org.opencv.core.Scalar;
+import org.opencv.imgproc.Imgproc;
+import org.weasis.core.api.util.ThreadUtil;
+import org.weasis.opencv.data.ImageCV;
+import org.weasis.opencv.op.ImageProcessor;
+
+/**
+ * Statistics of the native images computed in parallel over bands of rows.
+ * <p>
+ * Each band is a header on the rows of the source (no copy). The results of the bands are merged exactly: min/max with
+ * their location, pixel count, mean and variance (with the parallel algorithm of Chan et al.) and histograms (sum of
+ * the bins). Small images are computed in the calling thread.
+ */
+public final class BandStatistics {
+
+    /** Minimum number of pixels of a band, below the cost of a task is not worth it */
+    static final int MIN_BAND_PIXELS = 256 * 1024;
+
+    private static final int NB_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    private static final ExecutorService EXECUTOR =
+        ThreadUtil.buildNewFixedThreadExecutor(NB_THREADS, "Image Statistics"); //$NON-NLS-1$
+
+    private BandStatistics() {
+    }
+
+    /**
+     * Pixel count, mean and sum of the squared differences from the mean of a channel.
+     */
+    public static final class Moments {
+        private final long count;
+        private final double mean;
+        private final double m2;
+
+        public Moments(long count, double mean, double m2) {
+            this.count = count;
+            this.mean = mean;
+            this.m2 = m2;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getMean() {
+            return count == 0 ? Double.NaN : mean;
+        }
+
+        /**
+         * @return the sample variance
+         */
+        public double getVariance() {
+            return count < 2 ? 0.0 : m2 / (count - 1);
+        }
+
+        public double getStandardDeviation() {
+            return Math.sqrt(getVariance());
+        }
+
+        public Moments merge(Moments other) {
+            if (other == null || other.count == 0) {
+                return this;
+            }
+            if (count == 0) {
+                return other;
+            }
+            long n = count + other.count;
+            double delta = other.mean - mean;
+            return new Moments(n, mean + delta * other.count / n,
+                m2 + other.m2 + delta * delta * ((double) count * other.count / n));
+        }
+    }
+
+    /**
+     * @param rows
+     *            the number of rows of the image
+     * @param cols
+     *            the number of columns of the image
+     * @param maxBands
+     *            the maximum number of bands
+     * @return the start (inclusive) and end (exclusive) rows of each band
+     */
+    static List<int[]> getBands(int rows, int cols, int maxBands) {
+        long pixels = (long) rows * Math.max(1, cols);
+        int nb = (int) Math.max(1, Math.min(Math.min(maxBands, rows), pixels / MIN_BAND_PIXELS));
+        List<int[]> bands = new ArrayList<>(nb);
+        int start = 0;
+        for (int i = 0; i < nb; i++) {
+            int end = (int) ((long) rows * (i + 1) / nb);
+            bands.add(new int[] { start, end });
+            start = end;
+        }
+        return bands;
+    }
+
+    private static <T> List<T> execute(Mat source, Function<int[], T> task) {
+        List<int[]> bands = getBands(source.rows(), source.cols(), NB_THREADS);
+        if (bands.size() == 1) {
+            return Collections.singletonList(task.apply(bands.get(0)));
+        }
+        List<Future<T>> futures = new ArrayList<>(bands.size());
+        for (int[] band : bands) {
+            futures.add(EXECUTOR.submit(() -> task.apply(band)));
+        }
+        List<T> results = new ArrayList<>(bands.size());
+        try {
+            for (Future<T> f : futures) {
+                results.add(f.get());
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(f -> f.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Statistics interrupted", e); //$NON-NLS-1$
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+        return results;
+    }
+
+    private static Mat rows(Mat mat, int[] band) {
+        return mat == null || mat.empty() ? null : mat.rowRange(band[0], band[1]);
+    }
+
+    /**
+     * Computes the min and max values of all the channels.
+     *
+     * @param source
+     *            the image
+     * @param mask
+     *            the 8-bit mask of the pixels to consider or null for all the pixels
+     * @return the min/max values and their locations, or null when there is no pixel to consider
+     */
+    public static MinMaxLocResult minMaxLoc(Mat source, Mat mask) {
+        if (source == null || source.empty()) {
+            return null;
+        }
+        return merge(execute(source, band -> ImageProcessor.minMaxLoc(rows(source, band), rows(mask, band))),
+            getBands(source.rows(), source.cols(), NB_THREADS));
+    }
+
+    /**
+     * Computes the min and max values excluding the range of the padding values.
+     *
+     * @param source
+     *            the single channel image
+     * @param paddingValue
+     *            the padding value or null
+     * @param paddingLimit
+     *            the padding range limit or null
+     * @return the min/max values and their locations, or null when there is no pixel to consider
+     */
+    public static MinMaxLocResult findMinMaxValues(Mat source, Integer paddingValue, Integer paddingLimit) {
+        if (paddingValue == null) {
+            return minMaxLoc(source, null);
+        }
+        if (source == null || source.empty()) {
+            return null;
+        }
+        int low = paddingLimit == null ? paddingValue : Math.min(paddingValue, paddingLimit);
+        int high = paddingLimit == null ? paddingValue : Math.max(paddingValue, paddingLimit);
+        return merge(execute(source, band -> {
+            Mat src = rows(source, band);
+            try (ImageCV mask = new ImageCV()) {
+                Core.inRange(src, new Scalar(low), new Scalar(high), mask);
+                Core.bitwise_not(mask, mask);
+                return ImageProcessor.minMaxLoc(src, mask);
+            }
+        }), getBands(source.rows(), source.cols(), NB_THREADS));
+    }
+
+    private static MinMaxLocResult merge(List<MinMaxLocResult> results, List<int[]> bands) {
+        MinMaxLocResult result = null;
+        for (int i = 0; i < results.size(); i++) {
+            MinMaxLocResult r = results.get(i);
+            // No pixel in the band when all the pixels are masked
+            if (r == null || r.minLoc == null || r.minLoc.x < 0) {
+                continue;
+            }
+            int offset = bands.get(i)[0];
+            if (result == null) {
+                result = new MinMaxLocResult();
+                result.minVal = Double.MAX_VALUE;
+                result.maxVal = -Double.MAX_VALUE;
+            }
+            if (r.minVal < result.minVal) {
+                result.minVal = r.minVal;
+                result.minLoc = new Point(r.minLoc.x, r.minLoc.y + offset);
+            }
+            if (r.maxVal > result.maxVal) {
+                result.maxVal = r.maxVal;
+                result.maxLoc = new Point(r.maxLoc.x, r.maxLoc.y + offset);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Computes the pixel count, the mean and the variance of each channel.
+     *
+     * @param source
+     *            the image
+     * @param mask
+     *            the 8-bit mask of the pixels to consider or null for all the pixels
+     * @return the moments of each channel
+     */
+    public static Moments[] meanStdDev(Mat source, Mat mask) {
+        if (source == null || source.empty()) {
+            return new Moments[0];
+        }
+        List<Moments[]> results = execute(source, band -> {
+            Mat src = rows(source, band);
+            Mat msk = rows(mask, band);
+            int channels = src.channels();
+            long count = msk == null ? src.total() : Core.countNonZero(msk);
+            Moments[] moments = new Moments[channels];
+            if (count == 0) {
+                for (int c = 0; c < channels; c++) {
+                    moments[c] = new Moments(0, 0.0, 0.0);
+                }
+                return moments;
+            }
+            MatOfDouble mean = new MatOfDouble();
+            MatOfDouble stddev = new MatOfDouble();
+            Core.meanStdDev(src, mean, stddev, msk == null ? new Mat() : msk);
+            double[] m = mean.toArray();
+            double[] s = stddev.toArray();
+            for (int c = 0; c < channels; c++) {
+                // OpenCV returns the population standard deviation
+                moments[c] = new Moments(count, m[c], s[c] * s[c] * count);
+            }
+            mean.release();
+            stddev.release();
+            return moments;
+        });
+
+        Moments[] moments = results.get(0);
+        for (int i = 1; i < results.size(); i++) {
+            Moments[] r = results.get(i);
+            for (int c = 0; c < moments.length; c++) {
+                moments[c] = moments[c].merge(r[c]);
+            }
+        }
+        return moments;
+    }
+
+    /**
+     * Computes the histogram of a single channel image.
+     *
+     * @param channel
+     *            the single channel image (8-bit, 16-bit unsigned or 32-bit float)
+     * @param mask
+     *            the 8-bit mask of the pixels to consider or null for all the pixels
+     * @param nbBins
+     *            the number of bins
+     * @param min
+     *            the lower boundary (inclusive) of the first bin
+     * @param max
+     *            the upper boundary (exclusive) of the last bin
+     * @return the histogram as a column of floats
+     */
+    public static Mat calcHist(Mat channel, Mat mask, int nbBins, float min, float max) {
+        MatOfInt histSize = new MatOfInt(nbBins);
+        MatOfFloat histRange = new MatOfFloat(min, max);
+        List<Mat> results = execute(channel, band -> {
+            Mat msk = rows(mask, band);
+            Mat hist = new Mat();
+            Imgproc.calcHist(Collections.singletonList(rows(channel, band)), new MatOfInt(0),
+                msk == null ? new Mat() : msk, hist, histSize, histRange, false);
+            return hist;
+        });
+
+        Mat hist = results.get(0);
+        for (int i = 1; i < results.size(); i++) {
+            Mat h = results.get(i);
+            Core.add(hist, h, hist);
+            h.release();
+        }
+        if (hist.empty()) {
+            hist = Mat.zeros(nbBins, 1, CvType.CV_32F);
+        }
+        return hist;
+    }
+}
@@ -348,7 +348,7 @@ public class ImageCVIO implements MediaReader {
                         params = new HashMap<>(2);
                         double min = 0;
                         double max = 65536;
-                        MinMaxLocResult val = ImageProcessor.findMinMaxValues(img.toMat());
+                        MinMaxLocResult val = BandStatistics.minMaxLoc(img.toMat(), null);
                         if (val != null) {
                             min = val.minVal;
                             max = val.maxVal;
@@ -28,6 +28,7 @@ import org.weasis.core.api.gui.util.MathUtil;
 import org.weasis.core.api.image.LutShape;
 import org.weasis.core.api.image.OpManager;
 import org.weasis.core.api.image.ZoomOp;
+import org.weasis.core.api.image.cv.BandStatistics;
 import org.weasis.core.api.image.cv.CvUtil;
 import org.weasis.core.api.image.measure.MeasurementsAdapter;
 import org.weasis.core.api.image.util.Unit;
@@ -90,7 +91,7 @@ public class ImageElement extends MediaElement {
                 this.minPixelValue = 0.0;
                 this.maxPixelValue = 255.0;
             } else {
-                MinMaxLocResult val = ImageProcessor.findMinMaxValues(img.toMat());
+                MinMaxLocResult val = BandStatistics.minMaxLoc(img.toMat(), null);
                 if (val != null) {
                     this.minPixelValue = val.minVal;
                     this.maxPixelValue = val.maxVal;
@@ -98,7 +99,7 @@ public class ImageElement extends MediaElement {
 
                 // Handle special case when min and max are equal, ex. black image
                 // + 1 to max enables to display the correct value
-                if (this.minPixelValue.equals(this.maxPixelValue)) {
+                if (isImageAvailable() && this.minPixelValue.equals(this.maxPixelValue)) {
                     this.maxPixelValue += 1.0;
                 }
             }
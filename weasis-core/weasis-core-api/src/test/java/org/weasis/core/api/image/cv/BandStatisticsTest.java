@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2020 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.weasis.core.api.image.cv;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.weasis.core.api.image.cv.BandStatistics.Moments;
+
+public class BandStatisticsTest {
+
+    @Test
+    public void testSmallImageHasOneBand() {
+        List<int[]> bands = BandStatistics.getBands(64, 64, 8);
+        Assert.assertEquals(1, bands.size());
+        Assert.assertArrayEquals(new int[] { 0, 64 }, bands.get(0));
+    }
+
+    @Test
+    public void testBandsCoverAllRows() {
+        int rows = 3001;
+        List<int[]> bands = BandStatistics.getBands(rows, 2500, 7);
+        Assert.assertEquals(7, bands.size());
+        int start = 0;
+        for (int[] band : bands) {
+            Assert.assertEquals(start, band[0]);
+            Assert.assertTrue(band[1] > band[0]);
+            start = band[1];
+        }
+        Assert.assertEquals(rows, start);
+    }
+
+    @Test
+    public void testBandsAreLimitedByRows() {
+        Assert.assertEquals(3, BandStatistics.getBands(3, 1_000_000, 8).size());
+    }
+
+    @Test
+    public void testMergeMoments() {
+        double[] data = { 2.0, 4.0, 4.0, 4.0, 5.0, 5.0, 7.0, 9.0, -3.5, 12.25 };
+        Moments all = moments(data, 0, data.length);
+        Moments merged = moments(data, 0, 3).merge(moments(data, 3, 4)).merge(moments(data, 4, data.length));
+
+        Assert.assertEquals(all.getCount(), merged.getCount());
+        Assert.assertEquals(all.getMean(), merged.getMean(), 1e-12);
+        Assert.assertEquals(all.getVariance(), merged.getVariance(), 1e-12);
+        Assert.assertEquals(all.getStandardDeviation(), merged.getStandardDeviation(), 1e-12);
+    }
+
+    @Test
+    public void testMergeEmptyMoments() {
+        Moments empty = new Moments(0, 0.0, 0.0);
+        Moments m = new Moments(4, 2.5, 5.0);
+        Assert.assertSame(m, empty.merge(m));
+        Assert.assertSame(m, m.merge(empty));
+        Assert.assertTrue(Double.isNaN(empty.getMean()));
+        Assert.assertEquals(0.0, empty.getVariance(), 0.0);
+    }
+
+    private static Moments moments(double[] data, int start, int end) {
+        double mean = 0.0;
+        for (int i = start; i < end; i++) {
+            mean += data[i];
+        }
+        mean /= end - start;
+        double m2 = 0.0;
+        for (int i = start; i < end; i++) {
+            m2 += (data[i] - mean) * (data[i] - mean);
+        }
+        return new Moments(end - start, mean, m2);
+    }
+}
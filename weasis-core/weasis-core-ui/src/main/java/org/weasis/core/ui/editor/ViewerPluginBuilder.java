@@ -38,8 +38,6 @@ import org.weasis.core.api.media.data.Series;
 import org.weasis.core.api.media.data.TagW;
 import org.weasis.core.api.service.BundleTools;
 import org.weasis.core.ui.docking.UIManager;
-import org.weasis.core.ui.model.GraphicModel;
-import org.weasis.core.ui.serialize.XmlSerializer;
 
 public class ViewerPluginBuilder {
     private static final Logger LOGGER = LoggerFactory.getLogger(ViewerPluginBuilder.class);
@@ -266,9 +264,9 @@ public class ViewerPluginBuilder {
                     Optional<File> fo = fc.getOriginalFile();
                     if (fc.isLocalFile() && fo.isPresent()) {                      
                         File gpxFile = new File(fo.get().getPath() + ".xml"); //$NON-NLS-1$
-                        GraphicModel graphicModel = XmlSerializer.readPresentationModel(gpxFile);
-                        if (graphicModel != null) {
-                            media.setTag(TagW.PresentationModel, graphicModel);
+                        if (gpxFile.canRead()) {
+                            // The graphics are read when required (see XmlSerializer.getPresentationModel)
+                            media.setTag(TagW.PresentationModelFile, gpxFile.getPath());
                         }
                     }
                 }
@@ -0,0 +1,262 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2020 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.weasis.core.ui.editor.image;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntFunction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.weasis.core.api.gui.util.GuiExecutor;
+import org.weasis.core.api.gui.util.SliderCineListener;
+import org.weasis.core.api.gui.util.SliderCineListener.TIME;
+import org.weasis.core.api.media.data.ImageElement;
+import org.weasis.core.api.service.BundleTools;
+import org.weasis.core.api.util.ThreadUtil;
+
+/**
+ * Plays the frames of a cine slider at a constant rate.
+ * <p>
+ * The frames are scheduled with a monotonic clock and given to the EDT without waiting. When a frame cannot be
+ * displayed at its scheduled time (late scheduler or busy EDT), it is dropped to hold the rate.
+ * <p>
+ * The next frames in the playback direction are read in background through the image loader, so that they are in the
+ * cache of the images when they are displayed. When the next frame is still being read, the current frame is repeated.
+ * <p>
+ * Each playback has its own thread, which stops as soon as another playback starts. The images to read are resolved in
+ * the EDT, the prefetch thread never reads the state of the views.
+ */
+public class CineEngine {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CineEngine.class);
+
+    /** Number of frames read ahead of the displayed frame */
+    public static final String P_CINE_BUFFER_SIZE = "weasis.cine.buffer.size"; //$NON-NLS-1$
+
+    // The images are read one by one by the image loader, more threads would only wait for it
+    private static final ExecutorService PREFETCH = ThreadUtil.buildNewSingleThreadExecutor("Cine prefetch"); //$NON-NLS-1$
+
+    private final SliderCineListener listener;
+    private final IntFunction<ImageElement> frameProvider;
+    private final Executor loader;
+    private final int prefetchSize;
+    private final long timeUnitNanos;
+    private final Set<Integer> loadingValues = ConcurrentHashMap.newKeySet();
+
+    private final AtomicBoolean framePending = new AtomicBoolean(false);
+    private final AtomicInteger displayedFrames = new AtomicInteger(0);
+    private final AtomicInteger droppedFrames = new AtomicInteger(0);
+    private volatile long periodNanos;
+    private volatile int currentRate;
+    // The token of the current playback, null when stopped
+    private volatile Object playback;
+    private Thread thread;
+
+    // State of the clock, only used by the playback thread
+    private long nextFrameTime;
+    private int carriedFrames;
+
+    /**
+     * @param listener
+     *            the slider of the frames
+     * @param frameProvider
+     *            gives the image of a slider value (can return null), always called in the EDT
+     */
+    public CineEngine(SliderCineListener listener, IntFunction<ImageElement> frameProvider) {
+        this(listener, frameProvider, PREFETCH,
+            Math.max(0, BundleTools.SYSTEM_PREFERENCES.getIntProperty(P_CINE_BUFFER_SIZE, 16)));
+    }
+
+    CineEngine(SliderCineListener listener, IntFunction<ImageElement> frameProvider, Executor loader,
+        int prefetchSize) {
+        this.listener = listener;
+        this.frameProvider = frameProvider;
+        this.loader = loader;
+        this.prefetchSize = prefetchSize;
+        TIME time = listener.getTime();
+        this.timeUnitNanos = TIME.SECOND.equals(time) ? TimeUnit.SECONDS.toNanos(1)
+            : TIME.MINUTE.equals(time) ? TimeUnit.MINUTES.toNanos(1) : TimeUnit.HOURS.toNanos(1);
+    }
+
+    public synchronized void start() {
+        if (thread == null) {
+            Object token = startClock(System.nanoTime());
+            Thread t = ThreadUtil.getThreadFactory("Cine").newThread(() -> run(token)); //$NON-NLS-1$
+            thread = t;
+            t.start();
+        }
+    }
+
+    public synchronized void stop() {
+        playback = null;
+        Thread t = thread;
+        thread = null;
+        if (t != null) {
+            t.interrupt();
+        }
+    }
+
+    public boolean isRunning() {
+        return playback != null;
+    }
+
+    private boolean isCurrentRun(Object token) {
+        return token != null && playback == token;
+    }
+
+    /**
+     * Applies the speed of the slider, must be called when the speed changes.
+     */
+    public void updateSpeed() {
+        periodNanos = timeUnitNanos / Math.max(1, listener.getSpeed());
+    }
+
+    /**
+     * @return the achieved rate in frames by time unit of the slider
+     */
+    public int getCurrentRate() {
+        return currentRate;
+    }
+
+    public int getDroppedFrames() {
+        return droppedFrames.get();
+    }
+
+    /**
+     * Starts a new playback whose first frame is due at the given time.
+     *
+     * @return the token of the playback
+     */
+    Object startClock(long now) {
+        updateSpeed();
+        currentRate = listener.getSpeed();
+        displayedFrames.set(0);
+        droppedFrames.set(0);
+        framePending.set(false);
+        nextFrameTime = now;
+        carriedFrames = 0;
+        Object token = new Object();
+        playback = token;
+        return token;
+    }
+
+    private void run(Object token) {
+        Thread current = Thread.currentThread();
+        long rateStart = System.nanoTime();
+        // parkNanos() does not clear the interrupted status, so a stopped playback must also check the token
+        while (isCurrentRun(token) && !current.isInterrupted()) {
+            long now = System.nanoTime();
+            long wait = scheduleFrame(token, now);
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+                continue;
+            }
+
+            long elapsed = now - rateStart;
+            if (elapsed >= TimeUnit.SECONDS.toNanos(1)) {
+                currentRate = (int) Math.round(displayedFrames.getAndSet(0) * (double) timeUnitNanos / elapsed);
+                rateStart = now;
+            }
+        }
+    }
+
+    /**
+     * Gives the frame due at the given time to the EDT. The frames whose time is already over are dropped.
+     *
+     * @return the time to wait before the next frame in nanoseconds, or 0 when a frame was due
+     */
+    long scheduleFrame(Object token, long now) {
+        long wait = nextFrameTime - now;
+        if (wait > 0) {
+            return wait;
+        }
+
+        long period = periodNanos;
+        long late = -wait / period;
+        nextFrameTime += (late + 1) * period;
+        if (late > 0) {
+            droppedFrames.addAndGet((int) late);
+        }
+        int step = carriedFrames + (int) late + 1;
+
+        if (framePending.compareAndSet(false, true)) {
+            carriedFrames = 0;
+            GuiExecutor.instance().execute(() -> showFrame(token, step));
+        } else {
+            // The EDT has not displayed the previous frame yet
+            droppedFrames.incrementAndGet();
+            carriedFrames = step;
+        }
+        return 0;
+    }
+
+    private void showFrame(Object token, int step) {
+        try {
+            if (!isCurrentRun(token)) {
+                return;
+            }
+            int value = nextValue(listener.getSliderValue(), step);
+            if (loadingValues.contains(value)) {
+                // Repeat the current frame until the next one is read
+                droppedFrames.incrementAndGet();
+                return;
+            }
+            listener.setSliderValue(value);
+            displayedFrames.incrementAndGet();
+            prefetch(token, value);
+        } finally {
+            framePending.set(false);
+        }
+    }
+
+    private int nextValue(int value, int step) {
+        int min = listener.getSliderMin();
+        int max = listener.getSliderMax();
+        int range = max - min + 1;
+        int index = value + step;
+        if (index > max) {
+            index = min + (index - min) % range;
+        }
+        return index;
+    }
+
+    private void prefetch(Object token, int value) {
+        int range = listener.getSliderMax() - listener.getSliderMin() + 1;
+        for (int k = 1; k <= Math.min(prefetchSize, range - 1); k++) {
+            int frameValue = nextValue(value, k);
+            if (!loadingValues.contains(frameValue)) {
+                // Get the image in the EDT, the prefetch thread only reads its pixels
+                ImageElement image = frameProvider.apply(frameValue);
+                if (image != null && !image.isImageInCache() && loadingValues.add(frameValue)) {
+                    loader.execute(() -> load(token, image, frameValue));
+                }
+            }
+        }
+    }
+
+    private void load(Object token, ImageElement image, int frameValue) {
+        try {
+            if (isCurrentRun(token)) {
+                // Put the image in the cache of the images, where the view will get it
+                image.getImage();
+            }
+        } catch (Exception e) {
+            LOGGER.error("Cannot read the cine frame {}", frameValue, e); //$NON-NLS-1$
+        } finally {
+            loadingValues.remove(frameValue);
+        }
+    }
+}
@@ -121,6 +121,7 @@ import org.weasis.core.ui.model.utils.bean.PanPoint;
 import org.weasis.core.ui.model.utils.bean.PanPoint.State;
 import org.weasis.core.ui.model.utils.imp.DefaultViewModel;
 import org.weasis.core.ui.pref.Monitor;
+import org.weasis.core.ui.serialize.XmlSerializer;
 import org.weasis.core.ui.util.DefaultAction;
 import org.weasis.core.ui.util.MouseEventDouble;
 import org.weasis.core.ui.util.TitleMenuItem;
@@ -468,6 +469,8 @@ public abstract class DefaultView2d<E extends ImageElement> extends GraphicsPane
         if (mediaSeries == null) {
             return;
         }
+        // Release the summed-area tables of the last frame used for the statistics
+        RegionStatistics.release();
         boolean open = false;
         synchronized (UIManager.VIEWER_PLUGINS) {
             List<ViewerPlugin<?>> plugins = UIManager.VIEWER_PLUGINS;
@@ -609,7 +612,7 @@ public abstract class DefaultView2d<E extends ImageElement> extends GraphicsPane
             imageLayer.setEnableDispOperations(true);
 
             if (updateGraphics) {
-                GraphicModel modelList = (GraphicModel) img.getTagValue(TagW.PresentationModel);
+                GraphicModel modelList = XmlSerializer.getPresentationModel(img);
                 // After getting a new image iterator, update the measurements
                 if (modelList == null) {
                     modelList = new XmlGraphicModel(img);
@@ -78,6 +78,28 @@ public class ExportImage<E extends ImageElement> extends DefaultView2d<E> {
         this.imagePrintingResolution = imagePrintingResolution;
     }
 
+    private boolean isPrinterDrawing(Graphics2D g2d) {
+        // TODO fix rotation issue
+        Integer rotationAngle = (Integer) actionsInView.get(ActionW.ROTATION.cmd());
+        return (rotationAngle == null || rotationAngle == 0) && g2d.getClass().getName().contains("print"); //$NON-NLS-1$
+    }
+
+    /**
+     * Process the display image which will be drawn in the graphics, at the printing resolution for a printer. The
+     * display operations can be disabled while setting the size and the zoom of the view, so the image is processed
+     * only once here. Can be called concurrently for different views.
+     *
+     * @param g2d
+     *            the graphics where the view will be drawn
+     */
+    public void prepareDrawing(Graphics2D g2d) {
+        if (isPrinterDrawing(g2d)) {
+            imageLayer.preparePrinterImage(imagePrintingResolution);
+        } else if (!imageLayer.isEnableDispOperations()) {
+            imageLayer.setEnableDispOperations(true);
+        }
+    }
+
     @Override
     public void disposeView() {
         disableMouseAndKeyListener();
@@ -120,9 +142,7 @@ public class ExportImage<E extends ImageElement> extends DefaultView2d<E> {
         Point2D p = getClipViewCoordinatesOffset();
         g2d.translate(p.getX(), p.getY());
         
-        // TODO fix rotation issue
-        Integer rotationAngle = (Integer) actionsInView.get(ActionW.ROTATION.cmd());
-        if ((rotationAngle == null || rotationAngle == 0) && g2d.getClass().getName().contains("print")) { //$NON-NLS-1$
+        if (isPrinterDrawing(g2d)) {
             imageLayer.drawImageForPrinter(g2d, imagePrintingResolution, this);
         } else {
             imageLayer.drawImage(g2d);
@@ -21,9 +21,9 @@ import java.util.stream.Collectors;
 import org.opencv.core.Core;
 import org.opencv.core.CvType;
 import org.opencv.core.Mat;
-import org.opencv.core.MatOfFloat;
-import org.opencv.core.MatOfInt;
 import org.opencv.imgproc.Imgproc;
+import org.weasis.core.api.image.cv.BandStatistics;
+import org.weasis.core.api.image.cv.BandStatistics.Moments;
 import org.weasis.core.api.image.op.ByteLut;
 import org.weasis.core.api.image.op.ByteLutCollection;
 import org.weasis.core.api.image.op.ByteLutCollection.Lut;
@@ -46,6 +46,7 @@ public class HistogramData {
     private WindLevelParameters windLevel;
     private DisplayByteLut lut;
     private LookupTableCV voiLut;
+    private Moments moments;
 
     public enum Model {
         GRAY(Messages.getString("HistogramData.lum"), buildLut(ByteLutCollection.Lut.GRAY)), //$NON-NLS-1$
@@ -139,6 +140,17 @@ public class HistogramData {
         this.voiLut = voiLut;
     }
 
+    /**
+     * @return the exact moments of the pixel values (before the modality transformation) or null
+     */
+    public Moments getMoments() {
+        return moments;
+    }
+
+    public void setMoments(Moments moments) {
+        this.moments = moments;
+    }
+
     public int getBandIndex() {
         return bandIndex;
     }
@@ -225,9 +237,6 @@ public class HistogramData {
         if (selChannels.length == 0) {
             return Collections.emptyList();
         }
-        // Number of histogram bins
-        MatOfInt histSize = new MatOfInt(nbBins);
-        MatOfFloat histRange = new MatOfFloat((float) pixMin, (float) pixMax + 1.0f);
         Mat img;
         int cvType = CvType.depth(imageSource.type());
         if (cvType == CvType.CV_16S || cvType ==  CvType.CV_32S) {
@@ -262,19 +271,16 @@ public class HistogramData {
             }
         }
         
-        Mat msk = mask == null ? new Mat() : mask;
-
+        // Computed in parallel over bands of rows
+        float min = (float) pixMin;
+        float max = (float) pixMax + 1.0f;
         if (channels.size() == 1) {
-            Mat hist = new Mat();
-            Imgproc.calcHist(channels, new MatOfInt(0), msk, hist, histSize, histRange, false);
-            return Arrays.asList(hist);
+            return Arrays.asList(BandStatistics.calcHist(channels.get(0), mask, nbBins, min, max));
         }
 
         List<Mat> histograms = new ArrayList<>();
         for (int i = 0; i < selChannels.length; i++) {
-            Mat hist = new Mat();
-            Imgproc.calcHist(channels, new MatOfInt(selChannels[i]), msk, hist, histSize, histRange, false);
-            histograms.add(hist);
+            histograms.add(BandStatistics.calcHist(channels.get(selChannels[i]), mask, nbBins, min, max));
         }
         return histograms;
     }
@@ -38,6 +38,7 @@ import javax.swing.JPanel;
 import javax.swing.JSpinner;
 import javax.swing.JTable;
 import javax.swing.SpinnerNumberModel;
+import javax.swing.Timer;
 import javax.swing.border.TitledBorder;
 
 import org.opencv.core.Mat;
@@ -47,6 +48,7 @@ import org.weasis.core.api.gui.util.JMVUtils;
 import org.weasis.core.api.image.OpManager;
 import org.weasis.core.api.image.PseudoColorOp;
 import org.weasis.core.api.image.WindowOp;
+import org.weasis.core.api.image.cv.BandStatistics.Moments;
 import org.weasis.core.api.image.op.ByteLut;
 import org.weasis.core.api.image.util.MeasurableLayer;
 import org.weasis.core.api.image.util.WindLevelParameters;
@@ -87,10 +89,12 @@ public class HistogramView extends JComponent implements SeriesViewerListener, G
         }
     };
     private final JComboBox<Model> jComboBoxImgChannel = new JComboBox<>();
+    private final Timer refreshTimer = new Timer(SynchDispatcher.getFrameInterval(), e -> buildHistogram());
     private AbstractDragGraphicArea selectedGraphic;
 
     public HistogramView(SeriesViewer<?> viewer) {
         this.viewer = viewer;
+        refreshTimer.setRepeats(false);
         setLayout(new BorderLayout());
         view.setLayout(new BorderLayout());
         add(view, BorderLayout.CENTER);
@@ -335,13 +339,28 @@ public class HistogramView extends JComponent implements SeriesViewerListener, G
             }
             try {
                 int nbins = (Integer) spinnerBins.getValue();
-                List<Mat> imgPr = ImageRegionStatistics.prepareInputImages(selectedGraphic, layer);
-                if (imgPr.size() > 1) {
-                    Mat srcImg = imgPr.get(0);
-                    Mat mask = imgPr.get(1);
-                    List<Mat> listHisto =
-                        HistogramData.computeHistogram(srcImg, mask, nbins, selChannels, colorModel, pixMin, pixMax);
-
+                List<float[]> listHisto = new ArrayList<>(channels);
+                Moments moments = null;
+                if (channels == 1) {
+                    // Incremental computation when the graphic is dragged
+                    RegionStatistics.Result result = ImageRegionStatistics.computeRegionHistogram(selectedGraphic,
+                        layer, nbins, pixMin, pixMax);
+                    if (result != null) {
+                        listHisto.add(result.getBins());
+                        moments = result.getMoments();
+                    }
+                } else {
+                    List<Mat> imgPr = ImageRegionStatistics.prepareInputImages(selectedGraphic, layer);
+                    if (imgPr.size() > 1) {
+                        for (Mat h : HistogramData.computeHistogram(imgPr.get(0), imgPr.get(1), nbins, selChannels,
+                            colorModel, pixMin, pixMax)) {
+                            float[] histValues = new float[h.rows()];
+                            h.get(0, 0, histValues);
+                            listHisto.add(histValues);
+                        }
+                    }
+                }
+                if (!listHisto.isEmpty()) {
                     ByteLut[] lut = colorModel.getByteLut();
                     DisplayByteLut[] displut = getLut(p, colorModel);
                     for (int i = 0; i < lut.length; i++) {
@@ -361,11 +380,9 @@ public class HistogramView extends JComponent implements SeriesViewerListener, G
                                 old[i].isLogarithmic(), old[i].isShowIntensity());
                         }
                         histView.add(chartPanel);
-                        Mat h = listHisto.get(i);
-                        float[] histValues = new float[h.rows()];
-                        h.get(0, 0, histValues);
                         HistogramData data =
-                            new HistogramData(histValues, displut[i], i, colorModel, p, pixMin, pixMax, layer);
+                            new HistogramData(listHisto.get(i), displut[i], i, colorModel, p, pixMin, pixMax, layer);
+                        data.setMoments(moments);
                         data.updateVoiLut(view2DPane);
                         chartPanel.setHistogramBins(data);
                     }
@@ -413,8 +430,9 @@ public class HistogramView extends JComponent implements SeriesViewerListener, G
 
     @Override
     public void updateMeasuredItems(List<MeasureItem> measureList) {
-        if (selectedGraphic != null) {
-            buildHistogram();
+        if (selectedGraphic != null && !refreshTimer.isRunning()) {
+            // At most one update by display refresh while the graphic is dragged, the last one reads the final shape
+            refreshTimer.start();
         }
     }
 
@@ -32,6 +32,8 @@ import org.opencv.core.Mat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.weasis.core.api.gui.util.MathUtil;
+import org.weasis.core.api.image.cv.BandStatistics;
+import org.weasis.core.api.image.cv.BandStatistics.Moments;
 import org.weasis.core.api.image.op.ByteLut;
 import org.weasis.core.api.image.util.MeasurableLayer;
 import org.weasis.core.api.image.util.Unit;
@@ -52,12 +54,8 @@ public class ImageRegionStatistics {
 
     public static List<Mat> prepareInputImages(AbstractDragGraphicArea graphic, MeasurableLayer layer) {
         if (layer != null && layer.hasContent()) {
-            Shape shape = null;
-            if (graphic != null) {
-                if (!graphic.isShapeValid()) {
-                    return Collections.emptyList();
-                }
-                shape = graphic.getShape();
+            if (graphic != null && !graphic.isShapeValid()) {
+                return Collections.emptyList();
             }
 
             PlanarImage image = layer.getSourceRenderedImage();
@@ -65,38 +63,110 @@ public class ImageRegionStatistics {
                 return Collections.emptyList();
             }
 
-            Shape roi = null;
-            if (shape != null) {
-                AffineTransform transform = layer.getShapeTransform();
-                Point offset = layer.getOffset();
-                if (offset != null) {
-                    if (transform == null) {
-                        transform = AffineTransform.getTranslateInstance(-offset.getX(), -offset.getY());
-                    } else {
-                        transform.translate(-offset.getX(), -offset.getY());
-                    }
-                }
-                if (transform != null) {
-                    // Rescale ROI, if needed
-                    roi = transform.createTransformedShape(shape);
-                } else {
-                    roi = shape;
-                }
-            }
-
             // Always apply pixel padding (deactivate in Display has no effect in statistics)
             Integer paddingValue = (Integer) layer.getSourceTagValue(TagW.get("PixelPaddingValue")); //$NON-NLS-1$
             Integer paddingLimit = (Integer) layer.getSourceTagValue(TagW.get("PixelPaddingRangeLimit")); //$NON-NLS-1$
-            return ImageProcessor.getMaskImage(image.toMat(), roi, paddingValue, paddingLimit);
+            return ImageProcessor.getMaskImage(image.toMat(), getImageRegion(graphic, layer), paddingValue,
+                paddingLimit);
         }
         return Collections.emptyList();
     }
 
+    private static Shape getImageRegion(AbstractDragGraphicArea graphic, MeasurableLayer layer) {
+        Shape shape = graphic == null ? null : graphic.getShape();
+        if (shape == null) {
+            return null;
+        }
+        AffineTransform transform = layer.getShapeTransform();
+        Point offset = layer.getOffset();
+        if (offset != null) {
+            if (transform == null) {
+                transform = AffineTransform.getTranslateInstance(-offset.getX(), -offset.getY());
+            } else {
+                transform.translate(-offset.getX(), -offset.getY());
+            }
+        }
+        if (transform != null) {
+            // Rescale ROI, if needed
+            return transform.createTransformedShape(shape);
+        }
+        return shape;
+    }
+
+    /**
+     * Computes the histogram of the region of a single channel image. The histogram of a graphic whose previous region
+     * is known is updated incrementally, see {@link RegionStatistics}. Otherwise it is computed in parallel on the
+     * whole region and becomes the base of the next update of the graphic.
+     *
+     * @return the histogram and the exact moments of the region, or null when the image has several channels or when
+     *         the region is outside the image
+     */
+    static RegionStatistics.Result computeRegionHistogram(AbstractDragGraphicArea graphic, MeasurableLayer layer,
+        int nbBins, double pixMin, double pixMax) {
+        if (layer == null || !layer.hasContent() || (graphic != null && !graphic.isShapeValid())) {
+            return null;
+        }
+        PlanarImage image = layer.getSourceRenderedImage();
+        if (image == null || image.channels() != 1) {
+            return null;
+        }
+        Integer paddingValue = (Integer) layer.getSourceTagValue(TagW.get("PixelPaddingValue")); //$NON-NLS-1$
+        Integer paddingLimit = (Integer) layer.getSourceTagValue(TagW.get("PixelPaddingRangeLimit")); //$NON-NLS-1$
+        Mat source = image.toMat();
+        Shape roi = getImageRegion(graphic, layer);
+        if (RegionStatistics.hasPreviousRegion(source, graphic, paddingValue, paddingLimit, nbBins, pixMin, pixMax)) {
+            return RegionStatistics.compute(source, graphic, roi, paddingValue, paddingLimit, nbBins, pixMin, pixMax);
+        }
+
+        List<Mat> imgPr = ImageProcessor.getMaskImage(source, roi, paddingValue, paddingLimit);
+        if (imgPr.size() < 2) {
+            return null;
+        }
+        List<Mat> hist = HistogramData.computeHistogram(imgPr.get(0), imgPr.get(1), nbBins, new int[] { 0 },
+            Model.GRAY, pixMin, pixMax);
+        if (hist.isEmpty()) {
+            return null;
+        }
+        float[] bins = new float[hist.get(0).rows()];
+        hist.get(0).get(0, 0, bins);
+        Moments[] moments = BandStatistics.meanStdDev(imgPr.get(0), imgPr.get(1));
+        if (graphic != null) {
+            RegionStatistics.setRegion(source, graphic, roi, paddingValue, paddingLimit, pixMin, pixMax, bins);
+        }
+        return new RegionStatistics.Result(bins, moments.length > 0 ? moments[0] : null);
+    }
+
+    static int getDefaultNumberOfBins(int cvType, double pixMin, double pixMax) {
+        int datatype = ImageConversion.convertToDataType(cvType);
+        boolean intVal = datatype >= DataBuffer.TYPE_BYTE && datatype < DataBuffer.TYPE_INT;
+        return intVal ? (int) pixMax - (int) pixMin + 1 : 1024;
+    }
+
     public static List<MeasureItem> getImageStatistics(MeasurableLayer layer) {
         return getImageStatistics(null, layer, true);
     }
 
     public static List<HistogramData> getHistogram(AbstractDragGraphicArea graphic, MeasurableLayer layer) {
+        PlanarImage image = layer == null || !layer.hasContent() ? null : layer.getSourceRenderedImage();
+        if (image != null && image.channels() == 1) {
+            double pixMin = layer.getPixelMin();
+            double pixMax = layer.getPixelMax();
+            try {
+                RegionStatistics.Result result = computeRegionHistogram(graphic, layer,
+                    getDefaultNumberOfBins(image.type(), pixMin, pixMax), pixMin, pixMax);
+                if (result != null) {
+                    DisplayByteLut displut = new DisplayByteLut(Model.GRAY.getByteLut()[0]);
+                    HistogramData data =
+                        new HistogramData(result.getBins(), displut, 0, Model.GRAY, null, pixMin, pixMax, layer);
+                    data.setMoments(result.getMoments());
+                    return Collections.singletonList(data);
+                }
+            } catch (Exception e) {
+                LOGGER.error("Build histogram", e); //-NLS-1$
+            }
+            return Collections.emptyList();
+        }
+
         List<Mat> imgPr = prepareInputImages(graphic, layer);
         if (imgPr.size() > 1) {
             Mat srcImg = imgPr.get(0);
@@ -113,12 +183,12 @@ public class ImageRegionStatistics {
             }
 
             List<HistogramData> data = new ArrayList<>();
-            int datatype = ImageConversion.convertToDataType(srcImg.type());
-            boolean intVal = datatype >= DataBuffer.TYPE_BYTE && datatype < DataBuffer.TYPE_INT;
             try {
-                int nbins = intVal ? (int) pixMax - (int) pixMin + 1 : 1024;
+                int nbins = getDefaultNumberOfBins(srcImg.type(), pixMin, pixMax);
                 List<Mat> listHisto =
                     HistogramData.computeHistogram(srcImg, mask, nbins, selChannels, colorModel, pixMin, pixMax);
+                // Exact mean and standard deviation, independent of the bin size
+                Moments[] moments = BandStatistics.meanStdDev(srcImg, mask);
 
                 ByteLut[] lut = colorModel.getByteLut();
                 DisplayByteLut[] displut = new DisplayByteLut[lut.length];
@@ -128,7 +198,12 @@ public class ImageRegionStatistics {
                     Mat h = listHisto.get(i);
                     float[] histValues = new float[h.rows()];
                     h.get(0, 0, histValues);
-                    data.add(new HistogramData(histValues, displut[i], i, colorModel, null, pixMin, pixMax, layer));
+                    HistogramData hist =
+                        new HistogramData(histValues, displut[i], i, colorModel, null, pixMin, pixMax, layer);
+                    if (i < moments.length) {
+                        hist.setMoments(moments[i]);
+                    }
+                    data.add(hist);
                 }
             } catch (Exception e) {
                 LOGGER.error("Build histogram", e); //$NON-NLS-1$
@@ -231,6 +306,14 @@ public class ImageRegionStatistics {
                 skew = 0.0;
                 kurtosis = 0.0;
             }
+            Moments moments = data.getMoments();
+            double slope = moments == null ? Double.NaN : getLinearSlope(layer, offset, data.getPixMax());
+            if (!Double.isNaN(slope)) {
+                // Exact values computed from the pixels, independent of the bin size
+                mean = layer.pixelToRealValue(moments.getMean());
+                stdev = moments.getStandardDeviation() * Math.abs(slope);
+            }
+
             String unit = layer.getPixelValueUnit();
             addMeasure(measList, IMAGE_PIXELS, channelIndex, sum, Unit.PIXEL.getAbbreviation());
             addMeasure(measList, IMAGE_MIN, channelIndex, min, unit);
@@ -257,6 +340,25 @@ public class ImageRegionStatistics {
         return Collections.emptyList();
     }
 
+    /**
+     * @return the slope of the transformation of the pixel values into real values, or NaN when it is not linear
+     */
+    private static double getLinearSlope(MeasurableLayer layer, double pixMin, double pixMax) {
+        if (pixMax <= pixMin) {
+            return Double.NaN;
+        }
+        double y0 = layer.pixelToRealValue(pixMin);
+        double slope = (layer.pixelToRealValue(pixMax) - y0) / (pixMax - pixMin);
+        for (double t : new double[] { 0.25, 0.5, 0.75 }) {
+            double x = pixMin + t * (pixMax - pixMin);
+            double y = layer.pixelToRealValue(x);
+            if (Math.abs(y - (y0 + slope * (x - pixMin))) > 1e-6 * Math.max(1.0, Math.abs(y))) {
+                return Double.NaN;
+            }
+        }
+        return slope;
+    }
+
     public static double medianBin(final float[] bin, double halfEntries) {
         if (bin == null || bin.length < 1) {
             return 0.0;
@@ -20,7 +20,6 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import javax.swing.BoundedRangeModel;
@@ -33,7 +32,6 @@ import org.weasis.core.api.gui.util.ActionW;
 import org.weasis.core.api.gui.util.ComboItemListener;
 import org.weasis.core.api.gui.util.DecFormater;
 import org.weasis.core.api.gui.util.Filter;
-import org.weasis.core.api.gui.util.GuiExecutor;
 import org.weasis.core.api.gui.util.SliderChangeListener;
 import org.weasis.core.api.gui.util.SliderCineListener;
 import org.weasis.core.api.gui.util.SliderCineListener.TIME;
@@ -69,6 +67,9 @@ public abstract class ImageViewerEventManager<E extends ImageElement> implements
     protected final WProperties options = new WProperties();
     // Manages all PropertyChangeListeners in EDT
     protected final SwingPropertyChangeSupport propertySupport = new SwingPropertyChangeSupport(this);
+    // Coalesces the synchronization events of the linked views by display frame
+    private final SynchDispatcher synchDispatcher =
+        new SynchDispatcher(this, () -> propertySupport.getPropertyChangeListeners(ActionW.SYNCH.cmd()));
     protected final HashMap<ActionW, ActionState> actions = new HashMap<>();
 
     protected volatile boolean enabledAction = true;
@@ -89,9 +90,7 @@ public abstract class ImageViewerEventManager<E extends ImageElement> implements
     protected SliderCineListener getMoveTroughSliceAction(int speed, final TIME time, double mouseSensivity) {
         return new SliderCineListener(ActionW.SCROLL_SERIES, 1, 2, 1, speed, time, mouseSensivity) {
 
-            private volatile boolean cining = true;
-
-            protected CineThread currentCine;
+            private final CineEngine cineEngine = new CineEngine(this, this::getCineFrame);
 
             @Override
             public void stateChanged(BoundedRangeModel model) {
@@ -128,85 +127,32 @@ public abstract class ImageViewerEventManager<E extends ImageElement> implements
                 }
             }
 
-            @Override
-            public void setSpeed(int speed) {
-                super.setSpeed(speed);
-                if (currentCine != null) {
-                    currentCine.iniSpeed();
+            private ImageElement getCineFrame(int value) {
+                ViewCanvas<ImageElement> view2d = selectedView2dContainer == null ? null
+                    : (ViewCanvas<ImageElement>) selectedView2dContainer.getSelectedImagePane();
+                if (view2d != null && view2d.getSeries() instanceof Series) {
+                    return ((Series<ImageElement>) view2d.getSeries()).getMedia(value - 1,
+                        (Filter<ImageElement>) view2d.getActionValue(ActionW.FILTERED_SERIES.cmd()),
+                        view2d.getCurrentSortComparator());
                 }
+                return null;
             }
 
-            /** Create a thread to cine the images. */
-
-            class CineThread extends Thread {
-
-                private AtomicInteger iteration;
-                private AtomicInteger wait;
-                private volatile int currentCineRate;
-                private volatile long start;
-                private final int timeDiv =
-                    TIME.SECOND.equals(time) ? 1000 : TIME.MINUTE.equals(time) ? 60000 : 3600000;
-
-                @Override
-                public void run() {
-                    iniSpeed();
-
-                    while (cining) {
-                        GuiExecutor.instance().execute(() -> {
-                            int frameIndex = getSliderValue() + 1;
-                            frameIndex = frameIndex > getSliderMax() ? 0 : frameIndex;
-                            setSliderValue(frameIndex);
-                        });
-                        iteration.incrementAndGet();
-
-                        // adjust the delay time based on the current performance
-                        long elapsed = (System.currentTimeMillis() - start) / 1000;
-                        if (elapsed > 0) {
-                            currentCineRate = (int) (iteration.get() / elapsed);
-
-                            if (currentCineRate < getSpeed()) {
-                                if (wait.decrementAndGet() < 0) {
-                                    wait.set(0);
-                                }
-                            } else {
-                                wait.incrementAndGet();
-                            }
-                        }
-
-                        // wait
-                        if (wait.get() > 0) {
-                            try {
-                                Thread.sleep(wait.get());
-                            } catch (Exception e) {
-                            }
-                        }
-                    }
-                }
-
-                public void iniSpeed() {
-                    iteration = new AtomicInteger(0);
-                    wait = new AtomicInteger(timeDiv / getSpeed());
-                    currentCineRate = getSpeed();
-                    start = System.currentTimeMillis();
-                }
-
-                public int getCurrentCineRate() {
-                    return currentCineRate;
+            @Override
+            public void setSpeed(int speed) {
+                super.setSpeed(speed);
+                if (cineEngine != null) {
+                    cineEngine.updateSpeed();
                 }
-
             }
 
             /** Start the cining. */
 
             @Override
             public synchronized void start() {
-                if (currentCine != null) {
-                    stop();
-                }
+                cineEngine.stop();
                 if (getSliderMax() - getSliderMin() > 0) {
-                    cining = true;
-                    currentCine = new CineThread();
-                    currentCine.start();
+                    cineEngine.start();
                 }
             }
 
@@ -214,17 +160,12 @@ public abstract class ImageViewerEventManager<E extends ImageElement> implements
 
             @Override
             public synchronized void stop() {
-                CineThread moribund = currentCine;
-                currentCine = null;
-                if (moribund != null) {
-                    cining = false;
-                    moribund.interrupt();
-                }
+                cineEngine.stop();
             }
 
             @Override
             public boolean isCining() {
-                return cining;
+                return cineEngine.isRunning();
             }
 
             @Override
@@ -234,10 +175,12 @@ public abstract class ImageViewerEventManager<E extends ImageElement> implements
 
             @Override
             public int getCurrentCineRate() {
-                if (currentCine != null) {
-                    return currentCine.getCurrentCineRate();
-                }
-                return 0;
+                return cineEngine.isRunning() ? cineEngine.getCurrentRate() : 0;
+            }
+
+            @Override
+            public int getDroppedFrames() {
+                return cineEngine.isRunning() ? cineEngine.getDroppedFrames() : 0;
             }
 
         };
@@ -530,7 +473,11 @@ public abstract class ImageViewerEventManager<E extends ImageElement> implements
 
     /** Fire property change event. */
     protected void firePropertyChange(String propertyName, Object oldValue, Object newValue) {
-        propertySupport.firePropertyChange(propertyName, oldValue, newValue);
+        if (ActionW.SYNCH.cmd().equals(propertyName) && newValue instanceof SynchEvent) {
+            synchDispatcher.dispatch((SynchEvent) newValue);
+        } else {
+            propertySupport.firePropertyChange(propertyName, oldValue, newValue);
+        }
     }
 
     /** Add a property change listener. */
@@ -540,6 +487,9 @@ public abstract class ImageViewerEventManager<E extends ImageElement> implements
 
     /** Remove a property change listener. */
     public void removePropertyChangeListener(String propertyName, PropertyChangeListener listener) {
+        if (ActionW.SYNCH.cmd().equals(propertyName)) {
+            synchDispatcher.flush(listener);
+        }
         propertySupport.removePropertyChangeListener(propertyName, listener);
     }
 
@@ -563,6 +513,7 @@ public abstract class ImageViewerEventManager<E extends ImageElement> implements
     }
 
     public void clearAllPropertyChangeListeners() {
+        synchDispatcher.flushAll();
         PropertyChangeListener[] changeListeners = propertySupport.getPropertyChangeListeners();
         for (PropertyChangeListener propertyChangeListener : changeListeners) {
             propertySupport.removePropertyChangeListener(propertyChangeListener);
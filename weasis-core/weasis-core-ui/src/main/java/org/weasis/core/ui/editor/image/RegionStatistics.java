@@ -0,0 +1,615 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2020 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.weasis.core.ui.editor.image;
+
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.PathIterator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+import org.opencv.imgproc.Imgproc;
+import org.weasis.core.api.image.cv.BandStatistics.Moments;
+import org.weasis.opencv.data.ImageCV;
+import org.weasis.opencv.op.ImageProcessor;
+
+/**
+ * Incremental statistics of the regions of a single channel frame, used while a graphic is dragged or resized.
+ * <p>
+ * The pixels of a region are described by spans of columns on each row. When the region of a graphic changes, only the
+ * spans added or removed since its previous computation are read to update the histogram, so the result is identical
+ * to a full computation. The pixel count, mean and variance of rectangles are read from the summed-area tables of the
+ * frame, built once.
+ * <p>
+ * Only the last frame is kept, the tables are released when another frame is requested or when a series is closed in a
+ * view (see {@link #release()}).
+ */
+final class RegionStatistics {
+
+    /** Limit of the summed-area tables (16 bytes by pixel) */
+    private static final long MAX_SAT_PIXELS = 2048L * 2048L;
+    private static final int MAX_STATES_BY_OWNER = 2;
+    private static final int[] NO_SPAN = new int[0];
+
+    private static RegionStatistics current;
+
+    private final Mat source;
+    private final int depth;
+    private final Map<Object, List<RegionState>> states = new WeakHashMap<>();
+    private Mat sum;
+    private Mat sqsum;
+    private boolean noSummedAreaTables;
+
+    private RegionStatistics(Mat source) {
+        this.source = source;
+        this.depth = CvType.depth(source.type());
+    }
+
+    static final class Result {
+        private final float[] bins;
+        private final Moments moments;
+
+        Result(float[] bins, Moments moments) {
+            this.bins = bins;
+            this.moments = moments;
+        }
+
+        public float[] getBins() {
+            return bins;
+        }
+
+        /**
+         * @return the exact moments of the region in pixel values, or null when they are unknown
+         */
+        public Moments getMoments() {
+            return moments;
+        }
+    }
+
+    /**
+     * Computes the histogram of a region of a single channel image.
+     *
+     * @param source
+     *            the single channel image
+     * @param owner
+     *            the graphic of the region (its previous region is the base of the incremental update) or null
+     * @param roi
+     *            the region in image coordinates or null for the whole image
+     * @param paddingValue
+     *            the padding value excluded from the statistics or null
+     * @param paddingLimit
+     *            the padding range limit or null
+     * @param nbBins
+     *            the number of bins
+     * @param pixMin
+     *            the min value of the first bin
+     * @param pixMax
+     *            the max value of the last bin
+     * @return the result or null when the region is outside the image
+     */
+    static synchronized Result compute(Mat source, Object owner, Shape roi, Integer paddingValue, Integer paddingLimit,
+        int nbBins, double pixMin, double pixMax) {
+        if (source == null || source.channels() != 1 || nbBins < 1) {
+            return null;
+        }
+        Integer[] padding = getPaddingRange(paddingValue, paddingLimit);
+        return getFrame(source).computeRegion(owner, roi, padding[0], padding[1], nbBins, pixMin, pixMax);
+    }
+
+    /**
+     * @return true when the previous region of the graphic is known with the same parameters, so that
+     *         {@link #compute(Mat, Object, Shape, Integer, Integer, int, double, double)} updates it incrementally
+     */
+    static synchronized boolean hasPreviousRegion(Mat source, Object owner, Integer paddingValue,
+        Integer paddingLimit, int nbBins, double pixMin, double pixMax) {
+        if (owner == null || current == null || current.source != source) {
+            return false;
+        }
+        Integer[] padding = getPaddingRange(paddingValue, paddingLimit);
+        List<RegionState> list = current.states.get(owner);
+        return list != null && list.stream()
+            .anyMatch(s -> s.spans != null && s.matches(padding[0], padding[1], nbBins, pixMin, pixMax));
+    }
+
+    /**
+     * Sets the histogram of a region computed by another way, which is the base of the next incremental update of the
+     * graphic. The bins must have the same binning, see {@link RegionState}.
+     */
+    static synchronized void setRegion(Mat source, Object owner, Shape roi, Integer paddingValue, Integer paddingLimit,
+        double pixMin, double pixMax, float[] bins) {
+        if (source == null || owner == null || source.channels() != 1 || bins == null || bins.length < 1) {
+            return;
+        }
+        RegionStatistics frame = getFrame(source);
+        RowSpans spans = frame.getSpans(roi);
+        if (spans != null) {
+            Integer[] padding = getPaddingRange(paddingValue, paddingLimit);
+            RegionState state = frame.getState(owner, padding[0], padding[1], bins.length, pixMin, pixMax);
+            for (int i = 0; i < bins.length; i++) {
+                state.counts[i] = Math.round(bins[i]);
+            }
+            state.spans = spans;
+        }
+    }
+
+    private static RegionStatistics getFrame(Mat source) {
+        if (current == null || current.source != source) {
+            if (current != null) {
+                current.releaseSummedAreaTables();
+            }
+            current = new RegionStatistics(source);
+        }
+        return current;
+    }
+
+    private static Integer[] getPaddingRange(Integer paddingValue, Integer paddingLimit) {
+        if (paddingValue != null && paddingLimit != null) {
+            return new Integer[] { Math.min(paddingValue, paddingLimit), Math.max(paddingValue, paddingLimit) };
+        }
+        return new Integer[] { paddingValue, paddingValue };
+    }
+
+    /**
+     * Releases the last frame, its summed-area tables and the regions of the graphics.
+     */
+    static synchronized void release() {
+        if (current != null) {
+            current.releaseSummedAreaTables();
+            current = null;
+        }
+    }
+
+    private Result computeRegion(Object owner, Shape roi, Integer padMin, Integer padMax, int nbBins, double pixMin,
+        double pixMax) {
+        RowSpans spans = getSpans(roi);
+        if (spans == null) {
+            return null;
+        }
+
+        RegionState state = getState(owner, padMin, padMax, nbBins, pixMin, pixMax);
+        RowSpans previous = state.spans;
+        boolean updated = false;
+        if (previous != null) {
+            List<RowChange> changes = getChanges(previous, spans);
+            long length = 0;
+            for (RowChange c : changes) {
+                length += length(c.removed) + length(c.added);
+            }
+            // Update only when it is faster than a full computation
+            if (length <= spans.getArea()) {
+                for (RowChange c : changes) {
+                    state.accumulate(c.y, c.removed, -1);
+                    state.accumulate(c.y, c.added, 1);
+                }
+                updated = true;
+            }
+        }
+        if (!updated) {
+            Arrays.fill(state.counts, 0);
+            for (int i = 0; i < spans.rows.length; i++) {
+                state.accumulate(spans.y + i, spans.rows[i], 1);
+            }
+        }
+        state.spans = spans;
+
+        float[] bins = new float[nbBins];
+        for (int i = 0; i < bins.length; i++) {
+            bins[i] = state.counts[i];
+        }
+        return new Result(bins, padMin == null ? getRectangleMoments(spans) : null);
+    }
+
+    /**
+     * @return the rows whose spans have changed, with the spans removed and added
+     */
+    static List<RowChange> getChanges(RowSpans previous, RowSpans spans) {
+        int y0 = Math.min(previous.y, spans.y);
+        int y1 = Math.max(previous.y + previous.rows.length, spans.y + spans.rows.length);
+        List<RowChange> changes = new ArrayList<>();
+        int[] lastBefore = null;
+        int[] lastAfter = null;
+        int[] removed = NO_SPAN;
+        int[] added = NO_SPAN;
+        for (int y = y0; y < y1; y++) {
+            int[] before = previous.getRow(y);
+            int[] after = spans.getRow(y);
+            if (before == after) {
+                continue;
+            }
+            // The rows of a rectangle share the same spans, the difference is computed once
+            if (before != lastBefore || after != lastAfter) {
+                lastBefore = before;
+                lastAfter = after;
+                removed = subtract(before, after);
+                added = subtract(after, before);
+            }
+            if (removed.length > 0 || added.length > 0) {
+                changes.add(new RowChange(y, removed, added));
+            }
+        }
+        return changes;
+    }
+
+    private RegionState getState(Object owner, Integer padMin, Integer padMax, int nbBins, double pixMin,
+        double pixMax) {
+        List<RegionState> list = states.computeIfAbsent(owner, k -> new ArrayList<>(MAX_STATES_BY_OWNER));
+        for (RegionState s : list) {
+            if (s.matches(padMin, padMax, nbBins, pixMin, pixMax)) {
+                return s;
+            }
+        }
+        if (list.size() >= MAX_STATES_BY_OWNER) {
+            list.remove(0);
+        }
+        RegionState s = new RegionState(padMin, padMax, nbBins, pixMin, pixMax);
+        list.add(s);
+        return s;
+    }
+
+    private RowSpans getSpans(Shape roi) {
+        int width = source.width();
+        int height = source.height();
+        if (roi == null) {
+            return RowSpans.fromRectangle(0, height, 0, width - 1, 0, height - 1);
+        }
+        Rectangle b = new Rectangle(0, 0, width, height).intersection(roi.getBounds());
+        if (b.width < 1 || b.height < 1) {
+            return null;
+        }
+        int[] r = getRectangleCorners(roi);
+        if (r != null) {
+            // Same pixels as fillPoly() which includes the edges, without rasterizing the shape
+            int x0 = Math.max(0, r[0] - b.x);
+            int x1 = Math.min(b.width - 1, r[2] - b.x);
+            int y0 = Math.max(0, r[1] - b.y);
+            int y1 = Math.min(b.height - 1, r[3] - b.y);
+            return RowSpans.fromRectangle(b.y, b.height, b.x + x0, b.x + x1, b.y + y0, b.y + y1);
+        }
+        // Same rasterization as ImageProcessor.getMaskImage()
+        Shape shape = AffineTransform.getTranslateInstance(-b.x, -b.y).createTransformedShape(roi);
+        byte[] data = new byte[b.width * b.height];
+        try (ImageCV mask = new ImageCV(b.height, b.width, CvType.CV_8UC1, new Scalar(0))) {
+            Imgproc.fillPoly(mask, ImageProcessor.transformShapeToContour(shape, true), new Scalar(255));
+            mask.get(0, 0, data);
+        }
+        return RowSpans.fromMask(data, b.width, b.height, b.x, b.y);
+    }
+
+    /**
+     * @return {x0, y0, x1, y1} the integer corners (as converted for fillPoly) of an axis-aligned rectangle, or null
+     *         when the shape is not an axis-aligned rectangle
+     */
+    static int[] getRectangleCorners(Shape shape) {
+        double[] x = new double[5];
+        double[] y = new double[5];
+        double[] pts = new double[6];
+        int nb = 0;
+        for (PathIterator it = shape.getPathIterator(null); !it.isDone(); it.next()) {
+            int type = it.currentSegment(pts);
+            if (type == PathIterator.SEG_CLOSE) {
+                continue;
+            }
+            boolean valid = nb == 0 ? type == PathIterator.SEG_MOVETO : type == PathIterator.SEG_LINETO;
+            if (!valid || nb == x.length) {
+                return null;
+            }
+            x[nb] = pts[0];
+            y[nb] = pts[1];
+            nb++;
+        }
+        if (nb == 5 && x[4] == x[0] && y[4] == y[0]) {
+            nb = 4;
+        }
+        if (nb != 4) {
+            return null;
+        }
+        for (int i = 0; i < 4; i++) {
+            int j = (i + 1) % 4;
+            int k = (i + 2) % 4;
+            boolean vertical = x[i] == x[j] && y[i] != y[j];
+            boolean horizontal = y[i] == y[j] && x[i] != x[j];
+            boolean nextVertical = x[j] == x[k] && y[j] != y[k];
+            // The edges are alternately vertical and horizontal
+            if (vertical == horizontal || vertical == nextVertical) {
+                return null;
+            }
+        }
+        // The coordinates are truncated when converted to MatOfPoint
+        return new int[] { (int) Math.min(x[0], x[2]), (int) Math.min(y[0], y[2]), (int) Math.max(x[0], x[2]),
+            (int) Math.max(y[0], y[2]) };
+    }
+
+    private Moments getRectangleMoments(RowSpans spans) {
+        int[] r = spans.getRectangle();
+        if (r == null || !buildSummedAreaTables()) {
+            return null;
+        }
+        long n = (long) (r[2] - r[0]) * (r[3] - r[1]);
+        double s = getAreaValue(sum, r);
+        double mean = s / n;
+        double m2 = Math.max(0.0, getAreaValue(sqsum, r) - s * mean);
+        return new Moments(n, mean, m2);
+    }
+
+    private boolean buildSummedAreaTables() {
+        if (sum == null && !noSummedAreaTables) {
+            boolean supported = depth == CvType.CV_8U || depth == CvType.CV_16U || depth == CvType.CV_16S
+                || depth == CvType.CV_32F || depth == CvType.CV_64F;
+            if (supported && source.total() <= MAX_SAT_PIXELS) {
+                sum = new Mat();
+                sqsum = new Mat();
+                Imgproc.integral2(source, sum, sqsum, CvType.CV_64F, CvType.CV_64F);
+            } else {
+                noSummedAreaTables = true;
+            }
+        }
+        return sum != null;
+    }
+
+    private void releaseSummedAreaTables() {
+        if (sum != null) {
+            sum.release();
+            sqsum.release();
+            sum = null;
+            sqsum = null;
+        }
+    }
+
+    private static double getAreaValue(Mat table, int[] r) {
+        return table.get(r[3], r[2])[0] - table.get(r[1], r[2])[0] - table.get(r[3], r[0])[0]
+            + table.get(r[1], r[0])[0];
+    }
+
+    private void readRow(int y, int x, int length, double[] values) {
+        switch (depth) {
+            case CvType.CV_8U:
+            case CvType.CV_8S:
+                byte[] b = new byte[length];
+                source.get(y, x, b);
+                for (int i = 0; i < length; i++) {
+                    values[i] = depth == CvType.CV_8U ? b[i] & 0xFF : b[i];
+                }
+                break;
+            case CvType.CV_16U:
+            case CvType.CV_16S:
+                short[] s = new short[length];
+                source.get(y, x, s);
+                for (int i = 0; i < length; i++) {
+                    values[i] = depth == CvType.CV_16U ? s[i] & 0xFFFF : s[i];
+                }
+                break;
+            case CvType.CV_32S:
+                int[] n = new int[length];
+                source.get(y, x, n);
+                for (int i = 0; i < length; i++) {
+                    values[i] = n[i];
+                }
+                break;
+            case CvType.CV_32F:
+                float[] f = new float[length];
+                source.get(y, x, f);
+                for (int i = 0; i < length; i++) {
+                    values[i] = f[i];
+                }
+                break;
+            default:
+                double[] d = new double[length];
+                source.get(y, x, d);
+                System.arraycopy(d, 0, values, 0, length);
+                break;
+        }
+    }
+
+    /**
+     * @return the spans of a that are not in b (both sorted and disjoint [start, end) pairs)
+     */
+    static int[] subtract(int[] a, int[] b) {
+        if (a.length == 0 || b.length == 0) {
+            return a;
+        }
+        int[] out = new int[a.length + b.length];
+        int nb = 0;
+        int j = 0;
+        for (int i = 0; i < a.length; i += 2) {
+            int start = a[i];
+            int end = a[i + 1];
+            while (j < b.length && b[j + 1] <= start) {
+                j += 2;
+            }
+            int k = j;
+            while (start < end && k < b.length && b[k] < end) {
+                if (b[k] > start) {
+                    out[nb++] = start;
+                    out[nb++] = b[k];
+                }
+                start = Math.max(start, b[k + 1]);
+                k += 2;
+            }
+            if (start < end) {
+                out[nb++] = start;
+                out[nb++] = end;
+            }
+        }
+        return Arrays.copyOf(out, nb);
+    }
+
+    static long length(int[] spans) {
+        long length = 0;
+        for (int i = 0; i < spans.length; i += 2) {
+            length += spans[i + 1] - spans[i];
+        }
+        return length;
+    }
+
+    /**
+     * Spans of columns by row, each row contains sorted and disjoint [start, end) pairs in image coordinates.
+     */
+    static final class RowSpans {
+        private final int y;
+        private final int[][] rows;
+        private final int[] rectangle;
+
+        RowSpans(int y, int[][] rows) {
+            this(y, rows, null);
+        }
+
+        private RowSpans(int y, int[][] rows, int[] rectangle) {
+            this.y = y;
+            this.rows = rows;
+            this.rectangle = rectangle;
+        }
+
+        /**
+         * @return the spans of the pixels from x0 to x1 and from y0 to y1 (inclusive) in the rows starting at y, all
+         *         the rows of the rectangle share the same spans
+         */
+        static RowSpans fromRectangle(int y, int height, int x0, int x1, int y0, int y1) {
+            int[][] rows = new int[height][];
+            Arrays.fill(rows, NO_SPAN);
+            if (x0 > x1 || y0 > y1) {
+                return new RowSpans(y, rows);
+            }
+            int[] span = { x0, x1 + 1 };
+            Arrays.fill(rows, y0 - y, y1 - y + 1, span);
+            return new RowSpans(y, rows, new int[] { x0, y0, x1 + 1, y1 + 1 });
+        }
+
+        static RowSpans fromMask(byte[] mask, int width, int height, int x, int y) {
+            int[][] rows = new int[height][];
+            int[] row = new int[width + 1];
+            for (int j = 0; j < height; j++) {
+                int nb = 0;
+                int offset = j * width;
+                boolean inside = false;
+                for (int i = 0; i < width; i++) {
+                    boolean in = mask[offset + i] != 0;
+                    if (in != inside) {
+                        row[nb++] = x + i;
+                        inside = in;
+                    }
+                }
+                if (inside) {
+                    row[nb++] = x + width;
+                }
+                rows[j] = nb == 0 ? NO_SPAN : Arrays.copyOf(row, nb);
+            }
+            return new RowSpans(y, rows);
+        }
+
+        int[] getRow(int index) {
+            int i = index - y;
+            return i < 0 || i >= rows.length ? NO_SPAN : rows[i];
+        }
+
+        long getArea() {
+            long area = 0;
+            for (int[] r : rows) {
+                area += length(r);
+            }
+            return area;
+        }
+
+        /**
+         * @return {x0, y0, x1, y1} (end exclusive) when the spans form a rectangle, otherwise null
+         */
+        int[] getRectangle() {
+            if (rectangle != null) {
+                return rectangle;
+            }
+            int first = 0;
+            while (first < rows.length && rows[first].length == 0) {
+                first++;
+            }
+            int last = rows.length - 1;
+            while (last > first && rows[last].length == 0) {
+                last--;
+            }
+            if (first >= rows.length || rows[first].length != 2) {
+                return null;
+            }
+            int[] ref = rows[first];
+            for (int i = first + 1; i <= last; i++) {
+                if (!Arrays.equals(ref, rows[i])) {
+                    return null;
+                }
+            }
+            return new int[] { ref[0], y + first, ref[1], y + last + 1 };
+        }
+    }
+
+    static final class RowChange {
+        private final int y;
+        private final int[] removed;
+        private final int[] added;
+
+        RowChange(int y, int[] removed, int[] added) {
+            this.y = y;
+            this.removed = removed;
+            this.added = added;
+        }
+    }
+
+    private final class RegionState {
+        private final Integer padMin;
+        private final Integer padMax;
+        private final double pixMin;
+        private final double pixMax;
+        private final double a;
+        private final double b;
+        private final long[] counts;
+        private RowSpans spans;
+        private double[] values = new double[256];
+
+        RegionState(Integer padMin, Integer padMax, int nbBins, double pixMin, double pixMax) {
+            this.padMin = padMin;
+            this.padMax = padMax;
+            this.pixMin = pixMin;
+            this.pixMax = pixMax;
+            this.counts = new long[nbBins];
+            // Same uniform binning as calcHist() with the range [pixMin, pixMax + 1)
+            this.a = nbBins / (pixMax + 1.0 - pixMin);
+            this.b = -a * pixMin;
+        }
+
+        boolean matches(Integer padMin, Integer padMax, int nbBins, double pixMin, double pixMax) {
+            return counts.length == nbBins && Double.compare(this.pixMin, pixMin) == 0
+                && Double.compare(this.pixMax, pixMax) == 0 && Objects.equals(this.padMin, padMin)
+                && Objects.equals(this.padMax, padMax);
+        }
+
+        void accumulate(int y, int[] rowSpans, int increment) {
+            for (int i = 0; i < rowSpans.length; i += 2) {
+                int length = rowSpans[i + 1] - rowSpans[i];
+                if (values.length < length) {
+                    values = new double[length];
+                }
+                readRow(y, rowSpans[i], length, values);
+                for (int k = 0; k < length; k++) {
+                    double v = values[k];
+                    if (Double.isNaN(v) || (padMin != null && v >= padMin && v <= padMax)) {
+                        continue;
+                    }
+                    int bin = (int) Math.floor(v * a + b);
+                    if (bin >= 0 && bin < counts.length) {
+                        counts[bin] += increment;
+                    }
+                }
+            }
+        }
+    }
+}
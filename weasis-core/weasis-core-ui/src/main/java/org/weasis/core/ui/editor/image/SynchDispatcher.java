@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2020 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.weasis.core.ui.editor.image;
+
+import java.awt.DisplayMode;
+import java.awt.GraphicsEnvironment;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+import org.weasis.core.api.gui.util.ActionW;
+import org.weasis.core.api.gui.util.GuiExecutor;
+import org.weasis.core.ui.model.utils.bean.PanPoint;
+
+/**
+ * Dispatches the synchronization events to the linked views at most once per display frame.
+ * <p>
+ * The view at the origin of an event is always updated immediately. For the other views, the continuous actions
+ * (scrolling, window/level, zoom, rotation, pan dragging and crosshair) received during a frame interval are coalesced:
+ * only the latest value of each action is applied at the end of the interval, so a linked view runs its operations and
+ * repaints once per frame instead of once per mouse event. Any other action first flushes the pending values of the
+ * view, which keeps the order of the events.
+ * <p>
+ * The events sent from another thread are dispatched later in the EDT, after the events already pending.
+ */
+final class SynchDispatcher {
+
+    private static final Set<String> CONTINUOUS_ACTIONS = new HashSet<>(Arrays.asList(ActionW.WINDOW.cmd(),
+        ActionW.LEVEL.cmd(), ActionW.ZOOM.cmd(), ActionW.ROTATION.cmd(), ActionW.PAN.cmd(), ActionW.CROSSHAIR.cmd()));
+
+    private final Object source;
+    private final Supplier<PropertyChangeListener[]> listeners;
+    // Only accessed in the EDT
+    private final Map<PropertyChangeListener, List<SynchEvent>> pending = new LinkedHashMap<>();
+    private final Timer timer;
+
+    SynchDispatcher(Object source, Supplier<PropertyChangeListener[]> listeners) {
+        this.source = source;
+        this.listeners = listeners;
+        this.timer = new Timer(getFrameInterval(), e -> flushAll());
+        this.timer.setRepeats(false);
+    }
+
+    void dispatch(SynchEvent synch) {
+        if (!SwingUtilities.isEventDispatchThread()) {
+            GuiExecutor.instance().execute(() -> dispatch(synch));
+            return;
+        }
+
+        PropertyChangeListener[] list = listeners.get();
+        // The first event of a sequence is applied directly, the next ones wait for the end of the frame
+        boolean coalesce = timer.isRunning() && isContinuous(synch);
+        for (PropertyChangeListener l : list) {
+            if (coalesce && l != synch.getView()) {
+                List<SynchEvent> events = pending.computeIfAbsent(l, k -> new ArrayList<>());
+                // Keep the order of the last values as an action can depend on the state of another one
+                events.removeIf(e -> isSameAction(e, synch));
+                events.add(synch);
+            } else {
+                flush(l);
+                fire(l, synch);
+            }
+        }
+        if (!timer.isRunning() && isContinuous(synch)) {
+            timer.start();
+        }
+    }
+
+    /**
+     * Applies the pending events of a view, must be called before unlinking the view.
+     */
+    void flush(PropertyChangeListener listener) {
+        if (!SwingUtilities.isEventDispatchThread()) {
+            GuiExecutor.instance().invokeAndWait(() -> flush(listener));
+            return;
+        }
+        if (!pending.isEmpty()) {
+            List<SynchEvent> events = pending.remove(listener);
+            if (events != null) {
+                events.forEach(e -> fire(listener, e));
+            }
+        }
+    }
+
+    void flushAll() {
+        if (!SwingUtilities.isEventDispatchThread()) {
+            GuiExecutor.instance().invokeAndWait(this::flushAll);
+            return;
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<Entry<PropertyChangeListener, List<SynchEvent>>> entries = new ArrayList<>(pending.entrySet());
+        pending.clear();
+        for (Entry<PropertyChangeListener, List<SynchEvent>> entry : entries) {
+            entry.getValue().forEach(e -> fire(entry.getKey(), e));
+        }
+        // Keep throttling while the events are coming
+        timer.restart();
+    }
+
+    private void fire(PropertyChangeListener listener, SynchEvent synch) {
+        listener.propertyChange(new PropertyChangeEvent(source, ActionW.SYNCH.cmd(), null, synch));
+    }
+
+    static boolean isContinuous(SynchEvent synch) {
+        if (synch instanceof SynchCineEvent) {
+            return true;
+        }
+        if (synch == null || synch.getEvents().isEmpty()) {
+            return false;
+        }
+        for (Entry<String, Object> entry : synch.getEvents().entrySet()) {
+            if (!CONTINUOUS_ACTIONS.contains(entry.getKey())) {
+                return false;
+            }
+            // Only the dragging position is absolute, the other pan values are relative or change the drag origin
+            if (ActionW.PAN.cmd().equals(entry.getKey()) && !(entry.getValue() instanceof PanPoint
+                && PanPoint.State.DRAGGING.equals(((PanPoint) entry.getValue()).getState()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean isSameAction(SynchEvent a, SynchEvent b) {
+        return a.getClass() == b.getClass() && a.getView() == b.getView()
+            && a.getEvents().keySet().equals(b.getEvents().keySet());
+    }
+
+    static int getFrameInterval() {
+        int rate = DisplayMode.REFRESH_RATE_UNKNOWN;
+        if (!GraphicsEnvironment.isHeadless()) {
+            rate = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDisplayMode()
+                .getRefreshRate();
+        }
+        return rate > 0 ? Math.max(1, 1000 / rate) : 16;
+    }
+}
@@ -35,6 +35,7 @@ import javax.xml.bind.annotation.XmlElementWrapper;
 import javax.xml.bind.annotation.XmlElements;
 import javax.xml.bind.annotation.XmlType;
 
+import org.weasis.core.api.gui.Image2DViewer;
 import org.weasis.core.api.gui.util.ActionW;
 import org.weasis.core.api.image.util.MeasurableLayer;
 import org.weasis.core.api.media.data.ImageElement;
@@ -79,6 +80,7 @@ public abstract class AbstractGraphicModel extends DefaultUUID implements Graphi
     private List<ReferencedSeries> referencedSeries;
     private List<GraphicLayer> layers;
     protected List<Graphic> models;
+    private transient GraphicSpatialIndex spatialIndex;
 
     private final List<GraphicSelectionListener> selectedGraphicsListeners = new ArrayList<>();
     private final List<GraphicModelChangeListener> modelListeners = new ArrayList<>();
@@ -98,7 +100,18 @@ public abstract class AbstractGraphicModel extends DefaultUUID implements Graphi
     public AbstractGraphicModel(List<ReferencedSeries> referencedSeries) {
         setReferencedSeries(referencedSeries);
         this.layers = Collections.synchronizedList(new ArrayList<>());
-        this.models = Collections.synchronizedList(new ArrayList<>());
+        initModels(new GraphicSpatialIndex.GraphicList());
+    }
+
+    private void initModels(GraphicSpatialIndex.GraphicList list) {
+        if (spatialIndex != null) {
+            // Remove the listener of the previous index from the graphics
+            synchronized (models) {
+                spatialIndex.dispose();
+            }
+        }
+        this.spatialIndex = new GraphicSpatialIndex(list);
+        this.models = Collections.synchronizedList(list);
     }
 
     @XmlElementWrapper(name = "graphics")
@@ -149,7 +162,8 @@ public abstract class AbstractGraphicModel extends DefaultUUID implements Graphi
     @Override
     public void setModels(List<Graphic> models) {
         if (models != null) {
-            this.models = Collections.synchronizedList(models);
+            // Copy into a list tracking the modifications for the spatial index
+            initModels(new GraphicSpatialIndex.GraphicList(models));
             this.layers = Collections.synchronizedList(getLayerlist());
         }
     }
@@ -166,14 +180,21 @@ public abstract class AbstractGraphicModel extends DefaultUUID implements Graphi
             if (!layers.contains(layer)) {
                 layers.add(layer);
             }
-            models.add(graphic);
+            synchronized (models) {
+                models.add(graphic);
+                spatialIndex.graphicAdded(graphic);
+            }
         }
     }
 
     @Override
     public void removeGraphic(Graphic graphic) {
         if (graphic != null) {
-            models.remove(graphic);
+            synchronized (models) {
+                if (models.remove(graphic)) {
+                    spatialIndex.graphicRemoved(graphic);
+                }
+            }
             graphic.removeAllPropertyChangeListener();
 
             GraphicLayer layer = graphic.getLayer();
@@ -340,8 +361,9 @@ public abstract class AbstractGraphicModel extends DefaultUUID implements Graphi
         ArrayList<Graphic> selectedGraphicList = new ArrayList<>();
         if (rectangle != null) {
             synchronized (models) {
-                for (int i = models.size() - 1; i >= 0; i--) {
-                    Graphic graphic = models.get(i);
+                List<Graphic> candidates = spatialIndex.getCandidates(rectangle, transform);
+                for (int i = candidates.size() - 1; i >= 0; i--) {
+                    Graphic graphic = candidates.get(i);
                     GraphicLayer layer = graphic.getLayer();
                     if (layer.getVisible() && layer.getSelectable()) {
 
@@ -377,8 +399,9 @@ public abstract class AbstractGraphicModel extends DefaultUUID implements Graphi
         ArrayList<Graphic> selectedGraphicList = new ArrayList<>();
         if (rectangle != null) {
             synchronized (models) {
-                for (int i = models.size() - 1; i >= 0; i--) {
-                    Graphic graphic = models.get(i);
+                List<Graphic> candidates = spatialIndex.getCandidates(rectangle, transform);
+                for (int i = candidates.size() - 1; i >= 0; i--) {
+                    Graphic graphic = candidates.get(i);
                     GraphicLayer layer = graphic.getLayer();
                     if (layer.getVisible() && layer.getSelectable()) {
 
@@ -430,10 +453,14 @@ public abstract class AbstractGraphicModel extends DefaultUUID implements Graphi
     @Override
     public Optional<Graphic> getFirstGraphicIntersecting(MouseEventDouble mouseEvent) {
         final Point2D mousePt = mouseEvent.getImageCoordinates();
+        AffineTransform transform = mouseEvent.getSource() instanceof Image2DViewer
+            ? ((Image2DViewer<?>) mouseEvent.getSource()).getAffineTransform() : null;
         Graphic firstSelectedGraph = null;
         synchronized (models) {
-            for (int i = models.size() - 1; i >= 0; i--) {
-                Graphic g = models.get(i);
+            List<Graphic> candidates =
+                spatialIndex.getCandidates(new Rectangle2D.Double(mousePt.getX(), mousePt.getY(), 0, 0), transform);
+            for (int i = candidates.size() - 1; i >= 0; i--) {
+                Graphic g = candidates.get(i);
                 GraphicLayer l = g.getLayer();
                 if (l.getVisible() && l.getSelectable()) {
                     if (g.isOnGraphicLabel(mouseEvent)) {
@@ -578,7 +605,16 @@ public abstract class AbstractGraphicModel extends DefaultUUID implements Graphi
 
         g2d.translate(0.5, 0.5);
         g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, DefaultView2d.antialiasingOn);
-        models.forEach(g -> applyPaint(g, g2d, transform, bound));
+        if (bound == null) {
+            models.forEach(g -> applyPaint(g, g2d, transform, null));
+        } else {
+            // Paint only the graphics close to the clip area
+            List<Graphic> candidates;
+            synchronized (models) {
+                candidates = spatialIndex.getCandidates(bound, transform);
+            }
+            candidates.forEach(g -> applyPaint(g, g2d, transform, bound));
+        }
         g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, DefaultView2d.antialiasingOff);
         g2d.translate(-0.5, -0.5);
     }
@@ -0,0 +1,341 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2020 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.weasis.core.ui.model;
+
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.weasis.core.api.gui.util.GeomUtil;
+import org.weasis.core.ui.model.graphic.Graphic;
+import org.weasis.core.ui.model.graphic.GraphicLabel;
+import org.weasis.core.ui.model.utils.bean.AdvancedShape;
+
+/**
+ * Spatial index of the graphics of a model in image coordinates.
+ * <p>
+ * The graphics are stored in the cells of a uniform grid according to the bounds of their shape, so that culling and
+ * hit-testing only visit the graphics close to the requested area. The parts having an invariant size in the view
+ * (label, decoration of an advanced shape) are indexed at their anchor point with their size in pixels, which is
+ * converted in image coordinates according to the scale of the requesting view. The graphics without shape or covering
+ * a very large area are always returned as candidates.
+ * <p>
+ * The index is updated when a graphic fires a change of its shape and it is rebuilt when the list of graphics has been
+ * modified outside the model. The methods must be called while holding the lock of the list of graphics.
+ */
+final class GraphicSpatialIndex implements PropertyChangeListener {
+
+    private static final double CELL_SIZE = 128.0;
+    private static final int MAX_CELLS = 64;
+
+    private final GraphicList graphics;
+    private final Map<Long, List<Entry>> cells = new HashMap<>();
+    private final Map<Graphic, Entry> entries = new IdentityHashMap<>();
+    private final Set<Entry> unindexed = new HashSet<>();
+    private final Set<Graphic> dirtyGraphics = Collections.newSetFromMap(new IdentityHashMap<>());
+    private volatile boolean orderChanged;
+    private int version = -1;
+    private long nextOrder;
+    private float maxLineThickness;
+    private double maxExtent;
+
+    GraphicSpatialIndex(GraphicList graphics) {
+        this.graphics = graphics;
+    }
+
+    @Override
+    public void propertyChange(PropertyChangeEvent evt) {
+        String name = evt.getPropertyName();
+        if ("bounds".equals(name) || "move".equals(name) || "graphicLabel".equals(name)) { //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+            if (evt.getSource() instanceof Graphic) {
+                synchronized (dirtyGraphics) {
+                    dirtyGraphics.add((Graphic) evt.getSource());
+                }
+            }
+        } else if (Graphic.ACTION_TO_FRONT.equals(name) || Graphic.ACTION_TO_BACK.equals(name)) {
+            orderChanged = true;
+        }
+    }
+
+    /**
+     * Updates the index after a graphic has been appended to the list. When the list has been modified in another way
+     * since the last update, the index will be rebuilt at the next request.
+     */
+    void graphicAdded(Graphic graphic) {
+        if (version == graphics.getModCount() - 1 && !orderChanged) {
+            graphic.addPropertyChangeListener(this);
+            insert(graphic, nextOrder++);
+            version = graphics.getModCount();
+        }
+    }
+
+    /**
+     * Updates the index after a graphic has been removed from the list.
+     */
+    void graphicRemoved(Graphic graphic) {
+        graphic.removePropertyChangeListener(this);
+        if (version == graphics.getModCount() - 1) {
+            Entry entry = entries.get(graphic);
+            if (entry != null) {
+                remove(entry);
+            }
+            version = graphics.getModCount();
+        }
+    }
+
+    /**
+     * Removes the listener of the index from the graphics, when the index is replaced.
+     */
+    void dispose() {
+        for (Graphic g : entries.keySet()) {
+            g.removePropertyChangeListener(this);
+        }
+        entries.clear();
+        cells.clear();
+        unindexed.clear();
+        synchronized (dirtyGraphics) {
+            dirtyGraphics.clear();
+        }
+        version = -1;
+    }
+
+    /**
+     * @param area
+     *            the area in image coordinates
+     * @param transform
+     *            the transformation of the view (can be null), which gives the tolerance around the area (handles,
+     *            selection size and line thickness) and the size of the invariant parts in image coordinates
+     * @return the graphics that may intersect the area, in the order of the list (from back to front)
+     */
+    List<Graphic> getCandidates(Rectangle2D area, AffineTransform transform) {
+        validate();
+        double scale = GeomUtil.extractScalingFactor(transform);
+        double margin =
+            (Math.max(Math.max(Graphic.HANDLE_SIZE * 1.5, Graphic.SELECTION_SIZE), maxLineThickness) + 2) / scale;
+        double minX = area.getMinX() - margin;
+        double minY = area.getMinY() - margin;
+        double maxX = area.getMaxX() + margin;
+        double maxY = area.getMaxY() + margin;
+
+        Set<Entry> found = new HashSet<>(unindexed);
+        // Visit the cells of the anchors of the largest invariant part
+        double extent = maxExtent / scale;
+        int x1 = cell(minX - extent);
+        int y1 = cell(minY - extent);
+        int x2 = cell(maxX + extent);
+        int y2 = cell(maxY + extent);
+        if ((long) (x2 - x1 + 1) * (y2 - y1 + 1) > cells.size()) {
+            // The area covers more cells than the occupied ones
+            for (List<Entry> list : cells.values()) {
+                addIntersecting(list, found, minX, minY, maxX, maxY, scale);
+            }
+        } else {
+            for (int x = x1; x <= x2; x++) {
+                for (int y = y1; y <= y2; y++) {
+                    List<Entry> list = cells.get(key(x, y));
+                    if (list != null) {
+                        addIntersecting(list, found, minX, minY, maxX, maxY, scale);
+                    }
+                }
+            }
+        }
+
+        List<Entry> sorted = new ArrayList<>(found);
+        sorted.sort(Comparator.comparingLong(e -> e.order));
+        List<Graphic> result = new ArrayList<>(sorted.size());
+        for (Entry e : sorted) {
+            result.add(e.graphic);
+        }
+        return result;
+    }
+
+    private static void addIntersecting(Collection<Entry> list, Set<Entry> found, double minX, double minY,
+        double maxX, double maxY, double scale) {
+        for (Entry e : list) {
+            Rectangle2D b = e.bounds;
+            double d = e.extent / scale;
+            // Do not use Rectangle2D.intersects() which excludes the empty rectangles (e.g. a point)
+            if (b.getMaxX() + d >= minX && b.getMinX() - d <= maxX && b.getMaxY() + d >= minY
+                && b.getMinY() - d <= maxY) {
+                found.add(e);
+            }
+        }
+    }
+
+    private void validate() {
+        if (version != graphics.getModCount() || orderChanged) {
+            rebuild();
+            return;
+        }
+        List<Graphic> dirty;
+        synchronized (dirtyGraphics) {
+            if (dirtyGraphics.isEmpty()) {
+                return;
+            }
+            dirty = new ArrayList<>(dirtyGraphics);
+            dirtyGraphics.clear();
+        }
+        for (Graphic g : dirty) {
+            Entry entry = entries.get(g);
+            if (entry != null) {
+                remove(entry);
+                insert(g, entry.order);
+            }
+        }
+    }
+
+    private void rebuild() {
+        orderChanged = false;
+        synchronized (dirtyGraphics) {
+            dirtyGraphics.clear();
+        }
+        // Do not keep listening to the graphics removed from the list outside the model
+        for (Graphic g : entries.keySet()) {
+            g.removePropertyChangeListener(this);
+        }
+        cells.clear();
+        entries.clear();
+        unindexed.clear();
+        maxLineThickness = 0;
+        maxExtent = 0;
+        nextOrder = 0;
+        for (Graphic g : graphics) {
+            // Graphics can be added directly in the list, the listener is not duplicated
+            g.addPropertyChangeListener(this);
+            insert(g, nextOrder++);
+        }
+        version = graphics.getModCount();
+    }
+
+    private void insert(Graphic graphic, long order) {
+        Entry entry = new Entry(graphic, order);
+        entries.put(graphic, entry);
+        Float thickness = graphic.getLineThickness();
+        if (thickness != null) {
+            maxLineThickness = Math.max(maxLineThickness, thickness);
+        }
+
+        Shape shape = graphic.getShape();
+        Rectangle2D bounds = null;
+        double extent = 0.0;
+        if (shape instanceof AdvancedShape) {
+            bounds = ((AdvancedShape) shape).getAnchorBounds();
+            extent = ((AdvancedShape) shape).getInvariantExtent();
+        } else if (shape != null) {
+            bounds = shape.getBounds2D();
+        }
+        if (bounds == null) {
+            unindexed.add(entry);
+            return;
+        }
+
+        GraphicLabel label = graphic.getGraphicLabel();
+        Rectangle2D labelBounds = label == null || label.getLabels() == null ? null : label.getLabelBounds();
+        if (labelBounds != null) {
+            // The label is anchored in the image and its size is given in pixels. Its bounds, rotated and flipped with
+            // the view, stay within this distance from the anchor.
+            bounds = bounds.getBounds2D();
+            bounds.add(labelBounds.getX() + label.getOffsetX(), labelBounds.getY() + label.getOffsetY());
+            extent = Math.max(extent, labelBounds.getWidth() + 2 * labelBounds.getHeight());
+        }
+
+        int x1 = cell(bounds.getMinX());
+        int y1 = cell(bounds.getMinY());
+        int x2 = cell(bounds.getMaxX());
+        int y2 = cell(bounds.getMaxY());
+        if ((long) (x2 - x1 + 1) * (y2 - y1 + 1) > MAX_CELLS) {
+            unindexed.add(entry);
+            return;
+        }
+        entry.bounds = bounds;
+        entry.extent = extent;
+        maxExtent = Math.max(maxExtent, extent);
+        entry.cells = new int[] { x1, y1, x2, y2 };
+        for (int x = x1; x <= x2; x++) {
+            for (int y = y1; y <= y2; y++) {
+                cells.computeIfAbsent(key(x, y), k -> new ArrayList<>(4)).add(entry);
+            }
+        }
+    }
+
+    private void remove(Entry entry) {
+        entries.remove(entry.graphic);
+        if (entry.cells == null) {
+            unindexed.remove(entry);
+            return;
+        }
+        for (int x = entry.cells[0]; x <= entry.cells[2]; x++) {
+            for (int y = entry.cells[1]; y <= entry.cells[3]; y++) {
+                Long key = key(x, y);
+                List<Entry> list = cells.get(key);
+                if (list != null) {
+                    list.remove(entry);
+                    if (list.isEmpty()) {
+                        cells.remove(key);
+                    }
+                }
+            }
+        }
+    }
+
+    private static int cell(double value) {
+        return (int) Math.floor(value / CELL_SIZE);
+    }
+
+    private static Long key(int x, int y) {
+        return ((long) x << 32) | (y & 0xffffffffL);
+    }
+
+    private static class Entry {
+        private final Graphic graphic;
+        private final long order;
+        private Rectangle2D bounds;
+        // Size in pixels of the parts having an invariant size in the view
+        private double extent;
+        private int[] cells;
+
+        Entry(Graphic graphic, long order) {
+            this.graphic = graphic;
+            this.order = order;
+        }
+    }
+
+    /**
+     * List of graphics exposing the number of structural modifications, so that the index can detect the changes made
+     * outside the model.
+     */
+    static class GraphicList extends ArrayList<Graphic> {
+        private static final long serialVersionUID = -2915471232063325371L;
+
+        GraphicList() {
+            super();
+        }
+
+        GraphicList(Collection<Graphic> c) {
+            super(c);
+        }
+
+        int getModCount() {
+            return modCount;
+        }
+    }
+}
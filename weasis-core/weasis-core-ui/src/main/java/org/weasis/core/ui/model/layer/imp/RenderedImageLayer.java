@@ -63,6 +63,10 @@ public class RenderedImageLayer<E extends ImageElement> extends DefaultUUID impl
     private OpManager preprocessing;
     private E sourceImage;
     private PlanarImage displayImage;
+    private PlanarImage printerImage;
+    private double printerScale;
+    private double printerRatioX;
+    private double printerRatioY;
     private Boolean visible = true;
     private boolean enableDispOperations = true;
     private Point offset;
@@ -250,93 +254,23 @@ public class RenderedImageLayer<E extends ImageElement> extends DefaultUUID impl
 
     }
 
-    public void drawImageForPrinter(Graphics2D g2d, double viewScale, Canvas canvas) {
-        // Get the clipping rectangle
-        if (!visible || displayImage == null) {
-            return;
-        }
-
-        Shape clip = g2d.getClip();
-        if (clip instanceof Rectangle2D) {
-            Rectangle2D rect = new Rectangle2D.Double(0, 0, displayImage.width() - 1.0, displayImage.height() - 1.0);
-            rect = rect.createIntersection((Rectangle2D) clip);
-            if (rect.isEmpty()) {
-                return;
-            }
-            g2d.setClip(rect);
-        }
-
-        // Rectangle2D modelArea = canvas.getViewModel().getModelArea();
-        // double rWidth = modelArea.getWidth();
-        // double rHeight = modelArea.getHeight();
-        //
-        // OpManager dispOp = getDisplayOpManager();
-        // boolean flip = LangUtil.getNULLtoFalse((Boolean) canvas.getActionValue(ActionW.FLIP.cmd()));
-        // Integer rotationAngle = (Integer) canvas.getActionValue(ActionW.ROTATION.cmd());
-        //
-        // double curScale = canvas.getViewModel().getViewScale();
-        // // Do not print lower than 72 dpi (drawRenderedImage can only decrease the size for printer not interpolate)
-        // double imageRes = viewScale < curScale ? curScale : viewScale;
-        //
-        // AffineTransform affineTransform = AffineTransform.getScaleInstance(flip ? -imageRes : imageRes, imageRes);
-        // if (rotationAngle != null && rotationAngle > 0) {
-        // affineTransform.rotate(Math.toRadians(rotationAngle), rWidth / 2.0, rHeight / 2.0);
-        // }
-        // if (flip) {
-        // affineTransform.translate(-rWidth, 0.0);
-        // }
-        //
-        // ImageOpNode node = dispOp.getNode(AffineTransformOp.OP_NAME);
-        // if (node != null) {
-        // double diffRatio = curScale / imageRes;
-        // Rectangle2D imgBounds = affineTransform.createTransformedShape(modelArea).getBounds2D();
-        //
-        // double diffx = 0.0;
-        // double diffy = 0.0;
-        // Rectangle2D viewBounds = new Rectangle2D.Double(0, 0, canvas.getJComponent().getWidth(),
-        // canvas.getJComponent().getHeight());
-        // Rectangle2D srcBounds = canvas.getImageViewBounds(viewBounds.getWidth(), viewBounds.getHeight());
-        //
-        // Rectangle2D dstBounds;
-        // if (viewBounds.contains(srcBounds)) {
-        // dstBounds = srcBounds;
-        // } else {
-        // dstBounds = viewBounds.createIntersection(srcBounds);
-        //
-        // if (srcBounds.getX() < 0.0) {
-        // diffx += srcBounds.getX();
-        // }
-        // if (srcBounds.getY() < 0.0) {
-        // diffy += srcBounds.getY();
-        // }
-        // }
-        //
-        // double[] fmx = new double[6];
-        // affineTransform.getMatrix(fmx);
-        // // adjust transformation matrix => move the center to keep all the image
-        // fmx[4] -= imgBounds.getX() - diffx;
-        // fmx[5] -= imgBounds.getY() - diffy;
-        // affineTransform.setTransform(fmx[0], fmx[1], fmx[2], fmx[3], fmx[4], fmx[5]);
-        //
-        // // Convert to openCV affine matrix
-        // double[] m = new double[] { fmx[0], fmx[2], fmx[4], fmx[1], fmx[3], fmx[5] };
-        // Object oldMatrix = node.getParam(AffineTransformOp.P_AFFINE_MATRIX);
-        // Object oldBounds = node.getParam(AffineTransformOp.P_DST_BOUNDS);
-        // node.setParam(AffineTransformOp.P_AFFINE_MATRIX, m);
-        // node.setParam(AffineTransformOp.P_DST_BOUNDS, dstBounds);
-        // PlanarImage img = disOpManager.process();
-        // node.setParam(AffineTransformOp.P_AFFINE_MATRIX, oldMatrix);
-        // node.setParam(AffineTransformOp.P_DST_BOUNDS, oldBounds);
-        //
-        //
-        // g2d.drawRenderedImage(ImageProcessor.toBufferedImage(img), AffineTransform.getScaleInstance(diffRatio,
-        // diffRatio));
-        // }
-
+    /**
+     * Process the display operations at the printer resolution. The display image is reused when it has already this
+     * resolution. Can be called from any thread before drawImageForPrinter(), also when the display operations are
+     * disabled.
+     *
+     * @param viewScale
+     *            the ratio of the printer resolution
+     */
+    public synchronized void preparePrinterImage(double viewScale) {
         double[] matrix =
             (double[]) disOpManager.getParamValue(AffineTransformOp.OP_NAME, AffineTransformOp.P_AFFINE_MATRIX);
         Rectangle2D bound =
             (Rectangle2D) disOpManager.getParamValue(AffineTransformOp.OP_NAME, AffineTransformOp.P_DST_BOUNDS);
+        if (matrix == null || bound == null) {
+            printerImage = null;
+            return;
+        }
         double ratioX = matrix[0];
         double ratioY = matrix[4];
         double offsetX = matrix[2];
@@ -358,7 +292,8 @@ public class RenderedImageLayer<E extends ImageElement> extends DefaultUUID impl
         matrix[5] = offsetY / ry;
         disOpManager.setParamValue(AffineTransformOp.OP_NAME, AffineTransformOp.P_AFFINE_MATRIX, matrix);
         disOpManager.setParamValue(AffineTransformOp.OP_NAME, AffineTransformOp.P_DST_BOUNDS, b);
-        PlanarImage img = bound.equals(b) ? displayImage : disOpManager.process();
+        boolean upToDate = isEnableDispOperations() && displayImage != null;
+        PlanarImage img = bound.equals(b) && upToDate ? displayImage : disOpManager.process();
 
         matrix[0] = ratioX;
         matrix[4] = ratioY;
@@ -367,6 +302,42 @@ public class RenderedImageLayer<E extends ImageElement> extends DefaultUUID impl
         disOpManager.setParamValue(AffineTransformOp.OP_NAME, AffineTransformOp.P_AFFINE_MATRIX, matrix);
         disOpManager.setParamValue(AffineTransformOp.OP_NAME, AffineTransformOp.P_DST_BOUNDS, bound);
 
+        printerImage = img;
+        printerScale = viewScale;
+        printerRatioX = rx;
+        printerRatioY = ry;
+    }
+
+    public void drawImageForPrinter(Graphics2D g2d, double viewScale, Canvas canvas) {
+        if (!visible) {
+            return;
+        }
+        PlanarImage img;
+        double rx;
+        double ry;
+        synchronized (this) {
+            if (printerImage == null || printerScale != viewScale) {
+                preparePrinterImage(viewScale);
+            }
+            img = printerImage;
+            rx = printerRatioX;
+            ry = printerRatioY;
+        }
+        if (img == null) {
+            return;
+        }
+
+        // Get the clipping rectangle
+        Shape clip = g2d.getClip();
+        if (clip instanceof Rectangle2D) {
+            Rectangle2D rect = new Rectangle2D.Double(0, 0, img.width() * rx - 1.0, img.height() * ry - 1.0);
+            rect = rect.createIntersection((Rectangle2D) clip);
+            if (rect.isEmpty()) {
+                return;
+            }
+            g2d.setClip(rect);
+        }
+
         g2d.drawRenderedImage(ImageConversion.toBufferedImage(img), AffineTransform.getScaleInstance(rx, ry));
 
         g2d.setClip(clip);
@@ -375,6 +346,7 @@ public class RenderedImageLayer<E extends ImageElement> extends DefaultUUID impl
     public void dispose() {
         sourceImage = null;
         displayImage = null;
+        printerImage = null;
         listenerList.clear();
         opListeners.clear();
     }
@@ -430,6 +402,7 @@ public class RenderedImageLayer<E extends ImageElement> extends DefaultUUID impl
 
     @Override
     public void updateDisplayOperations() {
+        printerImage = null;
         if (isEnableDispOperations()) {
             displayImage = disOpManager.process();
             fireImageChanged();
@@ -155,6 +155,42 @@ public class AdvancedShape implements Shape {
         return null;
     }
 
+    /**
+     * Bounds independent of the view: the parts having an invariant size in the view are reduced to their anchor point.
+     * Their size is given by {@link #getInvariantExtent()}.
+     *
+     * @return the bounds in image coordinates or null when there is no shape
+     */
+    public Rectangle2D getAnchorBounds() {
+        Rectangle2D rectangle = null;
+        for (BasicShape item : shapeList) {
+            Rectangle2D bounds = item.getAnchorBounds();
+            if (rectangle == null) {
+                rectangle = bounds;
+            } else {
+                rectangle.add(bounds);
+            }
+        }
+        return rectangle;
+    }
+
+    /**
+     * @return the maximum distance, in pixels of the view, between a part having an invariant size and its anchor point
+     */
+    public double getInvariantExtent() {
+        double extent = 0.0;
+        for (BasicShape item : shapeList) {
+            extent = Math.max(extent, item.getInvariantExtent());
+        }
+        return extent;
+    }
+
+    private static double getMaxDistance(Rectangle2D bounds, Point2D p) {
+        double dx = Math.max(Math.abs(bounds.getMinX() - p.getX()), Math.abs(bounds.getMaxX() - p.getX()));
+        double dy = Math.max(Math.abs(bounds.getMinY() - p.getY()), Math.abs(bounds.getMaxY() - p.getY()));
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
     @Override
     public Rectangle getBounds() {
         Rectangle rectangle = null;
@@ -364,6 +400,14 @@ public class AdvancedShape implements Shape {
             return shape;
         }
 
+        Rectangle2D getAnchorBounds() {
+            return shape.getBounds2D();
+        }
+
+        double getInvariantExtent() {
+            return 0.0;
+        }
+
         public void changelineThickness(float width) {
             if (!fixedLineWidth && stroke instanceof BasicStroke) {
                 BasicStroke s = (BasicStroke) stroke;
@@ -430,6 +474,16 @@ public class AdvancedShape implements Shape {
             this.scalingMin = scalingMin;
         }
 
+        @Override
+        Rectangle2D getAnchorBounds() {
+            return new Rectangle2D.Double(anchorPoint.getX(), anchorPoint.getY(), 0, 0);
+        }
+
+        @Override
+        double getInvariantExtent() {
+            return getMaxDistance(shape.getBounds2D(), anchorPoint);
+        }
+
         @Override
         public Shape getRealShape() {
             double scalingFactor = GeomUtil.extractScalingFactor(transform);
@@ -456,6 +510,16 @@ public class AdvancedShape implements Shape {
             this.anchorPoint = (Point2D) anchorPoint.clone();
         }
 
+        @Override
+        Rectangle2D getAnchorBounds() {
+            return new Rectangle2D.Double(anchorPoint.getX(), anchorPoint.getY(), 0, 0);
+        }
+
+        @Override
+        double getInvariantExtent() {
+            return getMaxDistance(shape.getBounds2D(), anchorPoint);
+        }
+
         @Override
         public Shape getRealShape() {
             if (transform == null) {
@@ -501,6 +565,20 @@ public class AdvancedShape implements Shape {
             this.invShape = invShape;
         }
 
+        @Override
+        Rectangle2D getAnchorBounds() {
+            Rectangle2D bounds = new Rectangle2D.Double(anchorPoint.getX(), anchorPoint.getY(), 0, 0);
+            // The second point of the segment is fixed in the image
+            bounds.add(((Line2D) shape).getP2());
+            return bounds;
+        }
+
+        @Override
+        double getInvariantExtent() {
+            double extent = ((Line2D) shape).getP1().distance(anchorPoint);
+            return invShape == null ? extent : Math.max(extent, getMaxDistance(invShape.getBounds2D(), anchorPoint));
+        }
+
         @Override
         public Shape getRealShape() {
             if (transform == null) {
@@ -9,22 +9,35 @@
  *******************************************************************************/
 package org.weasis.core.ui.serialize;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Reader;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBElement;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
 import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.weasis.core.api.media.data.ImageElement;
+import org.weasis.core.api.media.data.MediaElement;
 import org.weasis.core.api.media.data.TagW;
 import org.weasis.core.api.util.GzipManager;
 import org.weasis.core.ui.model.GraphicModel;
@@ -35,18 +48,26 @@ import com.sun.xml.bind.v2.ContextFactory;
 public class XmlSerializer {
     private static final Logger LOGGER = LoggerFactory.getLogger(XmlSerializer.class);
 
+    // The JAXB contexts are thread-safe and expensive to build
+    private static final Map<Class<?>, JAXBContext> CONTEXTS = new ConcurrentHashMap<>();
+    private static final XMLInputFactory INPUT_FACTORY = buildInputFactory();
+    private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+    private XmlSerializer() {
+    }
+
+    private static XMLInputFactory buildInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        // disable external entities for security
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        return factory;
+    }
+
     public static GraphicModel readPresentationModel(File gpxFile) {
         if (gpxFile.canRead()) {
-            try {
-                JAXBContext jaxbContext = getJaxbContext(XmlGraphicModel.class);
-                Unmarshaller jaxbUnmarshaller = jaxbContext.createUnmarshaller();
-                GraphicModel model = (GraphicModel) jaxbUnmarshaller.unmarshal(gpxFile);
-                int length = model.getModels().size();
-                model.getModels().removeIf(g -> g.getLayer() == null);
-                if (length > model.getModels().size()) {
-                    LOGGER.error("Removing {} graphics wihout a attached layer", model.getModels().size() - length); //$NON-NLS-1$
-                }
-                return model;
+            try (InputStream in = new BufferedInputStream(new FileInputStream(gpxFile))) {
+                return readPresentationModel(in);
             } catch (Exception e) {
                 LOGGER.error("Cannot load xml: ", e); //$NON-NLS-1$
             }
@@ -54,20 +75,88 @@ public class XmlSerializer {
         return null;
     }
 
+    /**
+     * Get the graphic model of an image. When the image references only the file of the model (see
+     * {@link TagW#PresentationModelFile}), the model is read at the first call.
+     *
+     * @param media
+     *            the image
+     * @return the graphic model or null
+     */
+    public static GraphicModel getPresentationModel(MediaElement media) {
+        if (media == null) {
+            return null;
+        }
+        synchronized (media) {
+            Object model = media.getTagValue(TagW.PresentationModel);
+            if (model == null) {
+                String path = TagW.getTagValue(media, TagW.PresentationModelFile, String.class);
+                if (path != null) {
+                    model = readPresentationModel(new File(path));
+                    media.setTag(TagW.PresentationModelFile, null);
+                    media.setTag(TagW.PresentationModel, model);
+                }
+            }
+            return model instanceof GraphicModel ? (GraphicModel) model : null;
+        }
+    }
+
+    /**
+     * Checks whether an image has graphics without reading the file of its model. When the file has not been read yet,
+     * the image is considered to have graphics.
+     *
+     * @param media
+     *            the image
+     * @return true if the image has a model file not read yet or a model with serializable graphics
+     */
+    public static boolean hasPresentationModel(MediaElement media) {
+        if (media == null) {
+            return false;
+        }
+        synchronized (media) {
+            Object model = media.getTagValue(TagW.PresentationModel);
+            if (model instanceof GraphicModel) {
+                return ((GraphicModel) model).hasSerializableGraphics();
+            }
+            return TagW.getTagValue(media, TagW.PresentationModelFile, String.class) != null;
+        }
+    }
+
+    private static GraphicModel readPresentationModel(InputStream in) throws JAXBException, XMLStreamException {
+        XMLStreamReader xmler = INPUT_FACTORY.createXMLStreamReader(in);
+        try {
+            Unmarshaller jaxbUnmarshaller = getJaxbContext(XmlGraphicModel.class).createUnmarshaller();
+            GraphicModel model = jaxbUnmarshaller.unmarshal(xmler, XmlGraphicModel.class).getValue();
+            removeGraphicsWithoutLayer(model);
+            return model;
+        } finally {
+            xmler.close();
+        }
+    }
+
+    private static void removeGraphicsWithoutLayer(GraphicModel model) {
+        int length = model.getModels().size();
+        model.getModels().removeIf(g -> g.getLayer() == null);
+        if (length > model.getModels().size()) {
+            LOGGER.error("Removing {} graphics wihout a attached layer", length - model.getModels().size()); //$NON-NLS-1$
+        }
+    }
+
     public static void writePresentation(ImageElement img, File destinationFile) {
-        GraphicModel model = (GraphicModel) img.getTagValue(TagW.PresentationModel);
+        GraphicModel model = getPresentationModel(img);
         if (model != null && !model.getModels().isEmpty()) {
             File gpxFile = new File(destinationFile.getParent(), destinationFile.getName() + ".xml"); //$NON-NLS-1$
 
-            try {
-                JAXBContext jaxbContext = getJaxbContext(model.getClass());
-                Marshaller jaxbMarshaller = jaxbContext.createMarshaller();
-
-                // output pretty printed
-                jaxbMarshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
-
-                // jaxbMarshaller.marshal(model, System.out);
-                jaxbMarshaller.marshal(model, gpxFile);
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(gpxFile))) {
+                XMLStreamWriter xmlw = OUTPUT_FACTORY.createXMLStreamWriter(out, StandardCharsets.UTF_8.name());
+                try {
+                    xmlw.writeStartDocument(StandardCharsets.UTF_8.name(), "1.0"); //$NON-NLS-1$
+                    marshal(model, xmlw);
+                    xmlw.writeEndDocument();
+                    xmlw.flush();
+                } finally {
+                    xmlw.close();
+                }
             } catch (Exception e) {
                 LOGGER.error("Cannot save xml: ", e); //$NON-NLS-1$
             }
@@ -75,24 +164,33 @@ public class XmlSerializer {
     }
 
     public static void writePresentation(ImageElement img, Writer writer) {
-        GraphicModel model = (GraphicModel) img.getTagValue(TagW.PresentationModel);
+        GraphicModel model = getPresentationModel(img);
         writePresentation(model, writer);
     }
 
     public static void writePresentation(GraphicModel model, Writer writer) {
         if (model != null && model.hasSerializableGraphics()) {
             try {
-                JAXBContext jaxbContext = getJaxbContext(model.getClass());
-                Marshaller jaxbMarshaller = jaxbContext.createMarshaller();
-                // Remove the xml header tag
-                jaxbMarshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
-                jaxbMarshaller.marshal(model, writer);
+                XMLStreamWriter xmlw = OUTPUT_FACTORY.createXMLStreamWriter(writer);
+                try {
+                    marshal(model, xmlw);
+                    xmlw.flush();
+                } finally {
+                    xmlw.close();
+                }
             } catch (Exception e) {
                 LOGGER.error("Cannot write GraphicModel", e); //$NON-NLS-1$
             }
         }
     }
 
+    private static void marshal(GraphicModel model, XMLStreamWriter xmlw) throws JAXBException {
+        Marshaller jaxbMarshaller = getJaxbContext(model.getClass()).createMarshaller();
+        // The xml header tag is written by the caller
+        jaxbMarshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
+        jaxbMarshaller.marshal(model, xmlw);
+    }
+
     public static GraphicModel readPresentation(XMLStreamReader xmler) {
         try {
             JAXBContext jaxbContext = getJaxbContext(XmlGraphicModel.class);
@@ -100,12 +198,7 @@ public class XmlSerializer {
             JAXBElement<XmlGraphicModel> unmarshalledObj =
                 jaxbUnmarshaller.unmarshal(new NoNamespaceStreamReaderDelegate(xmler), XmlGraphicModel.class);
             GraphicModel model = unmarshalledObj.getValue();
-
-            int length = model.getModels().size();
-            model.getModels().removeIf(g -> g.getLayer() == null);
-            if (length > model.getModels().size()) {
-                LOGGER.error("Removing {} graphics wihout a attached layer", model.getModels().size() - length); //$NON-NLS-1$
-            }
+            removeGraphicsWithoutLayer(model);
             return model;
         } catch (Exception e) {
             LOGGER.error("Cannot write GraphicModel", e); //$NON-NLS-1$
@@ -123,16 +216,7 @@ public class XmlSerializer {
 
     public static GraphicModel buildPresentationModel(byte[] gzipData) {
         try {
-            JAXBContext jaxbContext = getJaxbContext(XmlGraphicModel.class);
-            Unmarshaller jaxbUnmarshaller = jaxbContext.createUnmarshaller();
-            ByteArrayInputStream inputStream = new ByteArrayInputStream(GzipManager.gzipUncompressToByte(gzipData));
-            GraphicModel model = (GraphicModel) jaxbUnmarshaller.unmarshal(inputStream);
-            int length = model.getModels().size();
-            model.getModels().removeIf(g -> g.getLayer() == null);
-            if (length > model.getModels().size()) {
-                LOGGER.error("Removing {} graphics wihout a attached layer", model.getModels().size() - length); //$NON-NLS-1$
-            }
-            return model;
+            return readPresentationModel(new ByteArrayInputStream(GzipManager.gzipUncompressToByte(gzipData)));
         } catch (Exception e) {
             LOGGER.error("Cannot load xml graphic model: ", e); //$NON-NLS-1$
         }
@@ -140,6 +224,14 @@ public class XmlSerializer {
     }
 
     public static JAXBContext getJaxbContext(Class<?>... clazz) throws JAXBException {
+        if (clazz.length == 1) {
+            JAXBContext context = CONTEXTS.get(clazz[0]);
+            if (context == null) {
+                context = getJaxbContext(null, clazz);
+                CONTEXTS.putIfAbsent(clazz[0], context);
+            }
+            return context;
+        }
         return getJaxbContext(null, clazz);
     }
 
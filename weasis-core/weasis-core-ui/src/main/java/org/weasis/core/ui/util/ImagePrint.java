@@ -22,9 +22,14 @@ import java.awt.print.Paper;
 import java.awt.print.Printable;
 import java.awt.print.PrinterException;
 import java.awt.print.PrinterJob;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import javax.print.attribute.HashPrintRequestAttributeSet;
 import javax.print.attribute.PrintRequestAttributeSet;
@@ -40,6 +45,7 @@ import org.slf4j.LoggerFactory;
 import org.weasis.core.api.gui.util.MathUtil;
 import org.weasis.core.api.image.LayoutConstraints;
 import org.weasis.core.api.media.data.ImageElement;
+import org.weasis.core.api.util.ThreadUtil;
 import org.weasis.core.ui.Messages;
 import org.weasis.core.ui.editor.image.ExportImage;
 import org.weasis.opencv.data.PlanarImage;
@@ -48,6 +54,8 @@ public class ImagePrint implements Printable {
     private static final Logger LOGGER = LoggerFactory.getLogger(ImagePrint.class);
 
     private static final double POINTS_PER_INCH = 72.0;
+    private static final ExecutorService RENDERING_EXECUTOR = ThreadUtil.buildNewFixedThreadExecutor(
+        Math.max(1, Runtime.getRuntime().availableProcessors() - 1), "Print Rendering"); //$NON-NLS-1$
 
     private Point printLoc;
     private PrintOptions printOptions;
@@ -166,6 +174,8 @@ public class ImagePrint implements Printable {
         double wx = 0.0;
 
         final Map<LayoutConstraints, Component> elements = layout.layoutModel.getConstraints();
+        List<ExportImage<? extends ImageElement>> images = new ArrayList<>(elements.size());
+        List<Point2D> positions = new ArrayList<>(elements.size());
         Iterator<Entry<LayoutConstraints, Component>> enumVal = elements.entrySet().iterator();
         while (enumVal.hasNext()) {
             Entry<LayoutConstraints, Component> e = enumVal.next();
@@ -197,13 +207,48 @@ public class ImagePrint implements Printable {
             }
 
             if (image != null) {
-                // Set us to the upper left corner
-                g2d.translate(x, y);
-                boolean wasBuffered = disableDoubleBuffering(image);
-                g2d.setClip(image.getBounds());
-                image.draw(g2d);
-                restoreDoubleBuffering(image, wasBuffered);
-                g2d.translate(-x, -y);
+                images.add(image);
+                positions.add(new Point2D.Double(x, y));
+            }
+        }
+
+        prepareDrawing(images, g2d);
+
+        for (int i = 0; i < images.size(); i++) {
+            ExportImage<? extends ImageElement> image = images.get(i);
+            Point2D p = positions.get(i);
+            // Set us to the upper left corner
+            g2d.translate(p.getX(), p.getY());
+            boolean wasBuffered = disableDoubleBuffering(image);
+            g2d.setClip(image.getBounds());
+            image.draw(g2d);
+            restoreDoubleBuffering(image, wasBuffered);
+            g2d.translate(-p.getX(), -p.getY());
+        }
+    }
+
+    /**
+     * Process in parallel the display images of the views before drawing them in the graphics.
+     *
+     * @param images
+     *            the views formatted with their display operations disabled
+     * @param g2d
+     *            the graphics where the views will be drawn
+     * @see ExportImage#prepareDrawing(Graphics2D)
+     */
+    public static void prepareDrawing(List<? extends ExportImage<?>> images, Graphics2D g2d) {
+        List<Future<?>> futures = new ArrayList<>(images.size());
+        for (ExportImage<?> image : images) {
+            futures.add(RENDERING_EXECUTOR.submit(() -> image.prepareDrawing(g2d)));
+        }
+        for (Future<?> f : futures) {
+            try {
+                f.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                LOGGER.error("Cannot render the image to print", e.getCause()); //$NON-NLS-1$
             }
         }
     }
@@ -219,6 +264,8 @@ public class ImagePrint implements Printable {
         Double originZoom = (Double) image.getActionValue("origin.zoom"); //$NON-NLS-1$
         PlanarImage img = image.getSourceImage();
         if (img != null && originCenterOffset != null && originZoom != null) {
+            // The image is processed only once at the printing resolution, see prepareDrawing()
+            image.getImageLayer().setEnableDispOperations(false);
             boolean bestfit = originZoom <= 0.0;
             double canvasWidth;
             double canvasHeight;
@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2020 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.weasis.core.ui.editor.image;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.BoundedRangeModel;
+import javax.swing.SwingUtilities;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.powermock.api.mockito.PowerMockito;
+import org.weasis.core.api.gui.util.ActionW;
+import org.weasis.core.api.gui.util.SliderCineListener;
+import org.weasis.core.api.media.data.ImageElement;
+
+public class CineEngineTest {
+    // 10 frames by second
+    private static final long PERIOD = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final SliderCineListener listener = new SliderCineListener(ActionW.SCROLL_SERIES, 1, 10, 1, 10,
+        SliderCineListener.TIME.SECOND) {
+
+        @Override
+        public void stateChanged(BoundedRangeModel model) {
+            // Nothing to display
+        }
+
+        @Override
+        public void start() {
+            // Not used
+        }
+
+        @Override
+        public void stop() {
+            // Not used
+        }
+
+        @Override
+        public boolean isCining() {
+            return false;
+        }
+    };
+
+    private static void flushEdt() throws Exception {
+        SwingUtilities.invokeAndWait(() -> {
+        });
+    }
+
+    @Test
+    public void testFrameScheduling() throws Exception {
+        CineEngine engine = new CineEngine(listener, v -> null, Runnable::run, 0);
+        Object token = engine.startClock(0);
+
+        assertThat(engine.scheduleFrame(token, 0)).isZero();
+        flushEdt();
+        assertThat(listener.getSliderValue()).isEqualTo(2);
+        assertThat(engine.scheduleFrame(token, 40_000_000L)).isEqualTo(PERIOD - 40_000_000L);
+
+        // The scheduler is late of two frames, they are skipped
+        assertThat(engine.scheduleFrame(token, 3 * PERIOD + PERIOD / 2)).isZero();
+        flushEdt();
+        assertThat(listener.getSliderValue()).isEqualTo(5);
+        assertThat(engine.getDroppedFrames()).isEqualTo(2);
+        assertThat(engine.scheduleFrame(token, 3 * PERIOD + PERIOD / 2)).isEqualTo(PERIOD / 2);
+
+        // Loop at the end of the slider
+        listener.setSliderValue(10);
+        assertThat(engine.scheduleFrame(token, 5 * PERIOD)).isZero();
+        flushEdt();
+        assertThat(listener.getSliderValue()).isEqualTo(2);
+        assertThat(engine.getDroppedFrames()).isEqualTo(3);
+
+        // A stopped playback does not change the slider
+        engine.stop();
+        assertThat(engine.isRunning()).isFalse();
+        assertThat(engine.scheduleFrame(token, 7 * PERIOD)).isZero();
+        flushEdt();
+        assertThat(listener.getSliderValue()).isEqualTo(2);
+    }
+
+    @Test
+    public void testFramesDroppedWhenEdtIsBusy() throws Exception {
+        CineEngine engine = new CineEngine(listener, v -> null, Runnable::run, 0);
+        Object token = engine.startClock(0);
+
+        CountDownLatch busy = new CountDownLatch(1);
+        SwingUtilities.invokeLater(() -> {
+            try {
+                busy.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertThat(engine.scheduleFrame(token, 0)).isZero();
+        assertThat(engine.scheduleFrame(token, PERIOD)).isZero();
+        assertThat(engine.scheduleFrame(token, 2 * PERIOD)).isZero();
+        assertThat(engine.getDroppedFrames()).isEqualTo(2);
+        busy.countDown();
+        flushEdt();
+        assertThat(listener.getSliderValue()).isEqualTo(2);
+
+        // The dropped frames are skipped by the next frame to hold the rate
+        assertThat(engine.scheduleFrame(token, 3 * PERIOD)).isZero();
+        flushEdt();
+        assertThat(listener.getSliderValue()).isEqualTo(5);
+        assertThat(engine.getDroppedFrames()).isEqualTo(2);
+    }
+
+    @Test
+    public void testFrameRepeatedWhileReading() throws Exception {
+        ImageElement image = PowerMockito.mock(ImageElement.class);
+        List<Runnable> tasks = new ArrayList<>();
+        List<Integer> requested = new ArrayList<>();
+        CineEngine engine = new CineEngine(listener, v -> {
+            requested.add(v);
+            return image;
+        }, tasks::add, 2);
+        Object token = engine.startClock(0);
+
+        assertThat(engine.scheduleFrame(token, 0)).isZero();
+        flushEdt();
+        assertThat(listener.getSliderValue()).isEqualTo(2);
+        assertThat(requested).containsExactly(3, 4);
+        assertThat(tasks).hasSize(2);
+
+        // The next frame is not read yet
+        assertThat(engine.scheduleFrame(token, PERIOD)).isZero();
+        flushEdt();
+        assertThat(listener.getSliderValue()).isEqualTo(2);
+        assertThat(engine.getDroppedFrames()).isEqualTo(1);
+
+        tasks.forEach(Runnable::run);
+        Mockito.verify(image, Mockito.times(2)).getImage();
+        assertThat(engine.scheduleFrame(token, 2 * PERIOD)).isZero();
+        flushEdt();
+        assertThat(listener.getSliderValue()).isEqualTo(3);
+        assertThat(engine.getDroppedFrames()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,237 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2020 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.weasis.core.ui.editor.image;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.awt.Polygon;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assume;
+import org.junit.Test;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.weasis.core.api.image.cv.BandStatistics;
+import org.weasis.core.api.image.cv.BandStatistics.Moments;
+import org.weasis.core.ui.editor.image.RegionStatistics.RowChange;
+import org.weasis.core.ui.editor.image.RegionStatistics.RowSpans;
+import org.weasis.opencv.op.ImageProcessor;
+
+public class RegionStatisticsTest {
+
+    @Test
+    public void testSubtractSpans() {
+        int[] a = { 0, 10, 20, 30 };
+        assertThat(RegionStatistics.subtract(a, new int[0])).containsExactly(a);
+        assertThat(RegionStatistics.subtract(new int[0], a)).isEmpty();
+        assertThat(RegionStatistics.subtract(a, a)).isEmpty();
+        assertThat(RegionStatistics.subtract(a, new int[] { 5, 25 })).containsExactly(0, 5, 25, 30);
+        assertThat(RegionStatistics.subtract(a, new int[] { 2, 4, 6, 8, 40, 50 })).containsExactly(0, 2, 4, 6, 8, 10,
+            20, 30);
+        assertThat(RegionStatistics.subtract(new int[] { 5, 25 }, a)).containsExactly(10, 20);
+    }
+
+    @Test
+    public void testMovedSpansChanges() {
+        // Rectangle of 10 columns moved by 2 columns on the right
+        int[] before = { 10, 20 };
+        int[] after = { 12, 22 };
+        assertThat(RegionStatistics.subtract(before, after)).containsExactly(10, 12);
+        assertThat(RegionStatistics.subtract(after, before)).containsExactly(20, 22);
+        assertThat(RegionStatistics.length(before)).isEqualTo(10);
+    }
+
+    @Test
+    public void testSpansFromMask() {
+        byte[] mask = { //
+            0, 1, 1, 0, //
+            1, 0, 0, 1, //
+            0, 0, 0, 0 };
+        RowSpans spans = RowSpans.fromMask(mask, 4, 3, 100, 50);
+        assertThat(spans.getRow(50)).containsExactly(101, 103);
+        assertThat(spans.getRow(51)).containsExactly(100, 101, 103, 104);
+        assertThat(spans.getRow(52)).isEmpty();
+        assertThat(spans.getRow(49)).isEmpty();
+        assertThat(spans.getArea()).isEqualTo(4);
+        assertThat(spans.getRectangle()).isNull();
+    }
+
+    @Test
+    public void testRectangleSpans() {
+        byte[] mask = { //
+            0, 0, 0, //
+            1, 1, 0, //
+            1, 1, 0 };
+        RowSpans spans = RowSpans.fromMask(mask, 3, 3, 10, 20);
+        assertThat(spans.getRectangle()).containsExactly(10, 21, 12, 23);
+        assertThat(spans.getArea()).isEqualTo(4);
+    }
+
+    @Test
+    public void testRectangleCorners() {
+        assertThat(RegionStatistics.getRectangleCorners(new Rectangle2D.Double(10.4, 5.7, 20.2, 15.5)))
+            .containsExactly(10, 5, 30, 21);
+        Shape moved = AffineTransform.getTranslateInstance(-3.0, 2.0)
+            .createTransformedShape(new Rectangle2D.Double(10.0, 5.0, 20.0, 15.0));
+        assertThat(RegionStatistics.getRectangleCorners(moved)).containsExactly(7, 7, 27, 22);
+
+        Shape rotated = AffineTransform.getRotateInstance(0.3).createTransformedShape(new Rectangle2D.Double(10.0,
+            5.0, 20.0, 15.0));
+        assertThat(RegionStatistics.getRectangleCorners(rotated)).isNull();
+        assertThat(RegionStatistics.getRectangleCorners(new Ellipse2D.Double(10.0, 5.0, 20.0, 15.0))).isNull();
+        assertThat(RegionStatistics.getRectangleCorners(new Polygon(new int[] { 0, 10, 10, 5, 5, 0 },
+            new int[] { 0, 0, 10, 10, 5, 5 }, 6))).isNull();
+    }
+
+    @Test
+    public void testOnlyChangedRowsOfRectangles() {
+        RowSpans spans = RowSpans.fromRectangle(0, 50, 10, 19, 5, 24);
+        assertThat(spans.getRectangle()).containsExactly(10, 5, 20, 25);
+        assertThat(spans.getArea()).isEqualTo(200);
+
+        // Moved by 2 rows down: only the first 2 rows are removed and 2 rows are added
+        RowSpans down = RowSpans.fromRectangle(0, 50, 10, 19, 7, 26);
+        List<RowChange> changes = RegionStatistics.getChanges(spans, down);
+        assertThat(changes).hasSize(4);
+
+        assertThat(RegionStatistics.getChanges(spans, RowSpans.fromRectangle(0, 50, 10, 19, 5, 24))).isEmpty();
+        assertThat(RowSpans.fromRectangle(0, 50, 10, 9, 5, 24).getRectangle()).isNull();
+    }
+
+    @Test
+    public void testIncrementalHistogramEqualsFullHistogram() {
+        Assume.assumeTrue("OpenCV native library not available", isOpenCVAvailable()); //$NON-NLS-1$
+
+        int nbBins = 1024;
+        Mat source = new Mat(96, 128, CvType.CV_16UC1);
+        short[] data = new short[source.rows() * source.cols()];
+        Random random = new Random(7);
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (short) random.nextInt(nbBins);
+        }
+        source.put(0, 0, data);
+
+        Object owner = new Object();
+        Rectangle2D rect = new Rectangle2D.Double(10.4, 5.7, 20.2, 15.5);
+        Shape[] moves = { rect, translate(rect, 1.0, 0.0), translate(rect, 3.5, 2.2), translate(rect, 3.5, -1.0),
+            new Rectangle2D.Double(12.0, 8.0, 40.0, 30.0), new Rectangle2D.Double(12.0, 8.0, 38.0, 31.0),
+            new Ellipse2D.Double(14.0, 9.0, 40.0, 30.0), new Ellipse2D.Double(15.0, 9.0, 40.0, 31.0),
+            AffineTransform.getRotateInstance(0.2, 40.0, 30.0).createTransformedShape(rect),
+            translate(rect, 60.0, 50.0), null, rect };
+
+        RegionStatistics.release();
+        try {
+            for (Shape roi : moves) {
+                RegionStatistics.Result result =
+                    RegionStatistics.compute(source, owner, roi, null, null, nbBins, 0.0, nbBins - 1.0);
+                assertThat(result).isNotNull();
+
+                List<Mat> imgPr = ImageProcessor.getMaskImage(source, roi, null, null);
+                Mat hist = BandStatistics.calcHist(imgPr.get(0), imgPr.get(1), nbBins, 0.0f, nbBins);
+                float[] expected = new float[nbBins];
+                hist.get(0, 0, expected);
+                assertThat(result.getBins()).as("Histogram of %s", roi).containsExactly(expected); //$NON-NLS-1$
+
+                Moments moments = result.getMoments();
+                if (moments != null) {
+                    Moments[] full = BandStatistics.meanStdDev(imgPr.get(0), imgPr.get(1));
+                    assertThat(moments.getCount()).isEqualTo(full[0].getCount());
+                    assertThat(moments.getMean()).isCloseTo(full[0].getMean(), within(1e-6));
+                    assertThat(moments.getStandardDeviation()).isCloseTo(full[0].getStandardDeviation(),
+                        within(1e-6));
+                }
+            }
+        } finally {
+            RegionStatistics.release();
+            source.release();
+        }
+    }
+
+    @Test
+    public void testIncrementalUpdateFromParallelHistogram() {
+        Assume.assumeTrue("OpenCV native library not available", isOpenCVAvailable()); //$NON-NLS-1$
+
+        int nbBins = 256;
+        Mat source = new Mat(80, 100, CvType.CV_16UC1);
+        short[] data = new short[source.rows() * source.cols()];
+        Random random = new Random(11);
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (short) random.nextInt(nbBins);
+        }
+        source.put(0, 0, data);
+
+        Object owner = new Object();
+        Shape roi = new Ellipse2D.Double(10.0, 12.0, 40.0, 30.0);
+        RegionStatistics.release();
+        try {
+            assertThat(RegionStatistics.hasPreviousRegion(source, owner, 0, 20, nbBins, 0.0, nbBins - 1.0)).isFalse();
+
+            // The first histogram of the graphic is computed in parallel and becomes the base of the next update
+            float[] bins = fullHistogram(source, roi, nbBins);
+            RegionStatistics.setRegion(source, owner, roi, 0, 20, 0.0, nbBins - 1.0, bins);
+            assertThat(RegionStatistics.hasPreviousRegion(source, owner, 0, 20, nbBins, 0.0, nbBins - 1.0)).isTrue();
+            assertThat(RegionStatistics.hasPreviousRegion(source, owner, 20, 0, nbBins, 0.0, nbBins - 1.0)).isTrue();
+            assertThat(RegionStatistics.hasPreviousRegion(source, owner, 0, 20, 128, 0.0, nbBins - 1.0)).isFalse();
+            assertThat(RegionStatistics.hasPreviousRegion(source, owner, null, null, nbBins, 0.0, nbBins - 1.0))
+                .isFalse();
+            assertThat(RegionStatistics.hasPreviousRegion(source, null, 0, 20, nbBins, 0.0, nbBins - 1.0)).isFalse();
+            assertThat(RegionStatistics.hasPreviousRegion(source, new Object(), 0, 20, nbBins, 0.0, nbBins - 1.0))
+                .isFalse();
+
+            Shape moved = translate(roi, 3.0, 2.0);
+            RegionStatistics.Result result =
+                RegionStatistics.compute(source, owner, moved, 0, 20, nbBins, 0.0, nbBins - 1.0);
+            assertThat(result.getBins()).containsExactly(fullHistogram(source, moved, nbBins));
+
+            // Another frame
+            Mat copy = source.clone();
+            assertThat(RegionStatistics.hasPreviousRegion(copy, owner, 0, 20, nbBins, 0.0, nbBins - 1.0)).isFalse();
+            copy.release();
+        } finally {
+            RegionStatistics.release();
+            source.release();
+        }
+    }
+
+    /**
+     * @return the histogram of the region without the padding range [0, 20]
+     */
+    private static float[] fullHistogram(Mat source, Shape roi, int nbBins) {
+        List<Mat> imgPr = ImageProcessor.getMaskImage(source, roi, 0, 20);
+        Mat hist = BandStatistics.calcHist(imgPr.get(0), imgPr.get(1), nbBins, 0.0f, nbBins);
+        float[] bins = new float[nbBins];
+        hist.get(0, 0, bins);
+        return bins;
+    }
+
+    private static Shape translate(Shape shape, double tx, double ty) {
+        return AffineTransform.getTranslateInstance(tx, ty).createTransformedShape(shape);
+    }
+
+    private static boolean isOpenCVAvailable() {
+        for (String name : Arrays.asList("opencv_java", Core.NATIVE_LIBRARY_NAME)) { //$NON-NLS-1$
+            try {
+                System.loadLibrary(name);
+                return true;
+            } catch (UnsatisfiedLinkError e) {
+                // Try the next name
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,170 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2020 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.weasis.core.ui.editor.image;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import javax.swing.SwingUtilities;
+
+import org.junit.Test;
+import org.weasis.core.api.gui.util.ActionW;
+import org.weasis.core.ui.model.utils.bean.PanPoint;
+
+public class SynchDispatcherTest {
+    private static final long TIMEOUT = 5000L;
+
+    private final List<PropertyChangeListener> linked = new CopyOnWriteArrayList<>();
+    private final SynchDispatcher dispatcher =
+        new SynchDispatcher(this, () -> linked.toArray(new PropertyChangeListener[linked.size()]));
+
+    @Test
+    public void testContinuousActions() {
+        assertThat(SynchDispatcher.isContinuous(new SynchCineEvent(null, null, 3))).isTrue();
+        assertThat(SynchDispatcher.isContinuous(new SynchEvent(null, ActionW.WINDOW.cmd(), 400.0))).isTrue();
+        assertThat(SynchDispatcher.isContinuous(new SynchEvent(null, ActionW.ZOOM.cmd(), 2.0))).isTrue();
+        assertThat(SynchDispatcher.isContinuous(new SynchEvent(null, ActionW.RESET.cmd(), true))).isFalse();
+        assertThat(SynchDispatcher.isContinuous(new SynchEvent(null, null, null))).isFalse();
+
+        SynchEvent mixed = new SynchEvent(null, ActionW.LEVEL.cmd(), 40.0);
+        mixed.put(ActionW.FLIP.cmd(), true);
+        assertThat(SynchDispatcher.isContinuous(mixed)).isFalse();
+    }
+
+    @Test
+    public void testOnlyPanDraggingIsContinuous() {
+        PanPoint dragging = new PanPoint(PanPoint.State.DRAGGING, 5.0, 2.0);
+        PanPoint move = new PanPoint(PanPoint.State.MOVE, 5.0, 2.0);
+        assertThat(SynchDispatcher.isContinuous(new SynchEvent(null, ActionW.PAN.cmd(), dragging))).isTrue();
+        assertThat(SynchDispatcher.isContinuous(new SynchEvent(null, ActionW.PAN.cmd(), move))).isFalse();
+    }
+
+    @Test
+    public void testSameAction() {
+        SynchEvent window = new SynchEvent(null, ActionW.WINDOW.cmd(), 400.0);
+        assertThat(SynchDispatcher.isSameAction(window, new SynchEvent(null, ActionW.WINDOW.cmd(), 420.0))).isTrue();
+        assertThat(SynchDispatcher.isSameAction(window, new SynchEvent(null, ActionW.LEVEL.cmd(), 40.0))).isFalse();
+        assertThat(SynchDispatcher.isSameAction(new SynchCineEvent(null, null, 1), new SynchCineEvent(null, null, 2)))
+            .isTrue();
+        assertThat(SynchDispatcher.isSameAction(new SynchEvent(null), new SynchCineEvent(null, null, 2))).isFalse();
+    }
+
+    @Test
+    public void testCoalescingKeepsTheOrder() throws Exception {
+        Recorder view = link(new Recorder());
+        SynchEvent w400 = window(400.0);
+        SynchEvent w410 = window(410.0);
+        SynchEvent l40 = new SynchEvent(null, ActionW.LEVEL.cmd(), 40.0);
+        SynchEvent w420 = window(420.0);
+        SynchEvent reset = new SynchEvent(null, ActionW.RESET.cmd(), true);
+
+        SwingUtilities.invokeAndWait(() -> {
+            dispatcher.dispatch(w400);
+            dispatcher.dispatch(w410);
+            dispatcher.dispatch(l40);
+            dispatcher.dispatch(w420);
+            // Only the first event of the sequence is applied directly
+            assertThat(view.events).containsExactly(w400);
+
+            // A non continuous action flushes first the pending values, only the last value of an action is kept
+            dispatcher.dispatch(reset);
+            assertThat(view.events).containsExactly(w400, l40, w420, reset);
+        });
+    }
+
+    @Test
+    public void testPendingEventsAppliedAtTheEndOfTheFrame() throws Exception {
+        Recorder view = link(new Recorder());
+        SynchEvent w400 = window(400.0);
+        SynchEvent w420 = window(420.0);
+
+        SwingUtilities.invokeAndWait(() -> {
+            dispatcher.dispatch(w400);
+            dispatcher.dispatch(window(410.0));
+            dispatcher.dispatch(w420);
+        });
+        waitFor(() -> view.events.size() == 2);
+        assertThat(view.events).containsExactly(w400, w420);
+    }
+
+    @Test
+    public void testFlushOnUnlink() throws Exception {
+        Recorder unlinked = link(new Recorder());
+        Recorder view = link(new Recorder());
+        SynchEvent w400 = window(400.0);
+        SynchEvent w410 = window(410.0);
+        SynchEvent l40 = new SynchEvent(null, ActionW.LEVEL.cmd(), 40.0);
+
+        SwingUtilities.invokeAndWait(() -> {
+            dispatcher.dispatch(w400);
+            dispatcher.dispatch(w410);
+            // Same calls as ImageViewerEventManager.removePropertyChangeListener()
+            dispatcher.flush(unlinked);
+            linked.remove(unlinked);
+            assertThat(unlinked.events).containsExactly(w400, w410);
+            assertThat(view.events).containsExactly(w400);
+            dispatcher.dispatch(l40);
+        });
+        waitFor(() -> view.events.size() == 3);
+        assertThat(view.events).containsExactly(w400, w410, l40);
+        assertThat(unlinked.events).containsExactly(w400, w410);
+    }
+
+    @Test
+    public void testEventsFromAnotherThread() throws Exception {
+        Recorder view = link(new Recorder());
+        SynchEvent w400 = window(400.0);
+        SynchEvent w410 = window(410.0);
+        SynchEvent reset = new SynchEvent(null, ActionW.RESET.cmd(), true);
+
+        SwingUtilities.invokeAndWait(() -> {
+            dispatcher.dispatch(w400);
+            dispatcher.dispatch(w410);
+        });
+        // Dispatched in the EDT after the pending events
+        dispatcher.dispatch(reset);
+        waitFor(() -> view.events.size() == 3);
+        assertThat(view.events).containsExactly(w400, w410, reset);
+    }
+
+    private Recorder link(Recorder recorder) {
+        linked.add(recorder);
+        return recorder;
+    }
+
+    private static SynchEvent window(double value) {
+        return new SynchEvent(null, ActionW.WINDOW.cmd(), value);
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws Exception {
+        long end = System.currentTimeMillis() + TIMEOUT;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        // Process the events already queued in the EDT
+        SwingUtilities.invokeAndWait(() -> {
+        });
+    }
+
+    static class Recorder implements PropertyChangeListener {
+        final List<SynchEvent> events = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void propertyChange(PropertyChangeEvent evt) {
+            assertThat(SwingUtilities.isEventDispatchThread()).isTrue();
+            events.add((SynchEvent) evt.getNewValue());
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2020 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.weasis.core.ui.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.weasis.core.ui.model.graphic.Graphic;
+import org.weasis.core.ui.model.graphic.imp.angle.AngleToolGraphic;
+import org.weasis.core.ui.model.graphic.imp.area.RectangleGraphic;
+import org.weasis.core.ui.model.imp.XmlGraphicModel;
+import org.weasis.core.ui.model.utils.exceptions.InvalidShapeException;
+
+public class GraphicSpatialIndexTest {
+
+    private XmlGraphicModel model;
+    private RectangleGraphic g1;
+    private RectangleGraphic g2;
+    private RectangleGraphic g3;
+
+    @Before
+    public void setUp() throws InvalidShapeException {
+        model = new XmlGraphicModel();
+        g1 = new RectangleGraphic().buildGraphic(new Rectangle2D.Double(10, 10, 20, 20));
+        g2 = new RectangleGraphic().buildGraphic(new Rectangle2D.Double(500, 500, 20, 20));
+        g3 = new RectangleGraphic().buildGraphic(new Rectangle2D.Double(505, 505, 40, 40));
+        model.addGraphic(g1);
+        model.addGraphic(g2);
+        model.addGraphic(g3);
+    }
+
+    @Test
+    public void testIntersectingInFrontToBackOrder() {
+        assertThat(model.getSelectedAllGraphicsIntersecting(new Rectangle(0, 0, 50, 50), null)).containsExactly(g1);
+        assertThat(model.getSelectedAllGraphicsIntersecting(new Rectangle(490, 490, 100, 100), null))
+            .containsExactly(g3, g2);
+        assertThat(model.getSelectedAllGraphicsIntersecting(new Rectangle(200, 200, 50, 50), null)).isEmpty();
+    }
+
+    @Test
+    public void testGraphicChanges() throws InvalidShapeException {
+        // Shape changed by the graphic
+        g1.buildGraphic(new Rectangle2D.Double(1000, 1000, 20, 20));
+        assertThat(model.getSelectedAllGraphicsIntersecting(new Rectangle(0, 0, 50, 50), null)).isEmpty();
+        assertThat(model.getSelectedAllGraphicsIntersecting(new Rectangle(990, 990, 50, 50), null))
+            .containsExactly(g1);
+
+        // List modified outside the model
+        model.getModels().remove(g3);
+        assertThat(model.getSelectedAllGraphicsIntersecting(new Rectangle(490, 490, 100, 100), null))
+            .containsExactly(g2);
+
+        model.removeGraphic(g2);
+        RectangleGraphic g4 = new RectangleGraphic().buildGraphic(new Rectangle2D.Double(990, 990, 20, 20));
+        model.addGraphic(g4);
+        List<Graphic> list = model.getSelectedAllGraphicsIntersecting(new Rectangle(0, 0, 2000, 2000), null);
+        assertThat(list).containsExactly(g4, g1);
+    }
+
+    @Test
+    public void testLabelIndexedAtItsAnchor() {
+        GraphicSpatialIndex index = new GraphicSpatialIndex(new GraphicSpatialIndex.GraphicList(model.getModels()));
+        assertThat(index.getCandidates(new Rectangle(300, 300, 1, 1), null)).isEmpty();
+
+        g1.setLabel(new String[] { "Area" }, null, new Point2D.Double(300, 300)); //$NON-NLS-1$
+        assertThat(index.getCandidates(new Rectangle(300, 300, 1, 1), null)).containsExactly(g1);
+        assertThat(index.getCandidates(new Rectangle(700, 300, 1, 1), null)).isEmpty();
+
+        // The label is moved by the user
+        g1.moveLabel(400.0, 0.0);
+        assertThat(index.getCandidates(new Rectangle(700, 300, 1, 1), null)).containsExactly(g1);
+        assertThat(index.getCandidates(new Rectangle(700, 700, 1, 1), null)).isEmpty();
+        index.dispose();
+    }
+
+    @Test
+    public void testAdvancedShapeIndexedWithItsInvariantSize() throws InvalidShapeException {
+        AngleToolGraphic angle = new AngleToolGraphic();
+        angle.buildGraphic(Arrays.asList(new Point2D.Double(1200, 1000), new Point2D.Double(1000, 1000),
+            new Point2D.Double(1000, 1200)));
+        GraphicSpatialIndex index = new GraphicSpatialIndex(new GraphicSpatialIndex.GraphicList(Arrays.asList(angle)));
+
+        assertThat(index.getCandidates(new Rectangle(1100, 1000, 1, 1), null)).containsExactly(angle);
+        assertThat(index.getCandidates(new Rectangle(200, 200, 50, 50), null)).isEmpty();
+
+        // The arc of the angle has a constant size in the view: it covers a larger area of the image when zoomed out
+        Rectangle area = new Rectangle(850, 850, 1, 1);
+        assertThat(index.getCandidates(area, null)).isEmpty();
+        assertThat(index.getCandidates(area, AffineTransform.getScaleInstance(0.1, 0.1))).containsExactly(angle);
+        index.dispose();
+    }
+
+    @Test
+    public void testListenersReleasedWhenModelsReplaced() throws InvalidShapeException {
+        ListenedRectangle graphic = new ListenedRectangle();
+        graphic.buildGraphic(new Rectangle2D.Double(10, 10, 20, 20));
+        model.addGraphic(graphic);
+        assertThat(model.getSelectedAllGraphicsIntersecting(new Rectangle(0, 0, 50, 50), null)).contains(graphic);
+        assertThat(graphic.getIndexListeners()).hasSize(1);
+
+        model.setModels(new ArrayList<>(Arrays.asList(g1, g2)));
+        assertThat(graphic.getIndexListeners()).isEmpty();
+        assertThat(model.getSelectedAllGraphicsIntersecting(new Rectangle(0, 0, 50, 50), null)).containsExactly(g1);
+        assertThat(graphic.getIndexListeners()).isEmpty();
+
+        // Removed from the list outside the model
+        ListenedRectangle other = new ListenedRectangle();
+        other.buildGraphic(new Rectangle2D.Double(10, 10, 20, 20));
+        model.getModels().add(other);
+        assertThat(model.getSelectedAllGraphicsIntersecting(new Rectangle(0, 0, 50, 50), null))
+            .containsExactly(other, g1);
+        assertThat(other.getIndexListeners()).hasSize(1);
+        model.getModels().remove(other);
+        assertThat(model.getSelectedAllGraphicsIntersecting(new Rectangle(0, 0, 50, 50), null)).containsExactly(g1);
+        assertThat(other.getIndexListeners()).isEmpty();
+    }
+
+    static class ListenedRectangle extends RectangleGraphic {
+        private final List<PropertyChangeListener> listeners = new ArrayList<>();
+
+        @Override
+        public void addPropertyChangeListener(PropertyChangeListener listener) {
+            super.addPropertyChangeListener(listener);
+            if (!listeners.contains(listener)) {
+                listeners.add(listener);
+            }
+        }
+
+        @Override
+        public void removePropertyChangeListener(PropertyChangeListener listener) {
+            super.removePropertyChangeListener(listener);
+            listeners.remove(listener);
+        }
+
+        List<PropertyChangeListener> getIndexListeners() {
+            List<PropertyChangeListener> list = new ArrayList<>();
+            for (PropertyChangeListener l : listeners) {
+                if (l instanceof GraphicSpatialIndex) {
+                    list.add(l);
+                }
+            }
+            return list;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2020 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.weasis.core.ui.serialize;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamReader;
+
+import org.junit.Test;
+import org.mockito.ArgumentMatchers;
+import org.powermock.api.mockito.PowerMockito;
+import org.weasis.core.api.media.data.MediaElement;
+import org.weasis.core.api.media.data.TagW;
+import org.weasis.core.ui.model.GraphicModel;
+import org.weasis.core.ui.model.graphic.Graphic;
+
+public class XmlSerializerTest {
+
+    private static MediaElement mockMedia(Map<TagW, Object> tags) {
+        MediaElement media = PowerMockito.mock(MediaElement.class);
+        PowerMockito.when(media.getTagValue(ArgumentMatchers.any()))
+            .thenAnswer(invocation -> tags.get(invocation.getArgument(0)));
+        PowerMockito.doAnswer(invocation -> tags.put(invocation.getArgument(0), invocation.getArgument(1)))
+            .when(media).setTag(ArgumentMatchers.any(), ArgumentMatchers.any());
+        return media;
+    }
+
+    private static File getPresentationFile() throws Exception {
+        return new File(XmlSerializerTest.class.getResource("/presentation/presentation.5.xml").toURI()); //$NON-NLS-1$
+    }
+
+    @Test
+    public void testHasPresentationModelWithoutReading() throws Exception {
+        assertThat(XmlSerializer.hasPresentationModel(null)).isFalse();
+        assertThat(XmlSerializer.hasPresentationModel(mockMedia(new HashMap<>()))).isFalse();
+
+        Map<TagW, Object> tags = new HashMap<>();
+        tags.put(TagW.PresentationModelFile, getPresentationFile().getPath());
+        MediaElement media = mockMedia(tags);
+
+        assertThat(XmlSerializer.hasPresentationModel(media)).isTrue();
+        // The file is not parsed by the check
+        assertThat(tags.get(TagW.PresentationModel)).isNull();
+        assertThat(tags.get(TagW.PresentationModelFile)).isNotNull();
+
+        GraphicModel model = XmlSerializer.getPresentationModel(media);
+        assertThat(model).isNotNull();
+        assertThat(model.getModels()).hasSize(1);
+        assertThat(tags.get(TagW.PresentationModel)).isSameAs(model);
+        assertThat(tags.get(TagW.PresentationModelFile)).isNull();
+        assertThat(XmlSerializer.hasPresentationModel(media)).isTrue();
+
+        model.getModels().clear();
+        assertThat(XmlSerializer.hasPresentationModel(media)).isFalse();
+    }
+
+    @Test
+    public void testWriteAndReadPresentation() throws Exception {
+        GraphicModel model = XmlSerializer.readPresentationModel(getPresentationFile());
+        assertThat(model).isNotNull();
+
+        StringWriter writer = new StringWriter();
+        XmlSerializer.writePresentation(model, writer);
+        String xml = writer.toString();
+        assertThat(xml).startsWith("<presentation").doesNotContain("<?xml"); //$NON-NLS-1$ //$NON-NLS-2$
+
+        XMLStreamReader xmler = XMLInputFactory.newInstance().createXMLStreamReader(new StringReader(xml));
+        GraphicModel copy = XmlSerializer.readPresentation(xmler);
+        assertThat(copy).isNotNull();
+        assertThat(copy.getUuid()).isEqualTo(model.getUuid());
+        assertThat(copy.getModels()).hasSize(1);
+        Graphic graphic = copy.getModels().get(0);
+        assertThat(graphic.getPts()).isEqualTo(model.getModels().get(0).getPts());
+        assertThat(graphic.getLayer().getUuid()).isEqualTo(model.getModels().get(0).getLayer().getUuid());
+    }
+}
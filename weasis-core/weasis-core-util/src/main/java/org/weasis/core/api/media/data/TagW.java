@@ -96,6 +96,7 @@ public class TagW implements Serializable {
         new TagW("ExplorerModel", Messages.getString("TagElement.exp_model"), TagType.OBJECT); //$NON-NLS-1$ //$NON-NLS-2$
     public static final TagW PresentationModel = new TagW("PesentationModel", TagType.OBJECT); //$NON-NLS-1$
     public static final TagW PresentationModelBirary = new TagW("PesentationModelBinary", TagType.BYTE); //$NON-NLS-1$
+    public static final TagW PresentationModelFile = new TagW("PesentationModelFile", TagType.STRING); //$NON-NLS-1$
     public static final TagW SplitSeriesNumber =
         new TagW("SplitSeriesNumber", Messages.getString("TagElement.split_no"), TagType.INTEGER); //$NON-NLS-1$ //$NON-NLS-2$
     public static final TagW SeriesSelected =
@@ -23,6 +23,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.weasis.core.api.gui.util.MathUtil;
 import org.weasis.core.api.image.LutShape;
+import org.weasis.core.api.image.cv.BandStatistics;
 import org.weasis.core.api.image.util.Unit;
 import org.weasis.core.api.image.util.WindLevelParameters;
 import org.weasis.core.api.media.data.ImageElement;
@@ -33,6 +34,7 @@ import org.weasis.dicom.codec.display.PresetWindowLevel;
 import org.weasis.dicom.codec.geometry.GeometryOfSlice;
 import org.weasis.dicom.codec.utils.DicomImageUtils;
 import org.weasis.dicom.codec.utils.LutParameters;
+import org.weasis.dicom.codec.utils.PixelRangeCache;
 import org.weasis.opencv.data.ImageCV;
 import org.weasis.opencv.data.LookupTableCV;
 import org.weasis.opencv.data.PlanarImage;
@@ -47,6 +49,8 @@ public class DicomImageElement extends ImageElement {
 
     private List<PresetWindowLevel> windowingPresetCollection = null;
     private Collection<LutShape> lutShapeCollection = null;
+    // Built once from the tags, depends on the pixel size
+    private volatile GeometryOfSlice dispSliceGeometry;
 
     public DicomImageElement(DcmMediaReader mediaIO, Object key) {
         super(mediaIO, key);
@@ -55,6 +59,7 @@ public class DicomImageElement extends ImageElement {
     }
 
     public void initPixelConfiguration() {
+        this.dispSliceGeometry = null;
         this.pixelSizeX = 1.0;
         this.pixelSizeY = 1.0;
         this.pixelSpacingUnit = Unit.PIXEL;
@@ -521,20 +526,38 @@ public class DicomImageElement extends ImageElement {
             maxPixelValue = null;
 
             boolean monochrome = isPhotometricInterpretationMonochrome();
+            Integer paddingValueMin = null;
+            Integer paddingValueMax = null;
             if (monochrome) {
                 Integer paddingValue = getPaddingValue();
                 if (paddingValue != null) {
                     Integer paddingLimit = getPaddingLimit();
-                    Integer paddingValueMin =
-                        (paddingLimit == null) ? paddingValue : Math.min(paddingValue, paddingLimit);
-                    Integer paddingValueMax =
-                        (paddingLimit == null) ? paddingValue : Math.max(paddingValue, paddingLimit);
-                    findMinMaxValues(img, paddingValueMin, paddingValueMax);
+                    paddingValueMin = (paddingLimit == null) ? paddingValue : Math.min(paddingValue, paddingLimit);
+                    paddingValueMax = (paddingLimit == null) ? paddingValue : Math.max(paddingValue, paddingLimit);
                 }
             }
 
-            if (!isImageAvailable()) {
-                super.findMinMaxValues(img, !monochrome);
+            // The range is computed only once by instance, transfer syntax and frame
+            String seriesUID = TagD.getTagValue(this, Tag.SeriesInstanceUID, String.class);
+            String sopUID = TagD.getTagValue(this, Tag.SOPInstanceUID, String.class);
+            String tsuid = TagD.getTagValue(this, Tag.TransferSyntaxUID, String.class);
+            int frame = getFrameIndex();
+            double[] range =
+                PixelRangeCache.getImageRange(seriesUID, sopUID, tsuid, frame, paddingValueMin, paddingValueMax);
+            if (range != null) {
+                minPixelValue = range[0];
+                maxPixelValue = range[1];
+            } else {
+                if (paddingValueMin != null) {
+                    findMinMaxValues(img, paddingValueMin, paddingValueMax);
+                }
+                if (!isImageAvailable()) {
+                    super.findMinMaxValues(img, !monochrome);
+                }
+                if (isImageAvailable()) {
+                    PixelRangeCache.putImageRange(seriesUID, sopUID, tsuid, frame, paddingValueMin, paddingValueMax,
+                        minPixelValue, maxPixelValue);
+                }
             }
 
             if (bitsStored < bitsAllocated && isImageAvailable()) {
@@ -576,14 +599,14 @@ public class DicomImageElement extends ImageElement {
                 this.minPixelValue = 0.0;
                 this.maxPixelValue = 255.0;
             } else {
-                MinMaxLocResult val = ImageProcessor.findMinMaxValues(img.toMat(), paddingValueMin, paddingValueMax);
+                MinMaxLocResult val = BandStatistics.findMinMaxValues(img.toMat(), paddingValueMin, paddingValueMax);
                 if (val != null) {
                     this.minPixelValue = val.minVal;
                     this.maxPixelValue = val.maxVal;
                 }
                 // Handle special case when min and max are equal, ex. black image
                 // + 1 to max enables to display the correct value
-                if (this.minPixelValue.equals(this.maxPixelValue)) {
+                if (isImageAvailable() && this.minPixelValue.equals(this.maxPixelValue)) {
                     this.maxPixelValue += 1.0;
                 }
             }
@@ -696,7 +719,26 @@ public class DicomImageElement extends ImageElement {
         return null;
     }
 
+    @Override
+    public void setPixelSize(double pixelSizeX, double pixelSizeY) {
+        super.setPixelSize(pixelSizeX, pixelSizeY);
+        this.dispSliceGeometry = null;
+    }
+
+    /**
+     * @return the geometry of the displayed slice (with square pixels), the same instance is returned until the pixel
+     *         size changes
+     */
     public GeometryOfSlice getDispSliceGeometry() {
+        GeometryOfSlice geometry = dispSliceGeometry;
+        if (geometry == null) {
+            geometry = buildDispSliceGeometry();
+            dispSliceGeometry = geometry;
+        }
+        return geometry;
+    }
+
+    private GeometryOfSlice buildDispSliceGeometry() {
         // The geometry is adapted to get square pixel as all the images are displayed with square pixel.
         double[] imgOr = TagD.getTagValue(this, Tag.ImageOrientationPatient, double[].class);
         if (imgOr != null && imgOr.length == 6) {
@@ -744,4 +786,14 @@ public class DicomImageElement extends ImageElement {
         return null;
     }
 
+    private int getFrameIndex() {
+        return getKey() instanceof Integer ? (Integer) getKey() : 0;
+    }
+
+    @Override
+    public void dispose() {
+        PixelRangeCache.removeImage(TagD.getTagValue(this, Tag.SOPInstanceUID, String.class),
+            TagD.getTagValue(this, Tag.TransferSyntaxUID, String.class), getFrameIndex());
+        super.dispose();
+    }
 }
@@ -16,10 +16,7 @@ import java.awt.image.Raster;
 import java.awt.image.RenderedImage;
 import java.awt.image.SampleModel;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectOutput;
-import java.io.ObjectOutputStream;
 import java.io.RandomAccessFile;
 import java.lang.ref.Reference;
 import java.net.URI;
@@ -721,8 +718,6 @@ public class DicomMediaIO extends ImageReader implements DcmMediaReader {
                         Attributes ds = getDicomObject();
                         int[] embeddedOverlayGroupOffsets = Overlays.getEmbeddedOverlayGroupOffsets(ds);
                         if (embeddedOverlayGroupOffsets.length > 0) {
-                            FileOutputStream fileOut = null;
-                            ObjectOutput objOut = null;
                             try {
                                 byte[][] overlayData = new byte[embeddedOverlayGroupOffsets.length][];
                                 for (int i = 0; i < embeddedOverlayGroupOffsets.length; i++) {
@@ -730,15 +725,10 @@ public class DicomMediaIO extends ImageReader implements DcmMediaReader {
                                         ImageConversion.toBufferedImage(img).getRaster(), ds);
                                 }
                                 File file = File.createTempFile("ovly_", "", AppProperties.FILE_CACHE_DIR); //$NON-NLS-1$ //$NON-NLS-2$
-                                fileOut = new FileOutputStream(file);
-                                objOut = new ObjectOutputStream(fileOut);
-                                objOut.writeObject(overlayData);
+                                OverlayUtils.writeOverlayData(file, overlayData);
                                 media.setTag(TagW.OverlayBurninDataPath, file.getPath());
                             } catch (Exception e) {
                                 LOGGER.error("Cannot serialize overlay", e); //$NON-NLS-1$
-                            } finally {
-                                FileUtil.safeClose(objOut);
-                                FileUtil.safeClose(fileOut);
                             }
                         }
                     }
@@ -10,14 +10,10 @@
 package org.weasis.dicom.codec.display;
 
 import java.awt.Color;
-import java.awt.image.RenderedImage;
-import java.io.IOException;
 import java.util.HashMap;
 import java.util.Optional;
 
 import org.dcm4che3.data.Tag;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.weasis.core.api.gui.util.ActionW;
 import org.weasis.core.api.image.AbstractOp;
 import org.weasis.core.api.image.ImageOpEvent;
@@ -29,12 +25,11 @@ import org.weasis.dicom.codec.DicomMediaIO;
 import org.weasis.dicom.codec.PRSpecialElement;
 import org.weasis.dicom.codec.TagD;
 import org.weasis.dicom.codec.utils.OverlayUtils;
+import org.weasis.opencv.data.ImageCV;
 import org.weasis.opencv.data.PlanarImage;
 import org.weasis.opencv.op.ImageProcessor;
 
 public class OverlayOp extends AbstractOp {
-    private static final Logger LOGGER = LoggerFactory.getLogger(OverlayOp.class);
-
     public static final String OP_NAME = ActionW.IMAGE_OVERLAY.getTitle();
 
     public static final String P_SHOW = "overlay"; //$NON-NLS-1$
@@ -77,30 +72,25 @@ public class OverlayOp extends AbstractOp {
         Boolean overlay = (Boolean) params.get(P_SHOW);
 
         if (overlay != null && overlay) {
-            RenderedImage imgOverlay = null;
+            ImageCV mask = null;
             ImageElement image = (ImageElement) params.get(P_IMAGE_ELEMENT);
 
             if (image != null) {
                 boolean overlays = LangUtil.getNULLtoFalse((Boolean) image.getTagValue(TagW.HasOverlay));
 
-                if (overlays && image.getMediaReader() instanceof DicomMediaIO) {
+                if (overlays && image.getMediaReader() instanceof DicomMediaIO
+                    && image.getKey() instanceof Integer) {
                     DicomMediaIO reader = (DicomMediaIO) image.getMediaReader();
-                    try {
-                        if (image.getKey() instanceof Integer) {
-                            int frame = (Integer) image.getKey();
-                            Integer height = TagD.getTagValue(image, Tag.Rows, Integer.class);
-                            Integer width = TagD.getTagValue(image, Tag.Columns, Integer.class);
-                            if (height != null && width != null) {
-                                imgOverlay = OverlayUtils.getBinaryOverlays(image, reader.getDicomObject(), frame,
-                                    width, height, params);
-                            }
-                        }
-                    } catch (IOException e) {
-                        LOGGER.error("Applying overlays", e); //$NON-NLS-1$
+                    int frame = (Integer) image.getKey();
+                    Integer height = TagD.getTagValue(image, Tag.Rows, Integer.class);
+                    Integer width = TagD.getTagValue(image, Tag.Columns, Integer.class);
+                    if (height != null && width != null) {
+                        mask = OverlayUtils.getOverlayMask(image, reader.getDicomObject(), frame, width, height,
+                            params);
                     }
                 }
             }
-            result = imgOverlay == null ? source : ImageProcessor.overlay(source.toMat(), imgOverlay, Color.WHITE);
+            result = mask == null ? source : ImageProcessor.overlay(source.toMat(), mask, Color.WHITE);
         }
         params.put(Param.OUTPUT_IMG, result);
     }
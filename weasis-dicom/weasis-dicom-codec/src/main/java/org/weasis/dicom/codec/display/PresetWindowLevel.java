@@ -30,6 +30,7 @@ import javax.xml.stream.XMLStreamReader;
 import org.dcm4che3.data.Tag;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.weasis.core.api.gui.util.MathUtil;
 import org.weasis.core.api.image.LutShape;
 import org.weasis.core.api.image.LutShape.eFunction;
 import org.weasis.core.api.media.data.TagReadable;
@@ -41,6 +42,7 @@ import org.weasis.core.api.util.StringUtil;
 import org.weasis.dicom.codec.DicomImageElement;
 import org.weasis.dicom.codec.Messages;
 import org.weasis.dicom.codec.TagD;
+import org.weasis.dicom.codec.utils.PixelRangeCache;
 import org.weasis.opencv.data.LookupTableCV;
 
 public class PresetWindowLevel {
@@ -82,12 +84,12 @@ public class PresetWindowLevel {
     }
 
     public double getMinBox() {
-        return level - window / 2.0;
+        return getLevel() - getWindow() / 2.0;
 
     }
 
     public double getMaxBox() {
-        return level + window / 2.0;
+        return getLevel() + getWindow() / 2.0;
     }
 
     public void setKeyCode(int keyCode) {
@@ -229,6 +231,11 @@ public class PresetWindowLevel {
         autoLevel.setKeyCode(KeyEvent.VK_0);
         presetList.add(autoLevel);
 
+        PresetWindowLevel seriesLevel = buildSeriesPreset(image, tagable, pixelPadding, defaultLutShape);
+        if (seriesLevel != null) {
+            presetList.add(seriesLevel);
+        }
+
         // Exclude Secondary Capture CT and when PR preset
         if (image.getBitsStored() > 8 && !"[PR]".equals(type)) { //$NON-NLS-1$
             List<PresetWindowLevel> modPresets = presetListByModality.get(TagD.getTagValue(image, Tag.Modality));
@@ -240,6 +247,22 @@ public class PresetWindowLevel {
         return presetList;
     }
 
+    /**
+     * Build a preset from the range of the images of the series computed so far (see {@link PixelRangeCache}), which
+     * gives the same window/level on all the images of the stack. The preset list is kept by image, so the range is
+     * read again each time the preset is applied, as it grows while the images of the series are read.
+     *
+     * @return the preset or null when the image has no series
+     */
+    private static PresetWindowLevel buildSeriesPreset(DicomImageElement image, TagReadable tagable,
+        boolean pixelPadding, LutShape lutShape) {
+        String seriesUID = TagD.getTagValue(image, Tag.SeriesInstanceUID, String.class);
+        if (seriesUID == null) {
+            return null;
+        }
+        return new SeriesPresetWindowLevel(seriesUID, image, tagable, pixelPadding, lutShape);
+    }
+
     public static PresetWindowLevel buildPresetFromLutData(LookupTableCV voiLUTsData, DicomImageElement image,
         TagReadable tagable, boolean pixelPadding, String explanation) {
         if (voiLUTsData == null || explanation == null) {
@@ -277,6 +300,74 @@ public class PresetWindowLevel {
         return new PresetWindowLevel(newLutShape.toString(), fullDynamicWidth, fullDynamicCenter, newLutShape);
     }
 
+    /**
+     * Preset of the range of the series, the range of the image is used until the series range is known.
+     */
+    static class SeriesPresetWindowLevel extends PresetWindowLevel {
+        private final String seriesUID;
+        private final DicomImageElement image;
+        private final TagReadable tagable;
+        private final boolean pixelPadding;
+
+        SeriesPresetWindowLevel(String seriesUID, DicomImageElement image, TagReadable tagable, boolean pixelPadding,
+            LutShape shape) {
+            super(Messages.getString("PresetWindowLevel.series"), //$NON-NLS-1$
+                image.getFullDynamicWidth(tagable, pixelPadding), image.getFullDynamicCenter(tagable, pixelPadding),
+                shape);
+            this.seriesUID = seriesUID;
+            this.image = image;
+            this.tagable = tagable;
+            this.pixelPadding = pixelPadding;
+        }
+
+        /**
+         * @return the min and max real values of the series, or of the image when the series range is unknown
+         */
+        private double[] getRange() {
+            double[] range = PixelRangeCache.getSeriesRange(seriesUID);
+            if (range != null) {
+                Number min = image.pixelToRealValue(range[0], tagable, pixelPadding);
+                Number max = image.pixelToRealValue(range[1], tagable, pixelPadding);
+                // Computes min and max as slope can be negative
+                if (min != null && max != null && !MathUtil.isEqual(min.doubleValue(), max.doubleValue())) {
+                    return new double[] { Math.min(min.doubleValue(), max.doubleValue()),
+                        Math.max(min.doubleValue(), max.doubleValue()) };
+                }
+            }
+            return new double[] { image.getMinValue(tagable, pixelPadding), image.getMaxValue(tagable, pixelPadding) };
+        }
+
+        @Override
+        public Double getWindow() {
+            double[] range = getRange();
+            return range[1] - range[0];
+        }
+
+        @Override
+        public Double getLevel() {
+            double[] range = getRange();
+            return range[0] + (range[1] - range[0]) / 2.0;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * getName().hashCode() + getShape().hashCode()) + seriesUID.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+            SeriesPresetWindowLevel other = (SeriesPresetWindowLevel) obj;
+            return getName().equals(other.getName()) && seriesUID.equals(other.seriesUID)
+                && getShape().equals(other.getShape());
+        }
+    }
+
     public static Map<String, List<PresetWindowLevel>> getPresetListByModality() {
 
         Map<String, List<PresetWindowLevel>> presets = new TreeMap<>();
@@ -13,12 +13,12 @@ import java.awt.Color;
 import java.awt.Rectangle;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Area;
-import java.awt.image.RenderedImage;
 import java.util.HashMap;
 import java.util.Optional;
 
 import org.dcm4che3.data.Attributes;
 import org.dcm4che3.data.Tag;
+import org.opencv.core.Mat;
 import org.weasis.core.api.gui.util.ActionW;
 import org.weasis.core.api.image.AbstractOp;
 import org.weasis.core.api.image.ImageOpEvent;
@@ -30,6 +30,7 @@ import org.weasis.dicom.codec.DicomMediaIO;
 import org.weasis.dicom.codec.PRSpecialElement;
 import org.weasis.dicom.codec.TagD;
 import org.weasis.dicom.codec.utils.DicomMediaUtils;
+import org.weasis.dicom.codec.utils.MaskCache;
 import org.weasis.dicom.codec.utils.OverlayUtils;
 import org.weasis.opencv.data.ImageCV;
 import org.weasis.opencv.data.PlanarImage;
@@ -110,7 +111,8 @@ public class ShutterOp extends AbstractOp {
         Object pr = params.get(P_PR_ELEMENT);
 
         if (shutter && area != null) {
-            result = ImageProcessor.applyShutter(source.toMat(), area, getShutterColor());
+            Mat src = source.toMat();
+            result = ImageProcessor.applyShutterMask(src, MaskCache.getShapeMask(area, src.size()), getShutterColor());
         }
 
         // Potentially override the shutter in the original dicom
@@ -129,9 +131,11 @@ public class ShutterOp extends AbstractOp {
                     Integer shuttOverlayGroup =
                         DicomMediaUtils.getIntegerFromDicomElement(attributes, Tag.ShutterOverlayGroup, null);
                     if (shuttOverlayGroup != null) {
-                        RenderedImage overlayImg =
-                            OverlayUtils.getShutterOverlay(attributes, frame, width, height, shuttOverlayGroup);
-                        imgOverlay = ImageProcessor.applyShutter(result.toMat(), overlayImg, getShutterColor());
+                        ImageCV mask = OverlayUtils.getShutterOverlayMask(attributes, frame, width, height,
+                            shuttOverlayGroup);
+                        if (mask != null) {
+                            imgOverlay = ImageProcessor.overlay(result.toMat(), mask, getShutterColor());
+                        }
                     }
                 }
             }
@@ -0,0 +1,200 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2020 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.weasis.dicom.codec.geometry;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.weasis.core.api.gui.util.Filter;
+import org.weasis.core.api.media.data.MediaSeries;
+import org.weasis.core.api.media.data.TagW;
+import org.weasis.dicom.codec.DicomImageElement;
+
+/**
+ * Cache of the geometry used for drawing the cross-reference lines.
+ * <p>
+ * The intersections are cached by slice pair, using the geometry instances cached by each image (see
+ * {@link DicomImageElement#getDispSliceGeometry()}), so a pair is computed only once for all the views. The geometry
+ * instances are weak keys, the intersections are removed with the images. The bounds of a series (the first and last
+ * slices according to the slice position) are computed once and then updated only when the series changes (see
+ * {@link #invalidate(MediaSeries)}) or when the filter changes.
+ */
+public final class GeometryCache {
+
+    // Geometry instances have an identity equality
+    private static final Map<GeometryOfSlice, Map<GeometryOfSlice, Outlines>> INTERSECTIONS = new WeakHashMap<>();
+
+    private static final Map<MediaSeries<?>, SeriesBounds> BOUNDS = new WeakHashMap<>();
+
+    private GeometryCache() {
+    }
+
+    /**
+     * Bounds of a series along the normal of its slices.
+     */
+    public static final class SeriesBounds {
+        private final DicomImageElement first;
+        private final DicomImageElement last;
+        private final double minPosition;
+        private final double maxPosition;
+        private final Filter<DicomImageElement> filter;
+        private final int size;
+
+        SeriesBounds(DicomImageElement first, DicomImageElement last, double minPosition, double maxPosition,
+            Filter<DicomImageElement> filter, int size) {
+            this.first = first;
+            this.last = last;
+            this.minPosition = minPosition;
+            this.maxPosition = maxPosition;
+            this.filter = filter;
+            this.size = size;
+        }
+
+        /**
+         * @return the image with the lowest slice position or null
+         */
+        public DicomImageElement getFirst() {
+            return first;
+        }
+
+        /**
+         * @return the image with the highest slice position or null
+         */
+        public DicomImageElement getLast() {
+            return last;
+        }
+
+        public double getMinPosition() {
+            return minPosition;
+        }
+
+        public double getMaxPosition() {
+            return maxPosition;
+        }
+    }
+
+    /**
+     * Get the outline of a slice on a localizer.
+     *
+     * @param localizer
+     *            the geometry of the image on which the outline is drawn
+     * @param slice
+     *            the geometry of the slice to post
+     * @param volume
+     *            true for the outline of the slice thickness (see {@link IntersectVolume}), false for the intersection
+     *            of the planes (see {@link IntersectSlice})
+     * @return the unmodifiable list of points in the localizer coordinates, empty when the slice does not cross the
+     *         localizer
+     */
+    public static List<Point2D.Double> getIntersection(GeometryOfSlice localizer, GeometryOfSlice slice,
+        boolean volume) {
+        if (localizer == null || slice == null) {
+            return Collections.emptyList();
+        }
+        synchronized (INTERSECTIONS) {
+            Map<GeometryOfSlice, Outlines> slices = INTERSECTIONS.get(localizer);
+            Outlines outlines = slices == null ? null : slices.get(slice);
+            List<Point2D.Double> pts = outlines == null ? null : outlines.get(volume);
+            if (pts != null) {
+                return pts;
+            }
+        }
+        LocalizerPoster poster = volume ? new IntersectVolume(localizer) : new IntersectSlice(localizer);
+        List<Point2D.Double> outline = poster.getOutlineOnLocalizerForThisGeometry(slice);
+        List<Point2D.Double> pts = outline == null || outline.isEmpty() ? Collections.emptyList()
+            : Collections.unmodifiableList(new ArrayList<>(outline));
+        synchronized (INTERSECTIONS) {
+            INTERSECTIONS.computeIfAbsent(localizer, k -> new WeakHashMap<>())
+                .computeIfAbsent(slice, k -> new Outlines()).set(volume, pts);
+        }
+        return pts;
+    }
+
+    /**
+     * Remove the bounds of a series, must be called when images are added to or removed from the series.
+     *
+     * @param series
+     *            the series
+     */
+    public static void invalidate(MediaSeries<?> series) {
+        if (series != null) {
+            synchronized (BOUNDS) {
+                BOUNDS.remove(series);
+            }
+        }
+    }
+
+    /**
+     * Get the first and the last images of a series according to the slice position.
+     *
+     * @param series
+     *            the series
+     * @param filter
+     *            the filter of the images or null
+     * @return the bounds of the series
+     */
+    public static SeriesBounds getSeriesBounds(MediaSeries<DicomImageElement> series,
+        Filter<DicomImageElement> filter) {
+        int size = series.size(null);
+        synchronized (BOUNDS) {
+            SeriesBounds bounds = BOUNDS.get(series);
+            if (bounds != null && bounds.size == size && bounds.filter == filter) {
+                return bounds;
+            }
+        }
+
+        DicomImageElement first = null;
+        DicomImageElement last = null;
+        double min = Double.MAX_VALUE;
+        double max = -Double.MAX_VALUE;
+        synchronized (series) {
+            for (DicomImageElement dcm : series.getMedias(filter, null)) {
+                double[] loc = (double[]) dcm.getTagValue(TagW.SlicePosition);
+                if (loc != null) {
+                    double position = loc[0] + loc[1] + loc[2];
+                    if (min > position) {
+                        min = position;
+                        first = dcm;
+                    }
+                    if (max < position) {
+                        max = position;
+                        last = dcm;
+                    }
+                }
+            }
+        }
+        SeriesBounds bounds = new SeriesBounds(first, last, min, max, filter, size);
+        synchronized (BOUNDS) {
+            BOUNDS.put(series, bounds);
+        }
+        return bounds;
+    }
+
+    private static final class Outlines {
+        private List<Point2D.Double> slice;
+        private List<Point2D.Double> volume;
+
+        List<Point2D.Double> get(boolean isVolume) {
+            return isVolume ? volume : slice;
+        }
+
+        void set(boolean isVolume, List<Point2D.Double> pts) {
+            if (isVolume) {
+                volume = pts;
+            } else {
+                slice = pts;
+            }
+        }
+    }
+}
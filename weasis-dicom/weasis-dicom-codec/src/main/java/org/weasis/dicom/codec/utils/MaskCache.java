@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2020 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.weasis.dicom.codec.utils;
+
+import java.awt.Shape;
+import java.awt.geom.PathIterator;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+import org.opencv.core.Size;
+import org.weasis.core.api.media.data.NativeCache;
+import org.weasis.opencv.data.ImageCV;
+import org.weasis.opencv.op.ImageProcessor;
+
+/**
+ * Cache of the native 8-bit masks of the overlays and the shutters, so that the display chain only applies a masked
+ * copy when scrolling. The masks are keyed by their content: image, frame, overlay group and presentation state for
+ * the overlays, and geometry for the shutter shapes (shared by all the frames having the same shutter).
+ * <p>
+ * The masks are never modified once cached. They are not released on eviction because they can still be used by a
+ * display thread; the native memory is then freed by the garbage collector.
+ */
+public final class MaskCache {
+
+    private static final NativeCache<MaskKey, ImageCV> CACHE = new NativeCache<MaskKey, ImageCV>(64_000_000) {
+
+        @Override
+        protected void afterEntryRemove(MaskKey key, ImageCV img) {
+            // Do not release, see the class comment
+        }
+    };
+
+    private MaskCache() {
+    }
+
+    /**
+     * @param keyParts
+     *            the values identifying the content of the mask (arrays are compared by content)
+     * @param builder
+     *            builds the mask when not in cache, can return null
+     * @return the cached mask or null
+     */
+    public static ImageCV getMask(Object[] keyParts, Supplier<ImageCV> builder) {
+        MaskKey key = new MaskKey(keyParts);
+        ImageCV mask = CACHE.get(key);
+        if (mask == null) {
+            mask = builder.get();
+            if (mask != null) {
+                CACHE.put(key, mask);
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * @return the mask with the value 1 inside the shape, shared by all the images having the same shape and size
+     */
+    public static ImageCV getShapeMask(Shape shape, Size size) {
+        Object[] keyParts = { "shape", (int) size.width, (int) size.height, getGeometry(shape) }; //$NON-NLS-1$
+        return getMask(keyParts, () -> ImageProcessor.buildShapeMask(shape, size));
+    }
+
+    private static double[] getGeometry(Shape shape) {
+        double[] values = new double[64];
+        double[] coords = new double[6];
+        int index = 0;
+        for (PathIterator it = shape.getPathIterator(null); !it.isDone(); it.next()) {
+            int type = it.currentSegment(coords);
+            if (index + 7 > values.length) {
+                values = Arrays.copyOf(values, values.length * 2);
+            }
+            values[index++] = type;
+            System.arraycopy(coords, 0, values, index, 6);
+            index += 6;
+        }
+        return Arrays.copyOf(values, index);
+    }
+
+    private static final class MaskKey {
+        private final Object[] parts;
+        private final int hash;
+
+        MaskKey(Object[] parts) {
+            this.parts = parts;
+            this.hash = Arrays.deepHashCode(parts);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof MaskKey)) {
+                return false;
+            }
+            MaskKey other = (MaskKey) obj;
+            return hash == other.hash && Arrays.deepEquals(parts, other.parts);
+        }
+    }
+}
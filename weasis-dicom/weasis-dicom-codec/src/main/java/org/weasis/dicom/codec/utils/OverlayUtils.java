@@ -19,9 +19,14 @@ import java.awt.image.IndexColorModel;
 import java.awt.image.Raster;
 import java.awt.image.RenderedImage;
 import java.awt.image.WritableRaster;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
 import java.util.Map;
 
 import org.dcm4che3.data.Attributes;
@@ -31,13 +36,17 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.weasis.core.api.media.data.ImageElement;
 import org.weasis.core.api.media.data.TagW;
-import org.weasis.core.api.util.FileUtil;
 import org.weasis.dicom.codec.PRSpecialElement;
+import org.weasis.dicom.codec.TagD;
 import org.weasis.dicom.codec.display.OverlayOp;
+import org.weasis.opencv.data.ImageCV;
+import org.weasis.opencv.op.ImageConversion;
 
 public class OverlayUtils {
     private static final Logger LOGGER = LoggerFactory.getLogger(OverlayUtils.class);
 
+    private static final int OVERLAY_DATA_MAGIC = 0x4F564C59; // OVLY
+
     private static final byte[] icmColorValues = new byte[] { (byte) 0xFF, (byte) 0x00 };
 
     private OverlayUtils() {
@@ -60,26 +69,9 @@ public class OverlayUtils {
         BufferedImage overBi = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_BINARY, icm);
         WritableRaster raster = overBi.getRaster();
 
-        // Get serialized overlay (from pixel data)
-        byte[][] data = null;
+        // Get the overlays extracted from the pixel data
         String filePath = (String) image.getTagValue(TagW.OverlayBurninDataPath);
-        if (filePath != null) {
-            FileInputStream fileIn = null;
-            ObjectInputStream objIn = null;
-            try {
-                fileIn = new FileInputStream(filePath);
-                objIn = new ObjectInputStream(fileIn);
-                Object o = objIn.readObject();
-                if (o instanceof byte[][]) {
-                    data = (byte[][]) o;
-                }
-            } catch (Exception e) {
-                LOGGER.error("Cannot read serialized overlay", e); //$NON-NLS-1$
-            } finally {
-                FileUtil.safeClose(objIn);
-                FileUtil.safeClose(fileIn);
-            }
-        }
+        byte[][] data = filePath == null ? null : readOverlayData(new File(filePath));
 
         int[] overlayGroupOffsets = Overlays.getActiveOverlayGroupOffsets(attributes, 0xffff);
 
@@ -114,6 +106,91 @@ public class OverlayUtils {
         return overBi;
     }
 
+    /**
+     * Get the mask of the overlays from the cache or build it.
+     *
+     * @return the 8-bit mask of the overlays (not to be modified) or null
+     */
+    public static ImageCV getOverlayMask(ImageElement image, Attributes attributes, int frameIndex, int width,
+        int height, Map<String, Object> params) {
+        Object pr = params.get(OverlayOp.P_PR_ELEMENT);
+        String prUID = pr instanceof PRSpecialElement
+            ? TagD.getTagValue((PRSpecialElement) pr, Tag.SOPInstanceUID, String.class) : null;
+        Object[] keyParts = { "overlay", TagD.getTagValue(image, Tag.SOPInstanceUID, String.class), frameIndex, width, //$NON-NLS-1$
+            height, image.getTagValue(TagW.OverlayBurninDataPath), prUID };
+        return MaskCache.getMask(keyParts, () -> {
+            try {
+                return ImageConversion.toMat(getBinaryOverlays(image, attributes, frameIndex, width, height, params));
+            } catch (IOException e) {
+                LOGGER.error("Building overlay mask", e); //$NON-NLS-1$
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Get the mask of a shutter overlay from the cache or build it.
+     *
+     * @return the 8-bit mask of the shutter (not to be modified) or null
+     */
+    public static ImageCV getShutterOverlayMask(Attributes attributes, int frameIndex, int width, int height,
+        int shuttOverlayGroup) {
+        Object[] keyParts = { "shutter", attributes.getString(Tag.SOPInstanceUID), frameIndex, width, height, //$NON-NLS-1$
+            shuttOverlayGroup };
+        return MaskCache.getMask(keyParts, () -> {
+            try {
+                return ImageConversion
+                    .toMat(getShutterOverlay(attributes, frameIndex, width, height, shuttOverlayGroup));
+            } catch (IOException e) {
+                LOGGER.error("Building shutter overlay mask", e); //$NON-NLS-1$
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Write the overlays extracted from the pixel data in a compact binary format: the number of overlays followed by
+     * the length (-1 when null) and the bytes of each overlay.
+     */
+    public static void writeOverlayData(File file, byte[][] overlayData) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(OVERLAY_DATA_MAGIC);
+            out.writeInt(overlayData.length);
+            for (byte[] b : overlayData) {
+                if (b == null) {
+                    out.writeInt(-1);
+                } else {
+                    out.writeInt(b.length);
+                    out.write(b);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the overlays written by {@link #writeOverlayData(File, byte[][])} or null if the file cannot be read
+     */
+    public static byte[][] readOverlayData(File file) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != OVERLAY_DATA_MAGIC) {
+                LOGGER.error("Not an overlay data file: {}", file); //$NON-NLS-1$
+                return null;
+            }
+            byte[][] data = new byte[in.readInt()][];
+            for (int i = 0; i < data.length; i++) {
+                int length = in.readInt();
+                if (length >= 0) {
+                    data[i] = new byte[length];
+                    in.readFully(data[i]);
+                }
+            }
+            return data;
+        } catch (Exception e) {
+            LOGGER.error("Cannot read overlay data", e); //$NON-NLS-1$
+            return null;
+        }
+    }
+
     public static RenderedImage getShutterOverlay(Attributes attributes, int frameIndex, int width, int height,
         int shuttOverlayGroup) throws IOException {
         IndexColorModel icm =
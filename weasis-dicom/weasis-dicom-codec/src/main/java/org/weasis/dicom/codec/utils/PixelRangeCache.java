@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2020 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.weasis.dicom.codec.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache of the min and max pixel values of the images, so that they are computed only once by SOPInstanceUID, transfer
+ * syntax and frame, even when the image is evicted from the image cache. The entries of an image are removed when the
+ * image is disposed.
+ * <p>
+ * It also keeps the range of all the images of a series already computed, which gives a global min/max for a
+ * consistent window/level without reading every frame.
+ */
+public final class PixelRangeCache {
+
+    private static final int MAX_ENTRIES = 100_000;
+
+    private static final Map<RangeKey, Range> IMAGES = new LinkedHashMap<RangeKey, Range>(1024, 0.75f, true) {
+        private static final long serialVersionUID = 3516438226413185468L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<RangeKey, Range> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    private static final Map<String, double[]> SERIES = new ConcurrentHashMap<>();
+
+    private PixelRangeCache() {
+    }
+
+    /**
+     * Get the range of an image already computed, which also extends the range of its series (the range of the series
+     * is removed with the series, see {@link #removeSeries(String)}).
+     *
+     * @param seriesUID
+     *            the SeriesInstanceUID or null
+     * @param sopUID
+     *            the SOPInstanceUID
+     * @param transferSyntaxUID
+     *            the transfer syntax of the pixel data or null
+     * @param frame
+     *            the frame index
+     * @param paddingMin
+     *            the lower padding value excluded from the range or null
+     * @param paddingMax
+     *            the upper padding value excluded from the range or null
+     * @return the min and max values or null when not computed
+     */
+    public static double[] getImageRange(String seriesUID, String sopUID, String transferSyntaxUID, int frame,
+        Integer paddingMin, Integer paddingMax) {
+        if (sopUID == null) {
+            return null;
+        }
+        Range range;
+        synchronized (IMAGES) {
+            range = IMAGES.get(new RangeKey(sopUID, transferSyntaxUID, frame));
+        }
+        if (range == null || !Objects.equals(paddingMin, range.paddingMin)
+            || !Objects.equals(paddingMax, range.paddingMax)) {
+            return null;
+        }
+        mergeSeriesRange(seriesUID, range.min, range.max);
+        return new double[] { range.min, range.max };
+    }
+
+    /**
+     * Store the range of an image and extend the range of its series.
+     */
+    public static void putImageRange(String seriesUID, String sopUID, String transferSyntaxUID, int frame,
+        Integer paddingMin, Integer paddingMax, double min, double max) {
+        if (sopUID == null) {
+            return;
+        }
+        synchronized (IMAGES) {
+            IMAGES.put(new RangeKey(sopUID, transferSyntaxUID, frame), new Range(paddingMin, paddingMax, min, max));
+        }
+        mergeSeriesRange(seriesUID, min, max);
+    }
+
+    /**
+     * Remove the range of an image, must be called when the image is disposed.
+     *
+     * @param sopUID
+     *            the SOPInstanceUID
+     * @param transferSyntaxUID
+     *            the transfer syntax of the pixel data or null
+     * @param frame
+     *            the frame index
+     */
+    public static void removeImage(String sopUID, String transferSyntaxUID, int frame) {
+        if (sopUID != null) {
+            synchronized (IMAGES) {
+                IMAGES.remove(new RangeKey(sopUID, transferSyntaxUID, frame));
+            }
+        }
+    }
+
+    private static void mergeSeriesRange(String seriesUID, double min, double max) {
+        if (seriesUID != null) {
+            SERIES.merge(seriesUID, new double[] { min, max },
+                (a, b) -> new double[] { Math.min(a[0], b[0]), Math.max(a[1], b[1]) });
+        }
+    }
+
+    /**
+     * @param seriesUID
+     *            the SeriesInstanceUID
+     * @return the min and max values of the images of the series computed so far or null
+     */
+    public static double[] getSeriesRange(String seriesUID) {
+        double[] range = seriesUID == null ? null : SERIES.get(seriesUID);
+        return range == null ? null : range.clone();
+    }
+
+    /**
+     * Remove the range of a series, must be called when the series is removed from the model. The ranges of its images
+     * are removed when the images are disposed.
+     *
+     * @param seriesUID
+     *            the SeriesInstanceUID
+     */
+    public static void removeSeries(String seriesUID) {
+        if (seriesUID != null) {
+            SERIES.remove(seriesUID);
+        }
+    }
+
+    private static final class Range {
+        private final Integer paddingMin;
+        private final Integer paddingMax;
+        private final double min;
+        private final double max;
+
+        Range(Integer paddingMin, Integer paddingMax, double min, double max) {
+            this.paddingMin = paddingMin;
+            this.paddingMax = paddingMax;
+            this.min = min;
+            this.max = max;
+        }
+    }
+
+    private static final class RangeKey {
+        private final String sopUID;
+        private final String transferSyntaxUID;
+        private final int frame;
+
+        RangeKey(String sopUID, String transferSyntaxUID, int frame) {
+            this.sopUID = sopUID;
+            this.transferSyntaxUID = transferSyntaxUID;
+            this.frame = frame;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(sopUID, transferSyntaxUID, frame);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof RangeKey)) {
+                return false;
+            }
+            RangeKey other = (RangeKey) obj;
+            return frame == other.frame && sopUID.equals(other.sopUID)
+                && Objects.equals(transferSyntaxUID, other.transferSyntaxUID);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2020 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.weasis.dicom.codec.display;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.ArgumentMatchers;
+import org.powermock.api.mockito.PowerMockito;
+import org.weasis.core.api.image.LutShape;
+import org.weasis.dicom.codec.DicomImageElement;
+import org.weasis.dicom.codec.display.PresetWindowLevel.SeriesPresetWindowLevel;
+import org.weasis.dicom.codec.utils.PixelRangeCache;
+
+public class PresetWindowLevelTest {
+    private static final String SERIES_UID = "1.2.3.5"; //$NON-NLS-1$
+    private static final String TSUID = "1.2.840.10008.1.2.1"; //$NON-NLS-1$
+
+    @After
+    public void tearDown() {
+        PixelRangeCache.removeImage("1.2.3.5.1", TSUID, 0); //$NON-NLS-1$
+        PixelRangeCache.removeImage("1.2.3.5.2", TSUID, 0); //$NON-NLS-1$
+        PixelRangeCache.removeSeries(SERIES_UID);
+    }
+
+    private static DicomImageElement mockImage(double min, double max) {
+        DicomImageElement image = PowerMockito.mock(DicomImageElement.class);
+        // Rescale slope of 2 and intercept of -10
+        PowerMockito.when(image.pixelToRealValue(ArgumentMatchers.any(), ArgumentMatchers.any(),
+            ArgumentMatchers.anyBoolean())).thenAnswer(i -> ((Number) i.getArgument(0)).doubleValue() * 2.0 - 10.0);
+        PowerMockito.when(image.getMinValue(ArgumentMatchers.any(), ArgumentMatchers.anyBoolean())).thenReturn(min);
+        PowerMockito.when(image.getMaxValue(ArgumentMatchers.any(), ArgumentMatchers.anyBoolean())).thenReturn(max);
+        PowerMockito.when(image.getFullDynamicWidth(ArgumentMatchers.any(), ArgumentMatchers.anyBoolean()))
+            .thenReturn(max - min);
+        PowerMockito.when(image.getFullDynamicCenter(ArgumentMatchers.any(), ArgumentMatchers.anyBoolean()))
+            .thenReturn(min + (max - min) / 2.0);
+        return image;
+    }
+
+    @Test
+    public void testSeriesPresetFollowsTheSeriesRange() {
+        DicomImageElement image = mockImage(-10.0, 190.0);
+        PresetWindowLevel preset = new SeriesPresetWindowLevel(SERIES_UID, image, image, false, LutShape.LINEAR);
+
+        // The range of the series is unknown, the preset is the range of the image
+        assertThat(preset.getWindow()).isEqualTo(200.0);
+        assertThat(preset.getLevel()).isEqualTo(90.0);
+
+        PixelRangeCache.putImageRange(SERIES_UID, "1.2.3.5.1", TSUID, 0, null, null, 0.0, 100.0); //$NON-NLS-1$
+        assertThat(preset.getMinBox()).isEqualTo(-10.0);
+        assertThat(preset.getMaxBox()).isEqualTo(190.0);
+
+        // The preset built before reading the other images of the series follows the range of the series
+        PixelRangeCache.putImageRange(SERIES_UID, "1.2.3.5.2", TSUID, 0, null, null, -20.0, 500.0); //$NON-NLS-1$
+        assertThat(preset.getMinBox()).isEqualTo(-50.0);
+        assertThat(preset.getMaxBox()).isEqualTo(990.0);
+        assertThat(preset.getWindow()).isEqualTo(1040.0);
+        assertThat(preset.getLevel()).isEqualTo(470.0);
+    }
+
+    @Test
+    public void testSeriesPresetEquality() {
+        DicomImageElement image1 = mockImage(0.0, 100.0);
+        DicomImageElement image2 = mockImage(50.0, 300.0);
+        PresetWindowLevel preset1 = new SeriesPresetWindowLevel(SERIES_UID, image1, image1, false, LutShape.LINEAR);
+        PresetWindowLevel preset2 = new SeriesPresetWindowLevel(SERIES_UID, image2, image2, false, LutShape.LINEAR);
+        PresetWindowLevel other =
+            new SeriesPresetWindowLevel("1.2.3.6", image1, image1, false, LutShape.LINEAR); //$NON-NLS-1$
+
+        // The same preset on all the images of the series
+        assertThat(preset1).isEqualTo(preset2).hasSameHashCodeAs(preset2).isNotEqualTo(other);
+        assertThat(preset1).isNotEqualTo(new PresetWindowLevel(preset1.getName(), 100.0, 50.0, LutShape.LINEAR));
+    }
+}
@@ -0,0 +1,199 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2020 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.weasis.dicom.codec.geometry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.awt.geom.Point2D;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.mockito.ArgumentMatchers;
+import org.powermock.api.mockito.PowerMockito;
+import org.weasis.core.api.gui.util.Filter;
+import org.weasis.core.api.media.data.MediaSeries.MEDIA_POSITION;
+import org.weasis.core.api.media.data.TagW;
+import org.weasis.dicom.codec.DicomImageElement;
+import org.weasis.dicom.codec.DicomSeries;
+import org.weasis.dicom.codec.SortSeriesStack;
+import org.weasis.dicom.codec.geometry.GeometryCache.SeriesBounds;
+
+public class GeometryCacheTest {
+
+    private static DicomImageElement mockImage(double position) {
+        Map<TagW, Object> tags = new HashMap<>();
+        // Axial slice, the position is the sum of the coordinates
+        tags.put(TagW.SlicePosition, new double[] { 0.0, 0.0, position });
+        DicomImageElement image = PowerMockito.mock(DicomImageElement.class);
+        PowerMockito.when(image.getTagValue(ArgumentMatchers.any()))
+            .thenAnswer(invocation -> tags.get(invocation.getArgument(0)));
+        PowerMockito.doAnswer(invocation -> tags.put(invocation.getArgument(0), invocation.getArgument(1)))
+            .when(image).setTag(ArgumentMatchers.any(), ArgumentMatchers.any());
+        return image;
+    }
+
+    private static DicomSeries buildSeries(double... positions) {
+        DicomSeries series = new DicomSeries("1.2.3.7"); //$NON-NLS-1$
+        for (double p : positions) {
+            series.add(mockImage(p));
+        }
+        return series;
+    }
+
+    private static void assertSameAsSortedSeries(SeriesBounds bounds, DicomSeries series,
+        Filter<DicomImageElement> filter) {
+        List<DicomImageElement> sorted = series.copyOfMedias(filter, SortSeriesStack.slicePosition);
+        assertThat(bounds.getFirst())
+            .isSameAs(series.getMedia(MEDIA_POSITION.FIRST, filter, SortSeriesStack.slicePosition));
+        assertThat(bounds.getFirst()).isSameAs(sorted.get(0));
+        assertThat(bounds.getLast()).isSameAs(sorted.get(sorted.size() - 1));
+        if (filter == null) {
+            assertThat(bounds.getLast())
+                .isSameAs(series.getMedia(MEDIA_POSITION.LAST, null, SortSeriesStack.slicePosition));
+        }
+        double[] min = (double[]) bounds.getFirst().getTagValue(TagW.SlicePosition);
+        double[] max = (double[]) bounds.getLast().getTagValue(TagW.SlicePosition);
+        assertThat(bounds.getMinPosition()).isEqualTo(min[0] + min[1] + min[2]);
+        assertThat(bounds.getMaxPosition()).isEqualTo(max[0] + max[1] + max[2]);
+    }
+
+    @Test
+    public void testSeriesBounds() {
+        DicomSeries series = buildSeries(12.0, -30.0, 45.5, 7.0, -2.5);
+        SeriesBounds bounds = GeometryCache.getSeriesBounds(series, null);
+        assertSameAsSortedSeries(bounds, series, null);
+        assertThat(bounds.getMinPosition()).isEqualTo(-30.0);
+        assertThat(bounds.getMaxPosition()).isEqualTo(45.5);
+        assertThat(GeometryCache.getSeriesBounds(series, null)).isSameAs(bounds);
+
+        // Only the slices having a position
+        DicomImageElement noPosition = mockImage(0.0);
+        noPosition.setTag(TagW.SlicePosition, null);
+        series.add(noPosition);
+        SeriesBounds withoutPosition = GeometryCache.getSeriesBounds(series, null);
+        assertThat(withoutPosition).isNotSameAs(bounds);
+        assertThat(withoutPosition.getFirst()).isSameAs(bounds.getFirst());
+        assertThat(withoutPosition.getLast()).isSameAs(bounds.getLast());
+
+        // The series has no slice position
+        SeriesBounds empty = GeometryCache.getSeriesBounds(new DicomSeries("1.2.3.8"), null); //$NON-NLS-1$
+        assertThat(empty.getFirst()).isNull();
+        assertThat(empty.getLast()).isNull();
+    }
+
+    @Test
+    public void testSeriesBoundsUpdatedWithSizeAndFilter() {
+        DicomSeries series = buildSeries(12.0, -30.0, 45.5, 7.0);
+        SeriesBounds bounds = GeometryCache.getSeriesBounds(series, null);
+
+        // A new slice changes the size of the series
+        series.add(mockImage(60.0));
+        SeriesBounds added = GeometryCache.getSeriesBounds(series, null);
+        assertThat(added).isNotSameAs(bounds);
+        assertSameAsSortedSeries(added, series, null);
+        assertThat(added.getMaxPosition()).isEqualTo(60.0);
+
+        Filter<DicomImageElement> positive = new Filter<DicomImageElement>() {
+            @Override
+            public boolean passes(DicomImageElement dicom) {
+                double[] loc = (double[]) dicom.getTagValue(TagW.SlicePosition);
+                return loc != null && loc[2] > 0.0 && loc[2] < 50.0;
+            }
+        };
+        SeriesBounds filtered = GeometryCache.getSeriesBounds(series, positive);
+        assertSameAsSortedSeries(filtered, series, positive);
+        assertThat(filtered.getMinPosition()).isEqualTo(7.0);
+        assertThat(filtered.getMaxPosition()).isEqualTo(45.5);
+        assertThat(GeometryCache.getSeriesBounds(series, positive)).isSameAs(filtered);
+
+        // The filter is compared by instance
+        SeriesBounds unfiltered = GeometryCache.getSeriesBounds(series, null);
+        assertThat(unfiltered).isNotSameAs(filtered);
+        assertSameAsSortedSeries(unfiltered, series, null);
+    }
+
+    @Test
+    public void testInvalidateSeriesBounds() {
+        DicomSeries series = buildSeries(12.0, -30.0, 45.5);
+        SeriesBounds bounds = GeometryCache.getSeriesBounds(series, null);
+        DicomImageElement first = bounds.getFirst();
+
+        // The same number of slices, the bounds are kept until the series is invalidated
+        first.setTag(TagW.SlicePosition, new double[] { 0.0, 0.0, 100.0 });
+        assertThat(GeometryCache.getSeriesBounds(series, null)).isSameAs(bounds);
+
+        GeometryCache.invalidate(series);
+        SeriesBounds updated = GeometryCache.getSeriesBounds(series, null);
+        assertThat(updated).isNotSameAs(bounds);
+        assertThat(updated.getLast()).isSameAs(first);
+        assertThat(updated.getMinPosition()).isEqualTo(12.0);
+        assertThat(updated.getMaxPosition()).isEqualTo(100.0);
+
+        GeometryCache.invalidate(null);
+    }
+
+    private static GeometryOfSlice axial(double z) {
+        return new GeometryOfSlice(new double[] { 1.0, 0.0, 0.0 }, new double[] { 0.0, 1.0, 0.0 },
+            new double[] { -100.0, -100.0, z }, new double[] { 1.0, 1.0, 1.0 }, 1.0,
+            new double[] { 200.0, 200.0, 1.0 });
+    }
+
+    private static GeometryOfSlice sagittal(double x) {
+        return new GeometryOfSlice(new double[] { 0.0, 1.0, 0.0 }, new double[] { 0.0, 0.0, -1.0 },
+            new double[] { x, -100.0, 100.0 }, new double[] { 1.0, 1.0, 2.0 }, 2.0,
+            new double[] { 200.0, 200.0, 1.0 });
+    }
+
+    @Test
+    public void testIntersectionByGeometryInstance() {
+        GeometryOfSlice localizer = axial(0.0);
+        GeometryOfSlice slice = sagittal(10.0);
+
+        List<Point2D.Double> line = GeometryCache.getIntersection(localizer, slice, false);
+        assertThat(line).isNotEmpty();
+        assertThat(GeometryCache.getIntersection(localizer, slice, false)).isSameAs(line);
+        List<Point2D.Double> volume = GeometryCache.getIntersection(localizer, slice, true);
+        assertThat(volume).isNotEmpty().isNotSameAs(line);
+        assertThat(GeometryCache.getIntersection(localizer, slice, true)).isSameAs(volume);
+
+        // Same values as the baseline computation
+        assertThat(line).isEqualTo(new IntersectSlice(localizer).getOutlineOnLocalizerForThisGeometry(slice));
+        assertThat(volume).isEqualTo(new IntersectVolume(localizer).getOutlineOnLocalizerForThisGeometry(slice));
+
+        // The geometry instances are the keys, not their values
+        List<Point2D.Double> copy = GeometryCache.getIntersection(localizer, sagittal(10.0), false);
+        assertThat(copy).isEqualTo(line).isNotSameAs(line);
+
+        // Parallel planes
+        assertThat(GeometryCache.getIntersection(localizer, axial(5.0), false)).isEmpty();
+        assertThat(GeometryCache.getIntersection(null, slice, false)).isEmpty();
+        assertThat(GeometryCache.getIntersection(localizer, null, true)).isEmpty();
+    }
+
+    @Test
+    public void testIntersectionsReleasedWithGeometry() throws InterruptedException {
+        GeometryOfSlice localizer = axial(0.0);
+        WeakReference<List<Point2D.Double>> line =
+            new WeakReference<>(GeometryCache.getIntersection(localizer, sagittal(-20.0), false));
+        assertThat(line.get()).isNotNull();
+
+        // The slice is only referenced by the cache, the outline is released with it
+        for (int i = 0; i < 50 && line.get() != null; i++) {
+            System.gc();
+            Thread.sleep(20);
+            // Expunge the stale entries of the weak maps
+            GeometryCache.getIntersection(localizer, sagittal(30.0), false);
+        }
+        assertThat(line.get()).isNull();
+    }
+}
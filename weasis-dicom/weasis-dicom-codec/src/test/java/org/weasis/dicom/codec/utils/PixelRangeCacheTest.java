@@ -0,0 +1,67 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2020 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.weasis.dicom.codec.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+public class PixelRangeCacheTest {
+    private static final String SERIES_UID = "1.2.3.4"; //$NON-NLS-1$
+    private static final String EXPLICIT_LE = "1.2.840.10008.1.2.1"; //$NON-NLS-1$
+    private static final String JPEG_BASELINE = "1.2.840.10008.1.2.4.50"; //$NON-NLS-1$
+
+    @Test
+    public void testSeriesRange() {
+        PixelRangeCache.putImageRange(SERIES_UID, "1.2.3.4.1", EXPLICIT_LE, 0, null, null, -100.0, 200.0); //$NON-NLS-1$
+        PixelRangeCache.putImageRange(SERIES_UID, "1.2.3.4.2", EXPLICIT_LE, 0, null, null, -50.0, 800.0); //$NON-NLS-1$
+        assertThat(PixelRangeCache.getSeriesRange(SERIES_UID)).containsExactly(-100.0, 800.0);
+        assertThat(PixelRangeCache.getImageRange(SERIES_UID, "1.2.3.4.2", EXPLICIT_LE, 0, null, null)) //$NON-NLS-1$
+            .containsExactly(-50.0, 800.0);
+        // Another padding range
+        assertThat(PixelRangeCache.getImageRange(SERIES_UID, "1.2.3.4.2", EXPLICIT_LE, 0, 0, null)) //$NON-NLS-1$
+            .isNull();
+
+        // The range of the series is evicted, the range of the images is kept
+        PixelRangeCache.removeSeries(SERIES_UID);
+        assertThat(PixelRangeCache.getSeriesRange(SERIES_UID)).isNull();
+
+        // The images already computed extend again the range of the series
+        assertThat(PixelRangeCache.getImageRange(SERIES_UID, "1.2.3.4.1", EXPLICIT_LE, 0, null, null)) //$NON-NLS-1$
+            .containsExactly(-100.0, 200.0);
+        assertThat(PixelRangeCache.getSeriesRange(SERIES_UID)).containsExactly(-100.0, 200.0);
+
+        PixelRangeCache.removeImage("1.2.3.4.1", EXPLICIT_LE, 0); //$NON-NLS-1$
+        PixelRangeCache.removeImage("1.2.3.4.2", EXPLICIT_LE, 0); //$NON-NLS-1$
+        PixelRangeCache.removeSeries(SERIES_UID);
+    }
+
+    @Test
+    public void testImageRangeByTransferSyntax() {
+        String sopUID = "1.2.3.4.3"; //$NON-NLS-1$
+        PixelRangeCache.putImageRange(null, sopUID, EXPLICIT_LE, 0, null, null, 0.0, 4095.0);
+        PixelRangeCache.putImageRange(null, sopUID, JPEG_BASELINE, 0, null, null, 2.0, 250.0);
+
+        // The same instance with a lossy transfer syntax has other pixel values
+        assertThat(PixelRangeCache.getImageRange(null, sopUID, EXPLICIT_LE, 0, null, null))
+            .containsExactly(0.0, 4095.0);
+        assertThat(PixelRangeCache.getImageRange(null, sopUID, JPEG_BASELINE, 0, null, null))
+            .containsExactly(2.0, 250.0);
+        assertThat(PixelRangeCache.getImageRange(null, sopUID, EXPLICIT_LE, 1, null, null)).isNull();
+
+        // The range of a disposed image is removed
+        PixelRangeCache.removeImage(sopUID, EXPLICIT_LE, 0);
+        assertThat(PixelRangeCache.getImageRange(null, sopUID, EXPLICIT_LE, 0, null, null)).isNull();
+        assertThat(PixelRangeCache.getImageRange(null, sopUID, JPEG_BASELINE, 0, null, null))
+            .containsExactly(2.0, 250.0);
+        PixelRangeCache.removeImage(sopUID, JPEG_BASELINE, 0);
+        assertThat(PixelRangeCache.getImageRange(null, sopUID, JPEG_BASELINE, 0, null, null)).isNull();
+    }
+}
@@ -37,7 +37,7 @@ import org.weasis.core.api.media.data.TagW;
 import org.weasis.core.api.media.data.TagW.TagType;
 import org.weasis.core.api.media.data.Thumbnailable;
 import org.weasis.core.api.util.LangUtil;
-import org.weasis.core.ui.model.GraphicModel;
+import org.weasis.core.ui.serialize.XmlSerializer;
 import org.weasis.dicom.codec.DicomSeries;
 import org.weasis.dicom.codec.DicomSpecialElement;
 import org.weasis.dicom.codec.TagD;
@@ -136,8 +136,8 @@ public class CheckTreeModel {
                 });
 
                 if (!hasGraphics) {
-                    GraphicModel grModel = (GraphicModel) dicom.getTagValue(TagW.PresentationModel);
-                    hasGraphics = grModel != null && grModel.hasSerializableGraphics();
+                    // Do not read the graphic models of all the images to build the tree
+                    hasGraphics = XmlSerializer.hasPresentationModel(dicom);
                 }
             }
         }
@@ -214,7 +214,7 @@ public class DicomDirLoader {
                 if (!seriesInstanceList.isEmpty()) {
                     dicomSeries.setTag(TagW.DirectDownloadThumbnail, readDicomDirIcon(iconInstance));
                     dicomSeries.setTag(TagW.ReadFromDicomdir, true);
-                    final LoadSeries loadSeries = new LoadSeries(dicomSeries, dicomModel, 1, writeInCache);
+                    final LoadSeries loadSeries = new LoadSeries(dicomSeries, dicomModel, writeInCache);
                     loadSeries.setPriority(new DownloadPriority(patient, study, dicomSeries, false));
                     seriesList.add(loadSeries);
                 }
@@ -0,0 +1,254 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2020 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.weasis.dicom.explorer;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import javax.swing.tree.DefaultMutableTreeNode;
+
+import org.dcm4che3.data.Attributes;
+import org.dcm4che3.data.Tag;
+import org.dcm4che3.media.DicomDirWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.weasis.core.api.media.data.MediaElement;
+import org.weasis.core.api.util.FileUtil;
+import org.weasis.core.api.util.ThreadUtil;
+import org.weasis.dicom.codec.DicomSeries;
+import org.weasis.dicom.codec.TagD;
+
+/**
+ * Writes the DICOM files of an export on a bounded pool of workers.
+ * <p>
+ * The files are copied or transcoded in parallel, while the DICOMDIR records are added by the calling thread in the
+ * order of submission, so the DICOMDIR is the same as with a sequential export. The icon of each series is built in
+ * parallel from the cached thumbnail when available. With a ZIP output, each file is added to the archive as soon as
+ * its record is written and then deleted, so the temporary folder only contains the files in progress.
+ * <p>
+ * When the export is cancelled, the files not started are skipped and {@link #cancel()} returns only when no worker is
+ * writing anymore, so the output can be deleted safely.
+ */
+final class DicomExportEngine {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DicomExportEngine.class);
+
+    private static final int NB_THREADS = Math.max(1, Math.min(8, Runtime.getRuntime().availableProcessors() - 1));
+    private static final ExecutorService EXPORT_EXECUTOR =
+        ThreadUtil.buildNewFixedThreadExecutor(NB_THREADS, "DICOM export"); //$NON-NLS-1$
+    // Maximum number of files written in advance of the DICOMDIR
+    private static final int MAX_PENDING = NB_THREADS * 4;
+
+    private final File writeDir;
+    private final DicomDirWriter writer;
+    private final ZipOutputStream zip;
+    private final URI base;
+    private final Deque<Future<ExportItem>> pending = new ArrayDeque<>();
+    // Icon items by SeriesInstanceUID
+    private final Map<String, Future<Attributes>> icons = new HashMap<>();
+    private volatile boolean cancelled;
+
+    /**
+     * @param writeDir
+     *            the folder receiving the files
+     * @param writer
+     *            the DICOMDIR writer or null
+     * @param zip
+     *            the ZIP output or null. When not null, the files written in writeDir are moved into the archive.
+     */
+    DicomExportEngine(File writeDir, DicomDirWriter writer, ZipOutputStream zip) {
+        this.writeDir = writeDir;
+        this.writer = writer;
+        this.zip = zip;
+        this.base = writeDir.toURI();
+    }
+
+    /**
+     * Write a file in background. Blocks while the maximum number of files in progress is reached.
+     */
+    void submit(MediaElement media, DefaultMutableTreeNode node, String iuid, File destinationFile)
+        throws IOException, InterruptedException {
+        if (writer != null && node.getParent() instanceof DefaultMutableTreeNode) {
+            Object userObject = ((DefaultMutableTreeNode) node.getParent()).getUserObject();
+            if (userObject instanceof DicomSeries) {
+                DicomSeries series = (DicomSeries) userObject;
+                String seriesUID = TagD.getTagValue(series, Tag.SeriesInstanceUID, String.class);
+                if (seriesUID != null && !icons.containsKey(seriesUID)) {
+                    icons.put(seriesUID,
+                        EXPORT_EXECUTOR.submit(() -> cancelled ? null : LocalExport.mkIconItem(series)));
+                }
+            }
+        }
+
+        while (pending.size() >= MAX_PENDING) {
+            complete(pending.poll());
+        }
+        pending.add(EXPORT_EXECUTOR.submit(() -> {
+            if (cancelled) {
+                return null;
+            }
+            destinationFile.getParentFile().mkdirs();
+            return new ExportItem(media, node, iuid, destinationFile, media.saveToFile(destinationFile));
+        }));
+    }
+
+    /**
+     * Wait for the files in progress and write their DICOMDIR records.
+     */
+    void flush() throws IOException, InterruptedException {
+        while (!pending.isEmpty()) {
+            complete(pending.poll());
+        }
+    }
+
+    /**
+     * Write the remaining records, close the DICOMDIR and move into the archive the files written directly in
+     * writeDir (DICOMDIR, presentation states).
+     */
+    void finish() throws IOException, InterruptedException {
+        flush();
+        if (writer != null) {
+            // Commit DICOMDIR changes and close the file
+            writer.close();
+        }
+        if (zip != null) {
+            zipRemainingFiles();
+        }
+    }
+
+    /**
+     * Skip the files not started and wait until the workers have finished writing.
+     */
+    void cancel() {
+        cancelled = true;
+        // Future.cancel() does not wait for a running task, so wait for all of them
+        boolean interrupted = false;
+        for (Future<?> f : pending) {
+            interrupted |= awaitUninterruptibly(f);
+        }
+        pending.clear();
+        for (Future<?> f : icons.values()) {
+            interrupted |= awaitUninterruptibly(f);
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                LOGGER.error("Closing DICOMDIR", e); //$NON-NLS-1$
+            }
+        }
+    }
+
+    private static boolean awaitUninterruptibly(Future<?> future) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                future.get();
+                return interrupted;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            } catch (ExecutionException | CancellationException e) {
+                return interrupted;
+            }
+        }
+    }
+
+    private void complete(Future<ExportItem> future) throws IOException, InterruptedException {
+        ExportItem item;
+        try {
+            item = future.get();
+        } catch (ExecutionException e) {
+            LOGGER.error("Cannot export DICOM file", e.getCause()); //$NON-NLS-1$
+            return;
+        }
+        if (item == null) {
+            return;
+        }
+        if (!item.saved) {
+            LOGGER.error("Cannot export DICOM file: {}", //$NON-NLS-1$
+                item.media.getFileCache().getOriginalFile().orElse(null));
+            return;
+        }
+        LocalExport.writeInDicomDir(writer, item.media, item.node, item.iuid, item.destinationFile,
+            () -> getIconItem(item.media));
+        if (zip != null) {
+            addToZip(item.destinationFile);
+            FileUtil.delete(item.destinationFile);
+        }
+    }
+
+    private Attributes getIconItem(MediaElement media) {
+        Future<Attributes> icon = icons.get(TagD.getTagValue(media, Tag.SeriesInstanceUID, String.class));
+        if (icon != null) {
+            try {
+                return icon.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                LOGGER.error("Cannot build icon item", e.getCause()); //$NON-NLS-1$
+            }
+        }
+        return null;
+    }
+
+    private void addToZip(File file) throws IOException {
+        zip.putNextEntry(new ZipEntry(base.relativize(file.toURI()).getPath()));
+        Files.copy(file.toPath(), zip);
+        zip.closeEntry();
+    }
+
+    private void zipRemainingFiles() throws IOException {
+        Deque<File> queue = new LinkedList<>();
+        queue.push(writeDir);
+        while (!queue.isEmpty()) {
+            File[] files = queue.pop().listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    if (file.isDirectory()) {
+                        queue.push(file);
+                    } else {
+                        addToZip(file);
+                    }
+                }
+            }
+        }
+    }
+
+    private static class ExportItem {
+        private final MediaElement media;
+        private final DefaultMutableTreeNode node;
+        private final String iuid;
+        private final File destinationFile;
+        private final boolean saved;
+
+        ExportItem(MediaElement media, DefaultMutableTreeNode node, String iuid, File destinationFile, boolean saved) {
+            this.media = media;
+            this.node = node;
+            this.iuid = iuid;
+            this.destinationFile = destinationFile;
+            this.saved = saved;
+        }
+    }
+}
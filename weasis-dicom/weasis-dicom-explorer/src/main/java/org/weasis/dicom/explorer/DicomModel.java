@@ -76,6 +76,8 @@ import org.weasis.dicom.codec.RejectedKOSpecialElement;
 import org.weasis.dicom.codec.SortSeriesStack;
 import org.weasis.dicom.codec.TagD;
 import org.weasis.dicom.codec.display.Modality;
+import org.weasis.dicom.codec.geometry.GeometryCache;
+import org.weasis.dicom.codec.utils.PixelRangeCache;
 import org.weasis.dicom.codec.utils.SplittingModalityRules;
 import org.weasis.dicom.codec.utils.SplittingModalityRules.Rule;
 import org.weasis.dicom.codec.utils.SplittingRules;
@@ -109,10 +111,12 @@ public class DicomModel implements TreeModel, DataExplorerModel {
     private final Tree<MediaSeriesGroup> model;
     private PropertyChangeSupport propertyChange = null;
     private final SplittingRules splittingRules;
+    private final DicomReferenceIndex referenceIndex;
 
     public DicomModel() {
         model = new Tree<>(MediaSeriesGroupNode.rootNode);
         splittingRules = new SplittingRules();
+        referenceIndex = new DicomReferenceIndex();
     }
 
     @Override
@@ -242,11 +246,17 @@ public class DicomModel implements TreeModel, DataExplorerModel {
         for (MediaSeriesGroup pt : getChildren(MediaSeriesGroupNode.rootNode)) {
             for (MediaSeriesGroup st : getChildren(pt)) {
                 for (MediaSeriesGroup item : getChildren(st)) {
+                    PixelRangeCache.removeSeries(TagD.getTagValue(item, Tag.SeriesInstanceUID, String.class));
                     item.dispose();
                 }
             }
         }
         model.clear();
+        referenceIndex.clear();
+    }
+
+    public DicomReferenceIndex getReferenceIndex() {
+        return referenceIndex;
     }
 
     @Override
@@ -322,6 +332,10 @@ public class DicomModel implements TreeModel, DataExplorerModel {
                 for (MediaSeries<? extends MediaElement> s : seriesList) {
                     if (s != base) {
                         base.addAll((Collection) s.getMedias(null, null));
+                        for (MediaElement media : s.getMedias(null, null)) {
+                            referenceIndex.addInstance((Series<?>) base, media);
+                        }
+                        GeometryCache.invalidate(base);
                         removeSeriesWithoutDisposingMedias(s);
                     }
                 }
@@ -371,6 +385,7 @@ public class DicomModel implements TreeModel, DataExplorerModel {
             }
 
             specialElementList.remove(dicomSpecialElement);
+            referenceIndex.removeSpecialElement(dicomSpecialElement);
 
             if (patientSpecialElementList.remove(dicomSpecialElement)) {
                 firePropertyChange(
@@ -391,6 +406,10 @@ public class DicomModel implements TreeModel, DataExplorerModel {
             // remove in the data model
             MediaSeriesGroup studyGroup = getParent(dicomSeries, DicomModel.study);
             removeHierarchyNode(studyGroup, dicomSeries);
+            referenceIndex.removeSeries(dicomSeries);
+            if (dicomSeries instanceof MediaSeries) {
+                GeometryCache.invalidate((MediaSeries<?>) dicomSeries);
+            }
             LOGGER.info("Remove Series (no dispose): {}", dicomSeries); //$NON-NLS-1$
         }
     }
@@ -406,11 +425,20 @@ public class DicomModel implements TreeModel, DataExplorerModel {
             // remove in the data model
             MediaSeriesGroup studyGroup = getParent(dicomSeries, DicomModel.study);
             removeHierarchyNode(studyGroup, dicomSeries);
-            dicomSeries.dispose();
+            disposeSeries(dicomSeries);
             LOGGER.info("Remove Series: {}", dicomSeries); //$NON-NLS-1$
         }
     }
 
+    private void disposeSeries(MediaSeriesGroup dicomSeries) {
+        referenceIndex.removeSeries(dicomSeries);
+        if (dicomSeries instanceof MediaSeries) {
+            GeometryCache.invalidate((MediaSeries<?>) dicomSeries);
+        }
+        PixelRangeCache.removeSeries(TagD.getTagValue(dicomSeries, Tag.SeriesInstanceUID, String.class));
+        dicomSeries.dispose();
+    }
+
     public void removeStudy(MediaSeriesGroup studyGroup) {
         if (studyGroup != null) {
             if (!DownloadManager.TASKS.isEmpty()) {
@@ -423,7 +451,7 @@ public class DicomModel implements TreeModel, DataExplorerModel {
             firePropertyChange(
                 new ObservableEvent(ObservableEvent.BasicAction.REMOVE, DicomModel.this, null, studyGroup));
             for (MediaSeriesGroup group : getChildren(studyGroup)) {
-                group.dispose();
+                disposeSeries(group);
             }
             MediaSeriesGroup patientGroup = getParent(studyGroup, DicomModel.patient);
             removeHierarchyNode(patientGroup, studyGroup);
@@ -446,7 +474,7 @@ public class DicomModel implements TreeModel, DataExplorerModel {
                 new ObservableEvent(ObservableEvent.BasicAction.REMOVE, DicomModel.this, null, patientGroup));
             for (MediaSeriesGroup studyGroup : getChildren(patientGroup)) {
                 for (MediaSeriesGroup group : getChildren(studyGroup)) {
-                    group.dispose();
+                    disposeSeries(group);
                 }
             }
 
@@ -454,6 +482,7 @@ public class DicomModel implements TreeModel, DataExplorerModel {
                 (List<DicomSpecialElement>) patientGroup.getTagValue(TagW.DicomSpecialElementList);
             if (sps != null) {
                 for (DicomSpecialElement d : sps) {
+                    referenceIndex.removeSpecialElement(d);
                     d.dispose();
                 }
             }
@@ -518,54 +547,74 @@ public class DicomModel implements TreeModel, DataExplorerModel {
     }
 
     public static Collection<KOSpecialElement> getKoSpecialElements(MediaSeries<DicomImageElement> dicomSeries) {
-        // Get all DicomSpecialElement at patient level
-        List<DicomSpecialElement> specialElementList = getSpecialElements(dicomSeries);
-
-        if (specialElementList != null) {
-            String referencedSeriesInstanceUID = TagD.getTagValue(dicomSeries, Tag.SeriesInstanceUID, String.class);
-            return DicomSpecialElement.getKoSpecialElements(specialElementList, referencedSeriesInstanceUID);
-        }
-        return Collections.emptyList();
+        // Get the DicomSpecialElement of the patient referencing the series
+        String referencedSeriesInstanceUID = TagD.getTagValue(dicomSeries, Tag.SeriesInstanceUID, String.class);
+        List<DicomSpecialElement> specialElementList =
+            getReferencingSpecialElements(dicomSeries, referencedSeriesInstanceUID, null);
+        return DicomSpecialElement.getKoSpecialElements(specialElementList, referencedSeriesInstanceUID);
     }
 
     public static Collection<RejectedKOSpecialElement> getRejectionKoSpecialElements(
         MediaSeries<DicomImageElement> dicomSeries) {
-        // Get all DicomSpecialElement at patient level
-        List<DicomSpecialElement> specialElementList = getSpecialElements(dicomSeries);
-
-        if (specialElementList != null) {
-            String referencedSeriesInstanceUID = TagD.getTagValue(dicomSeries, Tag.SeriesInstanceUID, String.class);
-            return DicomSpecialElement.getRejectionKoSpecialElements(specialElementList, referencedSeriesInstanceUID);
-        }
-        return Collections.emptyList();
+        // Get the DicomSpecialElement of the patient referencing the series
+        String referencedSeriesInstanceUID = TagD.getTagValue(dicomSeries, Tag.SeriesInstanceUID, String.class);
+        List<DicomSpecialElement> specialElementList =
+            getReferencingSpecialElements(dicomSeries, referencedSeriesInstanceUID, null);
+        return DicomSpecialElement.getRejectionKoSpecialElements(specialElementList, referencedSeriesInstanceUID);
     }
 
     public static RejectedKOSpecialElement getRejectionKoSpecialElement(MediaSeries<DicomImageElement> dicomSeries,
         String sopUID, Integer dicomFrameNumber) {
-        // Get all DicomSpecialElement at patient level
-        List<DicomSpecialElement> specialElementList = getSpecialElements(dicomSeries);
-
-        if (specialElementList != null) {
-            String referencedSeriesInstanceUID = TagD.getTagValue(dicomSeries, Tag.SeriesInstanceUID, String.class);
-            return DicomSpecialElement.getRejectionKoSpecialElement(specialElementList, referencedSeriesInstanceUID,
-                sopUID, dicomFrameNumber);
-        }
-        return null;
+        // Get the DicomSpecialElement of the patient referencing the instance
+        String referencedSeriesInstanceUID = TagD.getTagValue(dicomSeries, Tag.SeriesInstanceUID, String.class);
+        List<DicomSpecialElement> specialElementList =
+            getReferencingSpecialElements(dicomSeries, referencedSeriesInstanceUID, sopUID);
+        return DicomSpecialElement.getRejectionKoSpecialElement(specialElementList, referencedSeriesInstanceUID,
+            sopUID, dicomFrameNumber);
     }
 
     public static List<PRSpecialElement> getPrSpecialElements(MediaSeries<DicomImageElement> dicomSeries, String sopUID,
         Integer dicomFrameNumber) {
-        // Get all DicomSpecialElement at patient level
-        List<DicomSpecialElement> specialElementList = getSpecialElements(dicomSeries);
+        // Get the DicomSpecialElement of the patient referencing the series (a PR can reference the whole series)
+        String referencedSeriesInstanceUID = TagD.getTagValue(dicomSeries, Tag.SeriesInstanceUID, String.class);
+        List<DicomSpecialElement> specialElementList =
+            getReferencingSpecialElements(dicomSeries, referencedSeriesInstanceUID, null);
 
         if (!specialElementList.isEmpty()) {
-            String referencedSeriesInstanceUID = TagD.getTagValue(dicomSeries, Tag.SeriesInstanceUID, String.class);
             return DicomSpecialElement.getPRSpecialElements(specialElementList, referencedSeriesInstanceUID, sopUID,
                 dicomFrameNumber);
         }
         return Collections.emptyList();
     }
 
+    /**
+     * Get from the reference index the special elements of the patient referencing a series or an instance.
+     *
+     * @param dicomSeries
+     *            the series
+     * @param seriesUID
+     *            the referenced SeriesInstanceUID. When null, all the special elements of the patient are returned.
+     * @param sopUID
+     *            the referenced SOPInstanceUID or null for the series
+     * @return the candidates, they still must be filtered by the references
+     */
+    private static List<DicomSpecialElement> getReferencingSpecialElements(MediaSeries<DicomImageElement> dicomSeries,
+        String seriesUID, String sopUID) {
+        if (dicomSeries == null || seriesUID == null) {
+            return getSpecialElements(dicomSeries);
+        }
+        DataExplorerModel model = (DataExplorerModel) dicomSeries.getTagValue(TagW.ExplorerModel);
+        if (model instanceof DicomModel) {
+            DicomModel dicomModel = (DicomModel) model;
+            MediaSeriesGroup patientGroup = dicomModel.getParent(dicomSeries, DicomModel.patient);
+            if (patientGroup != null) {
+                return sopUID == null ? dicomModel.referenceIndex.getElementsReferencingSeries(patientGroup, seriesUID)
+                    : dicomModel.referenceIndex.getElementsReferencingInstance(patientGroup, sopUID);
+            }
+        }
+        return Collections.emptyList();
+    }
+
     public static List<DicomSpecialElement> getSpecialElements(MediaSeries<DicomImageElement> dicomSeries) {
         if (dicomSeries == null) {
             return Collections.emptyList();
@@ -659,9 +708,15 @@ public class DicomModel implements TreeModel, DataExplorerModel {
         }
     }
 
+    private void addMedia(Series series, MediaElement media) {
+        series.addMedia(media);
+        referenceIndex.addInstance(series, media);
+        GeometryCache.invalidate(series);
+    }
+
     private void splitSeries(DicomMediaIO dicomReader, Series original, MediaElement media) {
         Series s = splitSeries(dicomReader, original);
-        s.addMedia(media);
+        addMedia(s, media);
     }
 
     private Series splitSeries(DicomMediaIO dicomReader, Series original) {
@@ -716,7 +771,7 @@ public class DicomModel implements TreeModel, DataExplorerModel {
         s.setTag(TagW.ExplorerModel, this);
         s.setTag(TagW.WadoParameters, original.getTagValue(TagW.WadoParameters));
         addHierarchyNode(st, s);
-        s.addMedia(media);
+        addMedia(s, media);
         LOGGER.info("Replace Series: {}", s); //$NON-NLS-1$
     }
 
@@ -754,7 +809,7 @@ public class DicomModel implements TreeModel, DataExplorerModel {
             addHierarchyNode(st, dicomSeries);
             LOGGER.info("Series rebuilding: {}", dicomSeries); //$NON-NLS-1$
         }
-        dicomSeries.addMedia(media);
+        addMedia(dicomSeries, media);
 
         // Load image and create thumbnail in this Thread
         Thumbnail t = (Thumbnail) dicomSeries.getTagValue(TagW.Thumbnail);
@@ -788,6 +843,7 @@ public class DicomModel implements TreeModel, DataExplorerModel {
                     return true;
                 }
                 if (media instanceof DicomSpecialElement) {
+                    referenceIndex.addSpecialElement((DicomSpecialElement) media);
                     List<DicomSpecialElement> specialElementList =
                         (List<DicomSpecialElement>) initialSeries.getTagValue(TagW.DicomSpecialElementList);
                     String rMime = dicomReader.getMimeType();
@@ -808,7 +864,7 @@ public class DicomModel implements TreeModel, DataExplorerModel {
 
                 int frames = dicomReader.getMediaElementNumber();
                 if (frames < 1) {
-                    initialSeries.addMedia((DicomImageElement) media);
+                    addMedia(initialSeries, media);
                 } else {
                     Modality modality =
                         Modality.getModality(TagD.getTagValue(initialSeries, Tag.Modality, String.class));
@@ -823,7 +879,7 @@ public class DicomModel implements TreeModel, DataExplorerModel {
                     }
                     // If similar add to the original series
                     if (isSimilar(rules, initialSeries, media)) {
-                        initialSeries.addMedia((DicomImageElement) media);
+                        addMedia(initialSeries, media);
                         return false;
                     }
 
@@ -835,7 +891,7 @@ public class DicomModel implements TreeModel, DataExplorerModel {
                         MediaSeriesGroup group = getHierarchyNode(study, uid);
                         if (group instanceof DicomSeries) {
                             if (isSimilar(rules, (DicomSeries) group, media)) {
-                                ((DicomSeries) group).addMedia((DicomImageElement) media);
+                                addMedia((Series) group, media);
                                 return false;
                             }
                         } else {
@@ -857,7 +913,7 @@ public class DicomModel implements TreeModel, DataExplorerModel {
                         findMatchingSeriesOrsplit(original, media);
                     }
                 } else {
-                    original.addMedia(media);
+                    addMedia(original, media);
                 }
             }
         }
@@ -869,7 +925,7 @@ public class DicomModel implements TreeModel, DataExplorerModel {
         DicomMediaIO dicomReader = (DicomMediaIO) media.getMediaReader();
         int frames = dicomReader.getMediaElementNumber();
         if (frames < 1) {
-            original.addMedia(media);
+            addMedia(original, media);
         } else {
             String seriesUID = TagD.getTagValue(original, Tag.SeriesInstanceUID, String.class);
 
@@ -883,7 +939,7 @@ public class DicomModel implements TreeModel, DataExplorerModel {
             }
             // If similar add to the original series
             if (isSimilar(rules, original, media)) {
-                original.addMedia(media);
+                addMedia(original, media);
                 return false;
             }
 
@@ -895,7 +951,7 @@ public class DicomModel implements TreeModel, DataExplorerModel {
                 MediaSeriesGroup group = getHierarchyNode(study, uid);
                 if (group instanceof Series) {
                     if (isSimilar(rules, (Series) group, media)) {
-                        ((Series) group).addMedia(media);
+                        addMedia((Series) group, media);
                         return false;
                     }
                 } else {
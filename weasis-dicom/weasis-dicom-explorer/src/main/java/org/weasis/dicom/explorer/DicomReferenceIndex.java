@@ -0,0 +1,273 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2020 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.weasis.dicom.explorer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.dcm4che3.data.Attributes;
+import org.dcm4che3.data.Sequence;
+import org.dcm4che3.data.Tag;
+import org.weasis.core.api.media.data.MediaElement;
+import org.weasis.core.api.media.data.MediaSeriesGroup;
+import org.weasis.core.api.media.data.Series;
+import org.weasis.core.api.media.data.TagW;
+import org.weasis.dicom.codec.AbstractKOSpecialElement;
+import org.weasis.dicom.codec.DicomSpecialElement;
+import org.weasis.dicom.codec.TagD;
+
+/**
+ * Index of the references of the {@link DicomModel}, updated incrementally when the objects are added or removed.
+ * <p>
+ * It maps the SOPInstanceUID (and the frame) of each media to its series, and the referenced series and instances to
+ * the special elements (KO, PR, SR...) referencing them. The references of the editable KOs can change, so these KOs
+ * are not indexed by reference and are always returned as candidates.
+ */
+public class DicomReferenceIndex {
+
+    private final Map<String, InstanceRef> instances = new ConcurrentHashMap<>();
+    private final Map<String, Set<DicomSpecialElement>> elementsBySeries = new ConcurrentHashMap<>();
+    private final Map<String, Set<DicomSpecialElement>> elementsByInstance = new ConcurrentHashMap<>();
+    private final Map<DicomSpecialElement, ElementRefs> indexedElements = new ConcurrentHashMap<>();
+    private final Set<DicomSpecialElement> editableElements = ConcurrentHashMap.newKeySet();
+
+    void addInstance(Series<?> series, MediaElement media) {
+        String sopUID = TagD.getTagValue(media, Tag.SOPInstanceUID, String.class);
+        if (series != null && sopUID != null) {
+            Object key = media.getKey();
+            Integer frame = key instanceof Integer ? (Integer) key + 1 : null;
+            instances.compute(sopUID, (k, head) -> new InstanceRef(series, media, frame, head));
+        }
+    }
+
+    /**
+     * Remove the instances and the special elements of the series. The KO and PR are kept as they remain at the patient
+     * level until the patient is removed. Must be called before disposing the series.
+     */
+    void removeSeries(MediaSeriesGroup series) {
+        if (series instanceof Series) {
+            Series<?> s = (Series<?>) series;
+            for (MediaElement media : s.copyOfMedias(null, null)) {
+                String sopUID = TagD.getTagValue(media, Tag.SOPInstanceUID, String.class);
+                if (sopUID != null) {
+                    instances.computeIfPresent(sopUID, (k, head) -> head.remove(series));
+                }
+            }
+            if (!DicomModel.isSpecialModality(s)) {
+                List<DicomSpecialElement> list =
+                    (List<DicomSpecialElement>) series.getTagValue(TagW.DicomSpecialElementList);
+                if (list != null) {
+                    list.forEach(this::removeSpecialElement);
+                }
+            }
+        }
+    }
+
+    void addSpecialElement(DicomSpecialElement element) {
+        if (element.getMediaReader().isEditableDicom()) {
+            editableElements.add(element);
+        } else if (!indexedElements.containsKey(element)) {
+            ElementRefs refs = getReferences(element);
+            indexedElements.put(element, refs);
+            refs.seriesUIDs.forEach(uid -> addReference(elementsBySeries, uid, element));
+            refs.sopUIDs.forEach(uid -> addReference(elementsByInstance, uid, element));
+        }
+    }
+
+    void removeSpecialElement(DicomSpecialElement element) {
+        editableElements.remove(element);
+        ElementRefs refs = indexedElements.remove(element);
+        if (refs != null) {
+            refs.seriesUIDs.forEach(uid -> removeReference(elementsBySeries, uid, element));
+            refs.sopUIDs.forEach(uid -> removeReference(elementsByInstance, uid, element));
+        }
+    }
+
+    void clear() {
+        instances.clear();
+        elementsBySeries.clear();
+        elementsByInstance.clear();
+        indexedElements.clear();
+        editableElements.clear();
+    }
+
+    /**
+     * @param sopUID
+     *            the SOPInstanceUID
+     * @param frame
+     *            the frame number (starting at 1) or null for any frame
+     * @return the series containing the instance or null
+     */
+    public Series<?> getSeries(String sopUID, Integer frame) {
+        InstanceRef ref = getInstanceRef(sopUID, frame);
+        return ref == null ? null : ref.series;
+    }
+
+    /**
+     * @param sopUID
+     *            the SOPInstanceUID
+     * @param frame
+     *            the frame number (starting at 1) or null for the first frame found
+     * @return the media of the instance or null
+     */
+    public MediaElement getMedia(String sopUID, Integer frame) {
+        InstanceRef ref = getInstanceRef(sopUID, frame);
+        return ref == null ? null : ref.media;
+    }
+
+    /**
+     * @param patient
+     *            the patient of the series
+     * @param seriesUID
+     *            the SeriesInstanceUID
+     * @return the special elements referencing the series and the editable ones of the patient
+     */
+    public List<DicomSpecialElement> getElementsReferencingSeries(MediaSeriesGroup patient, String seriesUID) {
+        return getCandidates(patient, seriesUID == null ? null : elementsBySeries.get(seriesUID));
+    }
+
+    /**
+     * @param patient
+     *            the patient of the instance
+     * @param sopUID
+     *            the SOPInstanceUID
+     * @return the special elements referencing explicitly the instance and the editable ones of the patient
+     */
+    public List<DicomSpecialElement> getElementsReferencingInstance(MediaSeriesGroup patient, String sopUID) {
+        return getCandidates(patient, sopUID == null ? null : elementsByInstance.get(sopUID));
+    }
+
+    private List<DicomSpecialElement> getCandidates(MediaSeriesGroup patient, Set<DicomSpecialElement> referencing) {
+        List<DicomSpecialElement> list = new ArrayList<>();
+        if (referencing != null) {
+            list.addAll(referencing);
+        }
+        if (patient != null) {
+            for (DicomSpecialElement el : editableElements) {
+                if (patient.matchIdValue(el.getTagValue(TagW.PatientPseudoUID))) {
+                    list.add(el);
+                }
+            }
+        }
+        return list;
+    }
+
+    private InstanceRef getInstanceRef(String sopUID, Integer frame) {
+        if (sopUID != null) {
+            for (InstanceRef ref = instances.get(sopUID); ref != null; ref = ref.next) {
+                if (frame == null || ref.frame == null || frame.equals(ref.frame)) {
+                    return ref;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static void addReference(Map<String, Set<DicomSpecialElement>> map, String uid,
+        DicomSpecialElement element) {
+        map.compute(uid, (k, set) -> {
+            Set<DicomSpecialElement> s = set == null ? Collections.newSetFromMap(new ConcurrentHashMap<>(4)) : set;
+            s.add(element);
+            return s;
+        });
+    }
+
+    private static void removeReference(Map<String, Set<DicomSpecialElement>> map, String uid,
+        DicomSpecialElement element) {
+        map.computeIfPresent(uid, (k, set) -> {
+            set.remove(element);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    private static ElementRefs getReferences(DicomSpecialElement element) {
+        ElementRefs refs = new ElementRefs();
+        if (element instanceof AbstractKOSpecialElement) {
+            AbstractKOSpecialElement ko = (AbstractKOSpecialElement) element;
+            refs.seriesUIDs.addAll(ko.getReferencedSeriesInstanceUIDSet());
+            refs.sopUIDs.addAll(ko.getReferencedSOPInstanceUIDSet());
+            return refs;
+        }
+
+        Attributes dcm = element.getMediaReader().getDicomObject();
+        if (dcm != null) {
+            // Presentation states
+            addSeriesReferences(dcm.getSequence(Tag.ReferencedSeriesSequence), Tag.ReferencedImageSequence, refs);
+            // Structured reports and other documents
+            for (int tag : new int[] { Tag.CurrentRequestedProcedureEvidenceSequence,
+                Tag.PertinentOtherEvidenceSequence }) {
+                Sequence studies = dcm.getSequence(tag);
+                if (studies != null) {
+                    for (Attributes study : studies) {
+                        addSeriesReferences(study.getSequence(Tag.ReferencedSeriesSequence), Tag.ReferencedSOPSequence,
+                            refs);
+                    }
+                }
+            }
+        }
+        return refs;
+    }
+
+    private static void addSeriesReferences(Sequence seriesSeq, int sopSeqTag, ElementRefs refs) {
+        if (seriesSeq != null) {
+            for (Attributes item : seriesSeq) {
+                String seriesUID = item.getString(Tag.SeriesInstanceUID);
+                if (seriesUID != null) {
+                    refs.seriesUIDs.add(seriesUID);
+                }
+                Sequence sops = item.getSequence(sopSeqTag);
+                if (sops != null) {
+                    for (Attributes sop : sops) {
+                        String sopUID = sop.getString(Tag.ReferencedSOPInstanceUID);
+                        if (sopUID != null) {
+                            refs.sopUIDs.add(sopUID);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static class ElementRefs {
+        private final Set<String> seriesUIDs = new LinkedHashSet<>();
+        private final Set<String> sopUIDs = new LinkedHashSet<>();
+    }
+
+    /**
+     * Immutable chain of the medias having the same SOPInstanceUID (the frames of a multiframe can be split into
+     * several series).
+     */
+    private static class InstanceRef {
+        private final Series<?> series;
+        private final MediaElement media;
+        private final Integer frame;
+        private final InstanceRef next;
+
+        InstanceRef(Series<?> series, MediaElement media, Integer frame, InstanceRef next) {
+            this.series = series;
+            this.media = media;
+            this.frame = frame;
+            this.next = next;
+        }
+
+        InstanceRef remove(MediaSeriesGroup s) {
+            InstanceRef tail = next == null ? null : next.remove(s);
+            if (series == s) {
+                return tail;
+            }
+            return tail == next ? this : new InstanceRef(series, media, frame, tail);
+        }
+    }
+}
@@ -0,0 +1,286 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2020 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.weasis.dicom.explorer;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.dcm4che3.net.Status;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.weasis.core.api.gui.util.AppProperties;
+import org.weasis.core.api.service.BundleTools;
+import org.weasis.core.api.util.ThreadUtil;
+import org.weasis.dicom.explorer.pref.node.DicomWebNode;
+import org.weasis.dicom.op.CStore;
+import org.weasis.dicom.param.AdvancedParams;
+import org.weasis.dicom.param.CancelListener;
+import org.weasis.dicom.param.DicomNode;
+import org.weasis.dicom.param.DicomProgress;
+import org.weasis.dicom.param.DicomState;
+import org.weasis.dicom.web.Multipart;
+import org.weasis.dicom.web.StowrsMultiFiles;
+
+/**
+ * Sends DICOM files over several parallel C-STORE associations or STOW-RS requests.
+ * <p>
+ * The files are split into contiguous groups of similar size (one by association), so the instances of a series stay
+ * together and are sent in their order. The instances which have not been stored (failure of the instance or of the
+ * association) are sent again in a new pass, up to the number of retries.
+ */
+public class DicomSendEngine implements CancelListener {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DicomSendEngine.class);
+
+    public static final String P_SEND_ASSOCIATIONS = "weasis.dicom.send.associations"; //$NON-NLS-1$
+    public static final String P_SEND_RETRIES = "weasis.dicom.send.retries"; //$NON-NLS-1$
+
+    @FunctionalInterface
+    public interface SendListener {
+        /**
+         * Called from the sending threads after each instance.
+         *
+         * @param file
+         *            the processed file
+         * @param failed
+         *            true when the instance has not been stored (it can be sent again in the next pass)
+         * @param processed
+         *            the number of instances processed in the current pass
+         * @param total
+         *            the number of instances of the current pass
+         */
+        void instanceProcessed(File file, boolean failed, int processed, int total);
+    }
+
+    private final int nbAssociations;
+    private final int nbRetries;
+    private final SendListener listener;
+    private final List<DicomProgress> progresses = new CopyOnWriteArrayList<>();
+    private volatile boolean cancelled;
+
+    public DicomSendEngine(SendListener listener) {
+        this(BundleTools.SYSTEM_PREFERENCES.getIntProperty(P_SEND_ASSOCIATIONS, 2),
+            BundleTools.SYSTEM_PREFERENCES.getIntProperty(P_SEND_RETRIES, 1), listener);
+    }
+
+    public DicomSendEngine(int nbAssociations, int nbRetries, SendListener listener) {
+        this.nbAssociations = Math.max(1, nbAssociations);
+        this.nbRetries = Math.max(0, nbRetries);
+        this.listener = listener;
+    }
+
+    @Override
+    public void cancel() {
+        cancelled = true;
+        for (DicomProgress p : progresses) {
+            p.cancel();
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Send the files with C-STORE.
+     *
+     * @return the state of the last failed association, otherwise the state of the last pass. An association which
+     *         throws an exception is reported as a failure.
+     */
+    public DicomState cstore(AdvancedParams params, DicomNode callingNode, DicomNode calledNode, List<File> files)
+        throws InterruptedException {
+        Map<String, Boolean> stored = new ConcurrentHashMap<>();
+        List<File> toSend = files;
+        DicomState state = null;
+        for (int pass = 0; pass <= nbRetries && !toSend.isEmpty() && !cancelled; pass++) {
+            if (pass > 0) {
+                LOGGER.info("DICOM send: retry {} instance(s)", toSend.size()); //$NON-NLS-1$
+            }
+            AtomicInteger processed = new AtomicInteger();
+            int total = toSend.size();
+            List<DicomState> states = execute(split(toSend), group -> {
+                DicomProgress progress = new DicomProgress();
+                progress.addProgressListener(p -> {
+                    File file = p.getProcessedFile();
+                    boolean failed = p.isLastFailed();
+                    if (file != null) {
+                        if (!failed) {
+                            stored.put(file.getAbsolutePath(), Boolean.TRUE);
+                        }
+                        if (listener != null) {
+                            listener.instanceProcessed(file, failed, processed.incrementAndGet(), total);
+                        }
+                    }
+                });
+                progresses.add(progress);
+                if (cancelled) {
+                    progress.cancel();
+                }
+                List<String> paths = new ArrayList<>(group.size());
+                group.forEach(f -> paths.add(f.getPath()));
+                try {
+                    return CStore.process(params, callingNode, calledNode, paths, progress);
+                } catch (Exception e) {
+                    LOGGER.error("DICOM send", e); //$NON-NLS-1$
+                    return new DicomState(Status.UnableToProcess, e.getMessage(), null);
+                } finally {
+                    progresses.remove(progress);
+                }
+            });
+
+            state = getWorstState(states);
+            if (state == null) {
+                // No association has returned a state
+                state = new DicomState(Status.UnableToProcess, "DICOM send failed", null); //$NON-NLS-1$
+            }
+            List<File> remaining = new ArrayList<>();
+            for (File f : toSend) {
+                if (!stored.containsKey(f.getAbsolutePath())) {
+                    remaining.add(f);
+                }
+            }
+            toSend = remaining;
+        }
+        return state;
+    }
+
+    /**
+     * Send the files with STOW-RS. A group of files is sent again when its request fails.
+     *
+     * @return the exception of the last failed request or null
+     */
+    public Exception stowrs(DicomWebNode destination, List<File> files) throws InterruptedException {
+        List<List<File>> toSend = split(files);
+        Exception error = null;
+        for (int pass = 0; pass <= nbRetries && !toSend.isEmpty() && !cancelled; pass++) {
+            Set<List<File>> failed = ConcurrentHashMap.newKeySet();
+            List<Exception> errors = execute(toSend, group -> {
+                if (cancelled) {
+                    return null;
+                }
+                List<String> paths = new ArrayList<>(group.size());
+                group.forEach(f -> paths.add(f.getPath()));
+                try (StowrsMultiFiles stowRS = new StowrsMultiFiles(destination.getUrl().toString(),
+                    Multipart.ContentType.DICOM, AppProperties.WEASIS_NAME, destination.getHeaders())) {
+                    stowRS.uploadDicom(paths, true);
+                    return null;
+                } catch (Exception e) {
+                    failed.add(group);
+                    return e;
+                }
+            });
+            error = errors.stream().filter(e -> e != null).reduce((a, b) -> b).orElse(null);
+            List<List<File>> remaining = new ArrayList<>();
+            for (List<File> group : toSend) {
+                if (failed.contains(group)) {
+                    remaining.add(group);
+                }
+            }
+            toSend = remaining;
+        }
+        return error;
+    }
+
+    @FunctionalInterface
+    private interface GroupTask<T> {
+        T send(List<File> group) throws Exception;
+    }
+
+    private <T> List<T> execute(List<List<File>> groups, GroupTask<T> task) throws InterruptedException {
+        if (groups.size() == 1) {
+            return Collections.singletonList(call(() -> task.send(groups.get(0))));
+        }
+        ExecutorService executor = ThreadUtil.buildNewFixedThreadExecutor(groups.size(), "DICOM send"); //$NON-NLS-1$
+        try {
+            List<Future<T>> futures = new ArrayList<>(groups.size());
+            for (List<File> group : groups) {
+                futures.add(executor.submit(() -> task.send(group)));
+            }
+            List<T> results = new ArrayList<>(groups.size());
+            for (Future<T> f : futures) {
+                try {
+                    results.add(f.get());
+                } catch (ExecutionException e) {
+                    LOGGER.error("DICOM send", e.getCause()); //$NON-NLS-1$
+                    results.add(null);
+                }
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static <T> T call(Callable<T> callable) {
+        try {
+            return callable.call();
+        } catch (Exception e) {
+            LOGGER.error("DICOM send", e); //$NON-NLS-1$
+            return null;
+        }
+    }
+
+    /**
+     * Split the files into contiguous groups of similar size.
+     */
+    private List<List<File>> split(List<File> files) {
+        int nb = Math.min(nbAssociations, files.size());
+        if (nb <= 1) {
+            return Collections.singletonList(files);
+        }
+        long totalSize = 0;
+        for (File f : files) {
+            totalSize += f.length();
+        }
+        List<List<File>> groups = new ArrayList<>(nb);
+        List<File> group = new ArrayList<>();
+        long size = 0;
+        for (int i = 0; i < files.size(); i++) {
+            File f = files.get(i);
+            group.add(f);
+            size += f.length();
+            int remainingFiles = files.size() - i - 1;
+            int remainingGroups = nb - groups.size() - 1;
+            // Close the group when it reaches its share of the size, keeping at least one file for the next groups
+            if (remainingGroups > 0
+                && (size * nb >= totalSize * (groups.size() + 1) || remainingFiles == remainingGroups)) {
+                groups.add(group);
+                group = new ArrayList<>();
+            }
+        }
+        if (!group.isEmpty()) {
+            groups.add(group);
+        }
+        return groups;
+    }
+
+    private static DicomState getWorstState(List<DicomState> states) {
+        DicomState last = null;
+        for (DicomState s : states) {
+            if (s != null) {
+                if (s.getStatus() != Status.Success && s.getStatus() != Status.Cancel) {
+                    return s;
+                }
+                last = s;
+            }
+        }
+        return last;
+    }
+}
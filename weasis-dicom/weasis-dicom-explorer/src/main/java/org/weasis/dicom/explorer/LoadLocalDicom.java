@@ -34,8 +34,6 @@ import org.weasis.core.api.util.FileUtil;
 import org.weasis.core.ui.docking.UIManager;
 import org.weasis.core.ui.editor.SeriesViewerFactory;
 import org.weasis.core.ui.editor.ViewerPluginBuilder;
-import org.weasis.core.ui.model.GraphicModel;
-import org.weasis.core.ui.serialize.XmlSerializer;
 import org.weasis.dicom.codec.DicomCodec;
 import org.weasis.dicom.codec.DicomMediaIO;
 import org.weasis.dicom.codec.DicomSpecialElement;
@@ -107,9 +105,9 @@ public class LoadLocalDicom extends ExplorerTask<Boolean, String> {
                             }
 
                             File gpxFile = new File(file[i].getPath() + ".xml"); //$NON-NLS-1$
-                            GraphicModel graphicModel = XmlSerializer.readPresentationModel(gpxFile);
-                            if (graphicModel != null) {
-                                loader.setTag(TagW.PresentationModel, graphicModel);
+                            if (gpxFile.canRead()) {
+                                // The graphics are read when required (see XmlSerializer.getPresentationModel)
+                                loader.setTag(TagW.PresentationModelFile, gpxFile.getPath());
                             }
                         }
                     }
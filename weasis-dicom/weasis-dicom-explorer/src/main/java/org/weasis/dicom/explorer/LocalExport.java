@@ -15,11 +15,18 @@ import java.awt.FlowLayout;
 import java.awt.image.BufferedImage;
 import java.awt.image.IndexColorModel;
 import java.awt.image.Raster;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Objects;
 import java.util.Properties;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.zip.ZipOutputStream;
 
 import javax.swing.BoxLayout;
 import javax.swing.DefaultComboBoxModel;
@@ -57,6 +64,7 @@ import org.weasis.core.api.media.data.MediaElement;
 import org.weasis.core.api.media.data.MediaSeries;
 import org.weasis.core.api.media.data.Series;
 import org.weasis.core.api.media.data.TagW;
+import org.weasis.core.api.media.data.Thumbnail;
 import org.weasis.core.api.util.FileUtil;
 import org.weasis.core.api.util.LangUtil;
 import org.weasis.core.api.util.StringUtil;
@@ -70,6 +78,7 @@ import org.weasis.dicom.codec.FileExtractor;
 import org.weasis.dicom.codec.TagD;
 import org.weasis.dicom.explorer.internal.Activator;
 import org.weasis.dicom.explorer.pr.DicomPrSerializer;
+import org.weasis.opencv.data.ImageCV;
 import org.weasis.opencv.data.PlanarImage;
 import org.weasis.opencv.op.ImageConversion;
 import org.weasis.opencv.op.ImageProcessor;
@@ -85,6 +94,8 @@ public class LocalExport extends AbstractItemDialogPage implements ExportDicom {
     public static final String IMG_16_BIT = "exp.16-bit";//$NON-NLS-1$
     public static final String CD_COMPATIBLE = "exp.cd";//$NON-NLS-1$
 
+    private static final Dimension ICON_SIZE = new Dimension(128, 128);
+
     public static final String[] EXPORT_FORMAT = { "DICOM", "DICOM ZIP", "JPEG", "PNG" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
 
     private final DicomModel dicomModel;
@@ -440,103 +451,110 @@ public class LocalExport extends AbstractItemDialogPage implements ExportDicom {
             writeDir = exportDir;
         }
 
-        DicomDirWriter writer = null;
-        try {
-
+        boolean completed = false;
+        // The resources will be closed in reverse order. Zip stream must be close before out stream.
+        try (OutputStream out = zipFile ? new FileOutputStream(exportDir) : null;
+                        ZipOutputStream zout = zipFile ? new ZipOutputStream(new BufferedOutputStream(out)) : null) {
+            DicomDirWriter writer = null;
             if (writeDicomdir) {
                 File dcmdirFile = new File(writeDir, "DICOMDIR"); //$NON-NLS-1$
                 writer = DicomDirLoader.open(dcmdirFile);
             }
+            DicomExportEngine engine = new DicomExportEngine(writeDir, writer, zout);
+            try {
+                if (writeDicomFiles(task, engine, writeDir, writer, model, keepNames, writeDicomdir, cdCompatible)) {
+                    engine.finish();
+                    completed = true;
+                } else {
+                    engine.cancel();
+                }
+            } catch (IOException e) {
+                engine.cancel();
+                throw e;
+            } catch (InterruptedException e) {
+                engine.cancel();
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                engine.cancel();
+                LOGGER.error("Cannot export DICOM", e); //$NON-NLS-1$
+            }
+        } catch (IOException e) {
+            if (zipFile) {
+                LOGGER.error("Cannot export DICOM ZIP file: {}", exportDir, e); //$NON-NLS-1$
+            } else {
+                throw e;
+            }
+        } finally {
+            if (zipFile) {
+                // The workers have finished when the engine is completed or cancelled
+                FileUtil.recursiveDelete(writeDir);
+                if (!completed) {
+                    // Remove the partial archive
+                    FileUtil.delete(exportDir);
+                }
+            }
+        }
+    }
 
-            synchronized (exportTree) {
-                ArrayList<String> uids = new ArrayList<>();
-                TreePath[] paths = model.getCheckingPaths();
-                for (TreePath treePath : paths) {
-                    if (task.isCancelled()) {
-                        return;
-                    }
-
-                    DefaultMutableTreeNode node = (DefaultMutableTreeNode) treePath.getLastPathComponent();
-
-                    if (node.getUserObject() instanceof DicomImageElement) {
-                        DicomImageElement img = (DicomImageElement) node.getUserObject();
-                        String iuid = TagD.getTagValue(img, Tag.SOPInstanceUID, String.class);
-                        int index = uids.indexOf(iuid);
-                        if (index == -1) {
-                            uids.add(iuid);
-                        } else {
-                            // Write only once the file for multiframe
-                            continue;
-                        }
-                        if (!keepNames) {
-                            iuid = makeFileIDs(iuid);
-                        }
+    private boolean writeDicomFiles(ExplorerTask task, DicomExportEngine engine, File writeDir,
+        DicomDirWriter writer, CheckTreeModel model, boolean keepNames, boolean writeDicomdir, boolean cdCompatible)
+        throws IOException, InterruptedException {
+        synchronized (exportTree) {
+            Set<String> uids = new HashSet<>();
+            TreePath[] paths = model.getCheckingPaths();
+            for (TreePath treePath : paths) {
+                if (task.isCancelled()) {
+                    return false;
+                }
 
-                        String path = buildPath(img, keepNames, writeDicomdir, cdCompatible, node);
-                        File destinationDir = new File(writeDir, path);
-                        destinationDir.mkdirs();
+                DefaultMutableTreeNode node = (DefaultMutableTreeNode) treePath.getLastPathComponent();
 
-                        File destinationFile = new File(destinationDir, iuid);
-                        if (img.saveToFile(destinationFile)) {
-                            writeInDicomDir(writer, img, node, iuid, destinationFile);
-                        } else {
-                            LOGGER.error("Cannot export DICOM file: {}", //$NON-NLS-1$
-                                img.getFileCache().getOriginalFile().orElse(null));
-                        }
-                    } else if (node.getUserObject() instanceof MediaElement) {
-                        MediaElement dcm = (MediaElement) node.getUserObject();
-                        String iuid = TagD.getTagValue(dcm, Tag.SOPInstanceUID, String.class);
-                        if (!keepNames) {
-                            iuid = makeFileIDs(iuid);
-                        }
+                if (node.getUserObject() instanceof DicomImageElement) {
+                    DicomImageElement img = (DicomImageElement) node.getUserObject();
+                    String iuid = TagD.getTagValue(img, Tag.SOPInstanceUID, String.class);
+                    if (!uids.add(iuid)) {
+                        // Write only once the file for multiframe
+                        continue;
+                    }
+                    if (!keepNames) {
+                        iuid = makeFileIDs(iuid);
+                    }
 
-                        String path = buildPath(dcm, keepNames, writeDicomdir, cdCompatible, node);
-                        File destinationDir = new File(writeDir, path);
-                        destinationDir.mkdirs();
+                    String path = buildPath(img, keepNames, writeDicomdir, cdCompatible, node);
+                    File destinationFile = new File(new File(writeDir, path), iuid);
+                    engine.submit(img, node, iuid, destinationFile);
+                } else if (node.getUserObject() instanceof MediaElement) {
+                    MediaElement dcm = (MediaElement) node.getUserObject();
+                    String iuid = TagD.getTagValue(dcm, Tag.SOPInstanceUID, String.class);
+                    if (!keepNames) {
+                        iuid = makeFileIDs(iuid);
+                    }
 
-                        File destinationFile = new File(destinationDir, iuid);
-                        if (dcm.saveToFile(destinationFile)) {
-                            writeInDicomDir(writer, dcm, node, iuid, destinationFile);
-                        }
-                    } else if (node.getUserObject() instanceof Series) {
-                        MediaSeries<?> s = (MediaSeries<?>) node.getUserObject();
-                        if (LangUtil.getNULLtoFalse((Boolean) s.getTagValue(TagW.ObjectToSave))) {
-                            Series<?> series = (Series<?>) s.getTagValue(CheckTreeModel.SourceSeriesForPR);
-                            if (series != null) {
-                                String seriesInstanceUID = UIDUtils.createUID();
-                                for (MediaElement dcm : series.getMedias(null, null)) {
-                                    GraphicModel grModel = (GraphicModel) dcm.getTagValue(TagW.PresentationModel);
-                                    if (grModel != null && grModel.hasSerializableGraphics()) {
-                                        String path = buildPath(dcm, keepNames, writeDicomdir, cdCompatible, node);
-                                        buildAndWritePR(dcm, keepNames, new File(writeDir, path), writer, node,
-                                            seriesInstanceUID);
-                                    }
+                    String path = buildPath(dcm, keepNames, writeDicomdir, cdCompatible, node);
+                    File destinationFile = new File(new File(writeDir, path), iuid);
+                    engine.submit(dcm, node, iuid, destinationFile);
+                } else if (node.getUserObject() instanceof Series) {
+                    MediaSeries<?> s = (MediaSeries<?>) node.getUserObject();
+                    if (LangUtil.getNULLtoFalse((Boolean) s.getTagValue(TagW.ObjectToSave))) {
+                        Series<?> series = (Series<?>) s.getTagValue(CheckTreeModel.SourceSeriesForPR);
+                        if (series != null) {
+                            // Keep the order of the DICOMDIR records
+                            engine.flush();
+                            String seriesInstanceUID = UIDUtils.createUID();
+                            for (MediaElement dcm : series.getMedias(null, null)) {
+                                GraphicModel grModel = XmlSerializer.getPresentationModel(dcm);
+                                if (grModel != null && grModel.hasSerializableGraphics()) {
+                                    String path = buildPath(dcm, keepNames, writeDicomdir, cdCompatible, node);
+                                    buildAndWritePR(dcm, keepNames, new File(writeDir, path), writer, node,
+                                        seriesInstanceUID);
                                 }
                             }
                         }
                     }
                 }
             }
-        } catch (IOException e) {
-            throw e;
-        } catch (Exception e) {
-            LOGGER.error("Cannot export DICOM", e); //$NON-NLS-1$
-        } finally {
-            if (writer != null) {
-                // Commit DICOMDIR changes and close the file
-                writer.close();
-            }
-        }
-
-        if (zipFile) {
-            try {
-                FileUtil.zip(writeDir, exportDir);
-            } catch (Exception e) {
-                LOGGER.error("Cannot export DICOM ZIP file: {}", exportDir, e); //$NON-NLS-1$
-            } finally {
-                FileUtil.recursiveDelete(writeDir);
-            }
         }
+        return true;
     }
 
     public static Attributes buildAndWritePR(MediaElement img, boolean keepNames, File destinationDir,
@@ -544,7 +562,7 @@ public class LocalExport extends AbstractItemDialogPage implements ExportDicom {
         Attributes imgAttributes = img.getMediaReader() instanceof DcmMediaReader
             ? ((DcmMediaReader) img.getMediaReader()).getDicomObject() : null;
         if (imgAttributes != null) {
-            GraphicModel grModel = (GraphicModel) img.getTagValue(TagW.PresentationModel);
+            GraphicModel grModel = XmlSerializer.getPresentationModel(img);
             if (grModel != null && grModel.hasSerializableGraphics()) {
                 String prUid = UIDUtils.createUID();
                 File outputFile = new File(destinationDir, keepNames ? prUid : makeFileIDs(prUid));
@@ -619,8 +637,8 @@ public class LocalExport extends AbstractItemDialogPage implements ExportDicom {
         return value.endsWith(".") ? value.substring(0, value.length() - 1) : value; //$NON-NLS-1$
     }
 
-    private static boolean writeInDicomDir(DicomDirWriter writer, MediaElement img, DefaultMutableTreeNode node,
-        String iuid, File destinationFile) throws IOException {
+    static boolean writeInDicomDir(DicomDirWriter writer, MediaElement img, DefaultMutableTreeNode node,
+        String iuid, File destinationFile, Supplier<Attributes> iconItem) throws IOException {
         if (writer != null) {
             if (!(img.getMediaReader() instanceof DcmMediaReader)
                 || ((DcmMediaReader) img.getMediaReader()).getDicomObject() == null) {
@@ -628,13 +646,26 @@ public class LocalExport extends AbstractItemDialogPage implements ExportDicom {
                 return false;
             }
             return writeInDicomDir(writer, ((DcmMediaReader) img.getMediaReader()).getDicomObject(), node, iuid,
-                destinationFile);
+                destinationFile, iconItem);
         }
         return false;
     }
 
     private static boolean writeInDicomDir(DicomDirWriter writer, Attributes dataset, DefaultMutableTreeNode node,
         String iuid, File destinationFile) throws IOException {
+        return writeInDicomDir(writer, dataset, node, iuid, destinationFile, () -> {
+            if (node.getParent() instanceof DefaultMutableTreeNode) {
+                Object userObject = ((DefaultMutableTreeNode) node.getParent()).getUserObject();
+                if (userObject instanceof DicomSeries) {
+                    return mkIconItem((DicomSeries) userObject);
+                }
+            }
+            return null;
+        });
+    }
+
+    private static boolean writeInDicomDir(DicomDirWriter writer, Attributes dataset, DefaultMutableTreeNode node,
+        String iuid, File destinationFile, Supplier<Attributes> iconItem) throws IOException {
         if (writer != null && dataset != null) {
             Attributes fmi = dataset.createFileMetaInformation(UID.ImplicitVRLittleEndian);
 
@@ -666,15 +697,10 @@ public class LocalExport extends AbstractItemDialogPage implements ExportDicom {
                      * Icon Image Sequence (0088,0200).This Icon Image is representative of the Series. It may or may
                      * not correspond to one of the images of the Series.
                      */
-                    if (seriesRec != null && node.getParent() instanceof DefaultMutableTreeNode) {
-                        Object userObject = ((DefaultMutableTreeNode) node.getParent()).getUserObject();
-                        if (userObject instanceof DicomSeries) {
-                            DicomImageElement midImage =
-                                ((DicomSeries) userObject).getMedia(MediaSeries.MEDIA_POSITION.MIDDLE, null, null);
-                            Attributes iconItem = mkIconItem(midImage);
-                            if (iconItem != null) {
-                                seriesRec.newSequence(Tag.IconImageSequence, 1).add(iconItem);
-                            }
+                    if (seriesRec != null) {
+                        Attributes icon = iconItem.get();
+                        if (icon != null) {
+                            seriesRec.newSequence(Tag.IconImageSequence, 1).add(icon);
                         }
                     }
                     writer.addLowerDirectoryRecord(studyRec, seriesRec);
@@ -703,6 +729,44 @@ public class LocalExport extends AbstractItemDialogPage implements ExportDicom {
         return null;
     }
 
+    /**
+     * Build the icon item of a series from the thumbnail of the series or of its middle image when already cached,
+     * otherwise from the decoded middle image.
+     */
+    public static Attributes mkIconItem(DicomSeries series) {
+        if (series == null) {
+            return null;
+        }
+        DicomImageElement midImage = series.getMedia(MediaSeries.MEDIA_POSITION.MIDDLE, null, null);
+        if (midImage == null) {
+            return null;
+        }
+        File thumbnailFile = null;
+        Object thumb = series.getTagValue(TagW.Thumbnail);
+        if (thumb instanceof Thumbnail) {
+            thumbnailFile = ((Thumbnail) thumb).getThumbnailPath();
+        }
+        if (thumbnailFile == null || !thumbnailFile.canRead()) {
+            String path = (String) midImage.getTagValue(TagW.ThumbnailPath);
+            thumbnailFile = path == null ? null : new File(path);
+        }
+        if (thumbnailFile != null && thumbnailFile.canRead()) {
+            ImageCV cached = ImageProcessor.readImage(thumbnailFile);
+            if (cached != null) {
+                try {
+                    Attributes iconItem = mkIconItem(ImageProcessor.buildThumbnail(cached, ICON_SIZE, true),
+                        TagD.getTagValue(midImage, Tag.PhotometricInterpretation, String.class));
+                    if (iconItem != null) {
+                        return iconItem;
+                    }
+                } finally {
+                    cached.release();
+                }
+            }
+        }
+        return mkIconItem(midImage);
+    }
+
     public static Attributes mkIconItem(DicomImageElement image) {
         if (image == null) {
             return null;
@@ -711,17 +775,20 @@ public class LocalExport extends AbstractItemDialogPage implements ExportDicom {
         PlanarImage imgPl = image.getImage(null);
         if (imgPl != null) {
             try (PlanarImage img = image.getRenderedImage(imgPl)) {
-                thumbnail = ImageProcessor.buildThumbnail(img, new Dimension(128, 128), true);
+                thumbnail = ImageProcessor.buildThumbnail(img, ICON_SIZE, true);
             }
         }
+        return mkIconItem(thumbnail, TagD.getTagValue(image, Tag.PhotometricInterpretation, String.class));
+    }
 
+    private static Attributes mkIconItem(PlanarImage thumbnail, String photometricInterpretation) {
         if (thumbnail == null) {
             return null;
         }
         int w = thumbnail.width();
         int h = thumbnail.height();
 
-        String pmi = TagD.getTagValue(image, Tag.PhotometricInterpretation, String.class);
+        String pmi = photometricInterpretation;
         if (thumbnail.channels() >= 3) {
             pmi = "PALETTE COLOR"; //$NON-NLS-1$
         }
@@ -16,11 +16,13 @@ import org.osgi.framework.BundleActivator;
 import org.osgi.framework.BundleContext;
 import org.weasis.core.api.explorer.DataExplorerView;
 import org.weasis.core.api.service.BundlePreferences;
+import org.weasis.core.api.service.BundleTools;
 import org.weasis.core.api.util.FileUtil;
 import org.weasis.core.ui.docking.UIManager;
 import org.weasis.dicom.explorer.DicomExplorer;
 import org.weasis.dicom.explorer.DicomModel;
 import org.weasis.dicom.explorer.wado.DicomManager;
+import org.weasis.dicom.explorer.wado.DownloadJournal;
 
 public class Activator implements BundleActivator {
 
@@ -32,6 +34,11 @@ public class Activator implements BundleActivator {
         DicomManager.getInstance().setPortableDirCache(!((cache != null) && cache.equalsIgnoreCase(Boolean.FALSE.toString())));
         FileUtil.readProperties(new File(BundlePreferences.getDataFolder(context), "import-export.properties"), //$NON-NLS-1$
             IMPORT_EXPORT_PERSISTENCE);
+        if (BundleTools.SYSTEM_PREFERENCES.getBooleanProperty(DownloadJournal.JOURNAL_ENABLED, true)) {
+            DownloadJournal.getInstance().open(new File(BundlePreferences.getDataFolder(context), "download-journal"), //$NON-NLS-1$
+                BundleTools.SYSTEM_PREFERENCES.getIntProperty(DownloadJournal.JOURNAL_RETENTION_DAYS, 7),
+                BundleTools.SYSTEM_PREFERENCES.getBooleanProperty(DownloadJournal.JOURNAL_VERIFY_CHECKSUM, true));
+        }
     }
 
     @Override
@@ -40,6 +47,7 @@ public class Activator implements BundleActivator {
             IMPORT_EXPORT_PERSISTENCE, null);
 
         DicomModel.LOADING_EXECUTOR.shutdownNow();
+        DownloadJournal.getInstance().close();
         DataExplorerView explorer = UIManager.getExplorerplugin(DicomExplorer.NAME);
         if (explorer instanceof DicomExplorer) {
             DicomExplorer dexp = (DicomExplorer) explorer;
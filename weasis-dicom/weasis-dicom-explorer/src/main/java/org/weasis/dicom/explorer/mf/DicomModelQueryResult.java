@@ -25,7 +25,7 @@ import org.weasis.core.api.media.data.MediaSeriesGroup;
 import org.weasis.core.api.media.data.MediaSeriesGroupNode;
 import org.weasis.core.api.media.data.TagW;
 import org.weasis.core.api.util.StringUtil;
-import org.weasis.core.ui.model.GraphicModel;
+import org.weasis.core.ui.serialize.XmlSerializer;
 import org.weasis.dicom.codec.DicomImageElement;
 import org.weasis.dicom.codec.DicomSpecialElement;
 import org.weasis.dicom.codec.KOSpecialElement;
@@ -184,8 +184,8 @@ public class DicomModelQueryResult extends AbstractQueryResult {
             }
 
             if (media instanceof DicomImageElement) {
-                GraphicModel model = (GraphicModel) media.getTagValue(TagW.PresentationModel);
-                if (model != null && model.hasSerializableGraphics()) {
+                // The model is read only when writing the manifest
+                if (XmlSerializer.hasPresentationModel(media)) {
                     images.add((DicomImageElement) media);
                 }
             }
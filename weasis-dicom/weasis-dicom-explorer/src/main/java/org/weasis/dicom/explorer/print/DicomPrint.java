@@ -29,10 +29,15 @@ import java.awt.image.DataBufferShort;
 import java.awt.image.DataBufferUShort;
 import java.awt.image.WritableRaster;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Consumer;
 
 import org.dcm4che3.data.Attributes;
 import org.dcm4che3.data.Sequence;
@@ -47,6 +52,7 @@ import org.dcm4che3.net.DimseRSP;
 import org.dcm4che3.net.pdu.AAssociateRQ;
 import org.dcm4che3.net.pdu.PresentationContext;
 import org.dcm4che3.util.UIDUtils;
+import org.weasis.core.api.gui.util.GuiExecutor;
 import org.weasis.core.api.gui.util.MathUtil;
 import org.weasis.core.api.image.AffineTransformOp;
 import org.weasis.core.api.image.LayoutConstraints;
@@ -81,7 +87,26 @@ public class DicomPrint {
         this.printOptions = printOptions == null ? dicomPrintNode.getPrintOptions() : printOptions;
     }
 
+    /**
+     * Render the layout on the film. The views must have been created and are formatted in the calling thread.
+     */
     public BufferedImage printImage(ExportLayout<? extends ImageElement> layout) {
+        return renderFilm(layout, Runnable::run);
+    }
+
+    /**
+     * Render the layout on the film and send it to the printer. Must be called from a background thread: only the
+     * formatting and the drawing of the views are done in the EDT, the images of the views are processed in parallel
+     * directly at the film resolution.
+     */
+    public void print(ExportLayout<? extends ImageElement> layout) throws Exception {
+        BufferedImage film = renderFilm(layout, GuiExecutor.instance()::invokeAndWait);
+        if (film != null) {
+            printImage(film);
+        }
+    }
+
+    private BufferedImage renderFilm(ExportLayout<? extends ImageElement> layout, Consumer<Runnable> uiExecutor) {
         if (layout == null) {
             return null;
         }
@@ -97,61 +122,87 @@ public class DicomPrint {
                 // Change background color
                 g2d.clearRect(0, 0, bufferedImage.getWidth(), bufferedImage.getHeight());
             }
-            final Map<LayoutConstraints, Component> elements = layout.getLayoutModel().getConstraints();
-            Iterator<Entry<LayoutConstraints, Component>> enumVal = elements.entrySet().iterator();
-            while (enumVal.hasNext()) {
-                Entry<LayoutConstraints, Component> e = enumVal.next();
-                LayoutConstraints key = e.getKey();
-                Component value = e.getValue();
-
-                ExportImage<? extends ImageElement> image = null;
-                Point2D.Double pad = new Point2D.Double(0.0, 0.0);
-
-                if (value instanceof ExportImage) {
-                    image = (ExportImage) value;
-                    formatImage(image, key, pad);
-                }
 
-                if (key.gridx == 0) {
-                    wx = 0.0;
-                } else if (lastx < key.gridx) {
-                    wx += lastwx;
-                }
-                double wy = lastwy[key.gridx];
-
-                double x = 5 + (placeholderX * wx) + (MathUtil.isEqualToZero(wx) ? 0 : key.gridx * 5) + pad.x;
-                double y = 5 + (placeholderY * wy) + (MathUtil.isEqualToZero(wy) ? 0 : key.gridy * 5) + pad.y;
-                lastx = key.gridx;
-                lastwx = key.weightx;
-                for (int i = key.gridx; i < key.gridx + key.gridwidth; i++) {
-                    lastwy[i] += key.weighty;
-                }
+            List<PrintCell> cells = new ArrayList<>();
+            uiExecutor.accept(() -> cells.addAll(formatCells(layout)));
 
-                if (image != null) {
-                    boolean wasBuffered = ImagePrint.disableDoubleBuffering(image);
-
-                    // Set us to the upper left corner
-                    g2d.translate(x, y);
-                    g2d.setClip(image.getBounds());
-                    image.draw(g2d);
-                    ImagePrint.restoreDoubleBuffering(image, wasBuffered);
-                    g2d.translate(-x, -y);
-
-                    if (!borderColor.equals(background)) {
-                        // Change background color
-                        g2d.setClip(null);
-                        g2d.setColor(borderColor);
-                        g2d.setStroke(new BasicStroke(2));
-                        Dimension viewSize = image.getSize();
-                        g2d.drawRect((int) x - 1, (int) y - 1, viewSize.width + 1, viewSize.height + 1);
-                    }
+            List<ExportImage<? extends ImageElement>> images = new ArrayList<>(cells.size());
+            cells.forEach(c -> images.add(c.image));
+            ImagePrint.prepareDrawing(images, g2d);
+
+            uiExecutor.accept(() -> {
+                for (PrintCell cell : cells) {
+                    drawCell(g2d, cell, borderColor, background);
                 }
-            }
+            });
+            g2d.dispose();
         }
 
         return bufferedImage;
     }
 
+    private List<PrintCell> formatCells(ExportLayout<? extends ImageElement> layout) {
+        final Map<LayoutConstraints, Component> elements = layout.getLayoutModel().getConstraints();
+        List<PrintCell> cells = new ArrayList<>(elements.size());
+        Iterator<Entry<LayoutConstraints, Component>> enumVal = elements.entrySet().iterator();
+        while (enumVal.hasNext()) {
+            Entry<LayoutConstraints, Component> e = enumVal.next();
+            LayoutConstraints key = e.getKey();
+            Component value = e.getValue();
+
+            ExportImage<? extends ImageElement> image = null;
+            Point2D.Double pad = new Point2D.Double(0.0, 0.0);
+
+            if (value instanceof ExportImage) {
+                image = (ExportImage) value;
+                formatImage(image, key, pad);
+            }
+
+            if (key.gridx == 0) {
+                wx = 0.0;
+            } else if (lastx < key.gridx) {
+                wx += lastwx;
+            }
+            double wy = lastwy[key.gridx];
+
+            double x = 5 + (placeholderX * wx) + (MathUtil.isEqualToZero(wx) ? 0 : key.gridx * 5) + pad.x;
+            double y = 5 + (placeholderY * wy) + (MathUtil.isEqualToZero(wy) ? 0 : key.gridy * 5) + pad.y;
+            lastx = key.gridx;
+            lastwx = key.weightx;
+            for (int i = key.gridx; i < key.gridx + key.gridwidth; i++) {
+                lastwy[i] += key.weighty;
+            }
+
+            if (image != null) {
+                cells.add(new PrintCell(image, x, y));
+            }
+        }
+        return cells;
+    }
+
+    private static void drawCell(Graphics2D g2d, PrintCell cell, Color borderColor, Color background) {
+        ExportImage<? extends ImageElement> image = cell.image;
+        double x = cell.x;
+        double y = cell.y;
+        boolean wasBuffered = ImagePrint.disableDoubleBuffering(image);
+
+        // Set us to the upper left corner
+        g2d.translate(x, y);
+        g2d.setClip(image.getBounds());
+        image.draw(g2d);
+        ImagePrint.restoreDoubleBuffering(image, wasBuffered);
+        g2d.translate(-x, -y);
+
+        if (!borderColor.equals(background)) {
+            // Change background color
+            g2d.setClip(null);
+            g2d.setColor(borderColor);
+            g2d.setStroke(new BasicStroke(2));
+            Dimension viewSize = image.getSize();
+            g2d.drawRect((int) x - 1, (int) y - 1, viewSize.width + 1, viewSize.height + 1);
+        }
+    }
+
     private BufferedImage initialize(ExportLayout<? extends ImageElement> layout) {
         Dimension dimGrid = layout.getLayoutModel().getGridSize();
         FilmSize filmSize = printOptions.getFilmSizeId();
@@ -201,6 +252,8 @@ public class DicomPrint {
         Double originZoom = (Double) image.getActionValue("origin.zoom"); //$NON-NLS-1$
         PlanarImage img = image.getSourceImage();
         if (img != null && originCenterOffset != null && originZoom != null) {
+            // The image is processed only once at the film resolution, see ImagePrint.prepareDrawing()
+            image.getImageLayer().setEnableDispOperations(false);
             boolean bestfit = originZoom <= 0.0;
             double canvasWidth;
             double canvasHeight;
@@ -294,8 +347,10 @@ public class DicomPrint {
         device.addConnection(conn);
         device.addApplicationEntity(ae);
         ae.addConnection(conn);
-        device.setExecutor(Executors.newSingleThreadExecutor());
-        device.setScheduledExecutor(Executors.newSingleThreadScheduledExecutor());
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        ScheduledExecutorService scheduledExecutor = Executors.newSingleThreadScheduledExecutor();
+        device.setExecutor(executor);
+        device.setScheduledExecutor(scheduledExecutor);
 
         filmSessionAttrs.setInt(Tag.NumberOfCopies, VR.IS, printOptions.getNumOfCopies());
         filmSessionAttrs.setString(Tag.PrintPriority, VR.CS, printOptions.getPriority());
@@ -327,8 +382,9 @@ public class DicomPrint {
         rq.addPresentationContext(new PresentationContext(1, printManagementSOPClass, UID.ImplicitVRLittleEndian));
         rq.setCallingAET(ae.getAETitle());
         rq.setCalledAET(remoteAE.getAETitle());
-        Association as = ae.connect(remoteConn, rq);
+        Association as = null;
         try {
+            as = ae.connect(remoteConn, rq);
             // Create a Basic Film Session
             dimseRSPHandler(as.ncreate(printManagementSOPClass, UID.BasicFilmSessionSOPClass, filmSessionUID,
                 filmSessionAttrs, UID.ImplicitVRLittleEndian));
@@ -353,6 +409,8 @@ public class DicomPrint {
                 as.waitForOutstandingRSP();
                 as.release();
             }
+            executor.shutdown();
+            scheduledExecutor.shutdown();
         }
 
     }
@@ -405,6 +463,18 @@ public class DicomPrint {
         }
     }
 
+    private static class PrintCell {
+        private final ExportImage<? extends ImageElement> image;
+        private final double x;
+        private final double y;
+
+        PrintCell(ExportImage<? extends ImageElement> image, double x, double y) {
+            this.image = image;
+            this.x = x;
+            this.y = y;
+        }
+    }
+
     private static BufferedImage convertRGBImageToMonochrome(BufferedImage colorImage) {
         if (colorImage.getType() == BufferedImage.TYPE_BYTE_GRAY) {
             return colorImage;
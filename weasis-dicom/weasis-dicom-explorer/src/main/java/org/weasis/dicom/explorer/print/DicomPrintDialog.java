@@ -15,6 +15,8 @@ import java.awt.Component;
 import java.awt.FlowLayout;
 import java.awt.Window;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import javax.swing.Box;
 import javax.swing.DefaultComboBoxModel;
@@ -30,9 +32,11 @@ import javax.swing.border.TitledBorder;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.weasis.core.api.gui.util.GuiExecutor;
 import org.weasis.core.api.gui.util.JMVUtils;
 import org.weasis.core.api.media.data.ImageElement;
 import org.weasis.core.api.util.StringUtil;
+import org.weasis.core.api.util.ThreadUtil;
 import org.weasis.core.ui.editor.image.ImageViewerEventManager;
 import org.weasis.core.ui.editor.image.ImageViewerPlugin;
 import org.weasis.core.ui.editor.image.ViewCanvas;
@@ -50,6 +54,8 @@ import org.weasis.dicom.explorer.pref.node.DicomPrintNode;
 public class DicomPrintDialog<I extends ImageElement> extends JDialog {
     private static final Logger LOGGER = LoggerFactory.getLogger(DicomPrintDialog.class);
 
+    private static final ExecutorService PRINT_EXECUTOR = ThreadUtil.buildNewSingleThreadExecutor("DICOM Print"); //$NON-NLS-1$
+
     public enum FilmSize {
         IN8X10("8INX10IN", 8, 10), IN8_5X11("8_5INX11IN", 8.5, 11), IN10X12("10INX12IN", 10, 12), //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
         IN10X14("10INX14IN", //$NON-NLS-1$
@@ -238,15 +244,27 @@ public class DicomPrintDialog<I extends ImageElement> extends JDialog {
             layout = new ExportLayout<>(container.getLayoutModel());
         }
 
-        try {
-            dicomPrint.printImage(dicomPrint.printImage(layout));
-        } catch (Exception e) {
-            LOGGER.error("DICOM Print Service", e); //$NON-NLS-1$
-            JOptionPane.showMessageDialog(this, Messages.getString("DicomPrintDialog.error_print"), //$NON-NLS-1$
-                Messages.getString("DicomPrintDialog.error"), JOptionPane.ERROR_MESSAGE); //$NON-NLS-1$
-        } finally {
-            layout.dispose();
-        }
+        print(dicomPrint, layout, getOwner());
+    }
+
+    /**
+     * Render the film and send it to the printer without blocking the EDT. The layout is disposed in the EDT when the
+     * print job is done.
+     */
+    static Future<?> print(DicomPrint dicomPrint, ExportLayout<? extends ImageElement> layout, Window parent) {
+        return PRINT_EXECUTOR.submit(() -> {
+            try {
+                dicomPrint.print(layout);
+            } catch (Exception e) {
+                LOGGER.error("DICOM Print Service", e); //$NON-NLS-1$
+                GuiExecutor.instance()
+                    .execute(() -> JOptionPane.showMessageDialog(parent,
+                        Messages.getString("DicomPrintDialog.error_print"), //$NON-NLS-1$
+                        Messages.getString("DicomPrintDialog.error"), JOptionPane.ERROR_MESSAGE)); //$NON-NLS-1$
+            } finally {
+                GuiExecutor.instance().execute(layout::dispose);
+            }
+        });
     }
 
     private void doClose() {
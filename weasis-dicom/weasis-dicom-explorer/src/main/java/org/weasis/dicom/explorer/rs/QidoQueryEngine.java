@@ -0,0 +1,158 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2020 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.weasis.dicom.explorer.rs;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import javax.json.Json;
+
+import org.dcm4che3.data.Attributes;
+import org.dcm4che3.json.JSONReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.weasis.core.api.util.ClosableURLConnection;
+import org.weasis.core.api.util.NetworkUtil;
+import org.weasis.core.api.util.ThreadUtil;
+import org.weasis.core.api.util.URLParameters;
+
+/**
+ * Runs the QIDO-RS requests of a query hierarchy (studies, series, instances) on a bounded thread pool. Each JSON
+ * response is read as a stream and every dataset is handed to the consumer as soon as it is parsed. When a page size
+ * is defined, the requests are split with the limit and offset parameters. The thread pool is created at the first
+ * submitted task, so an engine used only for {@link #query(String, Consumer)} has no thread.
+ */
+public class QidoQueryEngine {
+    private static final Logger LOGGER = LoggerFactory.getLogger(QidoQueryEngine.class);
+
+    private final Map<String, String> queryHeaders;
+    private final int pageSize;
+    private final int parallelism;
+    private final Queue<Future<?>> pendingTasks = new ConcurrentLinkedQueue<>();
+    private ThreadPoolExecutor executor;
+
+    public QidoQueryEngine(Map<String, String> queryHeaders, int parallelism, int pageSize) {
+        this.queryHeaders = queryHeaders;
+        this.pageSize = Math.max(0, pageSize);
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    private synchronized ThreadPoolExecutor getExecutor() {
+        if (executor == null) {
+            executor = new ThreadPoolExecutor(parallelism, parallelism, 30L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), ThreadUtil.getThreadFactory("QIDO-RS")); //$NON-NLS-1$
+            // Release the threads when no query is running
+            executor.allowCoreThreadTimeOut(true);
+        }
+        return executor;
+    }
+
+    synchronized boolean hasExecutor() {
+        return executor != null;
+    }
+
+    /**
+     * Submits a query task. The task can submit other tasks, {@link #awaitCompletion()} waits for all of them.
+     */
+    public void submit(Runnable task) {
+        pendingTasks.add(getExecutor().submit(task));
+    }
+
+    /**
+     * Waits until all the submitted tasks, including the ones submitted by running tasks, are completed.
+     */
+    public void awaitCompletion() {
+        Future<?> future;
+        while ((future = pendingTasks.poll()) != null) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancelAll();
+                return;
+            } catch (ExecutionException e) {
+                LOGGER.error("QIDO-RS task", e.getCause()); //$NON-NLS-1$
+            }
+        }
+    }
+
+    public void cancelAll() {
+        Future<?> future;
+        while ((future = pendingTasks.poll()) != null) {
+            future.cancel(true);
+        }
+    }
+
+    /**
+     * Executes a QIDO-RS request in the current thread and streams each dataset of the response to the consumer.
+     *
+     * @param url
+     *            the QIDO-RS URL, it must already contain query parameters
+     * @param consumer
+     *            receives each dataset as soon as it is parsed
+     * @return the number of datasets
+     * @throws IOException
+     */
+    public int query(String url, Consumer<Attributes> consumer) throws IOException {
+        if (pageSize <= 0) {
+            return readPage(url, consumer);
+        }
+
+        int offset = 0;
+        int count;
+        do {
+            StringBuilder buf = new StringBuilder(url);
+            buf.append("&limit="); //$NON-NLS-1$
+            buf.append(pageSize);
+            if (offset > 0) {
+                buf.append("&offset="); //$NON-NLS-1$
+                buf.append(offset);
+            }
+            count = readPage(buf.toString(), consumer);
+            offset += count;
+        } while (count >= pageSize);
+        return offset;
+    }
+
+    private int readPage(String url, Consumer<Attributes> consumer) throws IOException {
+        LOGGER.debug("QIDO-RS request: {}", url); //$NON-NLS-1$
+        int[] count = { 0 };
+        try (ClosableURLConnection httpCon =
+            NetworkUtil.getUrlConnection(new URL(url), new URLParameters(queryHeaders));
+                        InputStreamReader instream =
+                            new InputStreamReader(httpCon.getInputStream(), StandardCharsets.UTF_8)) {
+            // An empty response (204 No Content) has no JSON array
+            URLConnection urlConnection = httpCon.getUrlConnection();
+            if (urlConnection.getContentLength() == 0 || (urlConnection instanceof HttpURLConnection
+                && ((HttpURLConnection) urlConnection).getResponseCode() == HttpURLConnection.HTTP_NO_CONTENT)) {
+                return 0;
+            }
+            JSONReader reader = new JSONReader(Json.createParser(instream));
+            reader.readDatasets((fmi, dataset) -> {
+                count[0]++;
+                consumer.accept(dataset);
+            });
+        }
+        return count[0];
+    }
+}
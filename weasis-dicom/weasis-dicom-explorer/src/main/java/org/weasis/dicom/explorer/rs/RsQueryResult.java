@@ -10,9 +10,6 @@
 package org.weasis.dicom.explorer.rs;
 
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -21,12 +18,8 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
-import javax.json.Json;
-
 import org.dcm4che3.data.Attributes;
 import org.dcm4che3.data.Tag;
-import org.dcm4che3.json.JSONReader;
-import org.dcm4che3.json.JSONReader.Callback;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.weasis.core.api.media.data.MediaSeriesGroup;
@@ -34,11 +27,8 @@ import org.weasis.core.api.media.data.MediaSeriesGroupNode;
 import org.weasis.core.api.media.data.Series;
 import org.weasis.core.api.media.data.TagW;
 import org.weasis.core.api.service.BundleTools;
-import org.weasis.core.api.util.ClosableURLConnection;
 import org.weasis.core.api.util.LangUtil;
-import org.weasis.core.api.util.NetworkUtil;
 import org.weasis.core.api.util.StringUtil;
-import org.weasis.core.api.util.URLParameters;
 import org.weasis.dicom.codec.DicomSeries;
 import org.weasis.dicom.codec.TagD;
 import org.weasis.dicom.codec.TagD.Level;
@@ -64,11 +54,16 @@ public class RsQueryResult extends AbstractQueryResult {
         "&includefield=00080020,00080030,00080050,00080061,00080090,00081030,00100010,00100020,00100021,00100030,00100040,0020000D,00200010"); //$NON-NLS-1$
     private static final String SERIES_QUERY = multiParams("0008103E,00080060,0020000E,00200011,00081190"); //$NON-NLS-1$
     private static final String INSTANCE_QUERY = multiParams("00080018,00200013,00081190"); //$NON-NLS-1$
-    private static final String QIDO_REQUEST = "QIDO-RS request: {}"; //$NON-NLS-1$
+    // Maximum number of concurrent series and instance requests
+    private static final int QUERY_PARALLELISM =
+        StringUtil.getInt(System.getProperty("dicom.qido.query.parallelism"), 4); //$NON-NLS-1$
+    // Number of results by request (limit and offset parameters), 0 means no paging
+    private static final int QUERY_PAGE_SIZE = StringUtil.getInt(System.getProperty("dicom.qido.query.page.size"), 0); //$NON-NLS-1$
 
     private final RsQueryParams rsQueryParams;
     private final WadoParameters wadoParameters;
     private final boolean defaultStartDownloading;
+    private final QidoQueryEngine queryEngine;
 
     public RsQueryResult(RsQueryParams rsQueryParams) {
         this.rsQueryParams = rsQueryParams;
@@ -79,6 +74,7 @@ public class RsQueryResult extends AbstractQueryResult {
             + "\";" + rsQueryParams.getProperties().getProperty(RsQueryParams.P_ACCEPT_EXT)); //$NON-NLS-1$
         defaultStartDownloading =
             BundleTools.SYSTEM_PREFERENCES.getBooleanProperty(SeriesDownloadPrefView.DOWNLOAD_IMMEDIATELY, true);
+        this.queryEngine = new QidoQueryEngine(rsQueryParams.getQueryHeaders(), QUERY_PARALLELISM, QUERY_PAGE_SIZE);
     }
 
     private static String multiParams(String query) {
@@ -110,7 +106,6 @@ public class RsQueryResult extends AbstractQueryResult {
             buf.append(rsQueryParams.getProperties().getProperty(RsQueryParams.P_QUERY_EXT, "")); //$NON-NLS-1$
 
             try {
-                LOGGER.debug(QIDO_REQUEST, buf);
                 List<Attributes> studies = parseJSON(buf.toString());
                 if (!studies.isEmpty()) {
                     Collections.sort(studies, getStudyComparator());
@@ -120,18 +115,13 @@ public class RsQueryResult extends AbstractQueryResult {
                 LOGGER.error("QIDO-RS with PatientID {}", patientID, e); //$NON-NLS-1$
             }
         }
+        queryEngine.awaitCompletion();
     }
 
     private List<Attributes> parseJSON(String url) throws IOException {
+        // The study level is materialized for sorting and filtering, the lower levels are streamed into the model
         List<Attributes> items = new ArrayList<>();
-        try (ClosableURLConnection httpCon =
-            NetworkUtil.getUrlConnection(new URL(url), new URLParameters(rsQueryParams.getQueryHeaders()));
-                        InputStreamReader instream =
-                            new InputStreamReader(httpCon.getInputStream(), StandardCharsets.UTF_8)) {
-            JSONReader reader = new JSONReader(Json.createParser(instream));
-            Callback callback = (fmi, dataset) -> items.add(dataset);
-            reader.readDatasets(callback);
-        }
+        queryEngine.query(url, items::add);
         return items;
     }
 
@@ -280,15 +270,12 @@ public class RsQueryResult extends AbstractQueryResult {
             buf.append(rsQueryParams.getProperties().getProperty(RsQueryParams.P_QUERY_EXT, "")); //$NON-NLS-1$
 
             try {
-                LOGGER.debug(QIDO_REQUEST, buf);
-                List<Attributes> studies = parseJSON(buf.toString());
-                for (Attributes studyDataSet : studies) {
-                    fillSeries(studyDataSet, startDownloading);
-                }
+                queryEngine.query(buf.toString(), studyDataSet -> fillSeries(studyDataSet, startDownloading));
             } catch (Exception e) {
                 LOGGER.error("QIDO-RS with studyUID {}", studyInstanceUID, e); //$NON-NLS-1$
             }
         }
+        queryEngine.awaitCompletion();
     }
 
     public void buildFromStudyAccessionNumber(List<String> accessionNumbers) {
@@ -303,21 +290,18 @@ public class RsQueryResult extends AbstractQueryResult {
             buf.append(rsQueryParams.getProperties().getProperty(RsQueryParams.P_QUERY_EXT, "")); //$NON-NLS-1$
 
             try {
-                LOGGER.debug(QIDO_REQUEST, buf);
-                List<Attributes> studies = parseJSON(buf.toString());
-                for (Attributes studyDataSet : studies) {
-                    fillSeries(studyDataSet, defaultStartDownloading);
-                }
+                queryEngine.query(buf.toString(), studyDataSet -> fillSeries(studyDataSet, defaultStartDownloading));
             } catch (Exception e) {
                 LOGGER.error("QIDO-RS with AccessionNumber {}", accessionNumber, e); //$NON-NLS-1$
             }
         }
+        queryEngine.awaitCompletion();
     }
 
     public void buildFromSeriesInstanceUID(List<String> seriesInstanceUIDs) {
         boolean wholeStudy =
             LangUtil.getEmptytoFalse(rsQueryParams.getProperties().getProperty(RsQueryParams.P_SHOW_WHOLE_STUDY));
-        Set<String> studyHashSet = new LinkedHashSet<>();
+        Set<String> studyHashSet = Collections.synchronizedSet(new LinkedHashSet<>());
 
         for (String seriesInstanceUID : LangUtil.emptyIfNull(seriesInstanceUIDs)) {
             if (!StringUtil.hasText(seriesInstanceUID)) {
@@ -331,24 +315,22 @@ public class RsQueryResult extends AbstractQueryResult {
             buf.append(",0008103E,00080060,00081190,00200011"); //$NON-NLS-1$
             buf.append(rsQueryParams.getProperties().getProperty(RsQueryParams.P_QUERY_EXT, "")); //$NON-NLS-1$
 
-            try {
-                LOGGER.debug(QIDO_REQUEST, buf);
-                List<Attributes> series = parseJSON(buf.toString());
-                if (!series.isEmpty()) {
-                    Attributes dataset = series.get(0);
-                    MediaSeriesGroup patient = getPatient(dataset);
-                    MediaSeriesGroup study = getStudy(patient, dataset);
-                    for (Attributes seriesDataset : series) {
+            queryEngine.submit(() -> {
+                try {
+                    queryEngine.query(buf.toString(), seriesDataset -> {
+                        MediaSeriesGroup patient = getPatient(seriesDataset);
+                        MediaSeriesGroup study = getStudy(patient, seriesDataset);
                         Series<?> dicomSeries = getSeries(study, seriesDataset, defaultStartDownloading);
-                        fillInstance(seriesDataset, study, dicomSeries);
-                    }
-                    studyHashSet.add(dataset.getString(Tag.StudyInstanceUID));
+                        fillInstance(seriesDataset, dicomSeries);
+                        studyHashSet.add(seriesDataset.getString(Tag.StudyInstanceUID));
+                    });
+                } catch (Exception e) {
+                    LOGGER.error("QIDO-RS with seriesUID {}", seriesInstanceUID, e); //$NON-NLS-1$
                 }
-            } catch (Exception e) {
-                LOGGER.error("QIDO-RS with seriesUID {}", seriesInstanceUID, e); //$NON-NLS-1$
-            }
+            });
         }
-        
+        queryEngine.awaitCompletion();
+
         if (wholeStudy) {
             buildFromStudyInstanceUID(new ArrayList<>(studyHashSet), false);
         }
@@ -368,27 +350,25 @@ public class RsQueryResult extends AbstractQueryResult {
             buf.append(",00200013,00081190"); //$NON-NLS-1$
             buf.append(rsQueryParams.getProperties().getProperty(RsQueryParams.P_QUERY_EXT, "")); //$NON-NLS-1$
 
-            try {
-                LOGGER.debug(QIDO_REQUEST, buf);
-                List<Attributes> instances = parseJSON(buf.toString());
-                if (!instances.isEmpty()) {
-                    Attributes dataset = instances.get(0);
-                    MediaSeriesGroup patient = getPatient(dataset);
-                    MediaSeriesGroup study = getStudy(patient, dataset);
-                    Series<?> dicomSeries = getSeries(study, dataset, defaultStartDownloading);
-                    String seriesRetrieveURL = TagD.getTagValue(dicomSeries, Tag.RetrieveURL, String.class);
-                    SeriesInstanceList seriesInstanceList =
-                        (SeriesInstanceList) dicomSeries.getTagValue(TagW.WadoInstanceReferenceList);
-                    if (seriesInstanceList != null) {
-                        for (Attributes instanceDataSet : instances) {
+            queryEngine.submit(() -> {
+                try {
+                    queryEngine.query(buf.toString(), instanceDataSet -> {
+                        MediaSeriesGroup patient = getPatient(instanceDataSet);
+                        MediaSeriesGroup study = getStudy(patient, instanceDataSet);
+                        Series<?> dicomSeries = getSeries(study, instanceDataSet, defaultStartDownloading);
+                        String seriesRetrieveURL = TagD.getTagValue(dicomSeries, Tag.RetrieveURL, String.class);
+                        SeriesInstanceList seriesInstanceList =
+                            (SeriesInstanceList) dicomSeries.getTagValue(TagW.WadoInstanceReferenceList);
+                        if (seriesInstanceList != null) {
                             addSopInstance(instanceDataSet, seriesInstanceList, seriesRetrieveURL);
                         }
-                    }
+                    });
+                } catch (Exception e) {
+                    LOGGER.error("QIDO-RS with sopInstanceUID {}", sopInstanceUID, e); //$NON-NLS-1$
                 }
-            } catch (Exception e) {
-                LOGGER.error("QIDO-RS with sopInstanceUID {}", sopInstanceUID, e); //$NON-NLS-1$
-            }
+            });
         }
+        queryEngine.awaitCompletion();
     }
 
     private void fillSeries(Attributes studyDataSet, boolean startDownloading) {
@@ -401,25 +381,26 @@ public class RsQueryResult extends AbstractQueryResult {
             buf.append(SERIES_QUERY);
             buf.append(rsQueryParams.getProperties().getProperty(RsQueryParams.P_QUERY_EXT, "")); //$NON-NLS-1$
 
-            try {
-                LOGGER.debug(QIDO_REQUEST, buf);
-                List<Attributes> series = parseJSON(buf.toString());
-                if (!series.isEmpty()) {
-                    // Get patient from each study in case IssuerOfPatientID is different
-                    MediaSeriesGroup patient = getPatient(studyDataSet);
-                    MediaSeriesGroup study = getStudy(patient, studyDataSet);
-                    for (Attributes seriesDataset : series) {
-                        Series<?> dicomSeries = getSeries(study, seriesDataset, startDownloading);
-                        fillInstance(seriesDataset, study, dicomSeries);
-                    }
+            queryEngine.submit(() -> {
+                MediaSeriesGroup[] study = new MediaSeriesGroup[1];
+                try {
+                    queryEngine.query(buf.toString(), seriesDataset -> {
+                        if (study[0] == null) {
+                            // Get patient from each study in case IssuerOfPatientID is different
+                            MediaSeriesGroup patient = getPatient(studyDataSet);
+                            study[0] = getStudy(patient, studyDataSet);
+                        }
+                        Series<?> dicomSeries = getSeries(study[0], seriesDataset, startDownloading);
+                        fillInstance(seriesDataset, dicomSeries);
+                    });
+                } catch (Exception e) {
+                    LOGGER.error("QIDO-RS all series with studyUID {}", studyInstanceUID, e); //$NON-NLS-1$
                 }
-            } catch (Exception e) {
-                LOGGER.error("QIDO-RS all series with studyUID {}", studyInstanceUID, e); //$NON-NLS-1$
-            }
+            });
         }
     }
 
-    private void fillInstance(Attributes seriesDataset, MediaSeriesGroup study, Series<?> dicomSeries) {
+    private void fillInstance(Attributes seriesDataset, Series<?> dicomSeries) {
         String serieInstanceUID = seriesDataset.getString(Tag.SeriesInstanceUID);
         if (StringUtil.hasText(serieInstanceUID)) {
             String seriesRetrieveURL = TagD.getTagValue(dicomSeries, Tag.RetrieveURL, String.class);
@@ -428,20 +409,17 @@ public class RsQueryResult extends AbstractQueryResult {
             buf.append(INSTANCE_QUERY);
             buf.append(rsQueryParams.getProperties().getProperty(RsQueryParams.P_QUERY_EXT, "")); //$NON-NLS-1$
 
-            try {
-                LOGGER.debug(QIDO_REQUEST, buf);
-                List<Attributes> instances = parseJSON(buf.toString());
-                if (!instances.isEmpty()) {
-                    SeriesInstanceList seriesInstanceList =
-                        (SeriesInstanceList) dicomSeries.getTagValue(TagW.WadoInstanceReferenceList);
-                    if (seriesInstanceList != null) {
-                        for (Attributes instanceDataSet : instances) {
-                            addSopInstance(instanceDataSet, seriesInstanceList, seriesRetrieveURL);
-                        }
+            SeriesInstanceList seriesInstanceList =
+                (SeriesInstanceList) dicomSeries.getTagValue(TagW.WadoInstanceReferenceList);
+            if (seriesInstanceList != null) {
+                queryEngine.submit(() -> {
+                    try {
+                        queryEngine.query(buf.toString(),
+                            instanceDataSet -> addSopInstance(instanceDataSet, seriesInstanceList, seriesRetrieveURL));
+                    } catch (Exception e) {
+                        LOGGER.error("QIDO-RS all instances with seriesUID {}", serieInstanceUID, e); //$NON-NLS-1$
                     }
-                }
-            } catch (Exception e) {
-                LOGGER.error("QIDO-RS all instances with seriesUID {}", serieInstanceUID, e); //$NON-NLS-1$
+                });
             }
         }
     }
@@ -451,8 +429,11 @@ public class RsQueryResult extends AbstractQueryResult {
         String sopUID = instanceDataSet.getString(Tag.SOPInstanceUID);
         Integer frame = DicomMediaUtils.getIntegerFromDicomElement(instanceDataSet, Tag.InstanceNumber, null);
 
-        SopInstance sop = seriesInstanceList.getSopInstance(sopUID, frame);
-        if (sop == null) {
+        synchronized (seriesInstanceList) {
+            SopInstance sop = seriesInstanceList.getSopInstance(sopUID, frame);
+            if (sop != null) {
+                return;
+            }
             sop = new SopInstance(sopUID, frame);
             String rurl = instanceDataSet.getString(Tag.RetrieveURL);
             if (!StringUtil.hasText(rurl)) {
@@ -466,7 +447,8 @@ public class RsQueryResult extends AbstractQueryResult {
         }
     }
 
-    private MediaSeriesGroup getPatient(Attributes patientDataset) {
+    // The model nodes are created from the query threads
+    private synchronized MediaSeriesGroup getPatient(Attributes patientDataset) {
         if (patientDataset == null) {
             throw new IllegalArgumentException("patientDataset cannot be null"); //$NON-NLS-1$
         }
@@ -494,7 +476,7 @@ public class RsQueryResult extends AbstractQueryResult {
         return patient;
     }
 
-    private MediaSeriesGroup getStudy(MediaSeriesGroup patient, final Attributes studyDataset) {
+    private synchronized MediaSeriesGroup getStudy(MediaSeriesGroup patient, final Attributes studyDataset) {
         if (studyDataset == null) {
             throw new IllegalArgumentException("studyDataset cannot be null"); //$NON-NLS-1$
         }
@@ -514,7 +496,7 @@ public class RsQueryResult extends AbstractQueryResult {
         return study;
     }
 
-    private Series getSeries(MediaSeriesGroup study, final Attributes seriesDataset, boolean startDownloading) {
+    private synchronized Series getSeries(MediaSeriesGroup study, final Attributes seriesDataset, boolean startDownloading) {
         if (seriesDataset == null) {
             throw new IllegalArgumentException("seriesDataset cannot be null"); //$NON-NLS-1$
         }
@@ -543,9 +525,8 @@ public class RsQueryResult extends AbstractQueryResult {
 
             model.addHierarchyNode(study, dicomSeries);
 
-            final LoadSeries loadSeries = new LoadSeries(dicomSeries, rsQueryParams.getDicomModel(),
-                BundleTools.SYSTEM_PREFERENCES.getIntProperty(LoadSeries.CONCURRENT_DOWNLOADS_IN_SERIES, 4), true,
-                startDownloading);
+            final LoadSeries loadSeries =
+                new LoadSeries(dicomSeries, rsQueryParams.getDicomModel(), true, startDownloading);
             loadSeries.setPriority(
                 new DownloadPriority(model.getParent(study, DicomModel.patient), study, dicomSeries, true));
             rsQueryParams.getSeriesMap().put(TagD.getTagValue(dicomSeries, Tag.SeriesInstanceUID, String.class),
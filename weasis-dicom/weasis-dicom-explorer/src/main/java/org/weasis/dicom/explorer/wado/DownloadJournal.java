@@ -0,0 +1,333 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2020 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.weasis.dicom.explorer.wado;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.weasis.core.api.util.FileUtil;
+import org.weasis.core.api.util.StringUtil;
+
+/**
+ * Persistent journal of the downloaded DICOM instances.
+ * <p>
+ * The completed instances are kept in the journal directory and recorded (key, SeriesInstanceUID, size, CRC32 and
+ * date) in an append-only file. When a series is downloaded again, in the same session or after a restart, the
+ * instances already in the journal are loaded from the local file without any request.
+ * <p>
+ * An instance is identified by its SOPInstanceUID and by the requested transfer syntax and image quality (see
+ * {@link #getKey(String, String, Integer)}), so an instance downloaded in a lossy syntax is never reused for a request
+ * of the original one.
+ */
+public class DownloadJournal {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DownloadJournal.class);
+
+    public static final String JOURNAL_ENABLED = "weasis.download.journal"; //$NON-NLS-1$
+    public static final String JOURNAL_RETENTION_DAYS = "weasis.download.journal.retention.days"; //$NON-NLS-1$
+    public static final String JOURNAL_VERIFY_CHECKSUM = "weasis.download.journal.checksum"; //$NON-NLS-1$
+
+    private static final String JOURNAL_FILE = "journal.log"; //$NON-NLS-1$
+    private static final String INSTANCE_DIR = "instances"; //$NON-NLS-1$
+    private static final String SEPARATOR = "\t"; //$NON-NLS-1$
+    private static final String KEY_SEPARATOR = "@"; //$NON-NLS-1$
+    // The entries of the previous versions have no transfer syntax in their key
+    private static final String VERSION = "#journal-2"; //$NON-NLS-1$
+
+    /** The single instance of this singleton class. */
+    private static DownloadJournal instance;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private File directory;
+    private Writer writer;
+    private boolean verifyChecksum;
+
+    private DownloadJournal() {
+    }
+
+    /**
+     * Return the single instance of this class. This method guarantees the singleton property of this class.
+     */
+    public static synchronized DownloadJournal getInstance() {
+        if (instance == null) {
+            instance = new DownloadJournal();
+        }
+        return instance;
+    }
+
+    /**
+     * @param sopInstanceUID
+     *            the SOPInstanceUID of the instance
+     * @param transferSyntaxUID
+     *            the requested transfer syntax or null when the instance is retrieved in its original syntax
+     * @param quality
+     *            the requested image quality (see WADO imageQuality) or null
+     * @return the key of the instance in the journal
+     */
+    public static String getKey(String sopInstanceUID, String transferSyntaxUID, Integer quality) {
+        StringBuilder buf = new StringBuilder(sopInstanceUID);
+        if (StringUtil.hasText(transferSyntaxUID)) {
+            buf.append(KEY_SEPARATOR);
+            buf.append(transferSyntaxUID.trim());
+            if (quality != null && quality > 0) {
+                buf.append(KEY_SEPARATOR);
+                buf.append(quality);
+            }
+        }
+        return buf.toString();
+    }
+
+    /**
+     * Opens the journal and removes the entries that are expired or have no valid file.
+     *
+     * @param directory
+     *            the directory of the journal
+     * @param retentionDays
+     *            the number of days an instance is kept
+     * @param verifyChecksum
+     *            verify the CRC32 of the file before reusing it (otherwise only the size is verified)
+     */
+    public synchronized void open(File directory, int retentionDays, boolean verifyChecksum) {
+        close();
+        File instanceDir = new File(directory, INSTANCE_DIR);
+        instanceDir.mkdirs();
+        if (!instanceDir.canWrite()) {
+            LOGGER.error("Cannot write the download journal in {}", directory); //$NON-NLS-1$
+            return;
+        }
+        this.directory = directory;
+        this.verifyChecksum = verifyChecksum;
+
+        File journal = new File(directory, JOURNAL_FILE);
+        long expiration = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(Math.max(0, retentionDays));
+        readJournal(journal);
+        entries.values().removeIf(e -> {
+            File file = getInstanceFile(e.key);
+            boolean expired = e.date < expiration || !file.isFile() || file.length() != e.size;
+            if (expired) {
+                FileUtil.delete(file);
+            }
+            return expired;
+        });
+        // Remove the files without entry (interrupted before being recorded)
+        Set<String> names = new HashSet<>();
+        entries.keySet().forEach(k -> names.add(getFileName(k)));
+        File[] files = instanceDir.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                if (!names.contains(f.getName())) {
+                    FileUtil.delete(f);
+                }
+            }
+        }
+
+        // Rewrite only the valid entries
+        File tmp = new File(directory, JOURNAL_FILE + ".tmp"); //$NON-NLS-1$
+        try (Writer w = new BufferedWriter(
+            new OutputStreamWriter(Files.newOutputStream(tmp.toPath()), StandardCharsets.UTF_8))) {
+            w.write(VERSION + System.lineSeparator());
+            for (Entry e : entries.values()) {
+                w.write(e.toLine());
+            }
+        } catch (IOException e) {
+            LOGGER.error("Cannot write the download journal", e); //$NON-NLS-1$
+        }
+        try {
+            Files.move(tmp.toPath(), journal.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            writer = new BufferedWriter(new OutputStreamWriter(
+                Files.newOutputStream(journal.toPath(), StandardOpenOption.CREATE, StandardOpenOption.APPEND),
+                StandardCharsets.UTF_8));
+            LOGGER.info("Download journal opened with {} instances", entries.size()); //$NON-NLS-1$
+        } catch (IOException e) {
+            LOGGER.error("Cannot open the download journal", e); //$NON-NLS-1$
+            this.directory = null;
+        }
+    }
+
+    public synchronized void close() {
+        FileUtil.safeClose(writer);
+        writer = null;
+        directory = null;
+        entries.clear();
+    }
+
+    public synchronized boolean isEnabled() {
+        return directory != null;
+    }
+
+    /**
+     * @param key
+     *            the key of the instance (see {@link #getKey(String, String, Integer)})
+     * @return the file where the instance must be written to be kept in the journal, or null when the journal is
+     *         disabled
+     */
+    public synchronized File getInstanceFile(String key) {
+        if (directory == null || !StringUtil.hasText(key)) {
+            return null;
+        }
+        return new File(new File(directory, INSTANCE_DIR), getFileName(key));
+    }
+
+    /**
+     * @param key
+     *            the key of the instance (see {@link #getKey(String, String, Integer)})
+     * @return the verified file of an instance already downloaded, or null if it must be downloaded
+     */
+    public File getCompletedFile(String key) {
+        Entry e;
+        File file;
+        boolean verify;
+        synchronized (this) {
+            e = key == null ? null : entries.get(key);
+            if (e == null) {
+                return null;
+            }
+            file = getInstanceFile(key);
+            verify = verifyChecksum;
+        }
+        // Read the file outside the lock, as when recording an instance
+        if (file != null && file.isFile() && file.length() == e.size && (!verify || e.checksum == checksum(file))) {
+            return file;
+        }
+        LOGGER.warn("Invalid file in the download journal: {}", key); //$NON-NLS-1$
+        synchronized (this) {
+            if (entries.remove(key, e)) {
+                FileUtil.delete(file);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Records a completed instance. The file must be the one given by {@link #getInstanceFile(String)}.
+     *
+     * @param key
+     *            the key of the instance (see {@link #getKey(String, String, Integer)})
+     */
+    public void addCompleted(String seriesInstanceUID, String key, File file) {
+        if (file == null || !file.isFile()) {
+            return;
+        }
+        Entry e = new Entry(key, seriesInstanceUID, file.length(), checksum(file), System.currentTimeMillis());
+        synchronized (this) {
+            if (writer == null) {
+                return;
+            }
+            try {
+                writer.write(e.toLine());
+                writer.flush();
+                entries.put(key, e);
+            } catch (IOException ex) {
+                LOGGER.error("Cannot write in the download journal", ex); //$NON-NLS-1$
+            }
+        }
+    }
+
+    private void readJournal(File journal) {
+        entries.clear();
+        if (!journal.isFile()) {
+            return;
+        }
+        try (BufferedReader reader =
+            new BufferedReader(new InputStreamReader(new FileInputStream(journal), StandardCharsets.UTF_8))) {
+            String line = reader.readLine();
+            if (!VERSION.equals(line)) {
+                LOGGER.info("Discard the download journal of a previous version"); //$NON-NLS-1$
+                return;
+            }
+            while ((line = reader.readLine()) != null) {
+                Entry e = Entry.parse(line);
+                if (e != null) {
+                    // The last entry replaces the previous ones
+                    entries.put(e.key, e);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.error("Cannot read the download journal", e); //$NON-NLS-1$
+        }
+    }
+
+    private static String getFileName(String key) {
+        int index = key.indexOf(KEY_SEPARATOR);
+        if (index < 0) {
+            return FileUtil.getValidFileName(key) + ".dcm"; //$NON-NLS-1$
+        }
+        // The transfer syntax part can contain characters that are not allowed in a file name
+        return FileUtil.getValidFileName(key.substring(0, index)) + "_" //$NON-NLS-1$
+            + Integer.toHexString(key.substring(index).hashCode()) + ".dcm"; //$NON-NLS-1$
+    }
+
+    private static long checksum(File file) {
+        CRC32 crc = new CRC32();
+        byte[] buf = new byte[FileUtil.FILE_BUFFER * 16];
+        try (InputStream in = new FileInputStream(file)) {
+            int len;
+            while ((len = in.read(buf)) > 0) {
+                crc.update(buf, 0, len);
+            }
+        } catch (IOException e) {
+            LOGGER.error("Cannot compute the checksum of {}", file, e); //$NON-NLS-1$
+            return -1L;
+        }
+        return crc.getValue();
+    }
+
+    private static class Entry {
+        private final String key;
+        private final String seriesInstanceUID;
+        private final long size;
+        private final long checksum;
+        private final long date;
+
+        Entry(String key, String seriesInstanceUID, long size, long checksum, long date) {
+            this.key = key;
+            this.seriesInstanceUID = seriesInstanceUID == null ? "" : seriesInstanceUID; //$NON-NLS-1$
+            this.size = size;
+            this.checksum = checksum;
+            this.date = date;
+        }
+
+        String toLine() {
+            return key + SEPARATOR + seriesInstanceUID + SEPARATOR + size + SEPARATOR + checksum
+                + SEPARATOR + date + System.lineSeparator();
+        }
+
+        static Entry parse(String line) {
+            String[] val = line.split(SEPARATOR);
+            if (val.length == 5 && StringUtil.hasText(val[0])) {
+                try {
+                    return new Entry(val[0], val[1], Long.parseLong(val[2]), Long.parseLong(val[3]),
+                        Long.parseLong(val[4]));
+                } catch (NumberFormatException e) {
+                    LOGGER.warn("Invalid line in the download journal: {}", line); //$NON-NLS-1$
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -164,6 +164,31 @@ public class DownloadManager {
         }
     }
 
+    /**
+     * Starts a series waiting in the queue of the concurrent executor without waiting for the end of a running series.
+     * The number of simultaneous instance downloads is controlled by {@link DownloadScheduler}, so one more series
+     * thread does not increase the network load. The number of threads is reset when all the series are loaded.
+     *
+     * @param series
+     *            the series to start
+     * @return true if the series was waiting and has been started
+     */
+    public static synchronized boolean admitSeries(LoadSeries series) {
+        DownloadPriority p = series.getPriority();
+        if (p == null || !p.hasConcurrentDownload() || !PRIORITY_QUEUE.remove(series)) {
+            return false;
+        }
+        // Become the head of the queue, then the new thread takes it
+        p.setPriority(DownloadPriority.COUNTER.getAndDecrement());
+        PRIORITY_QUEUE.offer(series);
+        int size = CONCURRENT_EXECUTOR.getCorePoolSize() + 1;
+        if (CONCURRENT_EXECUTOR.getMaximumPoolSize() < size) {
+            CONCURRENT_EXECUTOR.setMaximumPoolSize(size);
+        }
+        CONCURRENT_EXECUTOR.setCorePoolSize(size);
+        return true;
+    }
+
     public static synchronized void addLoadSeries(final LoadSeries series, DicomModel dicomModel,
         boolean startLoading) {
         if (series != null) {
@@ -200,8 +225,10 @@ public class DownloadManager {
             }
             if (DownloadManager.TASKS.isEmpty()) {
                 // When all loadseries are ended, reset to default the number of simultaneous download (series)
-                DownloadManager.CONCURRENT_EXECUTOR.setCorePoolSize(
-                    BundleTools.SYSTEM_PREFERENCES.getIntProperty(DownloadManager.CONCURRENT_SERIES, 3));
+                int size = BundleTools.SYSTEM_PREFERENCES.getIntProperty(DownloadManager.CONCURRENT_SERIES, 3);
+                // The core size cannot be greater than the maximum size
+                DownloadManager.CONCURRENT_EXECUTOR.setCorePoolSize(size);
+                DownloadManager.CONCURRENT_EXECUTOR.setMaximumPoolSize(size);
             }
         }
     }
@@ -582,8 +609,7 @@ public class DownloadManager {
         dicomSeries.setTag(TagW.WadoInstanceReferenceList, seriesInstanceList);
 
         if (!seriesInstanceList.isEmpty()) {
-            final LoadSeries loadSeries = new LoadSeries(dicomSeries, model,
-                BundleTools.SYSTEM_PREFERENCES.getIntProperty(LoadSeries.CONCURRENT_DOWNLOADS_IN_SERIES, 4), true);
+            final LoadSeries loadSeries = new LoadSeries(dicomSeries, model, true);
             loadSeries.setPriority(new DownloadPriority(patient, study, dicomSeries, true));
             params.getSeriesMap().put(seriesUID, loadSeries);
         }
@@ -0,0 +1,419 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2020 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.weasis.dicom.explorer.wado;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.SwingWorker.StateValue;
+
+import org.dcm4che3.data.Tag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.weasis.core.api.gui.util.GuiExecutor;
+import org.weasis.core.api.media.data.ImageElement;
+import org.weasis.core.api.media.data.MediaSeries;
+import org.weasis.core.api.service.BundleTools;
+import org.weasis.core.api.util.ThreadUtil;
+import org.weasis.core.ui.docking.UIManager;
+import org.weasis.core.ui.editor.image.ImageViewerPlugin;
+import org.weasis.core.ui.editor.image.ViewCanvas;
+import org.weasis.core.ui.editor.image.ViewerPlugin;
+import org.weasis.dicom.codec.TagD;
+import org.weasis.dicom.explorer.wado.LoadSeries.Download;
+
+/**
+ * Global queue of the instance downloads of all the series.
+ * <p>
+ * The number of simultaneous downloads is adapted to the measured throughput and latency (additive increase,
+ * multiplicative decrease). The next instance is chosen from the series displayed in a viewer first, and in this
+ * series around the current image. A series waiting for longer than {@link #STARVATION_DELAY} gets one download slot
+ * whatever its priority. A displayed series waiting for the series executor of {@link DownloadManager} is started
+ * without waiting for the end of another series.
+ */
+public class DownloadScheduler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DownloadScheduler.class);
+
+    public static final String MAX_CONCURRENT_DOWNLOADS = "download.concurrent.images.max"; //$NON-NLS-1$
+
+    // Delays in milliseconds
+    private static final long VIEW_REFRESH_INTERVAL = 250L;
+    private static final long STARVATION_DELAY = 5000L;
+    private static final long ADJUST_INTERVAL = 2000L;
+    // Tolerated increase of the mean latency before reducing the number of downloads
+    private static final double LATENCY_TOLERANCE = 1.5;
+
+    private static final DownloadManager.PriorityTaskComparator PRIORITY_COMPARATOR =
+        new DownloadManager.PriorityTaskComparator();
+    private static final DownloadScheduler INSTANCE = new DownloadScheduler();
+
+    private final ThreadPoolExecutor executor;
+    private final List<SeriesQueue> queues = new ArrayList<>();
+    private final int maxConcurrency;
+    private int concurrency;
+    private int running;
+
+    private long windowStart;
+    private long windowBytes;
+    private long windowLatency;
+    private int windowCount;
+    private int windowErrors;
+    private double lastThroughput;
+    private double lastLatency;
+
+    private volatile Map<String, Set<String>> displayedSeries = Collections.emptyMap();
+    private volatile long lastViewRefresh;
+
+    private DownloadScheduler() {
+        this.maxConcurrency = Math.max(1, BundleTools.SYSTEM_PREFERENCES.getIntProperty(MAX_CONCURRENT_DOWNLOADS, 16));
+        this.concurrency = Math.min(maxConcurrency,
+            Math.max(1, BundleTools.SYSTEM_PREFERENCES.getIntProperty(LoadSeries.CONCURRENT_DOWNLOADS_IN_SERIES, 4)));
+        this.executor = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 60L, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), ThreadUtil.getThreadFactory("Image Downloader")); //$NON-NLS-1$
+        this.executor.allowCoreThreadTimeOut(true);
+        this.windowStart = System.currentTimeMillis();
+    }
+
+    public static DownloadScheduler getInstance() {
+        return INSTANCE;
+    }
+
+    public synchronized int getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * Adds the downloads of a series into the global queue and waits until they are all processed. When the current
+     * thread is interrupted (the series loading is cancelled), the downloads which are not completed are cancelled.
+     *
+     * @param loader
+     *            the series loader
+     * @param tasks
+     *            the downloads in the default order
+     * @throws InterruptedException
+     */
+    public void downloadSeries(LoadSeries loader, List<Task> tasks) throws InterruptedException {
+        if (tasks.isEmpty()) {
+            return;
+        }
+        SeriesQueue queue = new SeriesQueue(loader, tasks);
+        synchronized (this) {
+            queues.add(queue);
+        }
+        dispatch();
+        try {
+            queue.latch.await();
+        } finally {
+            cancelSeries(queue);
+        }
+    }
+
+    private void cancelSeries(SeriesQueue queue) {
+        List<Task> toCancel;
+        synchronized (this) {
+            if (!queues.remove(queue)) {
+                return;
+            }
+            toCancel = new ArrayList<>(queue.order);
+            queue.order.clear();
+            queue.byIndex.clear();
+            for (Task t : queue.running) {
+                t.cancelled = true;
+                if (t.thread != null) {
+                    t.thread.interrupt();
+                }
+            }
+        }
+        for (int i = 0; i < toCancel.size(); i++) {
+            queue.latch.countDown();
+        }
+    }
+
+    private void dispatch() {
+        refreshDisplayedSeries();
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            while (running < concurrency) {
+                Task task = nextTask(now);
+                if (task == null) {
+                    break;
+                }
+                running++;
+                task.queue.running.add(task);
+                executor.execute(() -> execute(task));
+            }
+        }
+    }
+
+    private void execute(Task task) {
+        long start = System.nanoTime();
+        boolean failed = false;
+        try {
+            synchronized (this) {
+                task.thread = Thread.currentThread();
+            }
+            if (!task.cancelled) {
+                task.download.call();
+                failed = task.download.hasFailed();
+            }
+        } catch (Exception e) {
+            failed = true;
+            LOGGER.error("Downloading", e); //$NON-NLS-1$
+        } finally {
+            synchronized (this) {
+                task.thread = null;
+                running--;
+                task.queue.running.remove(task);
+                if (!task.cancelled) {
+                    addSample(task.download.getTransferredBytes(), System.nanoTime() - start, failed);
+                }
+            }
+            // Clear the interruption of a cancelled download before reusing the thread
+            Thread.interrupted();
+            task.queue.latch.countDown();
+            dispatch();
+        }
+    }
+
+    private Task nextTask(long now) {
+        SeriesQueue best = null;
+        for (SeriesQueue q : queues) {
+            if (!q.order.isEmpty() && !q.loader.isCancelled() && (best == null || compare(q, best, now) < 0)) {
+                best = q;
+            }
+        }
+        if (best == null) {
+            return null;
+        }
+        best.lastServed = now;
+        return best.nextTask(displayedSeries.get(best.seriesUID));
+    }
+
+    private int compare(SeriesQueue q1, SeriesQueue q2, long now) {
+        boolean starved1 = now - q1.lastServed > STARVATION_DELAY;
+        boolean starved2 = now - q2.lastServed > STARVATION_DELAY;
+        if (starved1 != starved2) {
+            return starved1 ? -1 : 1;
+        }
+        boolean displayed1 = displayedSeries.containsKey(q1.seriesUID);
+        boolean displayed2 = displayedSeries.containsKey(q2.seriesUID);
+        if (displayed1 != displayed2) {
+            return displayed1 ? -1 : 1;
+        }
+        DownloadPriority p1 = q1.loader.getPriority();
+        DownloadPriority p2 = q2.loader.getPriority();
+        if (p1 != null && p2 != null) {
+            int rep = PRIORITY_COMPARATOR.compare(q1.loader, q2.loader);
+            if (rep != 0) {
+                return rep;
+            }
+        }
+        // Round robin between series with the same priority
+        return Long.compare(q1.lastServed, q2.lastServed);
+    }
+
+    private void addSample(long bytes, long latency, boolean failed) {
+        windowBytes += bytes;
+        windowLatency += latency;
+        windowCount++;
+        if (failed) {
+            windowErrors++;
+        }
+
+        long now = System.currentTimeMillis();
+        long elapsed = now - windowStart;
+        if (elapsed < ADJUST_INTERVAL) {
+            return;
+        }
+
+        double throughput = windowBytes / (double) elapsed;
+        double latencyMean = windowLatency / (double) windowCount;
+        int previous = concurrency;
+        if (windowErrors > 0
+            || (lastLatency > 0 && latencyMean > lastLatency * LATENCY_TOLERANCE && throughput <= lastThroughput)) {
+            concurrency = Math.max(1, concurrency / 2);
+        } else if (hasPendingTasks() && throughput >= lastThroughput * 0.95) {
+            concurrency = Math.min(maxConcurrency, concurrency + 1);
+        }
+        if (previous != concurrency) {
+            LOGGER.debug("Simultaneous downloads: {} (throughput: {} kB/s, latency: {} ms)", concurrency, //$NON-NLS-1$
+                Math.round(throughput), Math.round(latencyMean / 1000000.0));
+        }
+
+        lastThroughput = throughput;
+        lastLatency = latencyMean;
+        windowStart = now;
+        windowBytes = 0;
+        windowLatency = 0;
+        windowCount = 0;
+        windowErrors = 0;
+    }
+
+    private boolean hasPendingTasks() {
+        for (SeriesQueue q : queues) {
+            if (!q.order.isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void refreshDisplayedSeries() {
+        long now = System.currentTimeMillis();
+        if (now - lastViewRefresh < VIEW_REFRESH_INTERVAL) {
+            return;
+        }
+        lastViewRefresh = now;
+        // The viewers can only be read in the EDT, the next dispatches use the new snapshot
+        GuiExecutor.instance().execute(() -> {
+            displayedSeries = getDisplayedSeries();
+            admitDisplayedSeries();
+        });
+    }
+
+    private static Map<String, Set<String>> getDisplayedSeries() {
+        // Map of SeriesInstanceUID with the SOPInstanceUIDs of the displayed images
+        Map<String, Set<String>> map = new HashMap<>();
+        synchronized (UIManager.VIEWER_PLUGINS) {
+            for (ViewerPlugin<?> p : UIManager.VIEWER_PLUGINS) {
+                if (p instanceof ImageViewerPlugin) {
+                    for (ViewCanvas<?> v : ((ImageViewerPlugin<?>) p).getImagePanels()) {
+                        MediaSeries<?> s = v.getSeries();
+                        String uid = s == null ? null : TagD.getTagValue(s, Tag.SeriesInstanceUID, String.class);
+                        if (uid != null) {
+                            Set<String> sops = map.computeIfAbsent(uid, k -> new HashSet<>());
+                            ImageElement img = v.getImage();
+                            String sopUID = img == null ? null : TagD.getTagValue(img, Tag.SOPInstanceUID, String.class);
+                            if (sopUID != null) {
+                                sops.add(sopUID);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return map;
+    }
+
+    /**
+     * A displayed series waiting for a free slot of the series executor is started immediately, otherwise it would not
+     * be downloaded until the end of a running series whatever its priority in this scheduler.
+     */
+    private void admitDisplayedSeries() {
+        Map<String, Set<String>> displayed = displayedSeries;
+        if (displayed.isEmpty()) {
+            return;
+        }
+        List<LoadSeries> waiting = new ArrayList<>();
+        synchronized (DownloadManager.TASKS) {
+            for (LoadSeries loader : DownloadManager.TASKS) {
+                if (StateValue.PENDING.equals(loader.getState()) && displayed
+                    .containsKey(TagD.getTagValue(loader.getDicomSeries(), Tag.SeriesInstanceUID, String.class))) {
+                    waiting.add(loader);
+                }
+            }
+        }
+        for (LoadSeries loader : waiting) {
+            if (DownloadManager.admitSeries(loader)) {
+                LOGGER.debug("Start the displayed series {}", loader.getDicomSeries()); //$NON-NLS-1$
+            }
+        }
+    }
+
+    public static class Task {
+        private final int index;
+        private final String sopInstanceUID;
+        private final Download download;
+        private SeriesQueue queue;
+        private Thread thread;
+        private volatile boolean cancelled;
+
+        /**
+         * @param index
+         *            the position of the instance in the sorted series
+         * @param sopInstanceUID
+         *            the SOPInstanceUID
+         * @param download
+         *            the download task
+         */
+        Task(int index, String sopInstanceUID, Download download) {
+            this.index = index;
+            this.sopInstanceUID = sopInstanceUID;
+            this.download = download;
+        }
+    }
+
+    private static class SeriesQueue {
+        private final LoadSeries loader;
+        private final String seriesUID;
+        // Pending tasks in the default order and by position in the series
+        private final Set<Task> order;
+        private final NavigableMap<Integer, Task> byIndex = new TreeMap<>();
+        private final List<Task> running = new ArrayList<>();
+        private final Map<String, Integer> positions = new HashMap<>();
+        private final CountDownLatch latch;
+        private long lastServed;
+
+        SeriesQueue(LoadSeries loader, List<Task> tasks) {
+            this.loader = loader;
+            this.seriesUID = TagD.getTagValue(loader.getDicomSeries(), Tag.SeriesInstanceUID, String.class);
+            this.order = new LinkedHashSet<>(tasks);
+            this.latch = new CountDownLatch(tasks.size());
+            this.lastServed = System.currentTimeMillis();
+            for (Task t : tasks) {
+                t.queue = this;
+                positions.put(t.sopInstanceUID, t.index);
+                byIndex.put(t.index, t);
+            }
+        }
+
+        Task nextTask(Set<String> displayedSopUIDs) {
+            int current = -1;
+            if (displayedSopUIDs != null) {
+                for (String uid : displayedSopUIDs) {
+                    Integer pos = positions.get(uid);
+                    if (pos != null) {
+                        current = pos;
+                        break;
+                    }
+                }
+            }
+            Task best;
+            if (current < 0) {
+                best = order.iterator().next();
+            } else {
+                // Take the nearest instance from the displayed one, forward first
+                Entry<Integer, Task> next = byIndex.ceilingEntry(current);
+                Entry<Integer, Task> previous = byIndex.lowerEntry(current);
+                if (next == null || (previous != null && next.getKey() - current > current - previous.getKey())) {
+                    best = previous.getValue();
+                } else {
+                    best = next.getValue();
+                }
+            }
+            order.remove(best);
+            byIndex.remove(best.index);
+            return best;
+        }
+    }
+}
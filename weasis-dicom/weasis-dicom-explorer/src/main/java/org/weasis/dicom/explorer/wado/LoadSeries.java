@@ -27,7 +27,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
 
 import javax.swing.JProgressBar;
 
@@ -61,7 +60,6 @@ import org.weasis.core.api.util.LocalUtil;
 import org.weasis.core.api.util.NetworkUtil;
 import org.weasis.core.api.util.StreamIOException;
 import org.weasis.core.api.util.StringUtil;
-import org.weasis.core.api.util.ThreadUtil;
 import org.weasis.core.api.util.URLParameters;
 import org.weasis.core.ui.docking.UIManager;
 import org.weasis.core.ui.editor.SeriesViewerFactory;
@@ -102,7 +100,6 @@ public class LoadSeries extends ExplorerTask<Boolean, String> implements SeriesI
         DOWNLOADING, PAUSED, COMPLETE, CANCELLED, ERROR
     }
 
-    public final int concurrentDownloads;
     private final DicomModel dicomModel;
     private final Series<?> dicomSeries;
     private final SeriesInstanceList seriesInstanceList;
@@ -114,12 +111,11 @@ public class LoadSeries extends ExplorerTask<Boolean, String> implements SeriesI
 
     private volatile boolean hasError = false;
 
-    public LoadSeries(Series<?> dicomSeries, DicomModel dicomModel, int concurrentDownloads, boolean writeInCache) {
-        this(dicomSeries, dicomModel, concurrentDownloads, writeInCache, true);
+    public LoadSeries(Series<?> dicomSeries, DicomModel dicomModel, boolean writeInCache) {
+        this(dicomSeries, dicomModel, writeInCache, true);
     }
 
-    public LoadSeries(Series<?> dicomSeries, DicomModel dicomModel, int concurrentDownloads, boolean writeInCache,
-        boolean startDownloading) {
+    public LoadSeries(Series<?> dicomSeries, DicomModel dicomModel, boolean writeInCache, boolean startDownloading) {
         super(Messages.getString("DicomExplorer.loading"), writeInCache, true); //$NON-NLS-1$
         if (dicomModel == null || dicomSeries == null) {
             throw new IllegalArgumentException("null parameters"); //$NON-NLS-1$
@@ -135,13 +131,12 @@ public class LoadSeries extends ExplorerTask<Boolean, String> implements SeriesI
             progressBar.setVisible(false);
         }
         this.dicomSeries.setSeriesLoader(this);
-        this.concurrentDownloads = concurrentDownloads;
         this.urlParams = new URLParameters(getHttpTags((WadoParameters) dicomSeries.getTagValue(TagW.WadoParameters)));
         this.startDownloading = startDownloading;
     }
 
-    public LoadSeries(Series<?> dicomSeries, DicomModel dicomModel, JProgressBar progressBar, int concurrentDownloads,
-        boolean writeInCache, boolean startDownloading) {
+    public LoadSeries(Series<?> dicomSeries, DicomModel dicomModel, JProgressBar progressBar, boolean writeInCache,
+        boolean startDownloading) {
         super(Messages.getString("DicomExplorer.loading"), writeInCache, true); //$NON-NLS-1$
         if (dicomModel == null || dicomSeries == null || progressBar == null) {
             throw new IllegalArgumentException("null parameters"); //$NON-NLS-1$
@@ -154,7 +149,6 @@ public class LoadSeries extends ExplorerTask<Boolean, String> implements SeriesI
         this.progressBar = progressBar;
         this.writeInCache = writeInCache;
         this.dicomSeries.setSeriesLoader(this);
-        this.concurrentDownloads = concurrentDownloads;
         this.urlParams = new URLParameters(getHttpTags((WadoParameters) dicomSeries.getTagValue(TagW.WadoParameters)));
         this.startDownloading = startDownloading;
     }
@@ -338,9 +332,7 @@ public class LoadSeries extends ExplorerTask<Boolean, String> implements SeriesI
 
         List<SopInstance> sopList = seriesInstanceList.getSortedList();
 
-        ExecutorService imageDownloader =
-            ThreadUtil.buildNewFixedThreadExecutor(concurrentDownloads, "Image Downloader"); //$NON-NLS-1$
-        ArrayList<Callable<Boolean>> tasks = new ArrayList<>(sopList.size());
+        ArrayList<DownloadScheduler.Task> tasks = new ArrayList<>(sopList.size());
         int[] dindex = generateDownladOrder(sopList.size());
         GuiExecutor.instance().execute(() -> {
             progressBar.setMaximum(sopList.size());
@@ -365,6 +357,19 @@ public class LoadSeries extends ExplorerTask<Boolean, String> implements SeriesI
                 continue;
             }
 
+            // Load the instance already downloaded (possibly in a previous session) without any request
+            String journalKey = getJournalKey(instance);
+            File journalFile = DownloadJournal.getInstance().getCompletedFile(journalKey);
+            if (journalFile != null) {
+                LOGGER.debug("DICOM instance {} found in the download journal.", instance.getSopInstanceUID()); //$NON-NLS-1$
+                try {
+                    new Download(journalFile.toURI().toString(), instance.getSopInstanceUID(), journalKey, true).call();
+                } catch (Exception e) {
+                    LOGGER.error("Loading from the download journal", e); //$NON-NLS-1$
+                }
+                continue;
+            }
+
             String studyUID = ""; //$NON-NLS-1$
             String seriesUID = ""; //$NON-NLS-1$
             if (!wado.isRequireOnlySOPInstanceUID()) {
@@ -399,21 +404,54 @@ public class LoadSeries extends ExplorerTask<Boolean, String> implements SeriesI
             String url = request.toString();
 
             LOGGER.debug("Download DICOM instance {} index {}.", url, k); //$NON-NLS-1$
-            Download ref = new Download(url);
-            tasks.add(ref);
+            Download ref = new Download(url, instance.getSopInstanceUID(), journalKey, false);
+            tasks.add(new DownloadScheduler.Task(dindex[k], instance.getSopInstanceUID(), ref));
         }
 
         try {
             dicomSeries.setTag(DOWNLOAD_START_TIME, System.currentTimeMillis());
-            imageDownloader.invokeAll(tasks);
+            // The instances of all the series are downloaded through the global scheduler
+            DownloadScheduler.getInstance().downloadSeries(this, tasks);
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
         }
-
-        imageDownloader.shutdown();
         return true;
     }
 
+    /**
+     * @return the key of the instance in the download journal, according to the transfer syntax and the quality of the
+     *         request
+     */
+    private String getJournalKey(SopInstance instance) {
+        String tsuid = null;
+        Integer quality = null;
+        WadoParameters wadoParams = (WadoParameters) dicomSeries.getTagValue(TagW.WadoParameters);
+        if (wadoParams != null && wadoParams.isWadoRS()) {
+            Map<String, String> headers = urlParams.getHeaders();
+            tsuid = headers == null ? null : getAcceptedTransferSyntax(headers.get("Accept")); //$NON-NLS-1$
+        } else if (instance.getDirectDownloadFile() == null) {
+            tsuid = (String) dicomSeries.getTagValue(TagW.WadoTransferSyntaxUID);
+            quality = (Integer) dicomSeries.getTagValue(TagW.WadoCompressionRate);
+        }
+        return DownloadJournal.getKey(instance.getSopInstanceUID(), tsuid, quality);
+    }
+
+    static String getAcceptedTransferSyntax(String accept) {
+        String param = "transfer-syntax="; //$NON-NLS-1$
+        int start = accept == null ? -1 : accept.indexOf(param);
+        if (start < 0) {
+            return null;
+        }
+        start += param.length();
+        int end = start;
+        while (end < accept.length() && accept.charAt(end) != ';' && accept.charAt(end) != ',') {
+            end++;
+        }
+        String tsuid = accept.substring(start, end).replace("\"", "").trim(); //$NON-NLS-1$ //$NON-NLS-2$
+        // "*" means the syntax of the stored instance
+        return "*".equals(tsuid) ? null : tsuid; //$NON-NLS-1$
+    }
+
     private static Map<String, String> getHttpTags(WadoParameters wadoParams) {
         boolean hasBundleTags = !BundleTools.SESSION_TAGS_FILE.isEmpty();
         boolean hasWadoTags = wadoParams != null && wadoParams.getHttpTaglist() != null;
@@ -624,10 +662,17 @@ public class LoadSeries extends ExplorerTask<Boolean, String> implements SeriesI
     class Download implements Callable<Boolean> {
 
         private final String url; // download URL
-        private Status status; // current status of download
+        private final String sopInstanceUID;
+        private final String journalKey; // key of the instance in the download journal
+        private final boolean fromJournal; // the file is already in the download journal
+        private volatile Status status; // current status of download
+        private volatile long transferredBytes;
 
-        public Download(String url) {
+        public Download(String url, String sopInstanceUID, String journalKey, boolean fromJournal) {
             this.url = url;
+            this.sopInstanceUID = sopInstanceUID;
+            this.journalKey = journalKey;
+            this.fromJournal = fromJournal;
             this.status = Status.DOWNLOADING;
         }
 
@@ -647,6 +692,14 @@ public class LoadSeries extends ExplorerTask<Boolean, String> implements SeriesI
             status = Status.ERROR;
         }
 
+        public boolean hasFailed() {
+            return status == Status.ERROR;
+        }
+
+        public long getTransferredBytes() {
+            return transferredBytes;
+        }
+
         private ClosableURLConnection replaceToDefaultTSUID() throws IOException {
             StringBuilder buffer = new StringBuilder();
             int start = url.indexOf("&transferSyntax="); //$NON-NLS-1$
@@ -699,12 +752,13 @@ public class LoadSeries extends ExplorerTask<Boolean, String> implements SeriesI
          */
         private boolean process() throws IOException, URISyntaxException {
             boolean cache = true;
+            boolean journalized = false;
             File tempFile = null;
             DicomMediaIO dicomReader = null;
             ClosableURLConnection urlcon = NetworkUtil.getUrlConnection(new URL(url), urlParams);
             try (InputStream stream = urlcon.getInputStream()) {
 
-                if (!writeInCache && url.startsWith("file:")) { //$NON-NLS-1$
+                if ((fromJournal || !writeInCache) && url.startsWith("file:")) { //$NON-NLS-1$
                     cache = false;
                 }
                 if (cache) {
@@ -726,9 +780,19 @@ public class LoadSeries extends ExplorerTask<Boolean, String> implements SeriesI
                             return false;
                         }
 
-                        File renameFile = new File(DicomMediaIO.DICOM_EXPORT_DIR, tempFile.getName());
-                        if (tempFile.renameTo(renameFile)) {
-                            tempFile = renameFile;
+                        transferredBytes = tempFile.length();
+                        File journalFile = DownloadJournal.getInstance().getInstanceFile(journalKey);
+                        if (journalFile != null) {
+                            FileUtil.delete(journalFile);
+                            journalized = tempFile.renameTo(journalFile);
+                        }
+                        if (journalized) {
+                            tempFile = journalFile;
+                        } else {
+                            File renameFile = new File(DicomMediaIO.DICOM_EXPORT_DIR, tempFile.getName());
+                            if (tempFile.renameTo(renameFile)) {
+                                tempFile = renameFile;
+                            }
                         }
                     } else {
                         tempFile = new File(NetworkUtil.getURI(url));
@@ -761,7 +825,11 @@ public class LoadSeries extends ExplorerTask<Boolean, String> implements SeriesI
             if (status == Status.DOWNLOADING) {
                 status = Status.COMPLETE;
                 if (tempFile != null && dicomSeries != null && dicomReader.isReadableDicom()) {
-                    if (cache) {
+                    if (journalized) {
+                        // The file is kept by the journal and must not be deleted with the cache
+                        DownloadJournal.getInstance().addCompleted(
+                            TagD.getTagValue(dicomSeries, Tag.SeriesInstanceUID, String.class), journalKey, tempFile);
+                    } else if (cache) {
                         dicomReader.getFileCache().setOriginalTempFile(tempFile);
                     }
                     final DicomMediaIO reader = dicomReader;
@@ -1028,8 +1096,8 @@ public class LoadSeries extends ExplorerTask<Boolean, String> implements SeriesI
     }
 
     public LoadSeries cancelAndReplace(LoadSeries s) {
-        LoadSeries taskResume = new LoadSeries(s.getDicomSeries(), dicomModel, s.getProgressBar(),
-            s.getConcurrentDownloads(), s.writeInCache, s.startDownloading);
+        LoadSeries taskResume =
+            new LoadSeries(s.getDicomSeries(), dicomModel, s.getProgressBar(), s.writeInCache, s.startDownloading);
         s.cancel();
         taskResume.setPriority(s.getPriority());
         Thumbnail thumbnail = (Thumbnail) s.getDicomSeries().getTagValue(TagW.Thumbnail);
@@ -1043,8 +1111,4 @@ public class LoadSeries extends ExplorerTask<Boolean, String> implements SeriesI
         return taskResume;
     }
 
-    public int getConcurrentDownloads() {
-        return concurrentDownloads;
-    }
-
 }
@@ -0,0 +1,139 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2020 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.weasis.dicom.explorer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.dcm4che3.data.Attributes;
+import org.dcm4che3.data.Tag;
+import org.dcm4che3.data.UID;
+import org.dcm4che3.data.VR;
+import org.dcm4che3.io.DicomOutputStream;
+import org.dcm4che3.net.Status;
+import org.dcm4che3.util.UIDUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.weasis.dicom.param.AdvancedParams;
+import org.weasis.dicom.param.DicomNode;
+import org.weasis.dicom.param.DicomState;
+import org.weasis.dicom.param.ListenerParams;
+import org.weasis.dicom.tool.DicomListener;
+
+public class DicomSendEngineTest {
+    private static final String SCP_AET = "STORESCP"; //$NON-NLS-1$
+    private static final int NB_FILES = 6;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File storageDir;
+    private DicomListener listener;
+    private DicomNode scpNode;
+
+    @Before
+    public void setUp() throws Exception {
+        storageDir = folder.newFolder("scp"); //$NON-NLS-1$
+        scpNode = new DicomNode(SCP_AET, "localhost", getFreePort()); //$NON-NLS-1$
+        // In-process storage SCP accepting all the SOP classes
+        listener = new DicomListener(storageDir);
+        listener.start(scpNode, new ListenerParams(new AdvancedParams(), true));
+    }
+
+    @After
+    public void tearDown() {
+        listener.stop();
+    }
+
+    @Test
+    public void testSendOnParallelAssociations() throws Exception {
+        List<File> files = buildFiles(NB_FILES);
+        AtomicInteger stored = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        DicomSendEngine engine = new DicomSendEngine(3, 0, (file, lastFailed, processed, total) -> {
+            if (lastFailed) {
+                failed.incrementAndGet();
+            } else {
+                stored.incrementAndGet();
+            }
+        });
+
+        DicomState state = engine.cstore(new AdvancedParams(), new DicomNode("WEASIS_AE"), scpNode, files); //$NON-NLS-1$
+
+        assertThat(state).isNotNull();
+        assertThat(state.getStatus()).isEqualTo(Status.Success);
+        assertThat(stored.get()).isEqualTo(NB_FILES);
+        assertThat(failed.get()).isZero();
+        assertThat(getStoredFiles()).hasSize(NB_FILES);
+    }
+
+    @Test
+    public void testFailureIsReported() throws Exception {
+        List<File> files = buildFiles(2);
+        DicomNode closedNode = new DicomNode(SCP_AET, "localhost", getFreePort()); //$NON-NLS-1$
+        DicomSendEngine engine = new DicomSendEngine(2, 1, null);
+
+        DicomState state = engine.cstore(new AdvancedParams(), new DicomNode("WEASIS_AE"), closedNode, files); //$NON-NLS-1$
+
+        assertThat(state).isNotNull();
+        assertThat(state.getStatus()).isNotEqualTo(Status.Success);
+        assertThat(getStoredFiles()).isEmpty();
+    }
+
+    private List<File> buildFiles(int nb) throws IOException {
+        File dir = folder.newFolder();
+        String studyUID = UIDUtils.createUID();
+        String seriesUID = UIDUtils.createUID();
+        List<File> files = new ArrayList<>(nb);
+        for (int i = 1; i <= nb; i++) {
+            String iuid = UIDUtils.createUID();
+            Attributes attrs = new Attributes();
+            attrs.setString(Tag.SOPClassUID, VR.UI, UID.SecondaryCaptureImageStorage);
+            attrs.setString(Tag.SOPInstanceUID, VR.UI, iuid);
+            attrs.setString(Tag.StudyInstanceUID, VR.UI, studyUID);
+            attrs.setString(Tag.SeriesInstanceUID, VR.UI, seriesUID);
+            attrs.setInt(Tag.InstanceNumber, VR.IS, i);
+            attrs.setString(Tag.Modality, VR.CS, "OT"); //$NON-NLS-1$
+            File file = new File(dir, iuid);
+            try (DicomOutputStream out = new DicomOutputStream(file)) {
+                out.writeDataset(attrs.createFileMetaInformation(UID.ExplicitVRLittleEndian), attrs);
+            }
+            files.add(file);
+        }
+        return files;
+    }
+
+    private List<Path> getStoredFiles() throws IOException {
+        try (Stream<Path> stream = Files.walk(storageDir.toPath())) {
+            // The files being received are written in a tmp folder
+            return stream.filter(Files::isRegularFile).filter(p -> !p.getParent().endsWith("tmp")) //$NON-NLS-1$
+                .collect(Collectors.toList());
+        }
+    }
+
+    private static int getFreePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
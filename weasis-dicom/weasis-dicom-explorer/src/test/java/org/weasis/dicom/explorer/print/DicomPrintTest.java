@@ -0,0 +1,286 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2020 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.weasis.dicom.explorer.print;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.JPanel;
+
+import org.assertj.core.api.Assertions;
+import org.dcm4che3.data.Attributes;
+import org.dcm4che3.data.Tag;
+import org.dcm4che3.data.UID;
+import org.dcm4che3.data.VR;
+import org.dcm4che3.net.ApplicationEntity;
+import org.dcm4che3.net.Association;
+import org.dcm4che3.net.Commands;
+import org.dcm4che3.net.Connection;
+import org.dcm4che3.net.Device;
+import org.dcm4che3.net.Dimse;
+import org.dcm4che3.net.Status;
+import org.dcm4che3.net.TransferCapability;
+import org.dcm4che3.net.pdu.PresentationContext;
+import org.dcm4che3.net.service.AbstractDicomService;
+import org.dcm4che3.net.service.DicomServiceRegistry;
+import org.dcm4che3.util.UIDUtils;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Scalar;
+import org.powermock.api.mockito.PowerMockito;
+import org.weasis.core.api.gui.util.ActionW;
+import org.weasis.core.api.image.AffineTransformOp;
+import org.weasis.core.api.image.GridBagLayoutModel;
+import org.weasis.core.api.image.OpManager;
+import org.weasis.core.api.image.SimpleOpManager;
+import org.weasis.core.api.image.util.ImageLayer;
+import org.weasis.core.api.media.data.ImageElement;
+import org.weasis.core.api.media.data.MediaReader;
+import org.weasis.core.ui.editor.image.ExportImage;
+import org.weasis.core.ui.editor.image.ImageViewerEventManager;
+import org.weasis.core.ui.editor.image.ViewCanvas;
+import org.weasis.core.ui.model.layer.imp.RenderedImageLayer;
+import org.weasis.core.ui.model.utils.imp.DefaultViewModel;
+import org.weasis.core.ui.util.ExportLayout;
+import org.weasis.dicom.explorer.pref.node.DicomPrintNode;
+import org.weasis.opencv.data.ImageCV;
+import org.weasis.opencv.data.PlanarImage;
+
+public class DicomPrintTest {
+    private static final String SCP_AET = "PRINTSCP"; //$NON-NLS-1$
+
+    private final List<Dimse> requests = new CopyOnWriteArrayList<>();
+    private final List<Attributes> imageBoxes = new CopyOnWriteArrayList<>();
+
+    private Device device;
+    private ExecutorService executor;
+    private ScheduledExecutorService scheduledExecutor;
+    private int port;
+
+    @Before
+    public void setUp() throws Exception {
+        port = getFreePort();
+        // In-process stub of a Basic Grayscale Print Management SCP
+        device = new Device("printscp"); //$NON-NLS-1$
+        Connection conn = new Connection(null, "localhost", port); //$NON-NLS-1$
+        ApplicationEntity ae = new ApplicationEntity(SCP_AET);
+        ae.setAssociationAcceptor(true);
+        ae.addConnection(conn);
+        ae.addTransferCapability(new TransferCapability(null, UID.BasicGrayscalePrintManagementMetaSOPClass,
+            TransferCapability.Role.SCP, UID.ImplicitVRLittleEndian));
+        device.addConnection(conn);
+        device.addApplicationEntity(ae);
+
+        DicomServiceRegistry registry = new DicomServiceRegistry();
+        registry.addDicomService(new PrintService());
+        device.setDimseRQHandler(registry);
+
+        executor = Executors.newCachedThreadPool();
+        scheduledExecutor = Executors.newSingleThreadScheduledExecutor();
+        device.setExecutor(executor);
+        device.setScheduledExecutor(scheduledExecutor);
+        device.bindConnections();
+    }
+
+    @After
+    public void tearDown() {
+        device.unbindConnections();
+        executor.shutdown();
+        scheduledExecutor.shutdown();
+    }
+
+    @Test
+    public void testPrintFilmBox() throws Exception {
+        DicomPrintNode node = new DicomPrintNode("stub", SCP_AET, "localhost", port); //$NON-NLS-1$ //$NON-NLS-2$
+        DicomPrintOptions options = node.getPrintOptions();
+        DicomPrint dicomPrint = new DicomPrint(node, options);
+        ExportLayout<ImageElement> layout =
+            new ExportLayout<>(new GridBagLayoutModel("1x1", "1x1", 1, 1, "none")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+        // Rendered and sent by the print executor of the dialog
+        DicomPrintDialog.print(dicomPrint, layout, null).get(30, TimeUnit.SECONDS);
+
+        assertThat(requests).containsExactly(Dimse.N_CREATE_RQ, Dimse.N_CREATE_RQ, Dimse.N_SET_RQ, Dimse.N_ACTION_RQ,
+            Dimse.N_DELETE_RQ, Dimse.N_DELETE_RQ);
+        assertThat(imageBoxes).hasSize(1);
+        Attributes image = imageBoxes.get(0).getNestedDataset(Tag.BasicGrayscaleImageSequence);
+        assertThat(image).isNotNull();
+        int width = options.getFilmSizeId().getWidth(options.getDpi());
+        int height = options.getFilmSizeId().getHeight(options.getDpi());
+        assertThat(image.getInt(Tag.Columns, 0)).isEqualTo(width);
+        assertThat(image.getInt(Tag.Rows, 0)).isEqualTo(height);
+        assertThat(image.getString(Tag.PhotometricInterpretation)).isEqualTo("MONOCHROME2"); //$NON-NLS-1$
+        assertThat(image.getBytes(Tag.PixelData)).hasSize(width * height);
+    }
+
+    @Test
+    public void testPrintImageCell() throws Exception {
+        Assume.assumeTrue("OpenCV native library not available", isOpenCVAvailable()); //$NON-NLS-1$
+
+        DicomPrintNode node = new DicomPrintNode("stub", SCP_AET, "localhost", port); //$NON-NLS-1$ //$NON-NLS-2$
+        DicomPrintOptions options = node.getPrintOptions();
+        DicomPrint dicomPrint = new DicomPrint(node, options);
+        ExportLayout<ImageElement> layout = new ExportLayout<>(mockView(new SyntheticImage(64, 200)));
+        ExportImage<?> cell = (ExportImage<?>) layout.getLayoutModel().getConstraints().values().iterator().next();
+
+        DicomPrintDialog.print(dicomPrint, layout, null).get(30, TimeUnit.SECONDS);
+
+        // The display operations disabled while formatting the cell are enabled again to render it once
+        RenderedImageLayer<?> imageLayer = cell.getImageLayer();
+        assertThat(imageLayer.isEnableDispOperations()).isTrue();
+        PlanarImage display = imageLayer.getDisplayImage();
+        assertThat(display).isNotNull();
+        assertThat(display.width()).isEqualTo(cell.getWidth());
+
+        assertThat(imageBoxes).hasSize(1);
+        Attributes image = imageBoxes.get(0).getNestedDataset(Tag.BasicGrayscaleImageSequence);
+        int width = image.getInt(Tag.Columns, 0);
+        int height = image.getInt(Tag.Rows, 0);
+        byte[] pixels = image.getBytes(Tag.PixelData);
+        assertThat(pixels).hasSize(width * height);
+        // The square image fills the square cell of the printable area (1x1 layout with a 5 pixels margin)
+        long side = Math.min(width, height) - 10L;
+        assertThat(countGrayLevel(pixels, 200)).isBetween(side * side * 95 / 100, (side + 2) * (side + 2));
+        int ox = (int) ((width - side) / 2);
+        assertThat(pixels[(height / 2) * width + ox] & 0xff).isCloseTo(200, Assertions.within(5));
+
+        // Printing at a lower resolution than the film reuses the display image, the display state is restored
+        BufferedImage printer = DicomPrint.createGrayBufferedImage(cell.getWidth(), cell.getHeight());
+        Graphics2D g2d = printer.createGraphics();
+        imageLayer.drawImageForPrinter(g2d, 1.0, cell);
+        g2d.dispose();
+        assertThat(imageLayer.getDisplayImage()).isSameAs(display);
+        byte[] printed = ((DataBufferByte) printer.getRaster().getDataBuffer()).getData();
+        assertThat(printed[(printer.getHeight() / 2) * printer.getWidth() + printer.getWidth() / 2] & 0xff)
+            .isCloseTo(200, Assertions.within(5));
+    }
+
+    private static long countGrayLevel(byte[] pixels, int level) {
+        long nb = 0;
+        for (byte b : pixels) {
+            if (Math.abs((b & 0xff) - level) <= 5) {
+                nb++;
+            }
+        }
+        return nb;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ViewCanvas<ImageElement> mockView(ImageElement image) {
+        // The operations of the source view copied by the export view
+        SimpleOpManager operations = new SimpleOpManager();
+        operations.addImageOperationAction(new AffineTransformOp());
+        ImageLayer<ImageElement> imageLayer = PowerMockito.mock(ImageLayer.class);
+        PowerMockito.when(imageLayer.getDisplayOpManager()).thenReturn(operations);
+
+        ViewCanvas<ImageElement> view = PowerMockito.mock(ViewCanvas.class, Mockito.RETURNS_DEEP_STUBS);
+        PowerMockito.when(view.getEventManager()).thenReturn(PowerMockito.mock(ImageViewerEventManager.class));
+        PowerMockito.when(view.getImageLayer()).thenReturn(imageLayer);
+        PowerMockito.when(view.getViewModel()).thenReturn(new DefaultViewModel());
+        PowerMockito.when(view.getJComponent()).thenReturn(new JPanel());
+        // Best fit zoom
+        PowerMockito.when(view.getActionValue(ActionW.ZOOM.cmd())).thenReturn(0.0);
+        PowerMockito.when(view.getSeries()).thenReturn(null);
+        PowerMockito.when(view.getImage()).thenReturn(image);
+        return view;
+    }
+
+    private static boolean isOpenCVAvailable() {
+        for (String name : Arrays.asList("opencv_java", Core.NATIVE_LIBRARY_NAME)) { //$NON-NLS-1$
+            try {
+                System.loadLibrary(name);
+                return true;
+            } catch (UnsatisfiedLinkError e) {
+                // Try the next name
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Square image with a uniform gray level.
+     */
+    private static class SyntheticImage extends ImageElement {
+        private final PlanarImage image;
+
+        SyntheticImage(int size, int level) {
+            super(PowerMockito.mock(MediaReader.class), 0);
+            this.image = new ImageCV(size, size, CvType.CV_8UC1, new Scalar(level));
+            this.minPixelValue = 0.0;
+            this.maxPixelValue = 255.0;
+        }
+
+        @Override
+        public synchronized PlanarImage getImage(OpManager manager, boolean findMinMax) {
+            return image;
+        }
+    }
+
+    private class PrintService extends AbstractDicomService {
+
+        PrintService() {
+            super(UID.BasicFilmSessionSOPClass, UID.BasicFilmBoxSOPClass, UID.BasicGrayscaleImageBoxSOPClass);
+        }
+
+        @Override
+        protected void onDimseRQ(Association as, PresentationContext pc, Dimse dimse, Attributes cmd,
+            Attributes data) throws IOException {
+            requests.add(dimse);
+            switch (dimse) {
+                case N_CREATE_RQ:
+                    Attributes rspData = null;
+                    if (UID.BasicFilmBoxSOPClass.equals(cmd.getString(Tag.AffectedSOPClassUID))) {
+                        Attributes ref = new Attributes();
+                        ref.setString(Tag.ReferencedSOPClassUID, VR.UI, UID.BasicGrayscaleImageBoxSOPClass);
+                        ref.setString(Tag.ReferencedSOPInstanceUID, VR.UI, UIDUtils.createUID());
+                        rspData = new Attributes();
+                        rspData.newSequence(Tag.ReferencedImageBoxSequence, 1).add(ref);
+                    }
+                    as.writeDimseRSP(pc, Commands.mkNCreateRSP(cmd, Status.Success), rspData);
+                    break;
+                case N_SET_RQ:
+                    imageBoxes.add(data);
+                    as.writeDimseRSP(pc, Commands.mkNSetRSP(cmd, Status.Success));
+                    break;
+                case N_ACTION_RQ:
+                    as.writeDimseRSP(pc, Commands.mkNActionRSP(cmd, Status.Success));
+                    break;
+                case N_DELETE_RQ:
+                    as.writeDimseRSP(pc, Commands.mkNDeleteRSP(cmd, Status.Success));
+                    break;
+                default:
+                    as.writeDimseRSP(pc, Commands.mkRSP(cmd, Status.UnrecognizedOperation, dimse));
+            }
+        }
+    }
+
+    private static int getFreePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
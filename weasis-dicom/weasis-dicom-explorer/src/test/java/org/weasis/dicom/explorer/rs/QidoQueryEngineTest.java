@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2020 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.weasis.dicom.explorer.rs;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.dcm4che3.data.Attributes;
+import org.dcm4che3.data.Tag;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class QidoQueryEngineTest {
+    private static final int NB_STUDIES = 5;
+    private static final int NB_SERIES = 3;
+
+    private HttpServer server;
+    private String baseUrl;
+    private final List<String> requests = Collections.synchronizedList(new ArrayList<>());
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0); //$NON-NLS-1$
+        server.createContext("/rs/studies", this::handleQido); //$NON-NLS-1$
+        server.createContext("/rs/empty", e -> { //$NON-NLS-1$
+            e.sendResponseHeaders(204, -1);
+            e.close();
+        });
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort() + "/rs"; //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testQueryWithPages() throws IOException {
+        QidoQueryEngine engine = new QidoQueryEngine(null, 2, 2);
+        List<String> uids = new ArrayList<>();
+        int count = engine.query(baseUrl + "/studies?includefield=0020000D", //$NON-NLS-1$
+            d -> uids.add(d.getString(Tag.StudyInstanceUID)));
+
+        assertThat(count).isEqualTo(NB_STUDIES);
+        assertThat(uids).containsExactly("1.1", "1.2", "1.3", "1.4", "1.5"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+        assertThat(requests).hasSize(3);
+        assertThat(requests.get(2)).contains("limit=2").contains("offset=4"); //$NON-NLS-1$ //$NON-NLS-2$
+        // A query in the current thread does not create the thread pool
+        assertThat(engine.hasExecutor()).isFalse();
+    }
+
+    @Test
+    public void testQueryHierarchy() throws IOException {
+        QidoQueryEngine engine = new QidoQueryEngine(null, 3, 0);
+        List<String> series = Collections.synchronizedList(new ArrayList<>());
+        engine.query(baseUrl + "/studies?includefield=0020000D", study -> engine.submit(() -> { //$NON-NLS-1$
+            String url = baseUrl + "/studies/" + study.getString(Tag.StudyInstanceUID) + "/series?includefield=all"; //$NON-NLS-1$ //$NON-NLS-2$
+            try {
+                engine.query(url, s -> series.add(s.getString(Tag.SeriesInstanceUID)));
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }));
+        engine.awaitCompletion();
+
+        assertThat(engine.hasExecutor()).isTrue();
+        assertThat(series).hasSize(NB_STUDIES * NB_SERIES).contains("1.1.1", "1.5.3"); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+    @Test
+    public void testNoContent() throws IOException {
+        QidoQueryEngine engine = new QidoQueryEngine(null, 1, 0);
+        List<Attributes> items = new ArrayList<>();
+        assertThat(engine.query(baseUrl + "/empty?includefield=all", items::add)).isZero(); //$NON-NLS-1$
+        assertThat(items).isEmpty();
+    }
+
+    private void handleQido(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String query = exchange.getRequestURI().getQuery();
+        requests.add(query);
+        Map<String, String> params = new HashMap<>();
+        for (String p : query.split("&")) { //$NON-NLS-1$
+            String[] kv = p.split("=", 2); //$NON-NLS-1$
+            params.put(kv[0], kv.length > 1 ? kv[1] : ""); //$NON-NLS-1$
+        }
+
+        List<String> datasets = new ArrayList<>();
+        if (path.endsWith("/series")) { //$NON-NLS-1$
+            String studyUID = path.split("/")[3]; //$NON-NLS-1$
+            for (int i = 1; i <= NB_SERIES; i++) {
+                datasets.add("{\"0020000E\":{\"vr\":\"UI\",\"Value\":[\"" + studyUID + "." + i + "\"]}}"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+            }
+        } else {
+            int offset = Integer.parseInt(params.getOrDefault("offset", "0")); //$NON-NLS-1$ //$NON-NLS-2$
+            int limit = Integer.parseInt(params.getOrDefault("limit", String.valueOf(NB_STUDIES))); //$NON-NLS-1$
+            for (int i = offset + 1; i <= Math.min(NB_STUDIES, offset + limit); i++) {
+                datasets.add("{\"0020000D\":{\"vr\":\"UI\",\"Value\":[\"1." + i + "\"]}}"); //$NON-NLS-1$ //$NON-NLS-2$
+            }
+        }
+        byte[] body = ("[" + String.join(",", datasets) + "]").getBytes(StandardCharsets.UTF_8); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        exchange.getResponseHeaders().add("Content-Type", "application/dicom+json"); //$NON-NLS-1$ //$NON-NLS-2$
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
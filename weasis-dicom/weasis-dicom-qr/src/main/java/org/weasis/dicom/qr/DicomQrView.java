@@ -16,6 +16,9 @@ import java.awt.FlowLayout;
 import java.awt.event.ActionListener;
 import java.io.File;
 import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.temporal.TemporalAdjusters;
@@ -82,6 +85,7 @@ import org.weasis.dicom.explorer.pref.node.AbstractDicomNode.RetrieveType;
 import org.weasis.dicom.explorer.pref.node.AbstractDicomNode.UsageType;
 import org.weasis.dicom.explorer.pref.node.DefaultDicomNode;
 import org.weasis.dicom.explorer.pref.node.DicomWebNode;
+import org.weasis.dicom.explorer.rs.QidoQueryEngine;
 import org.weasis.dicom.op.CFind;
 import org.weasis.dicom.param.AdvancedParams;
 import org.weasis.dicom.param.ConnectOptions;
@@ -478,15 +482,52 @@ public class DicomQrView extends AbstractItemDialogPage implements ImportDicom {
             final DicomState state = CFind.process(params, ((DefaultDicomNode) callingNode).getDicomNodeWithOnlyAET(),
                 node.getDicomNode(), p.toArray(new DicomParam[p.size()]));
             if (state.getStatus() == Status.Success) {
-                displayResult(state);
+                displayResult(state.getDicomRSP());
             } else {
                 LOGGER.error("Dicom cfind error: {}", state.getMessage()); //$NON-NLS-1$
                 GuiExecutor.instance().execute(() -> JOptionPane.showMessageDialog(basePanel, state.getMessage(), null,
                     JOptionPane.ERROR_MESSAGE));
             }
         } else if (selectedItem instanceof DicomWebNode) {
-            throw new IllegalAccessError("Not implemented yet"); //$NON-NLS-1$
+            DicomWebNode node = (DicomWebNode) selectedItem;
+            List<Attributes> items = new ArrayList<>();
+            try {
+                QidoQueryEngine queryEngine = new QidoQueryEngine(node.getHeaders(), 1, 0);
+                queryEngine.query(buildQidoStudyUrl(node, p), items::add);
+                displayResult(items);
+            } catch (IOException e) {
+                LOGGER.error("QIDO-RS error", e); //$NON-NLS-1$
+                GuiExecutor.instance().execute(() -> JOptionPane.showMessageDialog(basePanel, e.getMessage(), null,
+                    JOptionPane.ERROR_MESSAGE));
+            }
+        }
+    }
+
+    static String buildQidoStudyUrl(DicomWebNode node, List<DicomParam> params) {
+        String url = node.getUrl().toString();
+        StringBuilder buf = new StringBuilder(url.endsWith("/") ? url.substring(0, url.length() - 1) : url); //$NON-NLS-1$
+        buf.append("/studies"); //$NON-NLS-1$
+        char separator = '?';
+        for (DicomParam p : params) {
+            String[] values = p.getValues();
+            String tag = String.format("%08X", p.getTag()); //$NON-NLS-1$
+            buf.append(separator);
+            separator = '&';
+            if (values == null || values.length == 0 || !StringUtil.hasText(values[0])) {
+                // Return key
+                buf.append("includefield="); //$NON-NLS-1$
+                buf.append(tag);
+            } else {
+                buf.append(tag);
+                buf.append('=');
+                try {
+                    buf.append(URLEncoder.encode(String.join(",", values), StandardCharsets.UTF_8.name())); //$NON-NLS-1$
+                } catch (UnsupportedEncodingException e) {
+                    LOGGER.error("Encode query value", e); //$NON-NLS-1$
+                }
+            }
         }
+        return buf.toString();
     }
 
     private static void addReturnTags(List<DicomParam> list, DicomParam p) {
@@ -495,8 +536,7 @@ public class DicomQrView extends AbstractItemDialogPage implements ImportDicom {
         }
     }
 
-    private void displayResult(DicomState state) {
-        List<Attributes> items = state.getDicomRSP();
+    private void displayResult(List<Attributes> items) {
         if (items != null) {
             for (int i = 0; i < items.size(); i++) {
                 Attributes item = items.get(i);
@@ -585,7 +625,10 @@ public class DicomQrView extends AbstractItemDialogPage implements ImportDicom {
         comboDestinationNode.removeActionListener(destNodeListener);
         comboDestinationNode.removeAllItems();
         AbstractDicomNode.loadDicomNodes(comboDestinationNode, AbstractDicomNode.Type.DICOM, UsageType.RETRIEVE);
-        // AbstractDicomNode.loadDicomNodes(comboNode, AbstractDicomNode.Type.WEB, UsageType.RETRIEVE);
+        // DICOMweb archives (QIDO-RS and WADO-RS at the same base URL)
+        AbstractDicomNode.loadDicomNodes(AbstractDicomNode.Type.WEB, UsageType.RETRIEVE).stream()
+            .filter(n -> n instanceof DicomWebNode && ((DicomWebNode) n).getWebType() == DicomWebNode.WebType.WADORS)
+            .forEach(comboDestinationNode::addItem);
         restoreNodeSelection(comboDestinationNode.getModel(), LAST_SEL_NODE);
         String lastType = DicomQrFactory.IMPORT_PERSISTENCE.getProperty(LAST_RETRIEVE_TYPE);
         if (lastType != null) {
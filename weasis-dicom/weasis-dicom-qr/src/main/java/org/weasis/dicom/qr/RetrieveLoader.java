@@ -0,0 +1,155 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2020 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.weasis.dicom.qr;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.weasis.core.api.util.ThreadUtil;
+import org.weasis.dicom.explorer.DicomModel;
+import org.weasis.dicom.explorer.LoadLocalDicom;
+import org.weasis.dicom.param.DicomProgress;
+
+/**
+ * Loads into the model the instances received by the storage SCP while a C-GET or a C-MOVE is running, so that the
+ * thumbnails and the viewers are updated during the retrieve.
+ * <p>
+ * With C-GET, each file is loaded when the storage SCP notifies that it is stored (see
+ * {@link DicomProgress#getProcessedFile()}). With C-MOVE, the instances are received by another association, so the
+ * storage directory is scanned when a response indicates that sub-operations are completed. The storage SCP writes
+ * the files in a temporary folder and moves them once complete, so all the other files can be loaded.
+ */
+class RetrieveLoader implements Runnable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RetrieveLoader.class);
+
+    // Requests a scan of the storage directory
+    private static final File SCAN = new File(""); //$NON-NLS-1$
+
+    private final File directory;
+    private final LoadLocalDicom loader;
+    private final Set<File> loadedFiles = new HashSet<>();
+    private final BlockingQueue<File> queue = new LinkedBlockingQueue<>();
+    private volatile boolean running;
+    private Thread thread;
+
+    public RetrieveLoader(File directory, DicomModel dicomModel) {
+        this.directory = directory;
+        this.loader = new LoadLocalDicom(new File[0], false, dicomModel);
+    }
+
+    public synchronized void start() {
+        if (thread == null) {
+            running = true;
+            thread = ThreadUtil.getThreadFactory("DICOM retrieve loader").newThread(this); //$NON-NLS-1$
+            thread.start();
+        }
+    }
+
+    /**
+     * Stops the loading thread and loads all the remaining files. Does nothing if the loader has not been started.
+     */
+    public void stop() {
+        Thread t;
+        synchronized (this) {
+            t = thread;
+            thread = null;
+            running = false;
+        }
+        if (t != null) {
+            // Wake up the thread
+            queue.offer(SCAN);
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            List<File> files = new ArrayList<>();
+            queue.drainTo(files);
+            files.add(SCAN);
+            load(files);
+        }
+    }
+
+    /**
+     * Handles a response of the retrieve.
+     *
+     * @param progress
+     *            the progress of the C-GET or of the C-MOVE
+     */
+    public void progress(DicomProgress progress) {
+        File file = progress.getProcessedFile();
+        if (file == null) {
+            if (progress.getNumberOfCompletedSuboperations() > 0) {
+                queue.offer(SCAN);
+            }
+        } else if (!progress.isLastFailed()) {
+            queue.offer(file);
+        }
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            List<File> files = new ArrayList<>();
+            try {
+                files.add(queue.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            queue.drainTo(files);
+            if (running) {
+                load(files);
+            }
+        }
+    }
+
+    private synchronized void load(List<File> files) {
+        List<File> readyFiles = new ArrayList<>();
+        for (File f : files) {
+            if (f == SCAN) {
+                List<File> list = new ArrayList<>();
+                listFiles(directory, list);
+                list.stream().filter(loadedFiles::add).forEach(readyFiles::add);
+            } else if (f.isFile() && loadedFiles.add(f)) {
+                readyFiles.add(f);
+            }
+        }
+
+        if (!readyFiles.isEmpty()) {
+            LOGGER.debug("Load {} retrieved files", readyFiles.size()); //$NON-NLS-1$
+            loader.addSelectionAndnotify(readyFiles.toArray(new File[readyFiles.size()]), true);
+        }
+    }
+
+    private static void listFiles(File dir, List<File> files) {
+        File[] list = dir.listFiles();
+        if (list == null) {
+            return;
+        }
+        for (File f : list) {
+            if (f.isDirectory()) {
+                // Skip the folder where the storage SCP writes the files being received
+                if (!"tmp".equals(f.getName())) { //$NON-NLS-1$
+                    listFiles(f, files);
+                }
+            } else if (!f.getName().endsWith(".part")) { //$NON-NLS-1$
+                files.add(f);
+            }
+        }
+    }
+}
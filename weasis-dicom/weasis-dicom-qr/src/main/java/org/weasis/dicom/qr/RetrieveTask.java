@@ -16,7 +16,10 @@ import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Properties;
 import java.util.concurrent.ExecutionException;
 
 import javax.swing.JOptionPane;
@@ -34,11 +37,11 @@ import org.weasis.core.api.util.ResourceUtil;
 import org.weasis.core.api.util.StringUtil;
 import org.weasis.dicom.explorer.DicomModel;
 import org.weasis.dicom.explorer.ExplorerTask;
-import org.weasis.dicom.explorer.LoadLocalDicom;
 import org.weasis.dicom.explorer.pref.node.AbstractDicomNode;
 import org.weasis.dicom.explorer.pref.node.AbstractDicomNode.RetrieveType;
 import org.weasis.dicom.explorer.pref.node.DefaultDicomNode;
 import org.weasis.dicom.explorer.pref.node.DicomWebNode;
+import org.weasis.dicom.explorer.rs.RsQueryParams;
 import org.weasis.dicom.explorer.wado.LoadRemoteDicomManifest;
 import org.weasis.dicom.mf.ArcQuery;
 import org.weasis.dicom.mf.WadoParameters;
@@ -52,6 +55,7 @@ import org.weasis.dicom.param.DicomState;
 import org.weasis.dicom.param.ListenerParams;
 import org.weasis.dicom.qr.manisfest.CFindQueryResult;
 import org.weasis.dicom.tool.DicomListener;
+import org.weasis.dicom.web.InvokeImageDisplay;
 
 public class RetrieveTask extends ExplorerTask<ExplorerTask<Boolean, String>, String> {
     private static final Logger LOGGER = LoggerFactory.getLogger(RetrieveTask.class);
@@ -59,31 +63,44 @@ public class RetrieveTask extends ExplorerTask<ExplorerTask<Boolean, String>, St
     private final List<String> studies;
     private final DicomModel explorerDcmModel;
     private final DicomQrView dicomQrView;
+    // Display the instances as soon as they are received
+    private final RetrieveLoader retrieveLoader;
 
     public RetrieveTask(List<String> studies, DicomModel explorerDcmModel, DicomQrView dicomQrView) {
         super(AbstractDicomNode.UsageType.RETRIEVE.toString(), false);
         this.studies = studies;
         this.explorerDcmModel = explorerDcmModel;
         this.dicomQrView = dicomQrView;
+        this.retrieveLoader = new RetrieveLoader(DicomQrView.tempDir, explorerDcmModel);
     }
 
     @Override
     protected ExplorerTask<Boolean, String> doInBackground() throws Exception {
         explorerDcmModel.firePropertyChange(
             new ObservableEvent(ObservableEvent.BasicAction.LOADING_START, explorerDcmModel, null, this));
+        try {
+            return retrieve();
+        } finally {
+            // Load the remaining files, also on error or cancel
+            retrieveLoader.stop();
+        }
+    }
 
-        ExplorerTask<Boolean, String> loadingTask = null;
+    private ExplorerTask<Boolean, String> retrieve() throws Exception {
         String errorMessage = null;
         final CircularProgressBar progressBar = getBar();
         DicomProgress progress = new DicomProgress();
-        progress.addProgressListener(p -> GuiExecutor.instance().execute(() -> {
-            int c = p.getNumberOfCompletedSuboperations() + p.getNumberOfFailedSuboperations();
-            int r = p.getNumberOfRemainingSuboperations();
-            int t = c + r;
-            if (t > 0) {
-                progressBar.setValue((c * 100) / t);
-            }
-        }));
+        progress.addProgressListener(p -> {
+            retrieveLoader.progress(p);
+            GuiExecutor.instance().execute(() -> {
+                int c = p.getNumberOfCompletedSuboperations() + p.getNumberOfFailedSuboperations();
+                int r = p.getNumberOfRemainingSuboperations();
+                int t = c + r;
+                if (t > 0) {
+                    progressBar.setValue((c * 100) / t);
+                }
+            });
+        });
 
         addCancelListener(progress);
 
@@ -114,6 +131,7 @@ public class RetrieveTask extends ExplorerTask<ExplorerTask<Boolean, String>, St
                             LOGGER.error("SOP Class url conversion", e); //$NON-NLS-1$
                         }
                     }
+                    retrieveLoader.start();
                     state = CGet.process(params, callingNode.getDicomNodeWithOnlyAET(), node.getDicomNode(), progress,
                         DicomQrView.tempDir, url, dcmParams);
                 } else if (RetrieveType.CMOVE == type) {
@@ -141,9 +159,11 @@ public class RetrieveTask extends ExplorerTask<ExplorerTask<Boolean, String>, St
                     if (errorMessage != null) {
                         state = new DicomState(Status.UnableToProcess, errorMessage, null);
                     } else {
-                        state = CMove.process(params, callingNode.getDicomNode(), node.getDicomNode(),
-                            callingNode.getAeTitle(), progress, dcmParams);
-                        if (dicomListener != null) {
+                        retrieveLoader.start();
+                        try {
+                            state = CMove.process(params, callingNode.getDicomNode(), node.getDicomNode(),
+                                callingNode.getAeTitle(), progress, dcmParams);
+                        } finally {
                             dicomListener.stop();
                         }
                     }
@@ -225,13 +245,10 @@ public class RetrieveTask extends ExplorerTask<ExplorerTask<Boolean, String>, St
                     }
                     LOGGER.error("Dicom retrieve error: {}", errorMessage); //$NON-NLS-1$
                 }
-
-                loadingTask =
-                    new LoadLocalDicom(new File[] { new File(DicomQrView.tempDir.getPath()) }, false, explorerDcmModel);
             }
 
         } else if (selectedItem instanceof DicomWebNode) {
-            throw new IllegalAccessError("Not implemented yet"); //$NON-NLS-1$
+            return buildRsQueryParams((DicomWebNode) selectedItem, studies, explorerDcmModel);
         } else {
             errorMessage = Messages.getString("RetrieveTask.no_calling_node"); //$NON-NLS-1$
         }
@@ -244,7 +261,7 @@ public class RetrieveTask extends ExplorerTask<ExplorerTask<Boolean, String>, St
                 errorTitle, JOptionPane.ERROR_MESSAGE));
         }
 
-        return loadingTask;
+        return null;
     }
 
     @Override
@@ -265,6 +282,18 @@ public class RetrieveTask extends ExplorerTask<ExplorerTask<Boolean, String>, St
         }
     }
 
+    static RsQueryParams buildRsQueryParams(DicomWebNode node, List<String> studies, DicomModel model) {
+        Properties props = new Properties();
+        props.setProperty(RsQueryParams.P_DICOMWEB_URL, node.getUrl().toString());
+        // Retrieve the stored transfer syntax: the compressed pixel data is received without transcoding
+        props.setProperty(RsQueryParams.P_ACCEPT_EXT, "transfer-syntax=*"); //$NON-NLS-1$
+        Map<String, List<String>> requestMap = new HashMap<>();
+        requestMap.put(InvokeImageDisplay.STUDY_UID, new ArrayList<>(studies));
+        // The series are downloaded with multipart WADO-RS through the download scheduler and each instance is
+        // added to the model when received
+        return new RsQueryParams(model, props, requestMap, node.getHeaders(), node.getHeaders());
+    }
+
     private static String getHostname(String host) {
         if ("127.0.0.1".equals(host) || "127.0.1.1".equals(host) || "::1".equals(host)) { //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
             return "localhost"; //$NON-NLS-1$
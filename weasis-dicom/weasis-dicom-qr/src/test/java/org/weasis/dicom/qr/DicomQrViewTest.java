@@ -0,0 +1,74 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2020 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.weasis.dicom.qr;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.dcm4che3.data.Tag;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.weasis.dicom.explorer.pref.node.AbstractDicomNode.UsageType;
+import org.weasis.dicom.explorer.pref.node.DicomWebNode;
+import org.weasis.dicom.explorer.pref.node.DicomWebNode.WebType;
+import org.weasis.dicom.explorer.rs.QidoQueryEngine;
+import org.weasis.dicom.param.DicomParam;
+
+public class DicomQrViewTest {
+    private DicomWebServerMock server;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new DicomWebServerMock();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    public void testBuildQidoStudyUrl() throws IOException {
+        // The trailing slash of the node URL is removed
+        DicomWebNode node = new DicomWebNode("qido", WebType.WADORS, new URL(server.getBaseUrl() + "/"), //$NON-NLS-1$ //$NON-NLS-2$
+            UsageType.RETRIEVE);
+        List<DicomParam> params = Arrays.asList(new DicomParam(Tag.StudyInstanceUID, "1.2"), //$NON-NLS-1$
+            new DicomParam(Tag.PatientName, "DOE^J*"), new DicomParam(Tag.StudyDate), //$NON-NLS-1$
+            new DicomParam(Tag.ModalitiesInStudy, "CT", "MR")); //$NON-NLS-1$ //$NON-NLS-2$
+
+        String url = DicomQrView.buildQidoStudyUrl(node, params);
+        assertThat(url).isEqualTo(server.getBaseUrl()
+            + "/studies?0020000D=1.2&00100010=DOE%5EJ*&includefield=00080020&00080061=CT%2CMR"); //$NON-NLS-1$
+
+        // The server receives the decoded values and the return keys
+        List<String> studies = new ArrayList<>();
+        int count = new QidoQueryEngine(node.getHeaders(), 1, 0).query(url,
+            d -> studies.add(d.getString(Tag.StudyInstanceUID)));
+        assertThat(count).isEqualTo(1);
+        assertThat(studies).containsExactly("1.2"); //$NON-NLS-1$
+        assertThat(server.getQueries()).hasSize(1);
+        assertThat(server.getQueries().get(0)).contains("00100010=DOE^J*") //$NON-NLS-1$
+            .contains("includefield=00080020").contains("00080061=CT,MR"); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+    @Test
+    public void testBuildQidoStudyUrlWithoutParameter() throws IOException {
+        DicomWebNode node = new DicomWebNode("qido", WebType.WADORS, new URL(server.getBaseUrl()), //$NON-NLS-1$
+            UsageType.RETRIEVE);
+        String url = DicomQrView.buildQidoStudyUrl(node, new ArrayList<>());
+        assertThat(url).isEqualTo(server.getBaseUrl() + "/studies"); //$NON-NLS-1$
+    }
+}
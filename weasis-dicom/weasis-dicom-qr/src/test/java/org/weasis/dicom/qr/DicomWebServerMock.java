@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2020 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.weasis.dicom.qr;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Minimal QIDO-RS server: 2 studies (1.1 and 1.2), 3 series by study and 2 instances by series.
+ */
+class DicomWebServerMock {
+    static final int NB_SERIES = 3;
+    static final int NB_INSTANCES = 2;
+
+    private final HttpServer server;
+    private final List<String> queries = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> authorizations = Collections.synchronizedList(new ArrayList<>());
+
+    DicomWebServerMock() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0); //$NON-NLS-1$
+        server.createContext("/rs/studies", this::handle); //$NON-NLS-1$
+        server.start();
+    }
+
+    String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/rs"; //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+    /** @return the decoded query of each request */
+    List<String> getQueries() {
+        return queries;
+    }
+
+    List<String> getAuthorizations() {
+        return authorizations;
+    }
+
+    void stop() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String[] path = exchange.getRequestURI().getPath().split("/"); //$NON-NLS-1$
+        String query = exchange.getRequestURI().getQuery();
+        if (query == null) {
+            query = ""; //$NON-NLS-1$
+        }
+        queries.add(query);
+        authorizations.add(exchange.getRequestHeaders().getFirst("Authorization")); //$NON-NLS-1$
+        Map<String, String> params = new HashMap<>();
+        for (String p : query.split("&")) { //$NON-NLS-1$
+            String[] kv = p.split("=", 2); //$NON-NLS-1$
+            params.put(kv[0], kv.length > 1 ? kv[1] : ""); //$NON-NLS-1$
+        }
+
+        // The path is /rs/studies[/{study}/series[/{series}/instances]]
+        List<String> datasets = new ArrayList<>();
+        if (path.length == 3) {
+            String studyUID = params.get("0020000D"); //$NON-NLS-1$
+            for (int i = 1; i <= 2; i++) {
+                if (studyUID == null || studyUID.equals("1." + i)) { //$NON-NLS-1$
+                    datasets.add(item("0020000D", "UI", "1." + i) + ',' + item("00100020", "LO", "PAT" + i) //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$
+                        + ',' + item("00080061", "CS", "CT")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+                }
+            }
+        } else if (path.length == 5) {
+            for (int i = 1; i <= NB_SERIES; i++) {
+                datasets.add(item("0020000E", "UI", path[3] + "." + i) + ',' + item("00080060", "CS", "CT") //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$
+                    + ",\"00200011\":{\"vr\":\"IS\",\"Value\":[" + i + "]}"); //$NON-NLS-1$ //$NON-NLS-2$
+            }
+        } else {
+            for (int i = 1; i <= NB_INSTANCES; i++) {
+                datasets.add(item("00080018", "UI", path[5] + "." + i) //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+                    + ",\"00200013\":{\"vr\":\"IS\",\"Value\":[" + i + "]}"); //$NON-NLS-1$ //$NON-NLS-2$
+            }
+        }
+
+        StringBuilder buf = new StringBuilder("["); //$NON-NLS-1$
+        for (int i = 0; i < datasets.size(); i++) {
+            buf.append(i == 0 ? "{" : ",{"); //$NON-NLS-1$ //$NON-NLS-2$
+            buf.append(datasets.get(i));
+            buf.append('}');
+        }
+        buf.append(']');
+        byte[] body = buf.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/dicom+json"); //$NON-NLS-1$ //$NON-NLS-2$
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static String item(String tag, String vr, String value) {
+        return "\"" + tag + "\":{\"vr\":\"" + vr + "\",\"Value\":[\"" + value + "\"]}"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+    }
+}
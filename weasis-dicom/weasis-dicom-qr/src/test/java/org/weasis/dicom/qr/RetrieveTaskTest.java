@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2020 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.weasis.dicom.qr;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.dcm4che3.data.Tag;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.weasis.core.api.media.data.MediaSeriesGroupNode;
+import org.weasis.core.api.media.data.TagW;
+import org.weasis.dicom.codec.TagD;
+import org.weasis.dicom.explorer.DicomModel;
+import org.weasis.dicom.explorer.pref.node.AbstractDicomNode.UsageType;
+import org.weasis.dicom.explorer.pref.node.DicomWebNode;
+import org.weasis.dicom.explorer.pref.node.DicomWebNode.WebType;
+import org.weasis.dicom.explorer.rs.RsQueryParams;
+import org.weasis.dicom.explorer.rs.RsQueryResult;
+import org.weasis.dicom.explorer.wado.LoadSeries;
+import org.weasis.dicom.explorer.wado.SeriesInstanceList;
+import org.weasis.dicom.mf.HttpTag;
+import org.weasis.dicom.mf.SopInstance;
+import org.weasis.dicom.mf.WadoParameters;
+
+public class RetrieveTaskTest {
+    private static final String TOKEN = "Bearer 1234"; //$NON-NLS-1$
+
+    private DicomWebServerMock server;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new DicomWebServerMock();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    public void testRetrieveFromDicomWebNode() throws IOException {
+        DicomWebNode node = new DicomWebNode("rs", WebType.WADORS, new URL(server.getBaseUrl() + "/"), //$NON-NLS-1$ //$NON-NLS-2$
+            UsageType.RETRIEVE);
+        node.addHeader("Authorization", TOKEN); //$NON-NLS-1$
+        DicomModel model = new DicomModel();
+
+        RsQueryParams params = RetrieveTask.buildRsQueryParams(node, Arrays.asList("1.2"), model); //$NON-NLS-1$
+        assertThat(params.getBaseUrl()).isEqualTo(server.getBaseUrl());
+        assertThat(params.getReqStudyUIDs()).containsExactly("1.2"); //$NON-NLS-1$
+        assertThat(params.getQueryHeaders()).containsEntry("Authorization", TOKEN); //$NON-NLS-1$
+        assertThat(params.getRetrieveHeaders()).containsEntry("Authorization", TOKEN); //$NON-NLS-1$
+
+        // Build the series and the instance references as the task does before downloading
+        new RsQueryResult(params).buildFromStudyInstanceUID(params.getReqStudyUIDs(), false);
+
+        // The study, the series of the study and the instances of each series, all authorized
+        assertThat(server.getQueries()).hasSize(2 + DicomWebServerMock.NB_SERIES);
+        assertThat(server.getQueries().get(0)).startsWith("0020000D=1.2"); //$NON-NLS-1$
+        assertThat(server.getAuthorizations()).containsOnly(TOKEN);
+
+        Map<String, LoadSeries> seriesMap = params.getSeriesMap();
+        assertThat(seriesMap).containsOnlyKeys("1.2.1", "1.2.2", "1.2.3"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        for (LoadSeries loadSeries : seriesMap.values()) {
+            assertThat(loadSeries.isStartDownloading()).isFalse();
+            String seriesUID = TagD.getTagValue(loadSeries.getDicomSeries(), Tag.SeriesInstanceUID, String.class);
+            String retrieveUrl = server.getBaseUrl() + "/studies/1.2/series/" + seriesUID; //$NON-NLS-1$
+            assertThat(TagD.getTagValue(loadSeries.getDicomSeries(), Tag.RetrieveURL, String.class))
+                .isEqualTo(retrieveUrl);
+
+            SeriesInstanceList instances =
+                (SeriesInstanceList) loadSeries.getDicomSeries().getTagValue(TagW.WadoInstanceReferenceList);
+            assertThat(instances.size()).isEqualTo(DicomWebServerMock.NB_INSTANCES);
+            for (SopInstance sop : instances.getSortedList()) {
+                assertThat(sop.getDirectDownloadFile())
+                    .isEqualTo(retrieveUrl + "/instances/" + sop.getSopInstanceUID()); //$NON-NLS-1$
+            }
+
+            // Multipart WADO-RS in the stored transfer syntax
+            WadoParameters wado = (WadoParameters) loadSeries.getDicomSeries().getTagValue(TagW.WadoParameters);
+            Map<String, String> tags =
+                wado.getHttpTaglist().stream().collect(Collectors.toMap(HttpTag::getKey, HttpTag::getValue));
+            assertThat(tags).containsEntry("Authorization", TOKEN) //$NON-NLS-1$
+                .containsEntry("Accept", //$NON-NLS-1$
+                    "multipart/related;type=\"application/dicom\";transfer-syntax=*"); //$NON-NLS-1$
+        }
+
+        // The patient and the study are added to the model
+        List<String> studies = model.getChildren(MediaSeriesGroupNode.rootNode).stream()
+            .flatMap(patient -> model.getChildren(patient).stream())
+            .map(study -> TagD.getTagValue(study, Tag.StudyInstanceUID, String.class)).collect(Collectors.toList());
+        assertThat(studies).containsExactly("1.2"); //$NON-NLS-1$
+    }
+}
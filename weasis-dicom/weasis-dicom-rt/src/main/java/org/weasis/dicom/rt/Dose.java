@@ -19,6 +19,7 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.math3.util.Pair;
 import org.opencv.core.Core;
@@ -27,6 +28,7 @@ import org.opencv.core.Mat;
 import org.opencv.core.MatOfFloat;
 import org.opencv.core.MatOfInt;
 import org.opencv.core.MatOfPoint;
+import org.opencv.core.Point;
 import org.opencv.core.Scalar;
 import org.opencv.imgproc.Imgproc;
 import org.weasis.core.api.media.data.ImageElement;
@@ -43,6 +45,9 @@ import org.weasis.opencv.op.ImageConversion;
 public class Dose extends HashMap<Integer, Dvh> {
     private static final long serialVersionUID = -1659662753587452881L;
 
+    private static final int MASK_SHIFT = 8;
+    private static final int MAX_INTERPOLATED_PLANES = 64;
+
     private String sopInstanceUid;
     private double[] imagePositionPatient;
     private String comment;
@@ -57,12 +62,30 @@ public class Dose extends HashMap<Integer, Dvh> {
 
     private List<MediaElement> images = new ArrayList<>();
     private Map<Integer, IsoDoseLayer> isoDoseSet = new LinkedHashMap<>();
-    private Map<String, ArrayList<Contour>> isoContourMap = new HashMap<>();
+    private final transient IsoDoseContourService isoDoseContourService = new IsoDoseContourService(this);
 
     // Dose LUTs
     private Pair<double[], double[]> doseMmLUT;
     private Pair<double[], double[]> dosePixLUT;
 
+    // Dose planes sorted by Z position
+    private transient double[] sortedPlanesZ;
+    private transient int[] sortedPlaneIndexes;
+    // Interpolated dose planes by slice position (the least recently used are removed)
+    private final transient Map<KeyDouble, Mat> interpolatedPlanes =
+        new LinkedHashMap<KeyDouble, Mat>(16, 0.75f, true) {
+            private static final long serialVersionUID = 3450463914862393417L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<KeyDouble, Mat> eldest) {
+                // Not released here as it can still be used, the native memory is freed by the Mat finalizer
+                return size() > MAX_INTERPOLATED_PLANES;
+            }
+        };
+
+    // Structure masks at the dose grid resolution (key: ROI number and slice position)
+    private final transient Map<String, Mat> structureMasks = new ConcurrentHashMap<>();
+
     public Dose() {
         // Default threshold in mm to determine the max difference from slicePosition to closest dose frame without
         // interpolation
@@ -84,6 +107,7 @@ public class Dose extends HashMap<Integer, Dvh> {
 
     public void setImagePositionPatient(double[] imagePositionPatient) {
         this.imagePositionPatient = imagePositionPatient;
+        resetDosePlaneIndex();
     }
 
     public String getComment() {
@@ -124,6 +148,7 @@ public class Dose extends HashMap<Integer, Dvh> {
 
     public void setGridFrameOffsetVector(double[] gridFrameOffsetVector) {
         this.gridFrameOffsetVector = gridFrameOffsetVector;
+        resetDosePlaneIndex();
     }
 
     public double getDoseGridScaling() {
@@ -132,6 +157,8 @@ public class Dose extends HashMap<Integer, Dvh> {
 
     public void setDoseGridScaling(double doseGridScaling) {
         this.doseGridScaling = doseGridScaling;
+        // The thresholds of the iso-dose levels depend on the scaling
+        isoDoseContourService.invalidateAll();
     }
 
     public double getDoseMax() {
@@ -154,6 +181,7 @@ public class Dose extends HashMap<Integer, Dvh> {
 
     public void setDoseSlicePositionThreshold(double doseSlicePositionThreshold) {
         this.doseSlicePositionThreshold = doseSlicePositionThreshold;
+        resetDosePlaneIndex();
     }
 
     public List<MediaElement> getImages() {
@@ -169,15 +197,12 @@ public class Dose extends HashMap<Integer, Dvh> {
     }
 
     public void setIsoDoseSet(Map<Integer, IsoDoseLayer> isoDoseSet) {
+        isoDoseContourService.invalidateAll();
         this.isoDoseSet = isoDoseSet;
     }
 
-    public Map<String, ArrayList<Contour>> getIsoContourMap() {
-        return this.isoContourMap;
-    }
-
-    public void setIsoContourMap(Map<String, ArrayList<Contour>> isoContourMap) {
-        this.isoContourMap = isoContourMap;
+    public IsoDoseContourService getIsoDoseContourService() {
+        return isoDoseContourService;
     }
 
     public Pair<double[], double[]> getDoseMmLUT() {
@@ -186,6 +211,66 @@ public class Dose extends HashMap<Integer, Dvh> {
 
     public void setDoseMmLUT(Pair<double[], double[]> lut) {
         this.doseMmLUT = lut;
+        structureMasks.values().forEach(ImageConversion::releaseMat);
+        structureMasks.clear();
+        isoDoseContourService.invalidateAll();
+    }
+
+    /**
+     * Get the mask of a structure plane at the dose grid resolution. The mask is built once and kept in cache.
+     *
+     * @param structure
+     *            the structure
+     * @param slicePosition
+     *            the position of the plane
+     * @param contours
+     *            all the contours of the structure on the plane
+     * @return the binary mask (CV_8UC1, 255 inside the structure)
+     */
+    public Mat getStructurePlaneMask(Structure structure, KeyDouble slicePosition, List<Contour> contours) {
+        String key = structure.getRoiNumber() + "_" + slicePosition.getKey(); //$NON-NLS-1$
+        return structureMasks.computeIfAbsent(key, k -> rasterizeContours(doseMmLUT, contours));
+    }
+
+    /**
+     * Fill all the contours in one call. The polygons are filled with the even-odd rule, so an inner contour makes a
+     * hole and a contour inside a hole is filled again.
+     *
+     * @param doseMmLUT
+     *            the pixel to mm lookup table of the dose grid
+     * @param contours
+     *            the contours of one plane
+     * @return the binary mask (CV_8UC1, 255 inside the contours)
+     */
+    public static Mat rasterizeContours(Pair<double[], double[]> doseMmLUT, List<Contour> contours) {
+        double[] x = doseMmLUT.getFirst();
+        double[] y = doseMmLUT.getSecond();
+        Mat mask = Mat.zeros(y.length, x.length, CvType.CV_8UC1);
+
+        // The LUT is linear, get the origin (center of the first pixel) and the spacing
+        double dx = x.length > 1 ? x[1] - x[0] : 1.0;
+        double dy = y.length > 1 ? y[1] - y[0] : 1.0;
+        // Sub-pixel precision of the polygon vertices
+        double scale = 1 << MASK_SHIFT;
+
+        List<MatOfPoint> polygons = new ArrayList<>(contours.size());
+        for (Contour contour : contours) {
+            double[] pts = contour.getPoints();
+            if (pts == null || pts.length < 9) {
+                continue;
+            }
+            Point[] vertices = new Point[pts.length / 3];
+            for (int i = 0; i < vertices.length; i++) {
+                vertices[i] = new Point(Math.round((pts[i * 3] - x[0]) / dx * scale),
+                    Math.round((pts[i * 3 + 1] - y[0]) / dy * scale));
+            }
+            polygons.add(new MatOfPoint(vertices));
+        }
+        if (!polygons.isEmpty()) {
+            Imgproc.fillPoly(mask, polygons, new Scalar(255), Imgproc.LINE_8, MASK_SHIFT, new Point());
+        }
+        polygons.forEach(ImageConversion::releaseMat);
+        return mask;
     }
 
     public Pair<double[], double[]> getDosePixLUT() {
@@ -196,80 +281,129 @@ public class Dose extends HashMap<Integer, Dvh> {
         this.dosePixLUT = lut;
     }
 
+    /**
+     * @return the dose plane at the slice position, or null when there is no plane close enough (see
+     *         {@link #getDosePlaneMatBySlice(double)} for the interpolated planes)
+     */
     public MediaElement getDosePlaneBySlice(double slicePosition) {
-        MediaElement dosePlane = null;
-
-        // If dose contains a multi-frame dose pixel array
-        if (this.gridFrameOffsetVector.length > 0) {
-
-            // Initial dose grid position Z (in patient coordinates)
-            double imagePatientPositionZ = this.imagePositionPatient[2];
+        PlaneLocation location = locateDosePlane(slicePosition);
+        if (location != null && location.isExact()) {
+            return this.images.get(location.lower);
+        }
+        return null;
+    }
+
+    /**
+     * Get the raw dose values of the plane at the slice position. Between two dose planes, the values are linearly
+     * interpolated and kept in cache.
+     *
+     * @param slicePosition
+     *            the Z position in patient coordinates
+     * @return the dose plane matrix (must not be released), or null when the position is outside the dose grid
+     */
+    public Mat getDosePlaneMatBySlice(double slicePosition) {
+        PlaneLocation location = locateDosePlane(slicePosition);
+        if (location == null) {
+            return null;
+        }
+        if (location.isExact()) {
+            return ((DicomImageElement) this.images.get(location.lower)).getImage().toMat();
+        }
 
-            // Add initial image patient position Z to the offset vector to determine the Z coordinate of each dose
-            // plane
-            double[] dosePlanesZ = new double[this.gridFrameOffsetVector.length];
-            for (int i = 0; i < dosePlanesZ.length; i++) {
-                dosePlanesZ[i] = this.gridFrameOffsetVector[i] + imagePatientPositionZ;
+        KeyDouble key = new KeyDouble(slicePosition);
+        synchronized (interpolatedPlanes) {
+            Mat plane = interpolatedPlanes.get(key);
+            if (plane != null) {
+                return plane;
             }
+        }
+        Mat plane = interpolateDosePlanes(location.upper, location.lower, location.fraction);
+        synchronized (interpolatedPlanes) {
+            Mat previous = interpolatedPlanes.putIfAbsent(key, plane);
+            if (previous != null) {
+                ImageConversion.releaseMat(plane);
+                return previous;
+            }
+        }
+        return plane;
+    }
 
-            // Check whether the requested plane is within the dose grid boundaries
-            if (Arrays.stream(dosePlanesZ).min().getAsDouble() <= slicePosition
-                && slicePosition <= Arrays.stream(dosePlanesZ).max().getAsDouble()) {
-
-                // Calculate the absolute distance vector between dose planes and requested slice position
-                double[] absoluteDistance = new double[dosePlanesZ.length];
-                for (int i = 0; i < absoluteDistance.length; i++) {
-                    absoluteDistance[i] = Math.abs(dosePlanesZ[i] - slicePosition);
-                }
-
-                // Check to see if the requested plane exists in the array (or is close enough)
-                int doseSlicePosition = -1;
-                double minDistance = Arrays.stream(absoluteDistance).min().getAsDouble();
-                if (minDistance < this.doseSlicePositionThreshold) {
-                    doseSlicePosition = firstIndexOf(absoluteDistance, minDistance, 0.001);
-                }
-
-                // Dose slice position found return the plane
-                if (doseSlicePosition != -1) {
-                    dosePlane = this.images.get(doseSlicePosition);
-                }
-                // There is no dose plane for such slice position, so interpolate between planes
-                else {
+    private PlaneLocation locateDosePlane(double slicePosition) {
+        // If dose contains a multi-frame dose pixel array
+        if (this.gridFrameOffsetVector == null || this.gridFrameOffsetVector.length == 0) {
+            return null;
+        }
+        double[] planesZ;
+        int[] planeIndexes;
+        synchronized (this) {
+            if (sortedPlanesZ == null) {
+                buildDosePlaneIndex();
+            }
+            planesZ = sortedPlanesZ;
+            planeIndexes = sortedPlaneIndexes;
+        }
 
-                    // First minimum distance - upper boundary
-                    int upperBoundaryIndex = firstIndexOf(absoluteDistance, minDistance, 0.001);
+        // Check whether the requested plane is within the dose grid boundaries
+        if (slicePosition < planesZ[0] || slicePosition > planesZ[planesZ.length - 1]) {
+            return null;
+        }
 
-                    // Prepare modified absolute distance vector to find the second minimum
-                    double[] modifiedAbsoluteDistance = Arrays.copyOf(absoluteDistance, absoluteDistance.length);
-                    modifiedAbsoluteDistance[upperBoundaryIndex] = Arrays.stream(absoluteDistance).max().getAsDouble();
+        int index = Arrays.binarySearch(planesZ, slicePosition);
+        if (index >= 0) {
+            return new PlaneLocation(planeIndexes[index], planeIndexes[index], 0.0);
+        }
+        int upper = -index - 1;
+        int lower = upper - 1;
+        // Check to see if the requested plane is close enough
+        int nearest = slicePosition - planesZ[lower] <= planesZ[upper] - slicePosition ? lower : upper;
+        if (Math.abs(planesZ[nearest] - slicePosition) < this.doseSlicePositionThreshold) {
+            return new PlaneLocation(planeIndexes[nearest], planeIndexes[nearest], 0.0);
+        }
 
-                    // Second minimum distance - lower boundary
-                    minDistance = Arrays.stream(modifiedAbsoluteDistance).min().getAsDouble();
-                    int lowerBoundaryIndex = firstIndexOf(modifiedAbsoluteDistance, minDistance, 0.001);
+        // Fractional distance of dose plane between upper and lower boundary (from bottom to top)
+        // E.g. if = 1, the plane is at the upper plane, = 0, it is at the lower plane.
+        double fraction = (slicePosition - planesZ[lower]) / (planesZ[upper] - planesZ[lower]);
+        return new PlaneLocation(planeIndexes[lower], planeIndexes[upper], fraction);
+    }
 
-                    // Fractional distance of dose plane between upper and lower boundary (from bottom to top)
-                    // E.g. if = 1, the plane is at the upper plane, = 0, it is at the lower plane.
-                    double fractionalDistance = (slicePosition - dosePlanesZ[lowerBoundaryIndex])
-                        / (dosePlanesZ[upperBoundaryIndex] - dosePlanesZ[lowerBoundaryIndex]);
+    private void buildDosePlaneIndex() {
+        // Initial dose grid position Z (in patient coordinates) added to the offset vector to determine the Z
+        // coordinate of each dose plane
+        double imagePatientPositionZ = this.imagePositionPatient[2];
+        Integer[] order = new Integer[this.gridFrameOffsetVector.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(gridFrameOffsetVector[a], gridFrameOffsetVector[b]));
 
-                    dosePlane = this.interpolateDosePlanes(upperBoundaryIndex, lowerBoundaryIndex, fractionalDistance);
-                }
-            }
+        double[] planesZ = new double[order.length];
+        int[] planeIndexes = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            planeIndexes[i] = order[i];
+            planesZ[i] = this.gridFrameOffsetVector[order[i]] + imagePatientPositionZ;
         }
+        this.sortedPlaneIndexes = planeIndexes;
+        this.sortedPlanesZ = planesZ;
+    }
 
-        return dosePlane;
+    private synchronized void resetDosePlaneIndex() {
+        this.sortedPlanesZ = null;
+        this.sortedPlaneIndexes = null;
+        synchronized (interpolatedPlanes) {
+            interpolatedPlanes.clear();
+        }
     }
 
     public Mat getMaskedDosePlaneHist(double slicePosition, Mat mask, int maxDose) {
 
-        DicomImageElement dosePlane = (DicomImageElement) this.getDosePlaneBySlice(slicePosition);
+        Mat dosePlane = this.getDosePlaneMatBySlice(slicePosition);
 
-        int rows = dosePlane.getImage().toMat().rows();
-        int cols = dosePlane.getImage().toMat().cols();
+        int rows = dosePlane.rows();
+        int cols = dosePlane.cols();
 
         // Calculate dose matrix for OpenCV
         Mat src = new Mat(rows, cols, CvType.CV_32FC1);
-        dosePlane.getImage().toMat().convertTo(src, CvType.CV_32FC1);
+        dosePlane.convertTo(src, CvType.CV_32FC1);
         Scalar scalar = new Scalar(this.doseGridScaling * 100);
         Mat doseMatrix = new Mat(rows, cols, CvType.CV_32FC1);
         multiply(src, scalar, doseMatrix);
@@ -302,15 +436,15 @@ public class Dose extends HashMap<Integer, Dvh> {
         // Convert from threshold in cCy to raw pixel value threshold
         double rawThreshold = (isoDoseThreshold / 100) / this.doseGridScaling;
 
-        DicomImageElement dosePlane = (DicomImageElement) this.getDosePlaneBySlice(slicePosition.getValue());
+        Mat dosePlane = this.getDosePlaneMatBySlice(slicePosition.getValue());
 
-        int rows = dosePlane.getImage().toMat().rows();
-        int cols = dosePlane.getImage().toMat().cols();
+        int rows = dosePlane.rows();
+        int cols = dosePlane.cols();
 
         Mat src = new Mat(rows, cols, CvType.CV_32FC1);
         Mat thr = new Mat(rows, cols, CvType.CV_32FC1);
 
-        dosePlane.getImage().toMat().convertTo(src, CvType.CV_32FC1);
+        dosePlane.convertTo(src, CvType.CV_32FC1);
 
         Mat hierarchy = new Mat();
 
@@ -343,30 +477,30 @@ public class Dose extends HashMap<Integer, Dvh> {
         this.dosePixLUT = new Pair<>(x, y);
     }
 
-    private MediaElement interpolateDosePlanes(int upperBoundaryIndex, int lowerBoundaryIndex,
-        double fractionalDistance) {
-        MediaElement dosePlane = null;
-
+    private Mat interpolateDosePlanes(int upperBoundaryIndex, int lowerBoundaryIndex, double fractionalDistance) {
         DicomImageElement upperPlane = (DicomImageElement) this.images.get(upperBoundaryIndex);
         DicomImageElement lowerPlane = (DicomImageElement) this.images.get(lowerBoundaryIndex);
 
         // A simple linear interpolation (lerp)
         Mat dosePlaneMat = new Mat();
         addWeighted(lowerPlane.getImage().toMat(), 1.0 - fractionalDistance, upperPlane.getImage().toMat(),
-            fractionalDistance, 0.0, dosePlaneMat);
+            fractionalDistance, 0.0, dosePlaneMat, CvType.CV_32F);
+        return dosePlaneMat;
+    }
 
-        // TODO: dosePlaneMat should be an image for new dosePlane MediaElement
+    private static class PlaneLocation {
+        private final int lower;
+        private final int upper;
+        private final double fraction;
 
-        return dosePlane;
-    }
+        PlaneLocation(int lower, int upper, double fraction) {
+            this.lower = lower;
+            this.upper = upper;
+            this.fraction = fraction;
+        }
 
-    private static int firstIndexOf(double[] array, double valueToFind, double tolerance) {
-        for (int i = 0; i < array.length; i++) {
-            if (Math.abs(array[i] - valueToFind) < tolerance) {
-                return i;
-            }
+        boolean isExact() {
+            return lower == upper;
         }
-        return -1;
     }
-
 }
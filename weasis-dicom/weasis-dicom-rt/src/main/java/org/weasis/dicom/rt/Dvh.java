@@ -142,6 +142,28 @@ public class Dvh {
         }
     }
 
+    /**
+     * Return the minimal dose in cGy received by the given percentage of ROI volume, e.g. D95
+     */
+    public double getDoseAtVolumeCGy(double volumePercent) {
+        if (this.doseUnit.equals("GY")) {
+            return this.calculateDoseAtVolume(volumePercent) * 100;
+        } else {
+            return this.calculateDoseAtVolume(volumePercent);
+        }
+    }
+
+    /**
+     * Return the percentage of ROI volume receiving at least the given dose in cGy, e.g. V100% with the prescribed dose
+     */
+    public double getRelativeVolumeAtDoseCGy(double doseCGy) {
+        if (this.doseUnit.equals("GY")) {
+            return this.calculateRelativeVolumeAtDose(doseCGy / 100);
+        } else {
+            return this.calculateRelativeVolumeAtDose(doseCGy);
+        }
+    }
+
     public double getDvhMeanDose() {
         if (this.dvhMeanDose < 0) {
             this.dvhMeanDose = this.calculateDvhMean();
@@ -280,6 +302,58 @@ public class Dvh {
         return totalDose / this.dvhData[0];
     }
 
+    /**
+     * Return the minimal dose received by the given percentage of ROI volume, e.g. D95 (derived from cumulative DVH)
+     *
+     * @param volumePercent
+     *            the percentage of ROI volume
+     * @return the dose (each bin is 1 cGy)
+     */
+    public double calculateDoseAtVolume(double volumePercent) {
+        if (this.dvhData == null || this.dvhData.length == 0 || this.dvhData[0] <= 0.0) {
+            return 0.0;
+        }
+        double volume = this.dvhData[0] * volumePercent / 100.0;
+
+        // The cumulative DVH is decreasing, find the last bin receiving at least the volume
+        int low = 0;
+        int high = this.dvhData.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (this.dvhData[mid] >= volume) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Return the ROI volume receiving at least the given dose, e.g. V20Gy (derived from cumulative DVH)
+     *
+     * @param dose
+     *            the dose (each bin is 1 cGy)
+     * @return the volume in the DVH volume unit
+     */
+    public double calculateVolumeAtDose(double dose) {
+        if (this.dvhData == null || this.dvhData.length == 0 || dose < 0) {
+            return 0.0;
+        }
+        int bin = (int) Math.ceil(dose);
+        return bin < this.dvhData.length ? this.dvhData[bin] : 0.0;
+    }
+
+    /**
+     * Return the percentage of ROI volume receiving at least the given dose (derived from cumulative DVH)
+     */
+    public double calculateRelativeVolumeAtDose(double dose) {
+        if (this.dvhData == null || this.dvhData.length == 0 || this.dvhData[0] <= 0.0) {
+            return 0.0;
+        }
+        return 100.0 * calculateVolumeAtDose(dose) / this.dvhData[0];
+    }
+
     /**
      * Return dDVH from this DVH array (dDVH is the negative "slope" of the cDVH)
      * 
@@ -0,0 +1,162 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2020 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.weasis.dicom.rt;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.weasis.dicom.codec.DicomImageElement;
+import org.weasis.opencv.op.ImageConversion;
+
+/**
+ * Calculates the DVHs of several structures in one pass over the dose grid. Each dose plane is read and converted to
+ * cGy only once, then the histograms of all the structures intersecting the plane are accumulated. The planes are
+ * processed in parallel.
+ * <p>
+ * Each bin of the histograms represents 1 cGy and the volume is given in cm^3.
+ */
+public class DvhEngine {
+
+    private final Dose dose;
+    private final int nbBins;
+    private final double pixelArea;
+
+    public DvhEngine(Dose dose) {
+        this.dose = dose;
+        this.nbBins = Math.max(1, (int) (dose.getDoseMax() * dose.getDoseGridScaling() * 100));
+        DicomImageElement doseImage = (DicomImageElement) dose.getImages().get(0);
+        double[] spacing = doseImage.getSliceGeometry().getVoxelSpacingArray();
+        this.pixelArea = spacing[0] * spacing[1];
+    }
+
+    /**
+     * @param structures
+     *            the structures to calculate
+     * @return the cumulative DVHs by ROI number
+     */
+    public Map<Integer, Dvh> calculate(Collection<Structure> structures) {
+        // Differential histograms in mm^3
+        Map<Integer, double[]> histograms = new HashMap<>();
+        // Structures by plane position
+        Map<KeyDouble, List<Structure>> planes = new TreeMap<>();
+        for (Structure structure : structures) {
+            if (structure.getPlanes() == null || histograms.containsKey(structure.getRoiNumber())) {
+                continue;
+            }
+            histograms.put(structure.getRoiNumber(), new double[nbBins]);
+            for (KeyDouble z : structure.getPlanes().keySet()) {
+                planes.computeIfAbsent(z, k -> new ArrayList<>()).add(structure);
+            }
+        }
+
+        planes.entrySet().parallelStream()
+            .forEach(e -> accumulatePlane(e.getKey(), e.getValue(), histograms));
+
+        Map<Integer, Dvh> dvhs = new HashMap<>();
+        for (Structure structure : structures) {
+            double[] difHistogram = histograms.get(structure.getRoiNumber());
+            if (difHistogram != null && !dvhs.containsKey(structure.getRoiNumber())) {
+                dvhs.put(structure.getRoiNumber(), buildDvh(structure, difHistogram));
+            }
+        }
+        return dvhs;
+    }
+
+    private void accumulatePlane(KeyDouble z, List<Structure> structures, Map<Integer, double[]> histograms) {
+        Mat raw = dose.getDosePlaneMatBySlice(z.getValue());
+        if (raw == null) {
+            return;
+        }
+
+        // Dose plane in cGy (one conversion for all the structures)
+        Mat doseMatrix = new Mat();
+        raw.convertTo(doseMatrix, CvType.CV_32FC1, dose.getDoseGridScaling() * 100);
+        float[] doseValues = new float[(int) doseMatrix.total()];
+        doseMatrix.get(0, 0, doseValues);
+        ImageConversion.releaseMat(doseMatrix);
+
+        byte[] maskValues = new byte[doseValues.length];
+        long[] counts = new long[nbBins];
+        for (Structure structure : structures) {
+            Mat mask = dose.getStructurePlaneMask(structure, z, structure.getPlanes().get(z));
+            if (mask.total() != doseValues.length) {
+                continue;
+            }
+            mask.get(0, 0, maskValues);
+            int[] range = countBins(doseValues, maskValues, counts);
+
+            double voxelVolume = pixelArea * structure.getThickness();
+            double[] histogram = histograms.get(structure.getRoiNumber());
+            synchronized (histogram) {
+                for (int i = range[0]; i <= range[1]; i++) {
+                    histogram[i] += counts[i] * voxelVolume;
+                    counts[i] = 0;
+                }
+            }
+        }
+    }
+
+    /**
+     * Count the masked dose values by bin of 1 cGy. The negative doses are counted in the first bin and the doses above
+     * the maximum in the last bin.
+     *
+     * @return the first and the last bin filled (the first is greater than the last when the mask is empty)
+     */
+    static int[] countBins(float[] doseValues, byte[] maskValues, long[] counts) {
+        int nbBins = counts.length;
+        int minBin = nbBins;
+        int maxBin = -1;
+        for (int i = 0; i < doseValues.length; i++) {
+            if (maskValues[i] != 0) {
+                int bin = Math.min(nbBins - 1, Math.max(0, (int) doseValues[i]));
+                counts[bin]++;
+                minBin = Math.min(minBin, bin);
+                maxBin = Math.max(maxBin, bin);
+            }
+        }
+        return new int[] { minBin, maxBin };
+    }
+
+    private static Dvh buildDvh(Structure structure, double[] difHistogram) {
+        Dvh dvh = new Dvh();
+        dvh.setReferencedRoiNumber(structure.getRoiNumber());
+        dvh.setDvhSource(DataSource.CALCULATED);
+        dvh.setType("CUMULATIVE"); //$NON-NLS-1$
+        dvh.setDoseUnit("CGY"); //$NON-NLS-1$
+        dvh.setDvhVolumeUnit("CM3"); //$NON-NLS-1$
+        dvh.setDvhDoseScaling(1.0);
+
+        double[] cumHistogram = convertDifferentialToCumulativeDvh(difHistogram);
+        dvh.setDvhData(cumHistogram);
+        dvh.setDvhNumberOfBins(cumHistogram.length);
+        return dvh;
+    }
+
+    /**
+     * Convert a differential histogram in mm^3 to a cumulative histogram in cm^3 with a single suffix sum: each bin
+     * contains the volume receiving at least the dose of the bin.
+     */
+    public static double[] convertDifferentialToCumulativeDvh(double[] difHistogram) {
+        int size = difHistogram.length;
+        double[] cumDvh = new double[size];
+        double sum = 0.0;
+        for (int i = size - 1; i >= 0; i--) {
+            sum += difHistogram[i] / 1000;
+            cumDvh[i] = sum;
+        }
+        return cumDvh;
+    }
+}
@@ -0,0 +1,249 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2020 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.weasis.dicom.rt;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+
+import org.apache.commons.math3.util.Pair;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.Point;
+import org.opencv.imgproc.Imgproc;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.weasis.core.api.util.ThreadUtil;
+import org.weasis.opencv.op.ImageConversion;
+
+/**
+ * Computes the iso-dose contours of a dose on demand. The contours of the displayed slice are computed when requested
+ * and the neighbouring slices are prefetched in background. The results are kept in cache by iso-dose level and by
+ * slice position, so changing a level only invalidates the contours of this level.
+ */
+public class IsoDoseContourService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(IsoDoseContourService.class);
+
+    private static final int PREFETCH_SLICES = 3;
+    private static final ExecutorService PREFETCH_EXECUTOR = ThreadUtil.buildNewFixedThreadExecutor(
+        Math.max(1, Runtime.getRuntime().availableProcessors() / 2), "IsoDose contours"); //$NON-NLS-1$
+
+    private final Dose dose;
+    // Contours by iso-dose level and by slice position
+    private final Map<Integer, Map<KeyDouble, List<Contour>>> cache = new ConcurrentHashMap<>();
+    private final Set<KeyDouble> prefetchingSlices = ConcurrentHashMap.newKeySet();
+    private volatile List<KeyDouble> slicePositions = Collections.emptyList();
+
+    public IsoDoseContourService(Dose dose) {
+        this.dose = dose;
+    }
+
+    /**
+     * Set the positions of the image slices, used for prefetching the neighbouring slices.
+     */
+    public void setSlicePositions(Collection<KeyDouble> positions) {
+        this.slicePositions = Collections.unmodifiableList(new ArrayList<>(new TreeSet<>(positions)));
+    }
+
+    /**
+     * Get the contours of all the iso-dose levels for a slice. The missing levels are computed in the current thread
+     * and the neighbouring slices are prefetched.
+     *
+     * @param slicePosition
+     *            the position of the image slice
+     * @return the contours ordered like the iso-dose set
+     */
+    public List<Contour> getContours(KeyDouble slicePosition) {
+        List<Contour> contours = getSliceContours(slicePosition);
+        prefetchNeighbours(slicePosition);
+        return contours;
+    }
+
+    /**
+     * Remove from the cache the contours of an iso-dose level, they will be computed again when displayed. The
+     * contours of this level being computed are discarded.
+     */
+    public void invalidate(int level) {
+        Map<KeyDouble, List<Contour>> planes = cache.remove(level);
+        if (planes == null) {
+            clearPlanes(level);
+        } else {
+            // Wait for a computation storing its result
+            synchronized (planes) {
+                clearPlanes(level);
+            }
+        }
+    }
+
+    private void clearPlanes(int level) {
+        IsoDoseLayer layer = dose.getIsoDoseSet().get(level);
+        if (layer != null && layer.getIsoDose().getPlanes() != null) {
+            layer.getIsoDose().getPlanes().clear();
+        }
+    }
+
+    public void invalidateAll() {
+        for (Integer level : new ArrayList<>(cache.keySet())) {
+            invalidate(level);
+        }
+    }
+
+    private List<Contour> getSliceContours(KeyDouble z) {
+        Collection<IsoDoseLayer> layers = dose.getIsoDoseSet().values();
+        List<IsoDoseLayer> missingLayers = new ArrayList<>();
+        for (IsoDoseLayer layer : layers) {
+            Map<KeyDouble, List<Contour>> planes = cache.get(layer.getIsoDose().getLevel());
+            if (planes == null || !planes.containsKey(z)) {
+                missingLayers.add(layer);
+            }
+        }
+        if (!missingLayers.isEmpty()) {
+            computeContours(z, missingLayers);
+        }
+
+        List<Contour> contours = new ArrayList<>();
+        for (IsoDoseLayer layer : layers) {
+            Map<KeyDouble, List<Contour>> planes = cache.get(layer.getIsoDose().getLevel());
+            List<Contour> list = planes == null ? null : planes.get(z);
+            if (list != null) {
+                contours.addAll(list);
+            }
+        }
+        return contours;
+    }
+
+    private void prefetchNeighbours(KeyDouble z) {
+        List<KeyDouble> positions = slicePositions;
+        int index = Collections.binarySearch(positions, z);
+        if (index < 0) {
+            return;
+        }
+        for (int i = 1; i <= PREFETCH_SLICES; i++) {
+            prefetch(positions, index + i);
+            prefetch(positions, index - i);
+        }
+    }
+
+    private void prefetch(List<KeyDouble> positions, int index) {
+        if (index < 0 || index >= positions.size()) {
+            return;
+        }
+        KeyDouble z = positions.get(index);
+        if (isComputed(z) || !prefetchingSlices.add(z)) {
+            return;
+        }
+        PREFETCH_EXECUTOR.execute(() -> {
+            try {
+                getSliceContours(z);
+            } catch (Exception e) {
+                LOGGER.error("Prefetching iso-dose contours", e); //$NON-NLS-1$
+            } finally {
+                prefetchingSlices.remove(z);
+            }
+        });
+    }
+
+    private boolean isComputed(KeyDouble z) {
+        for (IsoDoseLayer layer : dose.getIsoDoseSet().values()) {
+            Map<KeyDouble, List<Contour>> planes = cache.get(layer.getIsoDose().getLevel());
+            if (planes == null || !planes.containsKey(z)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void computeContours(KeyDouble z, List<IsoDoseLayer> layers) {
+        // The cache map of a level is replaced when the level is invalidated, it identifies the generation of the
+        // contours
+        List<Map<KeyDouble, List<Contour>>> generations = new ArrayList<>(layers.size());
+        for (IsoDoseLayer layer : layers) {
+            generations.add(cache.computeIfAbsent(layer.getIsoDose().getLevel(), k -> new ConcurrentHashMap<>()));
+        }
+
+        Mat dosePlane = dose.getDosePlaneMatBySlice(z.getValue());
+        Mat src = null;
+        if (dosePlane != null) {
+            // Convert the dose plane once for all the levels
+            src = new Mat();
+            dosePlane.convertTo(src, CvType.CV_32FC1);
+        }
+
+        try {
+            for (int i = 0; i < layers.size(); i++) {
+                IsoDoseLayer layer = layers.get(i);
+                IsoDose isoDose = layer.getIsoDose();
+                List<Contour> contours = src == null ? Collections.emptyList() : buildContours(src, z, layer);
+                Map<KeyDouble, List<Contour>> planes = generations.get(i);
+                synchronized (planes) {
+                    // Discard the contours of a level invalidated during the computation
+                    if (cache.get(isoDose.getLevel()) != planes) {
+                        continue;
+                    }
+                    // Keep the first result when computed concurrently
+                    if (planes.putIfAbsent(z, contours) == null && !contours.isEmpty()
+                        && isoDose.getPlanes() != null) {
+                        isoDose.getPlanes().put(z, contours);
+                    }
+                }
+            }
+        } finally {
+            ImageConversion.releaseMat(src);
+        }
+    }
+
+    private List<Contour> buildContours(Mat doseSrc, KeyDouble z, IsoDoseLayer layer) {
+        // Convert from threshold in cCy to raw pixel value threshold
+        double rawThreshold = (layer.getIsoDose().getAbsoluteDose() / 100) / dose.getDoseGridScaling();
+
+        Mat thr = new Mat();
+        Imgproc.threshold(doseSrc, thr, rawThreshold, 255, Imgproc.THRESH_BINARY);
+        Mat thrSrc = new Mat();
+        thr.convertTo(thrSrc, CvType.CV_8U);
+        ImageConversion.releaseMat(thr);
+
+        List<MatOfPoint> isoContours = new ArrayList<>();
+        Mat hierarchy = new Mat();
+        Imgproc.findContours(thrSrc, isoContours, hierarchy, Imgproc.RETR_TREE, Imgproc.CHAIN_APPROX_SIMPLE);
+        ImageConversion.releaseMat(thrSrc);
+        ImageConversion.releaseMat(hierarchy);
+
+        Pair<double[], double[]> lut = dose.getDoseMmLUT();
+        List<Contour> contours = new ArrayList<>(isoContours.size());
+        for (MatOfPoint contour : isoContours) {
+            Contour isoContour = new Contour(layer);
+
+            // Populate point coordinates
+            Point[] points = contour.toArray();
+            double[] newContour = new double[points.length * 3];
+            int k = 0;
+            for (Point point : points) {
+                newContour[k] = lut.getFirst()[(int) point.x];
+                newContour[k + 1] = lut.getSecond()[(int) point.y];
+                newContour[k + 2] = z.getValue();
+                k += 3;
+            }
+            ImageConversion.releaseMat(contour);
+
+            isoContour.setPoints(newContour);
+            isoContour.setContourPoints(newContour.length);
+            isoContour.setGeometricType("CLOSED_PLANAR"); //$NON-NLS-1$
+            contours.add(isoContour);
+        }
+        return contours;
+    }
+}
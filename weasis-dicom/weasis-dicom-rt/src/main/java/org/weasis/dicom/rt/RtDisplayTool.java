@@ -59,6 +59,7 @@ import org.weasis.core.ui.model.GraphicModel;
 import org.weasis.core.ui.model.graphic.Graphic;
 import org.weasis.core.ui.model.imp.XmlGraphicModel;
 import org.weasis.core.ui.model.layer.LayerType;
+import org.weasis.core.ui.serialize.XmlSerializer;
 import org.weasis.dicom.codec.DicomImageElement;
 import org.weasis.dicom.codec.DicomSeries;
 import org.weasis.dicom.codec.TagD;
@@ -536,13 +537,14 @@ public class RtDisplayTool extends PluginTool implements SeriesViewerListener {
                 // List of detected plans from RtSet
                 Plan plan = rt.getFirstPlan();
                 Dose dose = null;
-                if (plan != null) {
+                // The iso-dose contours are looked up by slice position, only for the images of the RT set
+                if (plan != null && rt.containsImage(imageUID)) {
                     dose = plan.getFirstDose();
                 }
 
                 // Any RT layer is available
                 if (contours != null || dose != null) {
-                    GraphicModel modelList = (GraphicModel) dicom.getTagValue(TagW.PresentationModel);
+                    GraphicModel modelList = XmlSerializer.getPresentationModel(dicom);
                     // After getting a new image iterator, update the measurements
                     if (modelList == null) {
                         modelList = new XmlGraphicModel(dicom);
@@ -584,8 +586,10 @@ public class RtDisplayTool extends PluginTool implements SeriesViewerListener {
                     // Iso dose contour layer
                     if (dose != null) {
 
-                        List<Contour> isoContours = dose.getIsoContourMap().get(imageUID);
-                        if (isoContours != null) {
+                        // Computed on demand for the displayed slice
+                        KeyDouble z = new KeyDouble(((DicomImageElement) dicom).getSliceGeometry().getTLHC().getZ());
+                        List<Contour> isoContours = dose.getIsoDoseContourService().getContours(z);
+                        if (!isoContours.isEmpty()) {
                             // Check which iso contours should be rendered
                             for (int i = isoContours.size() - 1; i >= 0; i--) {
                                 Contour isoContour = isoContours.get(i);
@@ -902,6 +906,10 @@ public class RtDisplayTool extends PluginTool implements SeriesViewerListener {
                     .calculateRelativeDose(structureDvh.getDvhMaximumDoseCGy(), structureDvh.getPlan().getRxDose())));
                 buf.append(String.format(structureDvh.getDvhSource().toString() + " Mean Dose: %.3f %%<br>",
                     RtSet.calculateRelativeDose(structureDvh.getDvhMeanDoseCGy(), structureDvh.getPlan().getRxDose())));
+                buf.append(String.format(structureDvh.getDvhSource().toString() + " D95: %.3f %%<br>", RtSet
+                    .calculateRelativeDose(structureDvh.getDoseAtVolumeCGy(95), structureDvh.getPlan().getRxDose())));
+                buf.append(String.format(structureDvh.getDvhSource().toString() + " V100: %.3f %%<br>",
+                    structureDvh.getRelativeVolumeAtDoseCGy(structureDvh.getPlan().getRxDose())));
             }
             buf.append("</html>");
 
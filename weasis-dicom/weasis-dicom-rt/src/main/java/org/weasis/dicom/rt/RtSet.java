@@ -9,39 +9,32 @@
  *******************************************************************************/
 package org.weasis.dicom.rt;
 
-import static org.opencv.core.Core.add;
-import static org.opencv.core.Core.multiply;
-
 import java.awt.Color;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 import java.util.stream.DoubleStream;
 
 import org.apache.commons.math3.analysis.interpolation.LinearInterpolator;
 import org.apache.commons.math3.analysis.polynomials.PolynomialSplineFunction;
-import org.apache.commons.math3.linear.MatrixUtils;
-import org.apache.commons.math3.linear.RealMatrix;
 import org.apache.commons.math3.util.Pair;
 import org.dcm4che3.data.Attributes;
 import org.dcm4che3.data.Sequence;
 import org.dcm4che3.data.Tag;
 import org.dcm4che3.data.UID;
-import org.opencv.core.CvType;
-import org.opencv.core.Mat;
-import org.opencv.core.MatOfPoint;
-import org.opencv.core.MatOfPoint2f;
-import org.opencv.core.Point;
-import org.opencv.core.Scalar;
-import org.opencv.imgproc.Imgproc;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.weasis.core.api.gui.util.MathUtil;
@@ -66,6 +59,7 @@ public class RtSet {
     private final Map<RtSpecialElement, StructureSet> structures = new HashMap<>();
     private final Map<RtSpecialElement, Plan> plans = new HashMap<>();
     private final List<MediaElement> images = new ArrayList<>();
+    private final Set<String> imageUIDs = new HashSet<>();
     private final Map<String, ArrayList<Contour>> contourMap = new HashMap<>();
     private final String frameOfReferenceUID;
 
@@ -132,6 +126,8 @@ public class RtSet {
                 for (Dose dose : plan.getDoses()) {
                     dose.setDoseMmLUT(this.calculatePixelLookupTable((DicomImageElement) dose.getImages().get(0)));
                     dose.initialiseDoseGridToImageGrid(this.patientImage);
+                    // The contours computed with the previous grid are no longer valid
+                    dose.getIsoDoseContourService().invalidateAll();
                 }
 
                 this.initIsoDoses(plan);
@@ -139,19 +135,29 @@ public class RtSet {
                 // Re-init DVHs
                 for (Dose dose : plan.getDoses()) {
                     if (dose.getDoseMax() > 0) {
+                        Collection<StructureLayer> structureLayers =
+                            this.getStructureSet(this.getFirstStructure()).values();
+
+                        // Re-calculate DVH if it does not exists or if it is provided and force recalculation is
+                        // setup. All the structures are calculated in one pass over the dose grid.
+                        List<Structure> dvhStructures = structureLayers.stream().map(StructureLayer::getStructure)
+                            .filter(s -> {
+                                Dvh d = dose.get(s.getRoiNumber());
+                                return d == null
+                                    || (d.getDvhSource().equals(DataSource.PROVIDED) && this.forceRecalculateDvh);
+                            }).collect(Collectors.toList());
+                        Map<Integer, Dvh> calculatedDvhs = new DvhEngine(dose).calculate(dvhStructures);
 
                         // For all ROIs
-                        for (StructureLayer structureLayer : this.getStructureSet(this.getFirstStructure()).values()) {
+                        for (StructureLayer structureLayer : structureLayers) {
                             Structure structure = structureLayer.getStructure();
 
                             // If DVH exists for the structure and setting always recalculate is false
                             Dvh structureDvh = dose.get(structure.getRoiNumber());
 
-                            // Re-calculate DVH if it does not exists or if it is provided and force recalculation is
-                            // setup
-                            if (structureDvh == null || (structureDvh.getDvhSource().equals(DataSource.PROVIDED)
-                                && this.forceRecalculateDvh)) {
-                                structureDvh = this.initCalculatedDvh(structure, dose);
+                            Dvh calculatedDvh = calculatedDvhs.get(structure.getRoiNumber());
+                            if (calculatedDvh != null) {
+                                structureDvh = calculatedDvh;
                                 dose.put(structure.getRoiNumber(), structureDvh);
                             }
                             // Otherwise read provided DVH
@@ -673,71 +679,21 @@ public class RtSet {
                     // dose.getIsoDoseSet().put(2, new IsoDoseLayer(new IsoDose(2, new Color(0, 0, 111,
                     // isoFillTransparency), "", plan.getRxDose())));
 
-                    // Go through whole imaging grid (CT)
+                    // The iso-dose contours are computed on demand for the displayed slice of the imaging grid (CT)
+                    List<KeyDouble> slicePositions = new ArrayList<>(this.images.size());
                     for (MediaElement me : this.images) {
-
-                        // Image slice UID and position
                         DicomImageElement image = (DicomImageElement) me;
-                        String uidKey = TagD.getTagValue(me, Tag.SOPInstanceUID, String.class);
-                        KeyDouble z = new KeyDouble(image.getSliceGeometry().getTLHC().getZ());
-
-                        for (IsoDoseLayer isoDoseLayer : dose.getIsoDoseSet().values()) {
-                            double isoDoseThreshold = isoDoseLayer.getIsoDose().getAbsoluteDose();
-
-                            List<MatOfPoint> isoContours = dose.getIsoDoseContourPoints(z, isoDoseThreshold);
-
-                            // Create empty hash map of planes for IsoDose layer if there is none
-                            if (isoDoseLayer.getIsoDose().getPlanes() == null) {
-                                isoDoseLayer.getIsoDose().setPlanes(new HashMap<>());
-                            }
-
-                            for (int j = 0; j < isoContours.size(); j++) {
-
-                                // Create a new IsoDose contour plane for Z or select existing one
-                                // it will hold list of contours for that plane
-                                isoDoseLayer.getIsoDose().getPlanes().computeIfAbsent(z, k -> new ArrayList<>());
-
-                                // For each iso contour create a new contour
-                                MatOfPoint contour = isoContours.get(j);
-                                Contour isoContour = new Contour(isoDoseLayer);
-
-                                // Populate point coordinates
-                                double[] newContour = new double[contour.toArray().length * 3];
-                                int k = 0;
-
-                                for (Point point : contour.toList()) {
-                                    double[] coordinates = new double[2];
-
-                                    coordinates[0] = dose.getDoseMmLUT().getFirst()[(int) point.x];
-                                    coordinates[1] = dose.getDoseMmLUT().getSecond()[(int) point.y];
-
-                                    newContour[k] = coordinates[0];
-                                    newContour[k + 1] = coordinates[1];
-                                    newContour[k + 2] = z.getValue();
-                                    k += 3;
-                                }
-
-                                isoContour.setPoints(newContour);
-                                isoContour.setContourPoints(newContour.length);
-                                isoContour.setGeometricType("CLOSED_PLANAR");
-
-                                // For lookup from GUI use specific image UID
-                                if (StringUtil.hasText(uidKey)) {
-                                    ArrayList<Contour> pls =
-                                        dose.getIsoContourMap().computeIfAbsent(uidKey, l -> new ArrayList<>());
-                                    pls.add(isoContour);
-                                }
-
-                                // Assign
-                                isoDoseLayer.getIsoDose().getPlanes().get(z).add(isoContour);
-                            }
-                        }
+                        slicePositions.add(new KeyDouble(image.getSliceGeometry().getTLHC().getZ()));
                     }
+                    IsoDoseContourService contourService = dose.getIsoDoseContourService();
+                    contourService.setSlicePositions(slicePositions);
+                    // Remove the contours of the previous levels
+                    contourService.invalidateAll();
 
-                    // When finished creation of iso contours plane data calculate the plane thickness
+                    double thickness = calculatePlaneThickness(slicePositions);
                     for (IsoDoseLayer isoDoseLayer : dose.getIsoDoseSet().values()) {
-                        isoDoseLayer.getIsoDose()
-                            .setThickness(calculatePlaneThickness(isoDoseLayer.getIsoDose().getPlanes()));
+                        isoDoseLayer.getIsoDose().setPlanes(new ConcurrentHashMap<>());
+                        isoDoseLayer.getIsoDose().setThickness(thickness);
                     }
                 }
             }
@@ -746,6 +702,16 @@ public class RtSet {
 
     private void initImage(MediaElement rtElement) {
         images.add(rtElement);
+        imageUIDs.add(TagD.getTagValue(rtElement, Tag.SOPInstanceUID, String.class));
+    }
+
+    /**
+     * @param sopInstanceUID
+     *            the SOPInstanceUID of an image
+     * @return true when the image belongs to the imaging grid of this RT set
+     */
+    public boolean containsImage(String sopInstanceUID) {
+        return imageUIDs.contains(sopInstanceUID);
     }
 
     public StructureSet getStructureSet(RtSpecialElement rt) {
@@ -825,9 +791,12 @@ public class RtSet {
      * @return structure plane thickness
      */
     private static double calculatePlaneThickness(Map<KeyDouble, List<Contour>> planesMap) {
+        return calculatePlaneThickness(planesMap.keySet());
+    }
+
+    private static double calculatePlaneThickness(Collection<KeyDouble> positions) {
         // Sort the list of z coordinates
-        List<KeyDouble> planes = new ArrayList<>();
-        planes.addAll(planesMap.keySet());
+        List<KeyDouble> planes = new ArrayList<>(positions);
         Collections.sort(planes);
 
         // Set maximum thickness as initial value
@@ -876,109 +845,7 @@ public class RtSet {
     }
 
     public Dvh initCalculatedDvh(Structure structure, Dose dose) {
-        Dvh dvh = new Dvh();
-        dvh.setReferencedRoiNumber(structure.getRoiNumber());
-        dvh.setDvhSource(DataSource.CALCULATED);
-        dvh.setType("CUMULATIVE");
-        dvh.setDoseUnit("CGY");
-        dvh.setDvhVolumeUnit("CM3");
-        dvh.setDvhDoseScaling(1.0);
-
-        // Calculate differential DVH
-        Mat difHistogram = calculateDifferentialDvh(structure, dose);
-
-        // Convert differential DVH to cumulative DVH
-        double[] cumHistogram = convertDifferentialToCumulativeDvh(difHistogram);
-        dvh.setDvhData(cumHistogram);
-        dvh.setDvhNumberOfBins(cumHistogram.length);
-
-        return dvh;
-    }
-
-    private Mat calculateDifferentialDvh(Structure structure, Dose dose) {
-
-        DicomImageElement doseImage = (DicomImageElement) dose.getImages().get(0);
-        double[] doseImageSpacing = doseImage.getSliceGeometry().getVoxelSpacingArray();
-        double maxDose = dose.getDoseMax() * dose.getDoseGridScaling() * 100;
-
-        double volume = 0f;
-
-        // Prepare empty histogram (vector of bins in cGy) for structure
-        Mat histogram = new Mat((int) maxDose, 1, CvType.CV_32FC1);
-        if (structure.getPlanes() != null && !structure.getPlanes().isEmpty()) {
-            // Each bin in histogram represents 1 cGy
-            for (int i = 0; i < histogram.rows(); i++) {
-                histogram.put(i, 0, 0.0);
-            }
-        }
-
-        // Go through all structure plane slices
-        for (Map.Entry<KeyDouble, List<Contour>> entry : structure.getPlanes().entrySet()) {
-            KeyDouble z = entry.getKey();
-
-            // Calculate the area for each contour in the current plane
-            Pair<Integer, Double> maxContour = structure.calculateLargestContour(entry.getValue());
-            int maxContourIndex = maxContour.getFirst();
-
-            // If dose plane does not exist for z, continue with next plane
-            MediaElement dosePlane = dose.getDosePlaneBySlice(z.getValue());
-            if (dosePlane == null) {
-                continue;
-            }
-
-            // Calculate histogram for each contour on the plane
-            for (int c = 0; c < entry.getValue().size(); c++) {
-
-                Contour contour = entry.getValue().get(c);
-
-                Mat contourMask = calculateContourMask(dose.getDoseMmLUT(), contour);
-                Mat hist = dose.getMaskedDosePlaneHist(z.getValue(), contourMask, (int) maxDose);
-
-                double vol = 0;
-                for (int i = 0; i < hist.rows(); i++) {
-                    vol += hist.get(i, 0)[0] * (doseImageSpacing[0] * doseImageSpacing[1] * structure.getThickness());
-                }
-
-                // If this is a largest contour
-                if (c == maxContourIndex) {
-                    volume += vol;
-                    add(histogram, hist, histogram);
-                }
-                // TODO: Otherwise add or subtract depending on contour location
-                else {
-
-                }
-            }
-        }
-
-        // Volume units are given in cm^3
-        volume /= 1000;
-
-        // Rescale the histogram to reflect the total volume
-        double sumHistogram = 0.0;
-        for (int i = 0; i < histogram.rows(); i++) {
-            sumHistogram += histogram.get(i, 0)[0];
-        }
-        Scalar scalar = new Scalar(volume / (sumHistogram == 0.0 ? 1.0 : sumHistogram));
-        multiply(histogram, scalar, histogram);
-
-        // TODO: Remove the zero bins from the end of histogram
-
-        return histogram;
-    }
-
-    private double[] convertDifferentialToCumulativeDvh(Mat difHistogram) {
-        int size = difHistogram.rows();
-        double[] cumDvh = new double[size];
-
-        for (int i = 0; i < size; i++) {
-            cumDvh[i] = 0;
-            for (int j = i; j < size; j++) {
-                cumDvh[i] += difHistogram.get(j, 0)[0];
-            }
-        }
-
-        return cumDvh;
+        return new DvhEngine(dose).calculate(Collections.singletonList(structure)).get(structure.getRoiNumber());
     }
 
     private Pair<double[], double[]> calculatePixelLookupTable(DicomImageElement dicomImage) {
@@ -991,22 +858,21 @@ public class RtSet {
 
         double[] position = dicomImage.getSliceGeometry().getTLHCArray();
 
-        // DICOM C.7.6.2.1 Equation C.7.6.2.1-1.
-        double[][] m = { { rowDirection[0] * deltaI, columnDirection[0] * deltaJ, 0, position[0] },
-            { rowDirection[1] * deltaI, columnDirection[1] * deltaJ, 0, position[1] },
-            { rowDirection[2] * deltaI, columnDirection[2] * deltaJ, 0, position[2] }, { 0, 0, 0, 1 } };
-        RealMatrix matrix = MatrixUtils.createRealMatrix(m);
+        // DICOM C.7.6.2.1 Equation C.7.6.2.1-1: the X coordinate only depends on the column index and the Y
+        // coordinate only on the row index, so the affine transform is evaluated once per column and per row.
+        double stepX = rowDirection[0] * deltaI;
+        double stepY = columnDirection[1] * deltaJ;
 
         double[] x = new double[dicomImage.getImage().width()];
         // column index to the image plane.
-        for (int i = 0; i < dicomImage.getImage().width(); i++) {
-            x[i] = matrix.multiply(MatrixUtils.createColumnRealMatrix(new double[] { i, 0, 0, 1 })).getRow(0)[0];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = position[0] + stepX * i;
         }
 
         double[] y = new double[dicomImage.getImage().height()];
         // row index to the image plane
-        for (int j = 0; j < dicomImage.getImage().height(); j++) {
-            y[j] = matrix.multiply(MatrixUtils.createColumnRealMatrix(new double[] { 0, j, 0, 1 })).getRow(1)[0];
+        for (int j = 0; j < y.length; j++) {
+            y[j] = position[1] + stepY * j;
         }
 
         return new Pair<>(x, y);
@@ -1044,30 +910,4 @@ public class RtSet {
     // }
     // }
 
-    private Mat calculateContourMask(Pair<double[], double[]> doseMmLUT, Contour contour) {
-
-        int cols = doseMmLUT.getFirst().length;
-        int rows = doseMmLUT.getSecond().length;
-
-        MatOfPoint2f mop = new MatOfPoint2f();
-        mop.fromList(contour.getListOfPoints());
-
-        Mat binaryMask = new Mat(rows, cols, CvType.CV_32FC1);
-
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < cols; j++) {
-                double distance =
-                    Imgproc.pointPolygonTest(mop, new Point(doseMmLUT.getFirst()[j], doseMmLUT.getSecond()[i]), false);
-                // TODO: Include the border line as well?
-                if (distance > 0) {
-                    binaryMask.put(i, j, 255);
-                } else {
-                    binaryMask.put(i, j, 0);
-                }
-            }
-        }
-
-        return binaryMask;
-    }
-
 }
@@ -0,0 +1,67 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2020 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.weasis.dicom.rt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import org.junit.Test;
+
+public class DvhEngineTest {
+
+    @Test
+    public void testConvertDifferentialToCumulativeDvh() {
+        // Differential histogram in mm^3
+        double[] dif = { 0.0, 1000.0, 2000.0, 3000.0, 4000.0 };
+        double[] cum = DvhEngine.convertDifferentialToCumulativeDvh(dif);
+        // Volume in cm^3 receiving at least the dose of the bin
+        assertThat(cum).containsExactly(new double[] { 10.0, 10.0, 9.0, 7.0, 4.0 }, within(1e-9));
+
+        assertThat(DvhEngine.convertDifferentialToCumulativeDvh(new double[0])).isEmpty();
+    }
+
+    @Test
+    public void testCumulativeIsSuffixSum() {
+        double[] dif = new double[500];
+        for (int i = 0; i < dif.length; i++) {
+            dif[i] = (i * 37) % 11;
+        }
+        double[] cum = DvhEngine.convertDifferentialToCumulativeDvh(dif);
+        for (int i = 0; i < dif.length; i++) {
+            double sum = 0.0;
+            for (int j = i; j < dif.length; j++) {
+                sum += dif[j] / 1000;
+            }
+            assertThat(cum[i]).isCloseTo(sum, within(1e-9));
+        }
+    }
+
+    @Test
+    public void testCountBins() {
+        float[] doses = { -5.0f, 0.5f, 1.9f, 3.0f, 99.0f };
+        byte[] mask = { 1, 1, 1, 0, 1 };
+        long[] counts = new long[4];
+
+        int[] range = DvhEngine.countBins(doses, mask, counts);
+
+        // The negative dose is clamped to the first bin and the dose above the maximum to the last bin
+        assertThat(counts).containsExactly(2, 1, 0, 1);
+        assertThat(range).containsExactly(0, 3);
+    }
+
+    @Test
+    public void testCountBinsEmptyMask() {
+        long[] counts = new long[4];
+        int[] range = DvhEngine.countBins(new float[] { 1.0f, 2.0f }, new byte[2], counts);
+
+        assertThat(counts).containsOnly(0);
+        assertThat(range[0]).isGreaterThan(range[1]);
+    }
+}
@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2020 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.weasis.dicom.rt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import org.junit.Test;
+
+public class DvhTest {
+
+    private static Dvh buildDvh(String doseUnit) {
+        Dvh dvh = new Dvh();
+        dvh.setType("CUMULATIVE"); //$NON-NLS-1$
+        dvh.setDoseUnit(doseUnit);
+        // Cumulative volumes in cm^3: 10, 10, 9, 7, 4
+        double[] dif = { 0.0, 1000.0, 2000.0, 3000.0, 4000.0 };
+        dvh.setDvhData(DvhEngine.convertDifferentialToCumulativeDvh(dif));
+        return dvh;
+    }
+
+    @Test
+    public void testDoseAtVolume() {
+        Dvh dvh = buildDvh("CGY"); //$NON-NLS-1$
+        assertThat(dvh.calculateDoseAtVolume(100)).isEqualTo(1.0);
+        assertThat(dvh.calculateDoseAtVolume(95)).isEqualTo(1.0);
+        assertThat(dvh.calculateDoseAtVolume(90)).isEqualTo(2.0);
+        assertThat(dvh.calculateDoseAtVolume(40)).isEqualTo(4.0);
+        assertThat(dvh.getDoseAtVolumeCGy(90)).isEqualTo(2.0);
+
+        assertThat(buildDvh("GY").getDoseAtVolumeCGy(90)).isEqualTo(200.0); //$NON-NLS-1$
+    }
+
+    @Test
+    public void testVolumeAtDose() {
+        Dvh dvh = buildDvh("CGY"); //$NON-NLS-1$
+        assertThat(dvh.calculateVolumeAtDose(2)).isCloseTo(9.0, within(1e-9));
+        // A dose between two bins uses the upper bin
+        assertThat(dvh.calculateVolumeAtDose(2.5)).isCloseTo(7.0, within(1e-9));
+        assertThat(dvh.calculateVolumeAtDose(10)).isZero();
+        assertThat(dvh.calculateVolumeAtDose(-1)).isZero();
+        assertThat(dvh.calculateRelativeVolumeAtDose(3)).isCloseTo(70.0, within(1e-9));
+        assertThat(dvh.getRelativeVolumeAtDoseCGy(4)).isCloseTo(40.0, within(1e-9));
+
+        assertThat(buildDvh("GY").getRelativeVolumeAtDoseCGy(300)).isCloseTo(70.0, within(1e-9)); //$NON-NLS-1$
+    }
+
+    @Test
+    public void testEmptyDvh() {
+        Dvh dvh = new Dvh();
+        dvh.setDoseUnit("CGY"); //$NON-NLS-1$
+        assertThat(dvh.calculateDoseAtVolume(95)).isZero();
+        assertThat(dvh.calculateVolumeAtDose(1)).isZero();
+        assertThat(dvh.calculateRelativeVolumeAtDose(1)).isZero();
+    }
+}
@@ -14,7 +14,10 @@ import java.awt.FlowLayout;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 
 import javax.swing.ComboBoxModel;
@@ -46,10 +49,13 @@ import org.weasis.core.api.util.LangUtil;
 import org.weasis.core.api.util.StringUtil;
 import org.weasis.core.api.util.ThreadUtil;
 import org.weasis.core.ui.model.GraphicModel;
+import org.weasis.core.ui.serialize.XmlSerializer;
 import org.weasis.dicom.codec.DicomImageElement;
+import org.weasis.dicom.codec.DicomMediaIO;
 import org.weasis.dicom.codec.TagD;
 import org.weasis.dicom.explorer.CheckTreeModel;
 import org.weasis.dicom.explorer.DicomModel;
+import org.weasis.dicom.explorer.DicomSendEngine;
 import org.weasis.dicom.explorer.ExplorerTask;
 import org.weasis.dicom.explorer.ExportDicom;
 import org.weasis.dicom.explorer.ExportTree;
@@ -58,14 +64,10 @@ import org.weasis.dicom.explorer.pref.node.AbstractDicomNode;
 import org.weasis.dicom.explorer.pref.node.AbstractDicomNode.UsageType;
 import org.weasis.dicom.explorer.pref.node.DefaultDicomNode;
 import org.weasis.dicom.explorer.pref.node.DicomWebNode;
-import org.weasis.dicom.op.CStore;
 import org.weasis.dicom.param.AdvancedParams;
 import org.weasis.dicom.param.ConnectOptions;
 import org.weasis.dicom.param.DicomNode;
-import org.weasis.dicom.param.DicomProgress;
 import org.weasis.dicom.param.DicomState;
-import org.weasis.dicom.web.Multipart;
-import org.weasis.dicom.web.StowrsMultiFiles;
 
 
 public class SendDicomView extends AbstractItemDialogPage implements ExportDicom {
@@ -172,7 +174,7 @@ public class SendDicomView extends AbstractItemDialogPage implements ExportDicom
             .firePropertyChange(new ObservableEvent(ObservableEvent.BasicAction.LOADING_START, dicomModel, null, t));
         File exportDir = FileUtil.createTempDir(AppProperties.buildAccessibleTempDirectory("tmp", "send")); //$NON-NLS-1$ //$NON-NLS-2$
         try {
-            writeDicom(t, exportDir, model);
+            List<File> files = getDicomFiles(t, exportDir, model);
 
             if (t.isCancelled()) {
                 return false;
@@ -180,17 +182,10 @@ public class SendDicomView extends AbstractItemDialogPage implements ExportDicom
 
             String weasisAet = BundleTools.SYSTEM_PREFERENCES.getProperty("weasis.aet", "WEASIS_AE"); //$NON-NLS-1$ //$NON-NLS-2$
 
-            List<String> files = new ArrayList<>();
-            files.add(exportDir.getAbsolutePath());
-
             final CircularProgressBar progressBar = t.getBar();
-            DicomProgress dicomProgress = new DicomProgress();
-            dicomProgress.addProgressListener(p -> GuiExecutor.instance().execute(() -> {
-                int c = p.getNumberOfCompletedSuboperations() + p.getNumberOfFailedSuboperations();
-                int r = p.getNumberOfRemainingSuboperations();
-                progressBar.setValue((c * 100) / (c + r));
-            }));
-            t.addCancelListener(dicomProgress);
+            DicomSendEngine engine = new DicomSendEngine((file, failed, processed, total) -> GuiExecutor.instance()
+                .execute(() -> progressBar.setValue((processed * 100) / total)));
+            t.addCancelListener(engine);
 
             Object selectedItem = comboNode.getSelectedItem();
             if (selectedItem instanceof DefaultDicomNode) {
@@ -200,21 +195,21 @@ public class SendDicomView extends AbstractItemDialogPage implements ExportDicom
                 connectOptions.setConnectTimeout(3000);
                 connectOptions.setAcceptTimeout(5000);
                 params.setConnectOptions(connectOptions);
-                final DicomState state =
-                    CStore.process(params, new DicomNode(weasisAet), node.getDicomNode(), files, dicomProgress);
-                if (state.getStatus() != Status.Success && state.getStatus() != Status.Cancel) {
+                final DicomState state = engine.cstore(params, new DicomNode(weasisAet), node.getDicomNode(), files);
+                if (state != null && state.getStatus() != Status.Success && state.getStatus() != Status.Cancel) {
                     showErrorMessage(null, null, state);
-                } else {
+                } else if (state != null) {
                     LOGGER.info("Dicom send: {}", state.getMessage()); //$NON-NLS-1$
                 }
             } else if (selectedItem instanceof DicomWebNode) {
-                DicomWebNode destination = (DicomWebNode) selectedItem;
-                try (StowrsMultiFiles stowRS = new StowrsMultiFiles(destination.getUrl().toString(), Multipart.ContentType.DICOM, AppProperties.WEASIS_NAME, destination.getHeaders())) {
-                    stowRS.uploadDicom(files, true);
-                } catch (Exception e) {
+                Exception e = engine.stowrs((DicomWebNode) selectedItem, files);
+                if (e != null) {
                     showErrorMessage("StowRS error: {}", e, null); //$NON-NLS-1$
                 }
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
         } finally {
             FileUtil.recursiveDelete(exportDir);
         }
@@ -230,45 +225,43 @@ public class SendDicomView extends AbstractItemDialogPage implements ExportDicom
             state == null ? e.getMessage() : state.getMessage(), getTitle(), JOptionPane.ERROR_MESSAGE));
     }
 
-    private void writeDicom(ExplorerTask<Boolean, String> task, File writeDir, CheckTreeModel model)
+    /**
+     * Get the files to send in the order of the tree. The DICOM files of the cache or of the source are sent directly
+     * without a copy. The objects in memory, the objects read by another reader (e.g. the raw files of the MPR and MIP
+     * series) and the new presentation states are written in writeDir.
+     */
+    private List<File> getDicomFiles(ExplorerTask<Boolean, String> task, File writeDir, CheckTreeModel model)
         throws IOException {
         synchronized (this) {
-            ArrayList<String> uids = new ArrayList<>();
+            List<File> files = new ArrayList<>();
+            Set<String> uids = new HashSet<>();
             TreePath[] paths = model.getCheckingPaths();
             for (TreePath treePath : paths) {
                 if (task.isCancelled()) {
-                    return;
+                    return files;
                 }
                 DefaultMutableTreeNode node = (DefaultMutableTreeNode) treePath.getLastPathComponent();
 
-                if (node.getUserObject() instanceof DicomImageElement) {
-                    DicomImageElement img = (DicomImageElement) node.getUserObject();
-                    String iuid = TagD.getTagValue(img, Tag.SOPInstanceUID, String.class);
-                    int index = uids.indexOf(iuid);
-                    if (index == -1) {
-                        uids.add(iuid);
-                    } else {
-                        // Write only once the file for multiframes
+                if (node.getUserObject() instanceof MediaElement) {
+                    MediaElement dcm = (MediaElement) node.getUserObject();
+                    String iuid = TagD.getTagValue(dcm, Tag.SOPInstanceUID, String.class);
+                    // Send only once the file for multiframes
+                    if (dcm instanceof DicomImageElement && !uids.add(iuid)) {
                         continue;
                     }
 
-                    String path = LocalExport.buildPath(img, false, false, false, node);
-                    File destinationDir = new File(writeDir, path);
-                    destinationDir.mkdirs();
-
-                    File destinationFile = new File(destinationDir, iuid);
-                    if (!img.saveToFile(destinationFile)) {
-                        LOGGER.error("Cannot export DICOM file: {}", img.getFileCache().getOriginalFile().orElse(null)); //$NON-NLS-1$
+                    Optional<File> source = dcm.getFileCache().getOriginalFile();
+                    if (dcm.getMediaReader() instanceof DicomMediaIO && !dcm.getFileCache().isElementInMemory()
+                        && source.isPresent()) {
+                        files.add(source.get());
+                    } else {
+                        String path = LocalExport.buildPath(dcm, false, false, false, node);
+                        File destinationDir = new File(writeDir, path);
+                        destinationDir.mkdirs();
+                        if (!dcm.saveToFile(new File(destinationDir, iuid))) {
+                            LOGGER.error("Cannot export DICOM file: {}", source.orElse(null)); //$NON-NLS-1$
+                        }
                     }
-                } else if (node.getUserObject() instanceof MediaElement) {
-                    MediaElement dcm = (MediaElement) node.getUserObject();
-                    String iuid = TagD.getTagValue(dcm, Tag.SOPInstanceUID, String.class);
-
-                    String path = LocalExport.buildPath(dcm, false, false, false, node);
-                    File destinationDir = new File(writeDir, path);
-                    destinationDir.mkdirs();
-
-                    dcm.saveToFile(new File(destinationDir, iuid));
                 } else if (node.getUserObject() instanceof Series) {
                     MediaSeries<?> s = (MediaSeries<?>) node.getUserObject();
                     if (LangUtil.getNULLtoFalse((Boolean) s.getTagValue(TagW.ObjectToSave))) {
@@ -276,7 +269,7 @@ public class SendDicomView extends AbstractItemDialogPage implements ExportDicom
                         if (series != null) {
                             String seriesInstanceUID = UIDUtils.createUID();
                             for (MediaElement dcm : series.getMedias(null, null)) {
-                                GraphicModel grModel = (GraphicModel) dcm.getTagValue(TagW.PresentationModel);
+                                GraphicModel grModel = XmlSerializer.getPresentationModel(dcm);
                                 if (grModel != null && grModel.hasSerializableGraphics()) {
                                     String path = LocalExport.buildPath(dcm, false, false, false, node);
                                     LocalExport.buildAndWritePR(dcm, false, new File(writeDir, path), null, node,
@@ -287,6 +280,9 @@ public class SendDicomView extends AbstractItemDialogPage implements ExportDicom
                     }
                 }
             }
+            // Add the objects written from memory and the new presentation states
+            FileUtil.getAllFilesInDirectory(writeDir, files);
+            return files;
         }
     }
 }
@@ -53,6 +53,7 @@ import org.weasis.core.ui.model.imp.XmlGraphicModel;
 import org.weasis.core.ui.model.layer.GraphicLayer;
 import org.weasis.core.ui.model.layer.LayerType;
 import org.weasis.core.ui.model.layer.imp.DefaultLayer;
+import org.weasis.core.ui.serialize.XmlSerializer;
 import org.weasis.dicom.codec.AbstractKOSpecialElement.Reference;
 import org.weasis.dicom.codec.DcmMediaReader;
 import org.weasis.dicom.codec.DicomImageElement;
@@ -61,7 +62,6 @@ import org.weasis.dicom.codec.DicomSeries;
 import org.weasis.dicom.codec.DicomSpecialElement;
 import org.weasis.dicom.codec.KOSpecialElement;
 import org.weasis.dicom.codec.TagD;
-import org.weasis.dicom.codec.TagD.Level;
 import org.weasis.dicom.codec.macro.SOPInstanceReference;
 import org.weasis.dicom.codec.utils.DicomMediaUtils;
 import org.weasis.dicom.explorer.DicomExplorer;
@@ -203,10 +203,9 @@ public class SRView extends JScrollPane implements SeriesViewerListener {
                     model = (DicomModel) dicomView.getDataExplorerModel();
                 }
                 if (model != null) {
-                    MediaSeriesGroup study = model.getParent(series, DicomModel.study);
                     MediaSeriesGroup patient = model.getParent(series, DicomModel.patient);
 
-                    Series<?> s = findSOPInstanceReference(model, patient, study, ref.getReferencedSOPInstanceUID());
+                    Series<?> s = findSOPInstanceReference(model, patient, ref.getReferencedSOPInstanceUID());
                     if (s instanceof DicomSeries) {
                         if (keyReferences == null) {
                             keyReferences = buildKO(model, (DicomSeries) s);
@@ -251,7 +250,7 @@ public class SRView extends JScrollPane implements SeriesViewerListener {
     private void addGraphicstoView(MediaElement mediaElement, SRImageReference imgRef) {
         if (mediaElement instanceof ImageElement && imgRef.getGraphics() != null && !imgRef.getGraphics().isEmpty()) {
 
-            GraphicModel modelList = (GraphicModel) mediaElement.getTagValue(TagW.PresentationModel);
+            GraphicModel modelList = XmlSerializer.getPresentationModel(mediaElement);
             // After getting a new image iterator, update the measurements
             if (modelList == null) {
                 modelList = new XmlGraphicModel((ImageElement) mediaElement);
@@ -309,26 +308,11 @@ public class SRView extends JScrollPane implements SeriesViewerListener {
         }
     }
 
-    private static Series<?> findSOPInstanceReference(DicomModel model, MediaSeriesGroup patient,
-        MediaSeriesGroup study, String sopUID) {
+    private static Series<?> findSOPInstanceReference(DicomModel model, MediaSeriesGroup patient, String sopUID) {
         if (model != null && patient != null && sopUID != null) {
-            Series<?> s = null;
-            if (study != null) {
-                s = findSOPInstanceReference(model, study, sopUID);
-                if (s != null) {
-                    return s;
-                }
-            }
-
-            synchronized (model) { //NOSONAR lock object is the list for iterating its elements safely
-                for (MediaSeriesGroup st : model.getChildren(patient)) {
-                    if (st != study) {
-                        s = findSOPInstanceReference(model, st, sopUID);
-                    }
-                    if (s != null) {
-                        return s;
-                    }
-                }
+            Series<?> s = model.getReferenceIndex().getSeries(sopUID, null);
+            if (s != null && patient.equals(model.getParent(s, DicomModel.patient))) {
+                return s;
             }
         }
         return null;
@@ -354,21 +338,4 @@ public class SRView extends JScrollPane implements SeriesViewerListener {
         return null;
     }
 
-    private static Series<?> findSOPInstanceReference(DicomModel model, MediaSeriesGroup study, String sopUID) {
-        if (model != null && study != null) {
-            TagW sopTag = TagD.getUID(Level.INSTANCE);
-            synchronized (model) { //NOSONAR lock object is the list for iterating its elements safely
-                for (MediaSeriesGroup seq : model.getChildren(study)) {
-                    if (seq instanceof Series) {
-                        Series<?> s = (Series<?>) seq;
-                        if (s.hasMediaContains(sopTag, sopUID)) {
-                            return s;
-                        }
-                    }
-                }
-            }
-        }
-        return null;
-    }
-
 }
@@ -23,7 +23,6 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.Optional;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import javax.swing.BoundedRangeModel;
@@ -82,6 +81,7 @@ import org.weasis.core.api.util.LangUtil;
 import org.weasis.core.api.util.ResourceUtil;
 import org.weasis.core.ui.editor.SeriesViewerEvent;
 import org.weasis.core.ui.editor.SeriesViewerEvent.EVENT;
+import org.weasis.core.ui.editor.image.CineEngine;
 import org.weasis.core.ui.editor.image.DefaultView2d;
 import org.weasis.core.ui.editor.image.ImageViewerEventManager;
 import org.weasis.core.ui.editor.image.ImageViewerPlugin;
@@ -238,7 +238,7 @@ public class EventManager extends ImageViewerEventManager<DicomImageElement> imp
     protected SliderCineListener getMoveTroughSliceAction(int speed, TIME time, double mouseSensivity) {
         return new SliderCineListener(ActionW.SCROLL_SERIES, 1, 2, 1, speed, time, mouseSensivity) {
 
-            protected CineThread currentCine;
+            private final CineEngine cineEngine = new CineEngine(this, this::getCineFrame);
 
             @Override
             public void stateChanged(BoundedRangeModel model) {
@@ -389,70 +389,22 @@ public class EventManager extends ImageViewerEventManager<DicomImageElement> imp
 
             }
 
-            @Override
-            public void setSpeed(int speed) {
-                super.setSpeed(speed);
-                if (currentCine != null) {
-                    currentCine.iniSpeed();
+            private DicomImageElement getCineFrame(int value) {
+                ViewCanvas<DicomImageElement> view2d =
+                    selectedView2dContainer == null ? null : selectedView2dContainer.getSelectedImagePane();
+                if (view2d != null && view2d.getSeries() instanceof Series) {
+                    return ((Series<DicomImageElement>) view2d.getSeries()).getMedia(value - 1,
+                        (Filter<DicomImageElement>) view2d.getActionValue(ActionW.FILTERED_SERIES.cmd()),
+                        view2d.getCurrentSortComparator());
                 }
+                return null;
             }
 
-            /** Create a thread to cine the images. */
-
-            class CineThread extends Thread {
-
-                private AtomicInteger iteration;
-                private volatile int waitTimeMillis;
-                private volatile int currentCineRate;
-                private volatile long start;
-                private volatile boolean cining = true;
-
-                @Override
-                public void run() {
-                    iniSpeed();
-                    while (cining) {
-                        long startFrameTime = System.currentTimeMillis();
-                        // Set the value to SliderCineListener, must be in EDT for refreshing UI correctly
-                        GuiExecutor.instance().invokeAndWait(() -> {
-                            if (cining) {
-                                int frameIndex = getSliderValue() + 1;
-                                setSliderValue(frameIndex > getSliderMax() ? 0 : frameIndex);
-                            }
-                        });
-                        // Time to set the new frame index
-                        long elapsedFrame = System.currentTimeMillis() - startFrameTime;
-                        /*
-                         * If this time is smaller than the time to wait according to the cine speed (fps), then wait
-                         * the time left, otherwise continue (that means the cine speed cannot be reached)
-                         */
-                        if (elapsedFrame < waitTimeMillis) {
-                            try {
-                                Thread.sleep(waitTimeMillis - elapsedFrame);
-                            } catch (Exception e) {
-                            }
-                        }
-
-                        // Check the speed every 3 images
-                        if (iteration.incrementAndGet() > 2) {
-                            // Get the speed rate (fps) on the last 3 images
-                            currentCineRate = (int) (iteration.get() * 1000 / (System.currentTimeMillis() - start));
-                            // reinitialize the parameters for computing speed next time
-                            iteration.set(0);
-                            waitTimeMillis = 1000 / getSpeed();
-                            start = System.currentTimeMillis();
-                        }
-                    }
-                }
-
-                public void iniSpeed() {
-                    iteration = new AtomicInteger(0);
-                    currentCineRate = getSpeed();
-                    waitTimeMillis = 1000 / currentCineRate;
-                    start = System.currentTimeMillis();
-                }
-
-                public int getCurrentCineRate() {
-                    return currentCineRate;
+            @Override
+            public void setSpeed(int speed) {
+                super.setSpeed(speed);
+                if (cineEngine != null) {
+                    cineEngine.updateSpeed();
                 }
             }
 
@@ -460,12 +412,9 @@ public class EventManager extends ImageViewerEventManager<DicomImageElement> imp
 
             @Override
             public synchronized void start() {
-                if (currentCine != null) {
-                    stop();
-                }
+                cineEngine.stop();
                 if (getSliderMax() - getSliderMin() > 0) {
-                    currentCine = new CineThread();
-                    currentCine.start();
+                    cineEngine.start();
                 }
             }
 
@@ -473,12 +422,7 @@ public class EventManager extends ImageViewerEventManager<DicomImageElement> imp
 
             @Override
             public synchronized void stop() {
-                CineThread moribund = currentCine;
-                currentCine = null;
-                if (moribund != null) {
-                    moribund.cining = false;
-                    moribund.interrupt();
-                }
+                cineEngine.stop();
             }
 
             @Override
@@ -490,15 +434,17 @@ public class EventManager extends ImageViewerEventManager<DicomImageElement> imp
 
             @Override
             public int getCurrentCineRate() {
-                if (currentCine != null) {
-                    return currentCine.getCurrentCineRate();
-                }
-                return 0;
+                return cineEngine.isRunning() ? cineEngine.getCurrentRate() : 0;
+            }
+
+            @Override
+            public int getDroppedFrames() {
+                return cineEngine.isRunning() ? cineEngine.getDroppedFrames() : 0;
             }
 
             @Override
             public boolean isCining() {
-                return currentCine != null;
+                return cineEngine.isRunning();
             }
 
         };
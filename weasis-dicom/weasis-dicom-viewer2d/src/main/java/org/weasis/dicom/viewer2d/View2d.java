@@ -126,12 +126,11 @@ import org.weasis.dicom.codec.display.OverlayOp;
 import org.weasis.dicom.codec.display.PresetWindowLevel;
 import org.weasis.dicom.codec.display.ShutterOp;
 import org.weasis.dicom.codec.display.WindowAndPresetsOp;
+import org.weasis.dicom.codec.geometry.GeometryCache;
+import org.weasis.dicom.codec.geometry.GeometryCache.SeriesBounds;
 import org.weasis.dicom.codec.geometry.GeometryOfSlice;
 import org.weasis.dicom.codec.geometry.ImageOrientation;
 import org.weasis.dicom.codec.geometry.ImageOrientation.Label;
-import org.weasis.dicom.codec.geometry.IntersectSlice;
-import org.weasis.dicom.codec.geometry.IntersectVolume;
-import org.weasis.dicom.codec.geometry.LocalizerPoster;
 import org.weasis.dicom.explorer.DicomExplorer;
 import org.weasis.dicom.explorer.DicomModel;
 import org.weasis.dicom.explorer.LoadLocalDicom;
@@ -687,45 +686,24 @@ public class View2d extends DefaultView2d<DicomImageElement> {
                     // Get the current image of the selected Series
                     DicomImageElement selImage = view2DPane.getImage();
                     // Get the first and the last image of the selected Series according to Slice Location
-
-                    DicomImageElement firstImage = null;
-                    DicomImageElement lastImage = null;
-                    double min = Double.MAX_VALUE;
-                    double max = -Double.MAX_VALUE;
-                    final Iterable<DicomImageElement> list = selSeries.getMedias(
-                        (Filter<DicomImageElement>) view2DPane.getActionValue(ActionW.FILTERED_SERIES.cmd()),
-                        getCurrentSortComparator());
-                    synchronized (selSeries) {
-                        for (DicomImageElement dcm : list) {
-                            double[] loc = (double[]) dcm.getTagValue(TagW.SlicePosition);
-                            if (loc != null) {
-                                double position = loc[0] + loc[1] + loc[2];
-                                if (min > position) {
-                                    min = position;
-                                    firstImage = dcm;
-                                }
-                                if (max < position) {
-                                    max = position;
-                                    lastImage = dcm;
-                                }
-                            }
-                        }
-                    }
+                    SeriesBounds bounds = GeometryCache.getSeriesBounds(selSeries,
+                        (Filter<DicomImageElement>) view2DPane.getActionValue(ActionW.FILTERED_SERIES.cmd()));
+                    DicomImageElement firstImage = bounds.getFirst();
+                    DicomImageElement lastImage = bounds.getLast();
 
                     GraphicLayer layer = AbstractGraphicModel.getOrBuildLayer(this, LayerType.CROSSLINES);
-                    // IntersectSlice: display a line representing the center of the slice
-                    IntersectSlice slice = new IntersectSlice(sliceGeometry);
+                    // Slice intersection: display a line representing the center of the slice
                     if (firstImage != null && firstImage != lastImage) {
-                        addCrossline(firstImage, layer, slice, false);
+                        addCrossline(firstImage, layer, sliceGeometry, false, false);
                     }
                     if (lastImage != null && firstImage != lastImage) {
-                        addCrossline(lastImage, layer, slice, false);
+                        addCrossline(lastImage, layer, sliceGeometry, false, false);
                     }
                     if (selImage != null) {
-                        // IntersectVolume: display a rectangle to show the slice thickness
-                        if (!addCrossline(selImage, layer, new IntersectVolume(sliceGeometry), true)) {
+                        // Volume intersection: display a rectangle to show the slice thickness
+                        if (!addCrossline(selImage, layer, sliceGeometry, true, true)) {
                             // When the volume limits are outside the image, get the only the intersection
-                            addCrossline(selImage, layer, slice, true);
+                            addCrossline(selImage, layer, sliceGeometry, false, true);
                         }
                     }
                     repaint();
@@ -735,29 +713,30 @@ public class View2d extends DefaultView2d<DicomImageElement> {
 
     }
 
-    protected boolean addCrossline(DicomImageElement selImage, GraphicLayer layer, LocalizerPoster localizer,
-        boolean center) {
-        GeometryOfSlice sliceGeometry = selImage.getDispSliceGeometry();
-        if (sliceGeometry != null) {
-            List<Point2D.Double> pts = localizer.getOutlineOnLocalizerForThisGeometry(sliceGeometry);
-            if (pts != null && !pts.isEmpty()) {
-                Color color = center ? Color.blue : Color.cyan;
-                try {
-                    Graphic graphic;
-                    if (pts.size() == 2) {
-                        graphic = new LineGraphic().buildGraphic(pts);
-                    } else {
-                        graphic = new PolygonGraphic().buildGraphic(pts);
-                    }
-                    graphic.setPaint(color);
-                    graphic.setLabelVisible(Boolean.FALSE);
-                    graphic.setLayer(layer);
-
-                    graphicManager.addGraphic(graphic);
-                    return true;
-                } catch (InvalidShapeException e) {
-                    LOGGER.error("Building crossline", e); //$NON-NLS-1$
+    protected boolean addCrossline(DicomImageElement selImage, GraphicLayer layer, GeometryOfSlice localizer,
+        boolean volume, boolean center) {
+        List<Point2D.Double> outline =
+            GeometryCache.getIntersection(localizer, selImage.getDispSliceGeometry(), volume);
+        if (!outline.isEmpty()) {
+            // The graphic owns its points
+            List<Point2D.Double> pts = new ArrayList<>(outline.size());
+            outline.forEach(p -> pts.add(new Point2D.Double(p.x, p.y)));
+            Color color = center ? Color.blue : Color.cyan;
+            try {
+                Graphic graphic;
+                if (pts.size() == 2) {
+                    graphic = new LineGraphic().buildGraphic(pts);
+                } else {
+                    graphic = new PolygonGraphic().buildGraphic(pts);
                 }
+                graphic.setPaint(color);
+                graphic.setLabelVisible(Boolean.FALSE);
+                graphic.setLayer(layer);
+
+                graphicManager.addGraphic(graphic);
+                return true;
+            } catch (InvalidShapeException e) {
+                LOGGER.error("Building crossline", e); //$NON-NLS-1$
             }
         }
         return false;
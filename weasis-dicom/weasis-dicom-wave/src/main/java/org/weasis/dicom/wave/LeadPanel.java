@@ -16,6 +16,7 @@ import java.awt.Font;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Paint;
+import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.Stroke;
 import java.awt.Toolkit;
@@ -25,7 +26,9 @@ import java.awt.geom.Line2D;
 import java.awt.geom.Path2D;
 import java.awt.geom.Rectangle2D;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.swing.JPanel;
 
@@ -35,10 +38,27 @@ import org.weasis.dicom.wave.SignalMarker.Measure;
 public class LeadPanel extends JPanel {
     private static final long serialVersionUID = -2928188250483176572L;
 
+    // Width in pixels of the cached path segments
+    private static final int TILE_WIDTH = 256;
+    private static final int MAX_CACHED_TILES = 64;
+
     private final WaveView view;
     private final ChannelDefinition channels;
     private final WaveDataReadable data;
     private final MarkerAnnotation markerAnnotation;
+    private final WaveDecimation decimation;
+    // Path segments by tile index, valid for the current scale
+    private final Map<Integer, Path2D> tiles = new LinkedHashMap<Integer, Path2D>(16, 0.75f, true) {
+        private static final long serialVersionUID = 4573617226932218391L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Path2D> eldest) {
+            return size() > MAX_CACHED_TILES;
+        }
+    };
+    private double tileRatioX;
+    private double tileCellHeight;
+    private int tileSampleNumber;
 
     private double ratioX;
     private final int mvCellCount;
@@ -54,6 +74,7 @@ public class LeadPanel extends JPanel {
         this.view = view;
         this.data = data;
         this.channels = channels;
+        this.decimation = view.getWaveDecimation(channels);
         this.mvCellCount = view.getMvCells();
         this.secondCellCount = view.getSeconds() * 10;
         this.sampleNumber = data.getNbSamplesPerChannel();
@@ -323,6 +344,9 @@ public class LeadPanel extends JPanel {
     }
 
     private void drawWaveData(Graphics2D g2, Dimension dim) {
+        if (sampleNumber <= 0) {
+            return;
+        }
         double cellHeight = dim.getHeight() / this.mvCellCount;
         double halfHeight = dim.height / 2.0; // base line
 
@@ -330,16 +354,41 @@ public class LeadPanel extends JPanel {
         Stroke stroke = new BasicStroke(1.2f, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND);
         g2.setStroke(stroke);
 
-        Path2D path = new Path2D.Double(Path2D.WIND_NON_ZERO, sampleNumber);
-        double x = 0.0;
-        double y = halfHeight - (data.getSample(0, channels) / 1000 * cellHeight);
-        path.moveTo(x, y);
-        for (int i = 1; i < this.sampleNumber; i++) {
-            x = ratioX * i;
-            y = halfHeight - (data.getSample(i, channels) / 1000 * cellHeight);
-            path.lineTo(x, y);
+        if (tileRatioX != ratioX || tileCellHeight != cellHeight || tileSampleNumber != sampleNumber) {
+            tiles.clear();
+            tileRatioX = ratioX;
+            tileCellHeight = cellHeight;
+            tileSampleNumber = sampleNumber;
+        }
+
+        // Draw only the tiles intersecting the repainted area
+        Rectangle clip = g2.getClipBounds();
+        int minX = clip == null ? 0 : Math.max(0, clip.x);
+        int maxX = clip == null ? dim.width : Math.min(dim.width, clip.x + clip.width);
+        for (int t = minX / TILE_WIDTH; t <= maxX / TILE_WIDTH; t++) {
+            Path2D path = tiles.get(t);
+            if (path == null) {
+                path = buildTile(t, halfHeight, cellHeight);
+                if (path == null) {
+                    break;
+                }
+                tiles.put(t, path);
+            }
+            g2.draw(path);
+        }
+    }
+
+    private Path2D buildTile(int tile, double halfHeight, double cellHeight) {
+        int level = decimation.getLevel(1.0 / ratioX);
+        double blockWidth = ratioX * (1 << level);
+        int lastBlock = (sampleNumber - 1) >> level;
+        int first = (int) Math.floor(tile * TILE_WIDTH / blockWidth);
+        if (first > lastBlock) {
+            return null;
         }
-        g2.draw(path);
+        // Overlap the first block of the next tile to connect the segments
+        int last = Math.min(lastBlock, (int) Math.floor((tile + 1) * TILE_WIDTH / blockWidth) + 1);
+        return decimation.buildPath(level, first, last, ratioX, halfHeight, cellHeight);
     }
 
     private void drawSelectedBackground(Graphics2D g2) {
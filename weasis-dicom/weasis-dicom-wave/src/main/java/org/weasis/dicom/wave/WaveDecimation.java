@@ -0,0 +1,228 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2020 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.weasis.dicom.wave;
+
+import java.awt.geom.Path2D;
+
+/**
+ * Multi-resolution min/max pyramid of the samples of a channel.
+ * <p>
+ * Each level k contains the minimum and the maximum value (in µV) of the blocks of 2^k samples. The level 1 is computed
+ * on the fly from the samples and the upper levels are built once from the level below. Drawing the min/max pairs of
+ * the level whose blocks cover about one pixel keeps the peaks exact with at most two points per pixel.
+ */
+public class WaveDecimation {
+
+    // The level 1 is not stored, it is cheaper to read the two samples
+    private static final int FIRST_STORED_LEVEL = 2;
+
+    private final WaveDataReadable data;
+    private final ChannelDefinition channel;
+    private final int nbSamples;
+    private final float[][] mins;
+    private final float[][] maxs;
+    private double minValue;
+    private double maxValue;
+
+    public WaveDecimation(WaveDataReadable data, ChannelDefinition channel) {
+        this.data = data;
+        this.channel = channel;
+        this.nbSamples = data.getNbSamplesPerChannel();
+
+        // The top level has a single block
+        int topLevel = 0;
+        while ((1L << topLevel) < nbSamples) {
+            topLevel++;
+        }
+        int nbStored = Math.max(0, topLevel - FIRST_STORED_LEVEL + 1);
+        this.mins = new float[nbStored][];
+        this.maxs = new float[nbStored][];
+        build();
+    }
+
+    private void build() {
+        if (nbSamples == 0) {
+            return;
+        }
+        if (mins.length == 0) {
+            float[] minMax = new float[2];
+            getMinMax(0, 1, minMax);
+            minValue = minMax[0];
+            maxValue = minMax[1];
+            return;
+        }
+
+        // First stored level from the samples
+        int blockSize = 1 << FIRST_STORED_LEVEL;
+        int nbBlocks = (nbSamples + blockSize - 1) / blockSize;
+        float[] min = new float[nbBlocks];
+        float[] max = new float[nbBlocks];
+        for (int b = 0; b < nbBlocks; b++) {
+            int start = b * blockSize;
+            int end = Math.min(nbSamples, start + blockSize);
+            double vmin = Double.MAX_VALUE;
+            double vmax = -Double.MAX_VALUE;
+            for (int i = start; i < end; i++) {
+                double val = data.getSample(i, channel);
+                if (val < vmin) {
+                    vmin = val;
+                }
+                if (val > vmax) {
+                    vmax = val;
+                }
+            }
+            min[b] = (float) vmin;
+            max[b] = (float) vmax;
+        }
+        mins[0] = min;
+        maxs[0] = max;
+
+        // Upper levels from the level below
+        for (int k = 1; k < mins.length; k++) {
+            float[] lmin = mins[k - 1];
+            float[] lmax = maxs[k - 1];
+            int size = (lmin.length + 1) / 2;
+            min = new float[size];
+            max = new float[size];
+            for (int b = 0; b < size; b++) {
+                int i = b * 2;
+                if (i + 1 < lmin.length) {
+                    min[b] = Math.min(lmin[i], lmin[i + 1]);
+                    max[b] = Math.max(lmax[i], lmax[i + 1]);
+                } else {
+                    min[b] = lmin[i];
+                    max[b] = lmax[i];
+                }
+            }
+            mins[k] = min;
+            maxs[k] = max;
+        }
+
+        float[] top = mins[mins.length - 1];
+        float[] topMax = maxs[maxs.length - 1];
+        minValue = Double.MAX_VALUE;
+        maxValue = -Double.MAX_VALUE;
+        for (int b = 0; b < top.length; b++) {
+            minValue = Math.min(minValue, top[b]);
+            maxValue = Math.max(maxValue, topMax[b]);
+        }
+    }
+
+    /**
+     * @return the minimum value of the channel in µV
+     */
+    public double getMinValue() {
+        return minValue;
+    }
+
+    /**
+     * @return the maximum value of the channel in µV
+     */
+    public double getMaxValue() {
+        return maxValue;
+    }
+
+    public int getMaxLevel() {
+        return mins.length == 0 ? 1 : FIRST_STORED_LEVEL + mins.length - 1;
+    }
+
+    /**
+     * @param samplesPerPixel
+     *            the number of samples displayed in one pixel
+     * @return the level having blocks of at least one pixel, 0 when the samples must be drawn directly
+     */
+    public int getLevel(double samplesPerPixel) {
+        if (samplesPerPixel <= 2.0) {
+            return 0;
+        }
+        int level = 1;
+        while ((1 << level) < samplesPerPixel && level < getMaxLevel()) {
+            level++;
+        }
+        return level;
+    }
+
+    /**
+     * Get the minimum and maximum values of a block.
+     *
+     * @param block
+     *            the index of the block of 2^level samples
+     * @param level
+     *            the level of the pyramid, 0 for the samples
+     * @param minMax
+     *            the array receiving the minimum and the maximum value in µV
+     */
+    public void getMinMax(int block, int level, float[] minMax) {
+        if (level >= FIRST_STORED_LEVEL && level - FIRST_STORED_LEVEL < mins.length) {
+            minMax[0] = mins[level - FIRST_STORED_LEVEL][block];
+            minMax[1] = maxs[level - FIRST_STORED_LEVEL][block];
+            return;
+        }
+        int start = block << level;
+        int end = Math.min(nbSamples, start + (1 << level));
+        double vmin = Double.MAX_VALUE;
+        double vmax = -Double.MAX_VALUE;
+        for (int i = start; i < end; i++) {
+            double val = data.getSample(i, channel);
+            vmin = Math.min(vmin, val);
+            vmax = Math.max(vmax, val);
+        }
+        minMax[0] = (float) vmin;
+        minMax[1] = (float) vmax;
+    }
+
+    /**
+     * Build the path of a range of blocks. The path of each block goes through its maximum and its minimum at the
+     * position of its first sample.
+     *
+     * @param level
+     *            the level of the pyramid, 0 for the samples
+     * @param firstBlock
+     *            the first block of the range
+     * @param lastBlock
+     *            the last block of the range (included)
+     * @param ratioX
+     *            the width of a sample in pixels
+     * @param halfHeight
+     *            the position of the baseline
+     * @param cellHeight
+     *            the height of 1 mV in pixels
+     * @return the path
+     */
+    public Path2D buildPath(int level, int firstBlock, int lastBlock, double ratioX, double halfHeight,
+        double cellHeight) {
+        int nbPoints = level == 0 ? lastBlock - firstBlock + 1 : (lastBlock - firstBlock + 1) * 2;
+        Path2D path = new Path2D.Double(Path2D.WIND_NON_ZERO, Math.max(2, nbPoints));
+        float[] minMax = new float[2];
+        int blockSize = 1 << level;
+        for (int b = firstBlock; b <= lastBlock; b++) {
+            double x = ratioX * b * blockSize;
+            if (level == 0) {
+                double y = halfHeight - (data.getSample(b, channel) / 1000 * cellHeight);
+                if (b == firstBlock) {
+                    path.moveTo(x, y);
+                } else {
+                    path.lineTo(x, y);
+                }
+            } else {
+                getMinMax(b, level, minMax);
+                double yMax = halfHeight - (minMax[1] / 1000 * cellHeight);
+                double yMin = halfHeight - (minMax[0] / 1000 * cellHeight);
+                if (b == firstBlock) {
+                    path.moveTo(x, yMax);
+                } else {
+                    path.lineTo(x, yMax);
+                }
+                path.lineTo(x, yMin);
+            }
+        }
+        return path;
+    }
+}
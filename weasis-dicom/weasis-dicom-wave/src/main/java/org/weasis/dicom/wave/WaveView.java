@@ -28,7 +28,9 @@ import java.io.FileInputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import javax.swing.BorderFactory;
@@ -81,6 +83,8 @@ public class WaveView extends JPanel implements SeriesViewerListener {
     private int samplesPerSecond;
     private WaveDataReadable waveData;
     private final List<ChannelDefinition> channels;
+    // Min/max pyramids by channel position
+    private final Map<Integer, WaveDecimation> decimations = new HashMap<>();
     private double zoomRatio = 1.0;
 
     private WaveLayoutManager waveLayoutManager;
@@ -252,6 +256,7 @@ public class WaveView extends JPanel implements SeriesViewerListener {
             this.samplesPerSecond = (int) (sampleNumber / seconds);
 
             readWaveformData(media, dcm);
+            buildDecimations();
             getMinMax(channels);
 
             this.scrollPane = new JScrollPane();
@@ -351,6 +356,24 @@ public class WaveView extends JPanel implements SeriesViewerListener {
         }
     }
 
+    private void buildDecimations() {
+        decimations.clear();
+        WaveDataReadable db = waveData;
+        if (db != null) {
+            for (int i = 0; i < channelNumber; i++) {
+                ChannelDefinition c = channels.get(i);
+                decimations.put(c.getPosition(), new WaveDecimation(db, c));
+            }
+        }
+    }
+
+    /**
+     * @return the min/max pyramid of the channel, shared by the panels displaying the same channel
+     */
+    public WaveDecimation getWaveDecimation(ChannelDefinition channel) {
+        return decimations.computeIfAbsent(channel.getPosition(), k -> new WaveDecimation(waveData, channel));
+    }
+
     private void getMinMax(List<ChannelDefinition> channels) {
         WaveDataReadable db = waveData;
         if (db != null) {
@@ -358,18 +381,10 @@ public class WaveView extends JPanel implements SeriesViewerListener {
             double maxAll = Double.MIN_VALUE;
 
             for (int i = 0; i < channelNumber; i++) {
-                double min = Double.MAX_VALUE;
-                double max = Double.MIN_VALUE;
                 ChannelDefinition c = channels.get(i);
-                for (int j = 0; j < sampleNumber; j++) {
-                    double val = db.getSample(j, c);
-                    if (val < min) {
-                        min = val;
-                    }
-                    if (val > max) {
-                        max = val;
-                    }
-                }
+                WaveDecimation decimation = getWaveDecimation(c);
+                double min = decimation.getMinValue();
+                double max = decimation.getMaxValue();
                 c.setMinValue(min);
                 c.setMaxValue(max);
                 if (min < minAll) {
@@ -98,12 +98,18 @@ public class AutoProcessor {
      * @param context
      *            The system bundle context.
      * @param weasisLoader
+     * @param engine
+     *            The engine downloading and starting the bundles.
      **/
     public static void process(Map<String, String> configMap, Properties modulesi18n, BundleContext context,
-        WeasisLoader weasisLoader) {
+        WeasisLoader weasisLoader, StartupEngine engine) {
         Map<String, String> map = (configMap == null) ? new HashMap<>() : configMap;
         processAutoDeploy(map, context, weasisLoader);
-        processAutoProperties(map, modulesi18n, context, weasisLoader);
+        try {
+            processAutoProperties(map, modulesi18n, context, weasisLoader, engine);
+        } finally {
+            engine.close();
+        }
     }
 
     /**
@@ -251,7 +257,7 @@ public class AutoProcessor {
      * </p>
      */
     private static void processAutoProperties(Map<String, String> configMap, Properties modulesi18n,
-        BundleContext context, WeasisLoader weasisLoader) {
+        BundleContext context, WeasisLoader weasisLoader, StartupEngine engine) {
         // Retrieve the Start Level service, since it will be needed
         // to set the start level of the installed bundles.
         StartLevel sl = (StartLevel) context
@@ -333,6 +339,13 @@ public class AutoProcessor {
             Boolean.TRUE.toString().equals(System.getProperty("http.bundle.cache", Boolean.TRUE.toString())); //$NON-NLS-1$
         int bundleIter = 0;
 
+        // Download in parallel the bundles which are not in cache
+        for (Entry<String, BundleElement> element : bundleList.entrySet()) {
+            if (!installedBundleMap.containsKey(element.getKey())) {
+                engine.prefetch(context, element.getKey(), element.getValue().getLocation(), cache);
+            }
+        }
+
         // Parse and install the bundles associated with the key.
         for (Iterator<Entry<String, BundleElement>> iter = bundleList.entrySet().iterator(); iter.hasNext();) {
             Entry<String, BundleElement> element = iter.next();
@@ -348,7 +361,7 @@ public class AutoProcessor {
                 // in cache from a previous version of Weasis
                 Bundle b = installedBundleMap.get(bundleName);
                 if (b == null) {
-                    b = installBundle(context, bundle.getLocation(), cache);
+                    b = engine.installBundle(context, bundleName, bundle.getLocation(), cache);
                     installedBundleMap.put(bundleName, b);
                 }
                 sl.setBundleStartLevel(b, bundle.getStartLevel());
@@ -389,7 +402,7 @@ public class AutoProcessor {
                         b = installBundle(context, bundle.getLocation(), cache);
                     }
                     if (b != null) {
-                        b.start();
+                        engine.startBundle(b, bundle.getStartLevel());
                     }
                 } catch (Exception ex) {
                     LOGGER.log(Level.SEVERE, ex, () -> String.format("Cannot start bundle %s", bundleName)); //$NON-NLS-1$
@@ -509,7 +522,7 @@ public class AutoProcessor {
         return bundle.getHeaders().get(Constants.FRAGMENT_HOST) != null;
     }
 
-    private static Bundle installBundle(BundleContext context, String location, boolean httpCache) throws Exception {
+    static Bundle installBundle(BundleContext context, String location, boolean httpCache) throws Exception {
         boolean pack = location.endsWith(XZ_COMPRESSION);
         if (pack) {
             // Remove the pack classifier from the location path
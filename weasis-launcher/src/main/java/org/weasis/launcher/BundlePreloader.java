@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2020 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ *******************************************************************************/
+
+package org.weasis.launcher;
+
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+
+/**
+ * Warm start of the viewer plugins: the classes of the bundles listed in {@link #P_PRELOAD_BUNDLES} are loaded in
+ * background once the main window is displayed, so that opening the first study does not wait for the bundle class
+ * loaders.
+ */
+final class BundlePreloader {
+
+    private static final Logger LOGGER = Logger.getLogger(BundlePreloader.class.getName());
+
+    /**
+     * The property name of the symbolic names of the bundles whose classes are loaded in background after the startup.
+     **/
+    static final String P_PRELOAD_BUNDLES = "weasis.preload.bundles"; //$NON-NLS-1$
+
+    private BundlePreloader() {
+    }
+
+    /**
+     * Load in background the classes of the bundles of the property {@link #P_PRELOAD_BUNDLES}.
+     *
+     * @param context
+     *            the system bundle context
+     * @param serverProp
+     *            the framework properties
+     */
+    static void preloadBundles(BundleContext context, Map<String, String> serverProp) {
+        String value = System.getProperty(P_PRELOAD_BUNDLES, serverProp.get(P_PRELOAD_BUNDLES));
+        if (!Utils.hasText(value)) {
+            return;
+        }
+        Set<String> names = new HashSet<>(Arrays.asList(value.trim().split("[\\s,]+"))); //$NON-NLS-1$
+        Thread t = new Thread(() -> {
+            long start = System.currentTimeMillis();
+            int nb = 0;
+            for (Bundle b : context.getBundles()) {
+                if (isPreloaded(b, names)) {
+                    nb += preloadClasses(b);
+                }
+            }
+            LOGGER.log(Level.INFO, "{0} classes preloaded in {1} ms", //$NON-NLS-1$
+                new Object[] { nb, System.currentTimeMillis() - start });
+        }, "Class preload"); //$NON-NLS-1$
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        t.start();
+    }
+
+    private static boolean isPreloaded(Bundle b, Set<String> names) {
+        String name = b.getSymbolicName();
+        if (name == null || b.getState() != Bundle.ACTIVE) {
+            return false;
+        }
+        int index = name.lastIndexOf('.');
+        return names.contains(name) || (index >= 0 && names.contains(name.substring(index + 1)));
+    }
+
+    private static int preloadClasses(Bundle b) {
+        int nb = 0;
+        Enumeration<URL> entries = b.findEntries("/", "*.class", true); //$NON-NLS-1$ //$NON-NLS-2$
+        while (entries != null && entries.hasMoreElements()) {
+            String className = toClassName(entries.nextElement().getPath());
+            if (className != null) {
+                try {
+                    b.loadClass(className);
+                    nb++;
+                } catch (Throwable e) {
+                    // Optional dependency not available
+                }
+            }
+        }
+        return nb;
+    }
+
+    private static String toClassName(String path) {
+        String name = path.startsWith("/") ? path.substring(1) : path; //$NON-NLS-1$
+        // Exclude module-info and the classes of the multi-release jars
+        if (name.contains("-") || name.startsWith("META-INF")) { //$NON-NLS-1$ //$NON-NLS-2$
+            return null;
+        }
+        return name.substring(0, name.length() - 6).replace('/', '.');
+    }
+}
@@ -0,0 +1,413 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2020 Weasis Team and other contributors.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ *******************************************************************************/
+
+package org.weasis.launcher;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarInputStream;
+import java.util.jar.Manifest;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.Constants;
+import org.osgi.framework.FrameworkEvent;
+import org.osgi.framework.SynchronousBundleListener;
+import org.osgi.framework.startlevel.BundleStartLevel;
+import org.osgi.framework.startlevel.FrameworkStartLevel;
+import org.tukaani.xz.XZInputStream;
+
+/**
+ * Installs and starts the bundles of the launcher configuration.
+ * <p>
+ * The bundles which are not in the Felix cache are downloaded, unpacked and verified in parallel while the bundles are
+ * installed in the configuration order. The integrity of a download is checked by the CRC of the xz blocks and of each
+ * jar entry. When enabled, the bundles of the same start level are started concurrently, one start level after the
+ * other. The time of each step can be written in a timeline report.
+ */
+public final class StartupEngine implements SynchronousBundleListener {
+
+    private static final Logger LOGGER = Logger.getLogger(StartupEngine.class.getName());
+
+    /**
+     * The property name of the file receiving the startup timeline report (no report when not set).
+     **/
+    public static final String P_STARTUP_TIMELINE = "weasis.startup.timeline"; //$NON-NLS-1$
+    /**
+     * The property name to start concurrently the bundles of the same start level.
+     **/
+    public static final String P_STARTUP_PARALLEL = "weasis.startup.parallel"; //$NON-NLS-1$
+    /**
+     * The property name of the number of concurrent downloads.
+     **/
+    public static final String P_DOWNLOAD_THREADS = "weasis.bundle.download.threads"; //$NON-NLS-1$
+
+    private static final int FILE_BUFFER = 8192;
+
+    private final long origin = System.nanoTime();
+    private final String timelinePath;
+    private final boolean parallelStart;
+    private final int beginningStartLevel;
+    private final int nbDownloadThreads;
+    private final Map<String, Timing> timings = new ConcurrentHashMap<>();
+    private final Map<String, Future<File>> downloads = new ConcurrentHashMap<>();
+    private final Map<Bundle, Integer> bundlesToStart = new ConcurrentHashMap<>();
+    private ExecutorService downloadExecutor;
+
+    public StartupEngine(Map<String, String> serverProp) {
+        this.timelinePath = getProperty(serverProp, P_STARTUP_TIMELINE, null);
+        this.parallelStart = Boolean.parseBoolean(getProperty(serverProp, P_STARTUP_PARALLEL, null));
+        int threads = Runtime.getRuntime().availableProcessors();
+        try {
+            threads = Integer.parseInt(getProperty(serverProp, P_DOWNLOAD_THREADS, Integer.toString(threads)));
+        } catch (NumberFormatException e) {
+            LOGGER.log(Level.WARNING, "Invalid number of download threads"); //$NON-NLS-1$
+        }
+        this.nbDownloadThreads = Math.max(1, Math.min(8, threads));
+
+        int level = 1;
+        try {
+            level = Integer.parseInt(serverProp.getOrDefault(Constants.FRAMEWORK_BEGINNING_STARTLEVEL, "1")); //$NON-NLS-1$
+        } catch (NumberFormatException e) {
+            LOGGER.log(Level.WARNING, "Invalid beginning start level"); //$NON-NLS-1$
+        }
+        this.beginningStartLevel = level;
+        if (parallelStart) {
+            // The start levels are raised by startBundles()
+            serverProp.put(Constants.FRAMEWORK_BEGINNING_STARTLEVEL, "1"); //$NON-NLS-1$
+        }
+    }
+
+    private static String getProperty(Map<String, String> serverProp, String key, String def) {
+        return System.getProperty(key, serverProp.getOrDefault(key, def));
+    }
+
+    public void register(BundleContext context) {
+        context.addBundleListener(this);
+    }
+
+    @Override
+    public void bundleChanged(BundleEvent event) {
+        String name = AutoProcessor.getBundleNameFromLocation(event.getBundle().getLocation());
+        if (name == null) {
+            return;
+        }
+        Timing t = getTiming(name);
+        switch (event.getType()) {
+            case BundleEvent.RESOLVED:
+                t.resolvedAt = System.nanoTime();
+                break;
+            case BundleEvent.STARTING:
+                t.startingAt = System.nanoTime();
+                break;
+            case BundleEvent.STARTED:
+                t.startedAt = System.nanoTime();
+                break;
+            default:
+                break;
+        }
+    }
+
+    private Timing getTiming(String name) {
+        return timings.computeIfAbsent(name, k -> new Timing());
+    }
+
+    /**
+     * Download in background a bundle which is not in the Felix cache.
+     */
+    void prefetch(BundleContext context, String bundleName, String location, boolean httpCache) {
+        if (downloadExecutor == null) {
+            downloadExecutor = Executors.newFixedThreadPool(nbDownloadThreads, r -> {
+                Thread t = new Thread(r, "Bundle download"); //$NON-NLS-1$
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        if (context.getBundle(getInstallLocation(location)) == null) {
+            downloads.put(location, downloadExecutor.submit(() -> download(bundleName, location, httpCache)));
+        }
+    }
+
+    private static String getInstallLocation(String location) {
+        if (location.endsWith(AutoProcessor.XZ_COMPRESSION)) {
+            // Remove the pack classifier from the location path
+            return location.substring(0, location.length() - AutoProcessor.XZ_COMPRESSION.length());
+        }
+        return location;
+    }
+
+    private File download(String bundleName, String location, boolean httpCache) throws IOException {
+        long start = System.nanoTime();
+        File tmpDir = FileUtil.getApplicationTempDir();
+        tmpDir.mkdirs();
+        File file = File.createTempFile("bundle-", ".jar", tmpDir); //$NON-NLS-1$ //$NON-NLS-2$
+        try {
+            String installLocation = getInstallLocation(location);
+            boolean unpacked = false;
+            if (!installLocation.equals(location)) {
+                URL url = new URL(location);
+                try (XZInputStream in =
+                    new XZInputStream(FileUtil.getAdaptedConnection(url, httpCache).getInputStream())) {
+                    copy(in, file);
+                    verify(file);
+                    unpacked = true;
+                } catch (Exception e) {
+                    LOGGER.log(Level.SEVERE, e, () -> String.format("Cannot install xz compressed bundle %s", url)); //$NON-NLS-1$
+                }
+            }
+            if (!unpacked) {
+                try (InputStream in =
+                    FileUtil.getAdaptedConnection(new URI(installLocation).toURL(), httpCache).getInputStream()) {
+                    copy(in, file);
+                }
+                verify(file);
+            }
+            Timing t = getTiming(bundleName);
+            t.download = System.nanoTime() - start;
+            t.size = file.length();
+            return file;
+        } catch (Exception e) {
+            FileUtil.delete(file);
+            throw e instanceof IOException ? (IOException) e : new IOException(e);
+        }
+    }
+
+    private static void copy(InputStream in, File file) throws IOException {
+        try (OutputStream out = new FileOutputStream(file)) {
+            byte[] buf = new byte[FILE_BUFFER];
+            int offset;
+            while ((offset = in.read(buf)) > 0) {
+                out.write(buf, 0, offset);
+            }
+        }
+    }
+
+    /**
+     * Read all the entries of the jar, which checks their CRC, and the bundle manifest.
+     */
+    private static void verify(File file) throws IOException {
+        try (JarInputStream jar = new JarInputStream(new BufferedInputStream(new FileInputStream(file)), true)) {
+            byte[] buf = new byte[FILE_BUFFER];
+            for (JarEntry entry = jar.getNextJarEntry(); entry != null; entry = jar.getNextJarEntry()) {
+                while (jar.read(buf) >= 0) {
+                    // Reading to the end of the entry verifies its CRC
+                }
+            }
+            Manifest manifest = jar.getManifest();
+            if (manifest == null || manifest.getMainAttributes().getValue(Constants.BUNDLE_SYMBOLICNAME) == null) {
+                throw new IOException("Not a valid bundle: " + file); //$NON-NLS-1$
+            }
+        }
+    }
+
+    /**
+     * Install a bundle from its prefetched file, otherwise from its location.
+     */
+    Bundle installBundle(BundleContext context, String bundleName, String location, boolean httpCache)
+        throws Exception {
+        Future<File> download = downloads.remove(location);
+        File file = null;
+        if (download != null) {
+            try {
+                file = download.get();
+            } catch (ExecutionException e) {
+                LOGGER.log(Level.SEVERE, e.getCause(), () -> String.format("Cannot download bundle %s", location)); //$NON-NLS-1$
+            }
+        }
+        long start = System.nanoTime();
+        try {
+            if (file == null) {
+                return AutoProcessor.installBundle(context, location, httpCache);
+            }
+            try (InputStream in = new FileInputStream(file)) {
+                return context.installBundle(getInstallLocation(location), in);
+            }
+        } finally {
+            getTiming(bundleName).install = System.nanoTime() - start;
+            if (file != null) {
+                FileUtil.delete(file);
+            }
+        }
+    }
+
+    /**
+     * Start a bundle now, or when its start level is reached with the parallel start.
+     */
+    void startBundle(Bundle bundle, int startLevel) throws Exception {
+        if (parallelStart && startLevel <= beginningStartLevel) {
+            if ((bundle.getState() & (Bundle.INSTALLED | Bundle.RESOLVED)) != 0) {
+                // Clear the persistent start of the previous launch, otherwise the framework would start the bundle
+                bundle.stop();
+            }
+            bundlesToStart.put(bundle, startLevel);
+        } else {
+            bundle.start();
+        }
+    }
+
+    /**
+     * Cancel the downloads in progress and delete their files.
+     */
+    void close() {
+        if (downloadExecutor != null) {
+            downloadExecutor.shutdownNow();
+            for (Future<File> f : downloads.values()) {
+                try {
+                    FileUtil.delete(f.get());
+                } catch (Exception e) {
+                    // Nothing to delete
+                }
+            }
+            downloads.clear();
+            downloadExecutor = null;
+        }
+    }
+
+    /**
+     * Raise the start level of the started framework to the beginning start level. With the parallel start, the
+     * bundles of each start level are started concurrently. Then write the timeline report.
+     */
+    public void startBundles(BundleContext context) throws InterruptedException {
+        if (parallelStart) {
+            FrameworkStartLevel fsl = context.getBundle(0).adapt(FrameworkStartLevel.class);
+            Map<Integer, List<Bundle>> levels = new TreeMap<>();
+            bundlesToStart.forEach((b, l) -> levels.computeIfAbsent(l, k -> new ArrayList<>()).add(b));
+            int nbThreads = Math.max(2, Runtime.getRuntime().availableProcessors());
+            ExecutorService executor = Executors.newFixedThreadPool(nbThreads, r -> {
+                Thread t = new Thread(r, "Bundle start"); //$NON-NLS-1$
+                t.setDaemon(true);
+                return t;
+            });
+            try {
+                for (Map.Entry<Integer, List<Bundle>> entry : levels.entrySet()) {
+                    setStartLevel(fsl, entry.getKey());
+                    List<Future<?>> futures = new ArrayList<>();
+                    for (Bundle b : entry.getValue()) {
+                        futures.add(executor.submit(() -> {
+                            try {
+                                b.start();
+                            } catch (Exception e) {
+                                LOGGER.log(Level.SEVERE, e,
+                                    () -> String.format("Cannot start bundle %s", b.getSymbolicName())); //$NON-NLS-1$
+                            }
+                        }));
+                    }
+                    for (Future<?> f : futures) {
+                        try {
+                            f.get();
+                        } catch (ExecutionException e) {
+                            LOGGER.log(Level.SEVERE, "Start bundle", e.getCause()); //$NON-NLS-1$
+                        }
+                    }
+                }
+            } finally {
+                executor.shutdown();
+            }
+            setStartLevel(fsl, beginningStartLevel);
+            bundlesToStart.clear();
+        }
+        context.removeBundleListener(this);
+        writeTimeline(context);
+    }
+
+    private static void setStartLevel(FrameworkStartLevel fsl, int level) throws InterruptedException {
+        if (fsl.getStartLevel() < level) {
+            CountDownLatch latch = new CountDownLatch(1);
+            fsl.setStartLevel(level, event -> {
+                if (event.getType() == FrameworkEvent.STARTLEVEL_CHANGED || event.getType() == FrameworkEvent.ERROR) {
+                    latch.countDown();
+                }
+            });
+            latch.await(5, TimeUnit.MINUTES);
+        }
+    }
+
+    private void writeTimeline(BundleContext context) {
+        long end = System.nanoTime();
+        LOGGER.log(Level.INFO, "Bundles installed and started in {0} ms", //$NON-NLS-1$
+            TimeUnit.NANOSECONDS.toMillis(end - origin));
+        if (!Utils.hasText(timelinePath)) {
+            return;
+        }
+        Map<String, Integer> levels = new ConcurrentHashMap<>();
+        for (Bundle b : context.getBundles()) {
+            String name = AutoProcessor.getBundleNameFromLocation(b.getLocation());
+            if (name != null) {
+                levels.put(name, b.adapt(BundleStartLevel.class).getStartLevel());
+            }
+        }
+        List<Map.Entry<String, Timing>> list = new ArrayList<>(timings.entrySet());
+        list.sort(Comparator.comparingLong((Map.Entry<String, Timing> e) -> e.getValue().getTotal()).reversed());
+
+        File file = new File(timelinePath);
+        try (PrintWriter w = new PrintWriter(file, StandardCharsets.UTF_8.name())) {
+            w.println("# Startup timeline in ms, total: " + TimeUnit.NANOSECONDS.toMillis(end - origin)); //$NON-NLS-1$
+            w.println("bundle;start level;download;size (bytes);install;resolved at;activation;started at"); //$NON-NLS-1$
+            for (Map.Entry<String, Timing> e : list) {
+                Timing t = e.getValue();
+                w.println(String.join(";", e.getKey(), String.valueOf(levels.getOrDefault(e.getKey(), 0)), //$NON-NLS-1$
+                    toMs(t.download), String.valueOf(t.size), toMs(t.install), toRelativeMs(t.resolvedAt),
+                    t.startingAt == 0 || t.startedAt == 0 ? "" : toMs(t.startedAt - t.startingAt), //$NON-NLS-1$
+                    toRelativeMs(t.startedAt)));
+            }
+            LOGGER.log(Level.INFO, "Startup timeline written in {0}", file); //$NON-NLS-1$
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, e, () -> String.format("Cannot write startup timeline %s", file)); //$NON-NLS-1$
+        }
+    }
+
+    private static String toMs(long nanos) {
+        return String.valueOf(TimeUnit.NANOSECONDS.toMillis(nanos));
+    }
+
+    private String toRelativeMs(long time) {
+        return time == 0 ? "" : toMs(time - origin); //$NON-NLS-1$
+    }
+
+    private static class Timing {
+        private volatile long download;
+        private volatile long size;
+        private volatile long install;
+        private volatile long resolvedAt;
+        private volatile long startingAt;
+        private volatile long startedAt;
+
+        long getTotal() {
+            long activation = startingAt == 0 || startedAt == 0 ? 0 : startedAt - startingAt;
+            return download + install + activation;
+        }
+    }
+}
@@ -237,14 +237,16 @@ public class WeasisLauncher {
         try {
 
             String goshArgs = getGoshArgs(serverProp);
+            StartupEngine startupEngine = new StartupEngine(serverProp);
             // Now create an instance of the framework with our configuration properties.
             mFelix = new Felix(serverProp);
             // Initialize the framework, but don't start it yet.
             mFelix.init();
+            startupEngine.register(mFelix.getBundleContext());
 
             // Use the system bundle context to process the auto-deploy
             // and auto-install/auto-start properties.
-            loader.setFelix(serverProp, mFelix.getBundleContext(), modulesi18n);
+            loader.setFelix(serverProp, mFelix.getBundleContext(), modulesi18n, startupEngine);
             loader.writeLabel(
                 String.format(Messages.getString("WeasisLauncher.starting"), System.getProperty(P_WEASIS_NAME))); //$NON-NLS-1$
             mTracker =
@@ -254,6 +256,7 @@ public class WeasisLauncher {
 
             // Start the framework.
             mFelix.start();
+            startupEngine.startBundles(mFelix.getBundleContext());
 
             // End of splash screen
             loader.close();
@@ -271,6 +274,7 @@ public class WeasisLauncher {
             frameworkLoaded = true;
 
             showMessage(mainFrame, serverProp);
+            BundlePreloader.preloadBundles(mFelix.getBundleContext(), serverProp);
 
             // Wait for framework to stop to exit the VM.
             mFelix.waitForStop(0);
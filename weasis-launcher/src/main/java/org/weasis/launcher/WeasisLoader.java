@@ -244,7 +244,8 @@ public class WeasisLoader {
         }
     }
 
-    public void setFelix(Map<String, String> serverProp, BundleContext bundleContext, Properties modulesi18n) {
-        AutoProcessor.process(serverProp, modulesi18n, bundleContext, this);
+    public void setFelix(Map<String, String> serverProp, BundleContext bundleContext, Properties modulesi18n,
+        StartupEngine engine) {
+        AutoProcessor.process(serverProp, modulesi18n, bundleContext, this, engine);
     }
 }
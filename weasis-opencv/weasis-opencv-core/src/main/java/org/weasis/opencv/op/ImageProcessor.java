@@ -334,26 +334,36 @@ public class ImageProcessor {
     }
 
     public static ImageCV overlay(Mat source, RenderedImage imgOverlay, Color color) {
+        return overlay(source, ImageConversion.toMat(Objects.requireNonNull(imgOverlay)), color);
+    }
+
+    /**
+     * Paint the color on the pixels where the mask is not 0.
+     *
+     * @param source
+     *            the source image
+     * @param mask
+     *            the 8-bit mask of the same size, it is not modified and can be cached
+     * @param color
+     *            the color of the overlay
+     * @return the new image
+     */
+    public static ImageCV overlay(Mat source, Mat mask, Color color) {
         ImageCV srcImg = ImageCV.toImageCV(Objects.requireNonNull(source));
-        Mat mask = ImageConversion.toMat(Objects.requireNonNull(imgOverlay));
+        Objects.requireNonNull(mask);
+        ImageCV dstImg = new ImageCV();
         if (isGray(color) && srcImg.channels() == 1) {
-            Mat grayImg = new Mat(srcImg.size(), CvType.CV_8UC1, new Scalar(color.getRed()));
-            ImageCV dstImg = new ImageCV();
             srcImg.copyTo(dstImg);
-            grayImg.copyTo(dstImg, mask);
+            dstImg.setTo(new Scalar(color.getRed()), mask);
             return dstImg;
         }
 
-        ImageCV dstImg = new ImageCV();
         if (srcImg.channels() < 3) {
             Imgproc.cvtColor(srcImg, dstImg, Imgproc.COLOR_GRAY2BGR);
         } else {
             srcImg.copyTo(dstImg);
         }
-
-        Mat colorImg =
-            new Mat(dstImg.size(), CvType.CV_8UC3, new Scalar(color.getBlue(), color.getGreen(), color.getRed()));
-        colorImg.copyTo(dstImg, mask);
+        dstImg.setTo(new Scalar(color.getBlue(), color.getGreen(), color.getRed()), mask);
         return dstImg;
     }
 
@@ -389,37 +399,44 @@ public class ImageProcessor {
 
     public static ImageCV applyShutter(Mat source, Shape shape, Color color) {
         Mat srcImg = Objects.requireNonNull(source);
-        Mat mask = Mat.zeros(srcImg.size(), CvType.CV_8UC1);
-        List<MatOfPoint> pts = transformShapeToContour(shape, true);
+        return applyShutterMask(srcImg, buildShapeMask(shape, srcImg.size()), color);
+    }
+
+    /**
+     * @param shape
+     *            the shape to fill
+     * @param size
+     *            the size of the mask
+     * @return the 8-bit mask with the value 1 inside the shape
+     */
+    public static ImageCV buildShapeMask(Shape shape, Size size) {
+        ImageCV mask = new ImageCV(size, CvType.CV_8UC1, new Scalar(0));
+        List<MatOfPoint> pts = transformShapeToContour(Objects.requireNonNull(shape), true);
         Imgproc.fillPoly(mask, pts, new Scalar(1));
+        return mask;
+    }
+
+    /**
+     * Keep the pixels of the visible area and fill the other pixels with the shutter color.
+     *
+     * @param source
+     *            the source image
+     * @param visibleMask
+     *            the 8-bit mask of the visible area, it is not modified and can be cached
+     * @param color
+     *            the color of the shutter
+     * @return the new image
+     */
+    public static ImageCV applyShutterMask(Mat source, Mat visibleMask, Color color) {
+        Mat srcImg = Objects.requireNonNull(source);
         ImageCV dstImg =
             new ImageCV(srcImg.size(), srcImg.type(), new Scalar(color.getBlue(), color.getGreen(), color.getRed()));
-        srcImg.copyTo(dstImg, mask);
+        srcImg.copyTo(dstImg, Objects.requireNonNull(visibleMask));
         return dstImg;
     }
 
     public static ImageCV applyShutter(Mat source, RenderedImage imgOverlay, Color color) {
-        ImageCV srcImg = ImageCV.toImageCV(Objects.requireNonNull(source));
-        Mat mask = ImageConversion.toMat(Objects.requireNonNull(imgOverlay));
-        if (isGray(color) && srcImg.channels() == 1) {
-            Mat grayImg = new Mat(srcImg.size(), CvType.CV_8UC1, new Scalar(color.getRed()));
-            ImageCV dstImg = new ImageCV();
-            srcImg.copyTo(dstImg);
-            grayImg.copyTo(dstImg, mask);
-            return dstImg;
-        }
-
-        ImageCV dstImg = new ImageCV();
-        if (srcImg.channels() < 3) {
-            Imgproc.cvtColor(srcImg, dstImg, Imgproc.COLOR_GRAY2BGR);
-        } else {
-            srcImg.copyTo(dstImg);
-        }
-
-        Mat colorImg =
-            new Mat(dstImg.size(), CvType.CV_8UC3, new Scalar(color.getBlue(), color.getGreen(), color.getRed()));
-        colorImg.copyTo(dstImg, mask);
-        return dstImg;
+        return overlay(source, ImageConversion.toMat(Objects.requireNonNull(imgOverlay)), color);
     }
 
     public static BufferedImage getAsImage(Area shape, RenderedImage source) {